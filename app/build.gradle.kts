@@ -2,6 +2,28 @@ plugins {
     alias(libs.plugins.android.application)
 }
 
+// The catalog is compiled from src/main/catalog/catalog.json into an indexed binary asset
+// by CatalogCompiler in :core, and memory-mapped at runtime by BinaryCatalog.
+val catalogCompiler by configurations.creating {
+    isCanBeConsumed = false
+    attributes {
+        attribute(Usage.USAGE_ATTRIBUTE, objects.named(Usage.JAVA_RUNTIME))
+    }
+}
+val catalogAssetsDir = layout.buildDirectory.dir("generated/catalog/assets")
+val compileCatalog by tasks.registering(JavaExec::class) {
+    description = "Compiles the book catalog into the binary asset read by BinaryCatalog."
+    val source = layout.projectDirectory.file("src/main/catalog/catalog.json")
+    val output = catalogAssetsDir.map { it.file("catalog.bin") }
+    classpath = catalogCompiler
+    mainClass.set("com.example.bookworm.CatalogCompiler")
+    inputs.file(source)
+    outputs.dir(catalogAssetsDir)
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(source.asFile.absolutePath, output.get().asFile.absolutePath)
+    })
+}
+
 android {
     namespace = "com.example.bookworm"
     compileSdk {
@@ -27,24 +49,51 @@ android {
             )
         }
     }
+    sourceSets {
+        getByName("main") {
+            assets.srcDir(catalogAssetsDir)
+        }
+    }
+    androidResources {
+        // Stored uncompressed so BinaryCatalog can memory-map it straight from the APK
+        noCompress += "bin"
+    }
+    buildFeatures {
+        // BuildConfig.DEBUG enables the StrictMode gate in BookwormApplication
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Robolectric tests (e.g. SqliteLoanStoreTest) run against the merged resources
+        unitTests.isIncludeAndroidResources = true
+    }
 }
 
 dependencies {
+    implementation(project(":core"))
+    catalogCompiler(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
     androidTestImplementation(libs.ext.junit)
+    androidTestImplementation(libs.test.core)
     androidTestImplementation(libs.espresso.core)
     implementation("androidx.recyclerview:recyclerview:1.3.2")
     implementation("androidx.cardview:cardview:1.0.0")
+    implementation("androidx.lifecycle:lifecycle-livedata:2.9.4")
     implementation("com.github.bumptech.glide:glide:4.16.0")
+    implementation("com.github.bumptech.glide:recyclerview-integration:4.16.0")
     annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
-    implementation("com.google.code.gson:gson:2.10.1")
 
+}
+
+tasks.named("preBuild") {
+    dependsOn(compileCatalog)
 }
\ No newline at end of file
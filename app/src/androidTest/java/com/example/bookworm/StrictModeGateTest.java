@@ -0,0 +1,129 @@
+package com.example.bookworm;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Launches each screen with StrictMode watching the main thread for disk reads and writes,
+ * and fails if any violation passes through the app's own code. This is the CI side of the
+ * debug StrictMode gate in {@link BookwormApplication}: instead of crashing, violations are
+ * recorded so the test can report all of them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StrictModeGateTest {
+
+    /** Log tag for violations outside app code. */
+    private static final String TAG = "StrictModeGateTest";
+
+    /** Violations reported on the main thread, in order. Guarded by itself. */
+    private final List<Violation> violations = new ArrayList<>();
+
+    /** The main thread policy before the test, restored afterwards. */
+    private StrictMode.ThreadPolicy previousPolicy;
+
+    /**
+     * Replaces the debug gate with a policy that records violations instead of crashing,
+     * and waits for the catalog the application started opening.
+     */
+    @Before
+    public void setUp() throws Exception {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        BookRepository.loadCatalog(instrumentation.getTargetContext()).get(30, TimeUnit.SECONDS);
+        instrumentation.runOnMainSync(() -> {
+            previousPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyListener(Runnable::run, violation -> {
+                        synchronized (violations) {
+                            violations.add(violation);
+                        }
+                    })
+                    .build());
+        });
+    }
+
+    /**
+     * Restores the debug gate.
+     */
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                () -> StrictMode.setThreadPolicy(previousPolicy));
+    }
+
+    /**
+     * The start screen does no disk I/O on the main thread.
+     */
+    @Test
+    public void mainActivity() {
+        exercise(MainActivity.class);
+    }
+
+    /**
+     * The browse screen does no disk I/O on the main thread.
+     */
+    @Test
+    public void browseBooksActivity() {
+        exercise(BrowseBooksActivity.class);
+    }
+
+    /**
+     * The list screen does no disk I/O on the main thread.
+     */
+    @Test
+    public void myListActivity() {
+        exercise(MyListActivity.class);
+    }
+
+    /**
+     * Starts a screen, recreates it as after a configuration change, takes it through
+     * the background and back, and checks the violations it caused.
+     *
+     * @param activityClass The screen to exercise.
+     */
+    private void exercise(Class<? extends Activity> activityClass) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        try (ActivityScenario<? extends Activity> scenario = ActivityScenario.launch(activityClass)) {
+            instrumentation.waitForIdleSync();
+            scenario.recreate();
+            instrumentation.waitForIdleSync();
+            scenario.moveToState(Lifecycle.State.CREATED);
+            scenario.moveToState(Lifecycle.State.RESUMED);
+            instrumentation.waitForIdleSync();
+        }
+        instrumentation.waitForIdleSync();
+
+        ArrayList<String> fromAppCode = new ArrayList<>();
+        synchronized (violations) {
+            for (Violation violation : violations) {
+                if (BookwormApplication.isFromAppCode(violation)) {
+                    fromAppCode.add(Log.getStackTraceString(violation));
+                } else {
+                    Log.w(TAG, "Disk access on the main thread outside app code", violation);
+                }
+            }
+        }
+        assertTrue(activityClass.getSimpleName() + " accessed the disk on the main thread:\n"
+                + String.join("\n", fromAppCode), fromAppCode.isEmpty());
+    }
+}
\ No newline at end of file
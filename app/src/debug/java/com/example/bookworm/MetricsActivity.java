@@ -0,0 +1,124 @@
+package com.example.bookworm;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MetricsActivity shows the latency histograms and counters collected in {@link PerfMetrics}
+ * as JSON. It exists in debug builds only and has its own launcher entry, so the numbers
+ * can be checked right after exercising a screen. Metrics can be reset before a run and
+ * exported afterwards; the export is shared as text and also saved as metrics.json in the
+ * app's external files, where it can be pulled with adb.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    /** Log tag for export failures. */
+    private static final String TAG = "BookwormMetrics";
+
+    /** Displays the metrics JSON. */
+    private TextView textMetrics;
+
+    /**
+     * Sets up the buttons and shows the current metrics.
+     *
+     * @param savedInstanceState A Bundle containing the activity's previously saved state, if any.
+     */
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        textMetrics = findViewById(R.id.textMetrics);
+        Button buttonRefresh = findViewById(R.id.buttonRefreshMetrics);
+        Button buttonReset = findViewById(R.id.buttonResetMetrics);
+        Button buttonShare = findViewById(R.id.buttonShareMetrics);
+
+        buttonRefresh.setOnClickListener(v -> showMetrics());
+        buttonReset.setOnClickListener(v -> {
+            PerfMetrics.reset();
+            showMetrics();
+        });
+        buttonShare.setOnClickListener(v -> shareMetrics());
+    }
+
+    /**
+     * Shows the metrics again when the screen comes back, e.g. after using the app.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    /**
+     * Displays the current metrics.
+     */
+    private void showMetrics() {
+        textMetrics.setText(toJson());
+    }
+
+    /**
+     * Saves the current metrics to a file on the I/O thread and shares them as text.
+     */
+    private void shareMetrics() {
+        String json = toJson();
+
+        // Resolving the directory creates it, so that happens on the I/O thread as well
+        Context appContext = getApplicationContext();
+        BookwormExecutors.io().execute(() -> saveMetrics(appContext.getExternalFilesDir("metrics"), json));
+
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("text/plain");
+        send.putExtra(Intent.EXTRA_SUBJECT, "Bookworm metrics");
+        send.putExtra(Intent.EXTRA_TEXT, json);
+        startActivity(Intent.createChooser(send, getString(R.string.metrics_share)));
+    }
+
+    /**
+     * Writes the metrics to metrics.json. Runs on the I/O thread.
+     *
+     * @param directory The directory to write to, or null if external storage is unavailable.
+     * @param json      The metrics JSON.
+     */
+    private static void saveMetrics(File directory, String json) {
+        if (directory == null) {
+            return;
+        }
+        File file = new File(directory, "metrics.json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(json);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to save " + file, e);
+        }
+    }
+
+    /**
+     * Renders the current metrics as JSON.
+     *
+     * @return The JSON text.
+     */
+    private static String toJson() {
+        StringWriter json = new StringWriter();
+        try {
+            PerfMetrics.writeJson(json);
+        } catch (IOException e) {
+            // A StringWriter never fails
+            throw new IllegalStateException(e);
+        }
+        return json.toString();
+    }
+}
\ No newline at end of file
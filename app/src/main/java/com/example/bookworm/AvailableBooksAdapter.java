@@ -1,6 +1,8 @@
 package com.example.bookworm;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
+import android.os.Trace;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,38 +12,113 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * AvailableBooksAdapter renders the available books list in a RecyclerView.
  * This adapter is responsible for displaying the library's catalog and allowing
- * users to add books to their personal list, which is persisted using SharedPreferences.
+ * users to add books to their personal list, which is kept in the shared MyListCache.
+ * Books are bound from a {@link PagedCatalog}, so only a bounded window of the catalog
+ * is held in memory; rows whose page has not loaded yet are shown as placeholders.
+ * When a new set of search results arrives, it is diffed against the displayed set on a
+ * background thread and only the rows that changed are dispatched.
+ * Covers are loaded through a {@link CoverLoader} at thumbnail size, and the adapter
+ * supplies the books ahead of the scroll position to Glide's RecyclerView preloader.
+ * The hosting activity pushes snapshots of the user's list, so books already in it show
+ * as such; when the set of listed books changes, visible rows only rebind their button.
+ *
+ * Long-pressing a row starts a multi-select mode in which tapping rows picks books to add
+ * together; the hosting activity offers the bulk action, which the cache records as a
+ * single storage batch. Selection changes only rebind the affected rows' selected state.
  */
-public class AvailableBooksAdapter extends RecyclerView.Adapter<AvailableBooksAdapter.BookViewHolder> {
+public class AvailableBooksAdapter extends RecyclerView.Adapter<AvailableBooksAdapter.BookViewHolder>
+        implements ListPreloader.PreloadModelProvider<Book> {
 
-    /** Context used for inflating layouts, displaying Toasts, and loading images with Glide. */
+    /** Background thread shared by all instances for diffing search results. */
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookworm-browse-diff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Time taken to inflate a row. */
+    private static final LatencyHistogram INFLATE_LATENCY = PerfMetrics.histogram("browse.inflateRow");
+
+    /** Time taken to bind a row. */
+    private static final LatencyHistogram BIND_LATENCY = PerfMetrics.histogram("browse.bindRow");
+
+    /** Context used for inflating layouts and displaying Toasts. */
     private final Context context;
+
+    /** Loads downsampled cover thumbnails. */
+    private final CoverLoader coverLoader;
+
+    /** Executor used to apply diff results on the main thread. */
+    private final Executor mainExecutor;
     
-    /** The list of books available for browsing. */
-    private final ArrayList<Book> availableBooks;
+    /** The paged catalog of books available for browsing. */
+    private final PagedCatalog catalog;
+
+    /** Catalog positions of the current search results, or null to show the whole catalog. */
+    private int[] searchResults;
+
+    /** Incremented for every submitted result set so stale diffs can be discarded. */
+    private int searchGeneration;
+
+    /** Payload for rebinding only the "Add to List" button of a row. */
+    private static final Object PAYLOAD_MY_LIST = new Object();
+
+    /** Payload for rebinding only the selected state of a row. */
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    /** Books picked in multi-select mode. */
+    private final BookSelection selection = new BookSelection();
+
+    /** The latest snapshot of the user's list, or null until one is pushed. */
+    private MyListSnapshot myList;
+
+    /** Button text for books that can be added. */
+    private final String addToListLabel;
+
+    /** Button text for books already in the user's list. */
+    private final String inMyListLabel;
 
     /**
      * Constructs a new AvailableBooksAdapter.
      * 
-     * @param context        The Activity or Fragment context.
-     * @param availableBooks The list of Book objects to be displayed.
+     * @param context The Activity or Fragment context.
+     * @param catalog     The paged catalog to be displayed.
+     * @param coverLoader Loader for cover thumbnails.
      */
-    public AvailableBooksAdapter(Context context, ArrayList<Book> availableBooks) {
+    public AvailableBooksAdapter(Context context, PagedCatalog catalog, CoverLoader coverLoader) {
         this.context = context;
-        this.availableBooks = availableBooks;
+        this.catalog = catalog;
+        this.coverLoader = coverLoader;
+        this.mainExecutor = context.getMainExecutor();
+        this.addToListLabel = context.getString(R.string.add_to_list);
+        this.inMyListLabel = context.getString(R.string.in_my_list);
+
+        // Rebind placeholder rows once their page arrives
+        catalog.setListener(this::onCatalogRangeLoaded);
+
+        // Rows are identified by catalog position, which is known before the book is loaded
+        setHasStableIds(true);
     }
 
     /**
      * Called when RecyclerView needs a new ViewHolder of the given type to represent an item.
+     * Click handlers are attached here once and stay with the ViewHolder for its lifetime.
      * 
      * @param parent   The ViewGroup into which the new View will be added.
      * @param viewType The view type of the new View.
@@ -50,9 +127,26 @@ public class AvailableBooksAdapter extends RecyclerView.Adapter<AvailableBooksAd
     @NonNull
     @Override
     public BookViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        // Inflate the item layout (CardView) for each book in the browse list
-        View rowView = LayoutInflater.from(context).inflate(R.layout.item_book_browse, parent, false);
-        return new BookViewHolder(rowView);
+        Trace.beginSection("Browse.inflateRow");
+        long start = System.nanoTime();
+        try {
+            // Inflate the item layout (CardView) for each book in the browse list
+            View rowView = LayoutInflater.from(context).inflate(R.layout.item_book_browse, parent, false);
+            BookViewHolder holder = new BookViewHolder(rowView);
+            holder.buttonAddToList.setOnClickListener(v -> onAddClicked(holder));
+
+            // A long press starts multi-select mode; while it lasts, taps pick rows
+            rowView.setOnLongClickListener(v -> toggleSelection(holder));
+            rowView.setOnClickListener(v -> {
+                if (selection.isActive()) {
+                    toggleSelection(holder);
+                }
+            });
+            return holder;
+        } finally {
+            INFLATE_LATENCY.recordSince(start);
+            Trace.endSection();
+        }
     }
 
     /**
@@ -63,61 +157,331 @@ public class AvailableBooksAdapter extends RecyclerView.Adapter<AvailableBooksAd
      */
     @Override
     public void onBindViewHolder(@NonNull BookViewHolder holder, int position) {
-        // Get the book data for the current position
-        Book currentBook = availableBooks.get(position);
+        Trace.beginSection("Browse.bindRow");
+        long start = System.nanoTime();
+        try {
+            // Get the book data for the current position (null while its page is loading)
+            Book currentBook = catalog.getItem(toCatalogPosition(position));
+
+            if (currentBook == null) {
+                bindPlaceholder(holder);
+                return;
+            }
+
+            // Set the title and author text views
+            holder.textBookTitle.setText(currentBook.getTitle());
+            holder.textBookAuthor.setText(currentBook.getAuthor());
+
+            // Decode the cover at thumbnail size; preloaded covers come straight from memory
+            coverLoader.load(currentBook, holder.imageBookCover);
+
+            // Show whether the book can still be added to the list
+            bindMyListState(holder, currentBook);
+            holder.itemView.setActivated(selection.isSelected(currentBook));
+        } finally {
+            BIND_LATENCY.recordSince(start);
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Rebinds only the "Add to List" button and the selected state when the user's list
+     * or the selection changed.
+     *
+     * @param holder   The ViewHolder to update.
+     * @param position The position of the item within the adapter's data set.
+     * @param payloads The pending partial updates, empty for a full bind.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull BookViewHolder holder, int position, @NonNull List<Object> payloads) {
+        Book currentBook = catalog.peekItem(toCatalogPosition(position));
+        if (payloads.isEmpty() || currentBook == null) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        bindMyListState(holder, currentBook);
+        holder.itemView.setActivated(selection.isSelected(currentBook));
+    }
+
+    /**
+     * Gets the books picked in multi-select mode. The hosting activity listens to it to
+     * show the bulk action.
+     *
+     * @return The selection.
+     */
+    public BookSelection getSelection() {
+        return selection;
+    }
+
+    /**
+     * Adds every selected book to the user's list in one batch and ends multi-select mode.
+     */
+    public void addSelectedToMyList() {
+        MyListCache.getInstance(context).addAll(selection.getBooks()).thenAccept(added ->
+                Toast.makeText(context, context.getResources().getQuantityString(
+                        R.plurals.books_added_summary, added, added), Toast.LENGTH_SHORT).show());
+        clearSelection();
+    }
 
-        // Set the title and author text views
-        holder.textBookTitle.setText(currentBook.getTitle());
-        holder.textBookAuthor.setText(currentBook.getAuthor());
+    /**
+     * Ends multi-select mode, rebinding only the selected state of the rows.
+     */
+    public void clearSelection() {
+        if (!selection.isActive()) {
+            return;
+        }
+        selection.clear();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+    }
 
-        // Use Glide to efficiently load the local drawable image into the ImageView
-        Glide.with(context)
-                .load(currentBook.getCoverImageResId())
-                .into(holder.imageBookCover);
+    /**
+     * Selects or deselects the book in a row. Books already in the user's list and rows
+     * that are still loading cannot be selected.
+     *
+     * @param holder The ViewHolder of the row.
+     * @return True, as the press is always consumed.
+     */
+    private boolean toggleSelection(BookViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) return true;
+        Book book = catalog.peekItem(toCatalogPosition(position));
+        if (book == null || (myList != null && myList.contains(book))) return true;
 
-        // Set up the click listener for the "Add to List" button
-        holder.buttonAddToList.setOnClickListener(v -> addBookToMyList(currentBook));
+        selection.toggle(book);
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        return true;
+    }
+
+    /**
+     * Shows whether a book can still be added to the user's list.
+     *
+     * @param holder The ViewHolder to update.
+     * @param book   The book shown in the row.
+     */
+    private void bindMyListState(@NonNull BookViewHolder holder, Book book) {
+        boolean listed = myList != null && myList.contains(book);
+        holder.buttonAddToList.setEnabled(!listed);
+        holder.buttonAddToList.setText(listed ? inMyListLabel : addToListLabel);
+    }
+
+    /**
+     * Receives a new snapshot of the user's list. Rows are only rebound if the set of listed
+     * books changed, and then only their button; a change of return dates costs nothing.
+     *
+     * @param snapshot The latest snapshot.
+     */
+    public void setMyList(MyListSnapshot snapshot) {
+        boolean changed = !snapshot.hasSameKeysAs(myList);
+        myList = snapshot;
+        if (changed) {
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_MY_LIST);
+        }
+    }
+
+    /**
+     * Shows an empty row for a book whose page has not been loaded yet.
+     * 
+     * @param holder The ViewHolder to clear.
+     */
+    private void bindPlaceholder(@NonNull BookViewHolder holder) {
+        holder.textBookTitle.setText("");
+        holder.textBookAuthor.setText("");
+        coverLoader.clear(holder.imageBookCover);
+        holder.buttonAddToList.setEnabled(false);
+        holder.buttonAddToList.setText(addToListLabel);
+        holder.itemView.setActivated(false);
     }
 
     /**
      * Returns the total number of items in the data set held by the adapter.
      * 
-     * @return The size of the availableBooks list.
+     * @return The number of search results, or the size of the catalog (including books
+     *         that are not loaded yet) when no search is active.
      */
     @Override
     public int getItemCount() {
-        return availableBooks.size();
+        return (searchResults != null) ? searchResults.length : catalog.getCount();
     }
 
     /**
-     * Adds a selected book to the user's personal list and saves it to SharedPreferences.
-     * This method performs a check to ensure that duplicate books are not added.
+     * Returns the stable id of the book at the given position. The catalog does not change
+     * while the adapter shows it, so a book's catalog position identifies it: the id is the
+     * same for a placeholder and for the loaded row, and follows the book into search results.
+     * 
+     * @param position The adapter position.
+     * @return The catalog position of the book shown there.
+     */
+    @Override
+    public long getItemId(int position) {
+        return toCatalogPosition(position);
+    }
+
+    /**
+     * Returns the book to preload for an adapter position. Only resident pages are used,
+     * so preloading never triggers catalog loads of its own.
+     *
+     * @param position The adapter position ahead of the scroll position.
+     * @return The book at that position, or an empty list if it is not loaded.
+     */
+    @NonNull
+    @Override
+    public List<Book> getPreloadItems(int position) {
+        if (position >= getItemCount()) {
+            return Collections.emptyList();
+        }
+        Book book = catalog.peekItem(toCatalogPosition(position));
+        return (book != null) ? Collections.singletonList(book) : Collections.emptyList();
+    }
+
+    /**
+     * Builds the preload request for a book, identical to the one used when binding it.
+     *
+     * @param book The book to preload.
+     * @return The cover request.
+     */
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Book book) {
+        return coverLoader.request(book);
+    }
+
+    /**
+     * Restricts the list to a set of search results. Moving from one result set to another
+     * is diffed on a background thread, so the UI thread only applies the changed rows.
+     * Entering or leaving a search replaces the whole list instead.
+     * 
+     * @param positions Catalog positions of the matching books in display order,
+     *                  or null to show the whole catalog again.
+     */
+    @SuppressLint("NotifyDataSetChanged")
+    public void setSearchResults(int[] positions) {
+        int[] previous = searchResults;
+        int generation = ++searchGeneration;
+
+        if (previous == null || positions == null) {
+            // Diffing against the full catalog would walk every catalog position, most of them
+            // not even loaded. Rows have stable ids, so RecyclerView still keeps the holders
+            // of books shown both before and after.
+            searchResults = positions;
+            notifyDataSetChanged();
+            return;
+        }
+
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new PositionsDiffCallback(previous, positions));
+            mainExecutor.execute(() -> {
+                // A newer result set has been submitted in the meantime
+                if (generation != searchGeneration) return;
+                searchResults = positions;
+                diff.dispatchUpdatesTo(this);
+            });
+        });
+    }
+
+    /**
+     * Rebinds the rows showing books from a freshly loaded catalog page.
+     * 
+     * @param positionStart Catalog position of the first loaded book.
+     * @param itemCount     Number of books loaded.
+     */
+    private void onCatalogRangeLoaded(int positionStart, int itemCount) {
+        if (searchResults == null) {
+            notifyItemRangeChanged(positionStart, itemCount);
+            return;
+        }
+        for (int i = 0; i < searchResults.length; i++) {
+            if (searchResults[i] >= positionStart && searchResults[i] < positionStart + itemCount) {
+                notifyItemChanged(i);
+            }
+        }
+    }
+
+    /**
+     * Maps an adapter position to a catalog position, taking any active search into account.
+     * 
+     * @param position The adapter position.
+     * @return The position of the same book in the catalog.
+     */
+    private int toCatalogPosition(int position) {
+        return (searchResults != null) ? searchResults[position] : position;
+    }
+
+    /**
+     * Adds the book shown in a row to the user's list. The book is looked up when the button
+     * is tapped, so the listener does not need to be replaced on every bind.
+     *
+     * @param holder The ViewHolder of the row.
+     */
+    private void onAddClicked(BookViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) return;
+        Book book = catalog.peekItem(toCatalogPosition(position));
+        if (book != null) {
+            addBookToMyList(book);
+        }
+    }
+
+    /**
+     * Adds a selected book to the user's personal list through the shared MyListCache.
+     * The cache rejects duplicates, so no storage read is needed on the tap path, and it
+     * publishes the change back to this adapter and any other observer.
      * 
      * @param book The book object selected by the user.
      */
     private void addBookToMyList(Book book) {
-        // Load the current list from storage
-        ArrayList<Book> myList = BookStorage.loadMyList(context);
-
-        // Check if the book is already in the list (comparison by title)
-        boolean alreadyExists = false;
-        for (Book b : myList) {
-            if (b.getTitle().equalsIgnoreCase(book.getTitle())) {
-                alreadyExists = true;
-                break;
+        // Add the book unless it is already in the list (comparison by book key)
+        MyListCache.getInstance(context).add(book).thenAccept(added -> {
+            if (!added) {
+                Toast.makeText(context, "This book is already in your list.", Toast.LENGTH_SHORT).show();
+                return;
             }
+
+            Toast.makeText(context, "Added to My List!", Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * Diffs two search result sets. Catalog positions identify books, and a book's
+     * content never changes while it is displayed.
+     */
+    private static class PositionsDiffCallback extends DiffUtil.Callback {
+
+        /** The displayed result set. */
+        private final int[] oldPositions;
+
+        /** The new result set. */
+        private final int[] newPositions;
+
+        /**
+         * Creates a callback comparing two result sets.
+         * 
+         * @param oldPositions The displayed result set.
+         * @param newPositions The new result set.
+         */
+        PositionsDiffCallback(int[] oldPositions, int[] newPositions) {
+            this.oldPositions = oldPositions;
+            this.newPositions = newPositions;
         }
 
-        if (alreadyExists) {
-            Toast.makeText(context, "This book is already in your list.", Toast.LENGTH_SHORT).show();
-            return;
+        @Override
+        public int getOldListSize() {
+            return oldPositions.length;
         }
 
-        // Add the new book and persist the updated list
-        myList.add(book);
-        BookStorage.saveMyList(context, myList);
+        @Override
+        public int getNewListSize() {
+            return newPositions.length;
+        }
 
-        Toast.makeText(context, "Added to My List!", Toast.LENGTH_SHORT).show();
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldPositions[oldItemPosition] == newPositions[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return true;
+        }
     }
 
     /**
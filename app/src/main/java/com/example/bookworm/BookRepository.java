@@ -1,64 +1,197 @@
 package com.example.bookworm;
 
-import java.util.ArrayList;
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.os.Trace;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * BookRepository acts as a data provider for the library's catalog.
- * For this project, it provides a hardcoded list of programming books,
- * each associated with local cover images and information URLs.
+ * The catalog is compiled at build time from src/main/catalog/catalog.json into the
+ * catalog.bin asset, which is stored uncompressed in the APK and memory-mapped here, so
+ * opening it reads only a small header and books are decoded when a page is displayed.
+ * Screens should page through the catalog returned by {@link #loadCatalog(Context)} rather
+ * than holding the whole list in memory.
+ *
+ * When a catalog service is configured (R.string.catalog_service_url), the catalog is kept
+ * up to date by {@link CatalogSyncEngine} on the network thread. Synced changes are compiled
+ * into a catalog of the same layout in the files directory, which is then mapped instead
+ * of the asset; screens opened after a sync see the new catalog.
  */
 public class BookRepository {
 
+    /** Name of the compiled catalog asset. */
+    private static final String CATALOG_ASSET = "catalog.bin";
+
+    /** Directory holding the synced catalog. */
+    private static final String SYNCED_CATALOG_DIRECTORY = "catalog";
+
+    /** Tag for sync log messages. */
+    private static final String TAG = "BookwormCatalogSync";
+
+    /** Time taken to map and open the catalog. */
+    private static final LatencyHistogram OPEN_LATENCY = PerfMetrics.histogram("catalog.open");
+
+    /** The opened catalog, or null until it is first used. */
+    private static BinaryCatalog catalog;
+
+    /** The catalog being opened on the catalog thread, or null until {@link #loadCatalog(Context)}. */
+    private static CompletableFuture<CatalogSource> pendingCatalog;
+
+    /** The synced catalog's store, or null until the first sync. Used on the network thread only. */
+    private static CatalogStore store;
+
+    /**
+     * Starts opening the catalog on its own thread, so that it is ready when a screen needs it.
+     * The catalog is opened once; later calls return the same future, which is already
+     * complete once the app has started. Screens continue it on {@link BookwormExecutors#main()}
+     * rather than waiting for it.
+     *
+     * @param context Any context.
+     * @return A future completed on the catalog thread with a page-at-a-time view of the
+     *         catalog, or exceptionally if the catalog cannot be opened.
+     */
+    public static synchronized CompletableFuture<CatalogSource> loadCatalog(Context context) {
+        if (pendingCatalog == null) {
+            Context appContext = context.getApplicationContext();
+            pendingCatalog = CompletableFuture.supplyAsync(() -> openCatalog(appContext),
+                    BookwormExecutors.catalog());
+        }
+        return pendingCatalog;
+    }
+
+    /**
+     * Fetches the changes made in the catalog service since the last sync, on the network
+     * thread. If the catalog changed, the next {@link #loadCatalog(Context)} opens the
+     * new one. Failures are logged and leave the current catalog in place; an interrupted
+     * sync resumes on the next call.
+     *
+     * @param context Any context.
+     * @return A future completed on the network thread with the sync's report, or with null
+     *         if no catalog service is configured or the sync failed.
+     */
+    public static CompletableFuture<SyncReport> syncCatalog(Context context) {
+        Context appContext = context.getApplicationContext();
+        String serviceUrl = appContext.getString(R.string.catalog_service_url);
+        if (serviceUrl.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (store == null) {
+                    store = new CatalogStore(new File(appContext.getFilesDir(), SYNCED_CATALOG_DIRECTORY),
+                            mapAsset(appContext));
+                }
+                SyncReport report = new CatalogSyncEngine(new URL(serviceUrl), store).sync();
+                Log.i(TAG, report.toString());
+                if (report.isCatalogChanged()) {
+                    reopenCatalog(appContext);
+                }
+                return report;
+            } catch (IOException e) {
+                Log.w(TAG, "Catalog sync failed", e);
+                return null;
+            }
+        }, BookwormExecutors.network());
+    }
+
+    /**
+     * Returns every book in the catalog. Only meant for small, one-off jobs such as migrations.
+     * Blocks on disk, so it must be called on a background thread.
+     *
+     * @param context Any context.
+     * @return The available books.
+     */
+    public static List<Book> getAvailableBooks(Context context) {
+        BinaryCatalog opened = openCatalog(context.getApplicationContext());
+        return opened.loadRange(0, opened.getCount());
+    }
+
+    /**
+     * Drops the opened catalog after a sync and starts opening the new one.
+     *
+     * @param context The application context.
+     */
+    private static void reopenCatalog(Context context) {
+        synchronized (BookRepository.class) {
+            // Screens holding the old catalog keep a valid mapping of the replaced file
+            catalog = null;
+            pendingCatalog = null;
+        }
+        loadCatalog(context);
+    }
+
+    /**
+     * Maps the synced catalog, or the catalog asset before the first sync, unless it is
+     * already open. Blocks on disk.
+     *
+     * @param context The application context.
+     * @return The opened catalog.
+     */
+    @SuppressLint("DiscouragedApi") // Cover names are looked up once per distinct cover, not per book
+    private static synchronized BinaryCatalog openCatalog(Context context) {
+        if (catalog != null) {
+            return catalog;
+        }
+
+        Trace.beginSection("BookRepository.openCatalog");
+        long start = System.nanoTime();
+        Resources resources = context.getResources();
+        String packageName = context.getPackageName();
+        File synced = new File(new File(context.getFilesDir(), SYNCED_CATALOG_DIRECTORY),
+                CatalogStore.CATALOG_FILE_NAME);
+        try {
+            ByteBuffer mapped = synced.isFile() ? mapFile(synced) : mapAsset(context);
+            catalog = new BinaryCatalog(mapped,
+                    coverName -> resources.getIdentifier(coverName, "drawable", packageName));
+            return catalog;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the catalog", e);
+        } finally {
+            OPEN_LATENCY.recordSince(start);
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Maps the catalog asset. Blocks on disk.
+     *
+     * @param context The application context.
+     * @return The mapped asset.
+     * @throws IOException If the asset cannot be mapped.
+     */
+    private static ByteBuffer mapAsset(Context context) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(CATALOG_ASSET);
+             FileInputStream input = descriptor.createInputStream()) {
+            // The mapping stays valid after the file is closed
+            return input.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+        }
+    }
+
     /**
-     * Generates and returns a static list of available library books.
-     * This simulates a database or network call by returning a predefined set of Book objects.
-     * Each book includes its title, author, local resource ID for the cover, and a website URL.
+     * Maps a catalog file. Blocks on disk.
      *
-     * @return An ArrayList containing the catalog of available books.
+     * @param file The compiled catalog.
+     * @return The mapped file.
+     * @throws IOException If the file cannot be mapped.
      */
-    public static ArrayList<Book> getAvailableBooks() {
-        ArrayList<Book> books = new ArrayList<>();
-
-        // Add "Clean Code" to the catalog
-        books.add(new Book(
-                "Clean Code",
-                "Robert C. Martin",
-                R.drawable.clean_code,
-                "https://www.oreilly.com/library/view/clean-code/9780136083238/"
-        ));
-
-        // Add "Effective Java" to the catalog
-        books.add(new Book(
-                "Effective Java (3rd Edition)",
-                "Joshua Bloch",
-                R.drawable.effective_java,
-                "https://www.oreilly.com/library/view/effective-java-3rd/9780134686097/"
-        ));
-
-        // Add "Design Patterns" to the catalog
-        books.add(new Book(
-                "Design Patterns: Elements of Reusable Object-Oriented Software",
-                "Erich Gamma, Richard Helm, Ralph Johnson, John Vlissides",
-                R.drawable.design_patterns,
-                "https://www.oreilly.com/library/view/design-patterns-elements/0201633612/"
-        ));
-
-        // Add "Black Hat Python" to the catalog
-        books.add(new Book(
-                "Black Hat Python (2nd Edition)",
-                "Justin Seitz, Tim Arnold",
-                R.drawable.blackhatpy,
-                "https://nostarch.com/black-hat-python2E"
-        ));
-
-        // Add "The Pragmatic Programmer" to the catalog
-        books.add(new Book(
-                "The Pragmatic Programmer (20th Anniversary Edition)",
-                "Andrew Hunt, David Thomas",
-                R.drawable.thepragm,
-                "https://pragprog.com/titles/tpp20/the-pragmatic-programmer-20th-anniversary-edition/"
-        ));
-
-        return books;
+    private static ByteBuffer mapFile(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            return input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.example.bookworm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * BookSelection holds the books picked in a list's multi-select mode, in the order they
+ * were picked. Selection mode starts with the first selected book and ends when the
+ * selection is cleared. Books are identified by key, so a selection survives rows being
+ * recycled or rebound with new Book objects. Main thread only.
+ */
+public class BookSelection {
+
+    /**
+     * Listener notified whenever the number of selected books changes.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a book was selected or deselected, or the selection was cleared.
+         *
+         * @param count The number of selected books; 0 means selection mode has ended.
+         */
+        void onSelectionChanged(int count);
+    }
+
+    /** The selected books by key, in the order they were selected. */
+    private final LinkedHashMap<String, Book> selected = new LinkedHashMap<>();
+
+    /** The listener, or null if none is set. */
+    private Listener listener;
+
+    /**
+     * Sets the listener notified of selection changes.
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Checks whether selection mode is active, i.e. at least one book is selected.
+     *
+     * @return True if any book is selected.
+     */
+    public boolean isActive() {
+        return !selected.isEmpty();
+    }
+
+    /**
+     * Checks whether a book is selected.
+     *
+     * @param book The book.
+     * @return True if a book with the same key is selected.
+     */
+    public boolean isSelected(Book book) {
+        return selected.containsKey(book.getKey());
+    }
+
+    /**
+     * Selects a book, or deselects it if it was selected.
+     *
+     * @param book The book.
+     * @return True if the book is now selected.
+     */
+    public boolean toggle(Book book) {
+        boolean nowSelected = selected.remove(book.getKey()) == null;
+        if (nowSelected) {
+            selected.put(book.getKey(), book);
+        }
+        notifyListener();
+        return nowSelected;
+    }
+
+    /**
+     * Gets the selected books.
+     *
+     * @return A new list of the selected books, in the order they were selected.
+     */
+    public ArrayList<Book> getBooks() {
+        return new ArrayList<>(selected.values());
+    }
+
+    /**
+     * Gets the number of selected books.
+     *
+     * @return The selection size.
+     */
+    public int size() {
+        return selected.size();
+    }
+
+    /**
+     * Deselects every book, ending selection mode.
+     */
+    public void clear() {
+        if (selected.isEmpty()) {
+            return;
+        }
+        selected.clear();
+        notifyListener();
+    }
+
+    /**
+     * Tells the listener the current selection size.
+     */
+    private void notifyListener() {
+        if (listener != null) {
+            listener.onSelectionChanged(selected.size());
+        }
+    }
+}
\ No newline at end of file
@@ -1,71 +1,664 @@
 package com.example.bookworm;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Trace;
+import android.provider.OpenableColumns;
+import android.util.Log;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
-import java.lang.reflect.Type;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * BookStorage is a utility class for persisting the user's book list.
- * It uses SharedPreferences for local storage and GSON to serialize/deserialize
- * the ArrayList of Book objects into a JSON string.
+ * BookStorage is a utility class for persisting the user's book lists.
+ * The user can keep several named lists (e.g. "Reading now", a wishlist, one per family
+ * member). Each list is an independent shard managed by {@link ShardedLists}: its own
+ * {@link LoanStore} with its own files, so loading or changing one list never reads or
+ * writes another. A small manifest (lists/manifest.json) records every list's name, version
+ * and size, so the lists can be offered without opening their shards. Changes update the
+ * manifest once per burst, after the changes themselves are recorded.
+ *
+ * A shard is by default an append-only {@link BookJournal}, so adding, returning or updating
+ * a single book only appends one record instead of rewriting the whole list. When the
+ * {@code use_sqlite_loan_store} flag is set, each shard is a {@link SqliteLoanStore} database
+ * instead, which answers overdue and fine queries from an index; an existing journal is
+ * imported into it on first use. The default list keeps the files written before named
+ * lists existed; other lists live under lists/. Lists saved by older versions of the app in
+ * SharedPreferences (as a GSON JSON string) are migrated into the default list on first use.
+ * All JSON is read and written with the streaming {@link BookCodec}.
+ *
+ * Every call runs on the serial I/O executor of {@link BookwormExecutors}, so storage is
+ * never touched on the main thread and changes reach the store in the order they were made.
+ * Results are returned as futures completing on the I/O thread.
+ *
+ * A list can be exported to and imported from a document chosen by the user, as NDJSON
+ * or CSV. {@link LoanTransfer} streams both ways, so memory stays flat however long the
+ * list or the file is; the I/O thread is busy for the duration, so storage changes made
+ * meanwhile wait for the transfer.
+ *
+ * Loading and saving the list are wrapped in trace sections and timed in {@link PerfMetrics};
+ * the JSON decoding inside a load is timed separately by the journal ("journal.parse").
  */
 public class BookStorage {
 
-    /** Name of the SharedPreferences file. */
+    /** Tag for log messages. */
+    private static final String TAG = "BookwormStorage";
+
+    /** Name of the legacy SharedPreferences file. */
     private static final String PREFS_NAME = "bookworm_prefs";
     
-    /** Key used to store and retrieve the list of books in the user's collection. */
+    /** Legacy key under which the whole list used to be stored as JSON. */
     private static final String KEY_MY_LIST = "my_list_books";
 
+    /** Directory holding the manifest and the shards of lists other than the default one. */
+    private static final String LISTS_DIRECTORY = "lists";
+
+    /** Name of the list manifest inside {@link #LISTS_DIRECTORY}. */
+    private static final String MANIFEST_FILE_NAME = "manifest.json";
+
+    /** The process-wide lists, created on first access. */
+    private static ShardedLists lists;
+
+    /** Whether a manifest write is already queued on the I/O thread. */
+    private static boolean manifestWriteQueued;
+
+    /** Time taken to load the whole list, including opening the store on first use. */
+    private static final LatencyHistogram LOAD_LATENCY = PerfMetrics.histogram("storage.loadMyList");
+
+    /** Time taken to hand a whole list to the store. */
+    private static final LatencyHistogram SAVE_LATENCY = PerfMetrics.histogram("storage.saveMyList");
+
+    /** Time taken to decode a list saved in SharedPreferences by older versions. */
+    private static final LatencyHistogram LEGACY_PARSE_LATENCY = PerfMetrics.histogram("storage.legacyParse");
+
+    /** Number of books in the list when it was last loaded. */
+    private static final PerfCounter LOADED_BOOKS = PerfMetrics.counter("storage.loadedBooks");
+
+    /** Number of books written by whole-list saves. */
+    private static final PerfCounter SAVED_BOOKS = PerfMetrics.counter("storage.savedBooks");
+
+    /**
+     * Gets the user's lists from the manifest, without opening any list.
+     *
+     * @param context The application context.
+     * @return A future that completes on the I/O thread with the lists in display order.
+     */
+    public static CompletableFuture<ArrayList<ListInfo>> loadLists(Context context) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ArrayList<ListInfo> all = getLists(context).getLists();
+                scheduleManifestWrite(context);
+                return all;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Creates an empty named list.
+     *
+     * @param context The application context.
+     * @param name    The display name.
+     * @return A future that completes on the I/O thread with the new list.
+     */
+    public static CompletableFuture<ListInfo> createList(Context context, String name) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ListInfo list = getLists(context).create(name);
+                scheduleManifestWrite(context);
+                return list;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Renames a list.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param name    The new display name.
+     * @return A future that completes on the I/O thread with the renamed list, or null if
+     *         there is no such list.
+     */
+    public static CompletableFuture<ListInfo> renameList(Context context, String listId, String name) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ListInfo list = getLists(context).rename(listId, name);
+                scheduleManifestWrite(context);
+                return list;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Deletes a list other than the default one, together with its shard.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @return A future that completes on the I/O thread with true if the list existed.
+     */
+    public static CompletableFuture<Boolean> deleteList(Context context, String listId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getLists(context).delete(listId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Writes a list to a document, one book at a time.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param uri     The document to write, e.g. one created with ACTION_CREATE_DOCUMENT.
+     * @param format  The file format.
+     * @return A future that completes on the I/O thread with the number of books written.
+     */
+    public static CompletableFuture<Long> exportList(Context context, String listId, Uri uri,
+                                                     LoanTransfer.Format format) {
+        return CompletableFuture.supplyAsync(() -> {
+            Trace.beginSection("BookStorage.exportList");
+            // "wt" truncates a document that is being overwritten
+            try (OutputStream out = context.getContentResolver().openOutputStream(uri, "wt")) {
+                if (out == null) {
+                    throw new FileNotFoundException(uri.toString());
+                }
+                Resources resources = context.getResources();
+                return LoanTransfer.exportTo(getStore(context, listId),
+                        new OutputStreamWriter(out, StandardCharsets.UTF_8), format,
+                        coverResId -> coverName(resources, coverResId));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to export the list", e);
+            } finally {
+                Trace.endSection();
+            }
+        }, BookwormExecutors.io());
+    }
+
     /**
-     * Serializes the provided list of books to JSON and saves it to SharedPreferences.
+     * Adds the books of a document to a list, skipping the books the list already holds.
+     * The format is told from the document's name and type. The books are committed in
+     * batches as the document is read.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param uri     The document to read, e.g. one opened with ACTION_OPEN_DOCUMENT.
+     * @return A future that completes on the I/O thread with what the import added and skipped.
+     */
+    @SuppressLint("DiscouragedApi") // The import looks each distinct cover name up once
+    public static CompletableFuture<ImportReport> importList(Context context, String listId, Uri uri) {
+        return CompletableFuture.supplyAsync(() -> {
+            Trace.beginSection("BookStorage.importList");
+            LoanStore store = getStore(context, listId);
+            LoanTransfer.Format format = LoanTransfer.Format.detect(queryDisplayName(context, uri),
+                    context.getContentResolver().getType(uri));
+            try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new FileNotFoundException(uri.toString());
+                }
+                Resources resources = context.getResources();
+                String packageName = context.getPackageName();
+                ImportReport report = LoanTransfer.importFrom(store,
+                        new InputStreamReader(in, StandardCharsets.UTF_8), format,
+                        coverName -> resources.getIdentifier(coverName, "drawable", packageName));
+                recordDelta(context, listId, (int) report.getBooksAdded());
+                return report;
+            } catch (IOException e) {
+                // Batches read before the failure were committed, so the manifest needs a recount
+                recordChange(context, listId, store.loadAll().size());
+                throw new UncheckedIOException("Unable to import the list", e);
+            } finally {
+                Trace.endSection();
+            }
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Gets the drawable name of a bundled cover. Unlike the resource id, the name stays the
+     * same from one build of the app to the next.
+     *
+     * @param resources  The app's resources.
+     * @param coverResId The cover's resource id.
+     * @return The drawable's name, or null if the id is not a drawable of this build.
+     */
+    private static String coverName(Resources resources, int coverResId) {
+        try {
+            // A stale id can name another kind of resource in this build
+            return "drawable".equals(resources.getResourceTypeName(coverResId))
+                    ? resources.getResourceEntryName(coverResId) : null;
+        } catch (Resources.NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the name of a document as shown to the user.
+     *
+     * @param context The application context.
+     * @param uri     The document.
+     * @return The name, or null if the provider does not give one.
+     */
+    private static String queryDisplayName(Context context, Uri uri) {
+        try (Cursor cursor = context.getContentResolver().query(uri,
+                new String[] {OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            return (cursor != null && cursor.moveToFirst()) ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * Replaces a whole list with the provided books.
      * 
      * @param context     The application context.
-     * @param myListBooks The list of Book objects to persist.
+     * @param listId      The list's id.
+     * @param myListBooks The list of Book objects to persist; it is copied before returning.
+     * @return A future that completes on the I/O thread once the change is recorded.
      */
-    public static void saveMyList(Context context, ArrayList<Book> myListBooks) {
-        // Access the private SharedPreferences for this app
-        SharedPreferences sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-
-        // Convert the list of books into a JSON string using GSON
-        Gson gson = new Gson();
-        String json = gson.toJson(myListBooks);
-        
-        // Store the JSON string and commit changes asynchronously
-        editor.putString(KEY_MY_LIST, json);
-        editor.apply();
+    public static CompletableFuture<Void> saveMyList(Context context, String listId, List<Book> myListBooks) {
+        ArrayList<Book> books = new ArrayList<>(myListBooks);
+        return CompletableFuture.runAsync(() -> {
+            Trace.beginSection("BookStorage.saveMyList");
+            long start = System.nanoTime();
+            try {
+                getStore(context, listId).replaceAll(books);
+                recordChange(context, listId, books.size());
+                SAVED_BOOKS.add(books.size());
+            } finally {
+                SAVE_LATENCY.recordSince(start);
+                Trace.endSection();
+            }
+        }, BookwormExecutors.io());
     }
 
     /**
-     * Retrieves the user's book list from SharedPreferences and deserializes it from JSON.
+     * Loads a list from its shard.
      * 
      * @param context The application context.
-     * @return An ArrayList of Book objects, or an empty list if no data is found.
+     * @param listId  The list's id.
+     * @return A future that completes on the I/O thread with the books,
+     *         or an empty list if no data is found.
+     */
+    public static CompletableFuture<ArrayList<Book>> loadMyList(Context context, String listId) {
+        return CompletableFuture.supplyAsync(() -> {
+            Trace.beginSection("BookStorage.loadMyList");
+            long start = System.nanoTime();
+            try {
+                ArrayList<Book> books = getStore(context, listId).loadAll();
+                LOADED_BOOKS.set(books.size());
+                return books;
+            } finally {
+                LOAD_LATENCY.recordSince(start);
+                Trace.endSection();
+            }
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Records that a book was added to a list.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param book    The book that was added.
+     * @return A future that completes on the I/O thread once the change is recorded.
+     */
+    public static CompletableFuture<Void> addBook(Context context, String listId, Book book) {
+        return CompletableFuture.runAsync(() -> {
+            getStore(context, listId).add(book);
+            recordDelta(context, listId, 1);
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Records that a book was returned and removed from a list.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param book    The book that was returned.
+     * @return A future that completes on the I/O thread once the change is recorded.
+     */
+    public static CompletableFuture<Void> returnBook(Context context, String listId, Book book) {
+        return CompletableFuture.runAsync(() -> {
+            getStore(context, listId).remove(book);
+            recordDelta(context, listId, -1);
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Records that several books were added to a list, as one atomic batch.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param books   The books that were added; the list is copied before returning.
+     * @return A future that completes on the I/O thread once the change is recorded.
+     */
+    public static CompletableFuture<Void> addBooks(Context context, String listId, List<Book> books) {
+        ArrayList<Book> batch = new ArrayList<>(books);
+        return CompletableFuture.runAsync(() -> {
+            getStore(context, listId).addAll(batch);
+            recordDelta(context, listId, batch.size());
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Records that several books were returned and removed from a list, as one atomic batch.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param books   The books that were returned; the list is copied before returning.
+     * @return A future that completes on the I/O thread once the change is recorded.
+     */
+    public static CompletableFuture<Void> returnBooks(Context context, String listId, List<Book> books) {
+        ArrayList<Book> batch = new ArrayList<>(books);
+        return CompletableFuture.runAsync(() -> {
+            getStore(context, listId).removeAll(batch);
+            recordDelta(context, listId, -batch.size());
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Records a new return date for a book in a list.
+     *
+     * @param context        The application context.
+     * @param listId         The list's id.
+     * @param book           The book whose return date changed.
+     * @param returnEpochDay The new return date as an epoch day.
+     * @return A future that completes on the I/O thread once the change is recorded.
+     */
+    public static CompletableFuture<Void> setReturnDate(Context context, String listId, Book book,
+                                                        int returnEpochDay) {
+        return CompletableFuture.runAsync(() -> {
+            getStore(context, listId).setReturnDate(book, returnEpochDay);
+            recordDelta(context, listId, 0);
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Finds the books that are overdue on a given day, across all of the user's lists.
+     * This is the one call that opens every shard; it serves the background overdue check.
+     *
+     * @param context The application context.
+     * @param today   Today's epoch day.
+     * @return A future that completes on the I/O thread with the overdue books,
+     *         earliest return date first.
+     */
+    public static CompletableFuture<ArrayList<Book>> findOverdue(Context context, int today) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ShardedLists all = getLists(context);
+                ArrayList<Book> overdue = new ArrayList<>();
+                for (ListInfo list : all.getLists()) {
+                    overdue.addAll(all.getStore(list.getId()).findOverdue(today));
+                }
+                overdue.sort(Comparator.comparingInt(Book::getReturnEpochDay));
+                return overdue;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BookwormExecutors.io());
+    }
+
+    /**
+     * Gets the total late fine of a list on a given day.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param today   Today's epoch day.
+     * @return A future that completes on the I/O thread with the total fine in dollars.
+     */
+    public static CompletableFuture<Integer> getTotalFine(Context context, String listId, int today) {
+        return CompletableFuture.supplyAsync(() -> getStore(context, listId).getTotalFine(today),
+                BookwormExecutors.io());
+    }
+
+    /**
+     * Forgets the opened lists, so that the next call opens them again from the files
+     * directory. Tests call it between cases, since each case has its own files directory.
+     * Work already queued on the I/O thread must have finished.
+     */
+    static synchronized void reset() {
+        lists = null;
+    }
+
+    /**
+     * Returns the process-wide lists, creating the registry on first use. Called on the
+     * I/O thread only.
+     *
+     * @param context Any context; only the application context is retained.
+     * @return The user's lists.
+     */
+    private static synchronized ShardedLists getLists(Context context) {
+        if (lists == null) {
+            Context appContext = context.getApplicationContext();
+            File manifest = new File(new File(appContext.getFilesDir(), LISTS_DIRECTORY), MANIFEST_FILE_NAME);
+            lists = new ShardedLists(manifest, new ShardedLists.ShardStorage() {
+                @Override
+                public LoanStore open(String listId) {
+                    return openShard(appContext, listId);
+                }
+
+                @Override
+                public void delete(String listId) {
+                    deleteShard(appContext, listId);
+                }
+            }, appContext.getString(R.string.my_list));
+        }
+        return lists;
+    }
+
+    /**
+     * Returns the store of a list. Called on the I/O thread only.
+     *
+     * @param context Any context.
+     * @param listId  The list's id.
+     * @return The store backing the list.
+     */
+    private static LoanStore getStore(Context context, String listId) {
+        try {
+            return getLists(context).getStore(listId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the list manifest", e);
+        }
+    }
+
+    /**
+     * Opens the shard of a list. Every shard has a journal; with the SQLite flag on, a list
+     * kept in its journal while the flag was off is imported into its database. The default
+     * list's shard is where the single list of older versions was stored, and older data is
+     * migrated into it.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @return The list's store.
+     */
+    private static LoanStore openShard(Context context, String listId) {
+        boolean useSqlite = context.getResources().getBoolean(R.bool.use_sqlite_loan_store);
+        boolean isDefault = ShardedLists.DEFAULT_LIST_ID.equals(listId);
+
+        File directory = isDefault ? context.getFilesDir() : shardDirectory(context, listId);
+        BookJournal journal = new BookJournal(directory);
+
+        LoanStore store;
+        if (useSqlite) {
+            store = isDefault ? new SqliteLoanStore(context) : new SqliteLoanStore(context, databaseName(listId));
+            migrateFromJournal(journal, store);
+        } else {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IllegalStateException("Unable to create " + directory);
+            }
+            store = journal;
+        }
+        if (isDefault) {
+            migrateFromPreferences(context, store);
+        }
+        return store;
+    }
+
+    /**
+     * Deletes the files of a list's shard.
+     *
+     * @param context The application context.
+     * @param listId  The id of a list other than the default one.
      */
-    public static ArrayList<Book> loadMyList(Context context) {
-        // Access the SharedPreferences file
+    private static void deleteShard(Context context, String listId) {
+        context.deleteDatabase(databaseName(listId));
+        File directory = shardDirectory(context, listId);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Gets the journal directory of a list other than the default one.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @return The directory.
+     */
+    private static File shardDirectory(Context context, String listId) {
+        return new File(new File(context.getFilesDir(), LISTS_DIRECTORY), listId);
+    }
+
+    /**
+     * Gets the database name of a list other than the default one.
+     *
+     * @param listId The list's id.
+     * @return The database file name.
+     */
+    private static String databaseName(String listId) {
+        return "loans_" + listId + ".db";
+    }
+
+    /**
+     * Records a change of a list's size in the manifest and schedules a manifest write.
+     *
+     * @param context The application context.
+     * @param listId  The list's id.
+     * @param delta   The change in the number of books.
+     */
+    private static void recordDelta(Context context, String listId, int delta) {
+        try {
+            getLists(context).recordDelta(listId, delta);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        scheduleManifestWrite(context);
+    }
+
+    /**
+     * Records a list's new size in the manifest and schedules a manifest write.
+     *
+     * @param context      The application context.
+     * @param listId       The list's id.
+     * @param newBookCount The number of books after the change.
+     */
+    private static void recordChange(Context context, String listId, int newBookCount) {
+        try {
+            getLists(context).recordChange(listId, newBookCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        scheduleManifestWrite(context);
+    }
+
+    /**
+     * Queues a manifest write behind the I/O work already queued, unless one is queued
+     * already, so a burst of changes is followed by a single write.
+     *
+     * @param context The application context.
+     */
+    private static synchronized void scheduleManifestWrite(Context context) {
+        if (manifestWriteQueued) {
+            return;
+        }
+        manifestWriteQueued = true;
+        BookwormExecutors.io().execute(() -> {
+            synchronized (BookStorage.class) {
+                manifestWriteQueued = false;
+            }
+            try {
+                getLists(context).writeManifestIfDirty();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write the list manifest", e);
+            }
+        });
+    }
+
+    /**
+     * Imports the journal into a newly created database in a single batch.
+     * The journal is left in place, so switching the flag back keeps the data
+     * as it was at the time of the import.
+     *
+     * @param journal The journal written while the flag was off.
+     * @param store   The database store.
+     */
+    private static void migrateFromJournal(BookJournal journal, LoanStore store) {
+        if (store.exists() || !journal.exists()) {
+            return;
+        }
+        store.replaceAll(journal.loadAll());
+        store.sync();
+    }
+
+    /**
+     * Moves a list saved by an older version of the app from SharedPreferences into the store.
+     * The legacy key is only removed once the store has been durably written. A legacy list
+     * that cannot be decoded is left in place rather than replaced with an empty list, so
+     * the user's books are never discarded because of a parse failure.
+     *
+     * @param context The application context.
+     * @param store   The freshly opened store.
+     */
+    private static void migrateFromPreferences(Context context, LoanStore store) {
         SharedPreferences sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        
-        // Retrieve the stored JSON string
         String json = sharedPreferences.getString(KEY_MY_LIST, null);
-
-        // If no list has been saved yet, return a new empty list
         if (json == null) {
-            return new ArrayList<>();
+            return;
+        }
+
+        // The streaming codec reads the JSON that GSON wrote for the old ArrayList<Book>
+        ArrayList<Book> legacyList;
+        long parseStart = System.nanoTime();
+        try {
+            legacyList = BookCodec.readList(new StringReader(json));
+        } catch (IOException | IllegalStateException e) {
+            Log.w(TAG, "Legacy list could not be read, keeping it for a later version", e);
+            return;
+        } finally {
+            LEGACY_PARSE_LATENCY.recordSince(parseStart);
         }
 
-        // Use GSON and TypeToken to reconstruct the ArrayList<Book> from the JSON string
-        Gson gson = new Gson();
-        Type type = new TypeToken<ArrayList<Book>>() {}.getType();
-        ArrayList<Book> loadedList = gson.fromJson(json, type);
+        // An existing store is newer than the legacy copy
+        if (!store.exists()) {
+            store.replaceAll(legacyList);
+            store.sync();
+        }
 
-        // Ensure we never return a null list
-        return (loadedList != null) ? loadedList : new ArrayList<>();
+        sharedPreferences.edit().remove(KEY_MY_LIST).apply();
     }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.example.bookworm;
+
+import android.app.Application;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+import android.util.Log;
+
+/**
+ * BookwormApplication sets up process-wide state before any screen starts.
+ *
+ * In debug builds it installs a StrictMode gate: disk reads and writes on the main thread
+ * are logged, and if one comes from the app's own code (MainActivity, BrowseBooksActivity,
+ * MyListActivity and everything they call) the app crashes with the violation as the cause.
+ * Storage is meant to run on {@link BookwormExecutors#io()}, so any such crash during a
+ * debug run points straight at a regression. Violations raised entirely inside the
+ * framework or libraries are only logged. The instrumented StrictModeGateTest applies the
+ * same rule to each of the three screens, so a regression also fails CI.
+ *
+ * In every build it registers a {@link StartupTimer}, so screen startup times show up in
+ * {@link PerfMetrics} next to the other hot-path measurements, and starts opening the
+ * catalog on its own thread.
+ */
+public class BookwormApplication extends Application {
+
+    /** Log tag for StrictMode reports. */
+    private static final String TAG = "BookwormStrictMode";
+
+    /** Package prefix identifying the app's own stack frames. */
+    private static final String APP_PACKAGE = "com.example.bookworm.";
+
+    /**
+     * Starts timing screen startups and installs the debug StrictMode gate.
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        registerActivityLifecycleCallbacks(new StartupTimer());
+
+        // Map the catalog off the main thread before the browse screen asks for it,
+        // then fetch what changed in the catalog service since the last sync
+        BookRepository.loadCatalog(this);
+        BookRepository.syncCatalog(this);
+        if (BuildConfig.DEBUG) {
+            installStrictModeGate();
+        }
+    }
+
+    /**
+     * Enables disk read and write detection on the main thread.
+     */
+    private static void installStrictModeGate() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .penaltyListener(BookwormExecutors.main(), BookwormApplication::onViolation)
+                .build());
+    }
+
+    /**
+     * Logs a violation and crashes if the app's own code caused it. Runs on the main thread.
+     *
+     * @param violation The reported violation.
+     */
+    private static void onViolation(Violation violation) {
+        if (!isFromAppCode(violation)) {
+            Log.w(TAG, "Disk access on the main thread outside app code", violation);
+            return;
+        }
+        throw new IllegalStateException("Disk access on the main thread", violation);
+    }
+
+    /**
+     * Checks whether a violation's stack passes through the app's own classes.
+     *
+     * @param violation The reported violation.
+     * @return True if any stack frame belongs to the app's package.
+     */
+    static boolean isFromAppCode(Violation violation) {
+        for (StackTraceElement frame : violation.getStackTrace()) {
+            if (frame.getClassName().startsWith(APP_PACKAGE)
+                    && !frame.getClassName().startsWith(BookwormApplication.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.example.bookworm;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BookwormExecutors holds the threads the app's storage work runs on.
+ *
+ * All disk access for the user's list goes through a single serial I/O executor, so it
+ * never happens on the main thread and writes reach storage in the order they were made.
+ * Storage APIs return futures that complete on the I/O thread; UI code continues them on
+ * {@link #main()} (e.g. with {@code thenAcceptAsync(callback, BookwormExecutors.main())}),
+ * so results are always delivered on the main thread. Network work has its own thread, so a
+ * slow server never holds up storage. Opening the read-only catalog has one too, so the
+ * browse screen never waits behind a long list import or export.
+ */
+public final class BookwormExecutors {
+
+    /** Serial executor for storage work. */
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookworm-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Serial executor for network work. */
+    private static final ExecutorService NETWORK = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookworm-net");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Serial executor for opening the catalog. */
+    private static final ExecutorService CATALOG = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookworm-catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Executor that runs tasks on the main thread. */
+    private static final Executor MAIN = new Handler(Looper.getMainLooper())::post;
+
+    /** Utility class; not instantiable. */
+    private BookwormExecutors() {
+    }
+
+    /**
+     * Returns the serial I/O executor. Tasks run one at a time, in submission order.
+     *
+     * @return The I/O executor.
+     */
+    public static Executor io() {
+        return IO;
+    }
+
+    /**
+     * Returns the serial network executor, e.g. for catalog syncs.
+     *
+     * @return The network executor.
+     */
+    public static Executor network() {
+        return NETWORK;
+    }
+
+    /**
+     * Returns the serial executor that opens the catalog.
+     *
+     * @return The catalog executor.
+     */
+    public static Executor catalog() {
+        return CATALOG;
+    }
+
+    /**
+     * Returns an executor that runs tasks on the main thread.
+     *
+     * @return The main thread executor.
+     */
+    public static Executor main() {
+        return MAIN;
+    }
+
+    /**
+     * Checks whether the caller is on the main thread.
+     *
+     * @return True if called on the main thread.
+     */
+    public static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+}
\ No newline at end of file
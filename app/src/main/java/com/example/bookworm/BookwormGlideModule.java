@@ -0,0 +1,80 @@
+package com.example.bookworm;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * BookwormGlideModule configures the app-wide Glide instance used for cover thumbnails.
+ * The memory and disk budgets come from resources (see integers.xml), so they can be
+ * tuned per device class or build variant without code changes. Remote covers are
+ * fetched through a {@link CoverHttpCache}.
+ */
+@GlideModule
+public final class BookwormGlideModule extends AppGlideModule {
+
+    /** Name of the disk cache directory inside the app's cache dir. */
+    private static final String DISK_CACHE_DIR = "cover_thumbnails";
+
+    /** Name of the HTTP cache directory for remote cover downloads. */
+    private static final String HTTP_CACHE_DIR = "cover_http";
+
+    /** Number of bytes in one megabyte. */
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    /**
+     * Applies the configured cache budgets and decodes opaque covers as RGB_565 by default.
+     *
+     * @param context The application context.
+     * @param builder The Glide builder.
+     */
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        Resources resources = context.getResources();
+        long memoryCacheBytes = resources.getInteger(R.integer.cover_memory_cache_mb) * BYTES_PER_MB;
+        long diskCacheBytes = resources.getInteger(R.integer.cover_disk_cache_mb) * BYTES_PER_MB;
+
+        builder.setMemoryCache(new LruResourceCache(memoryCacheBytes));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR, diskCacheBytes));
+        builder.setDefaultRequestOptions(new RequestOptions().format(DecodeFormat.PREFER_RGB_565));
+    }
+
+    /**
+     * Routes remote cover URLs through the app's HTTP cache.
+     *
+     * @param context  The application context.
+     * @param glide    The Glide instance.
+     * @param registry The component registry.
+     */
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        long httpCacheBytes = context.getResources().getInteger(R.integer.cover_http_cache_mb) * BYTES_PER_MB;
+        registry.prepend(CoverHttpModelLoader.CoverUrl.class, InputStream.class,
+                new CoverHttpModelLoader.Factory(() -> new CoverHttpCache(
+                        new File(context.getCacheDir(), HTTP_CACHE_DIR), httpCacheBytes, BookwormClock.SYSTEM)));
+    }
+
+    /**
+     * Disables scanning the manifest for legacy Glide modules, which this app does not use.
+     *
+     * @return False.
+     */
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -1,22 +1,51 @@
 package com.example.bookworm;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.TextView;
 
+import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
 
 /**
  * BrowseBooksActivity displays a catalog of all available books in the library.
- * Users can scroll through the list and select books to add to their personal "My List".
+ * Users can scroll through the list, search it by title or author, and select books
+ * to add to their personal "My List". Several books can be selected with a long press
+ * and added in one go.
+ *
+ * The catalog is opened in the background at startup. Until it is ready the screen shows
+ * a loading message instead of waiting for it on the main thread, and if it cannot be
+ * opened the screen says so instead of crashing.
  */
 public class BrowseBooksActivity extends AppCompatActivity {
 
+    /** Log tag. */
+    private static final String TAG = "BookwormBrowse";
+
     /** The RecyclerView that holds the list of available books. */
     private RecyclerView recyclerAvailableBooks;
 
+    /** Search field filtering the catalog by title or author. */
+    private EditText editSearchBooks;
+
+    /** Shown in place of the list while the catalog is opening or if it failed to open. */
+    private TextView textCatalogStatus;
+
+    /** Bounded, background-loaded window over the catalog, or null until it is open. */
+    private PagedCatalog catalog;
+
+    /** Debounced background search over the catalog, or null until it is open. */
+    private CatalogSearcher searcher;
+
     /**
      * Initializes the activity, sets the content view, and configures the RecyclerView.
      * 
@@ -31,17 +60,111 @@ public class BrowseBooksActivity extends AppCompatActivity {
 
         // Find the RecyclerView in the layout
         recyclerAvailableBooks = findViewById(R.id.recyclerAvailableBooks);
+        editSearchBooks = findViewById(R.id.editSearchBooks);
+        textCatalogStatus = findViewById(R.id.textCatalogStatus);
+
+        // Usually already open by now; otherwise the loading message stays up until it is
+        editSearchBooks.setEnabled(false);
+        BookRepository.loadCatalog(this).whenCompleteAsync((catalogSource, error) -> {
+            if (isDestroyed()) return;
+            if (error != null) {
+                Log.e(TAG, "Unable to open the catalog", error);
+                textCatalogStatus.setText(R.string.catalog_unavailable);
+                return;
+            }
+            showCatalog(catalogSource);
+        }, BookwormExecutors.main());
+    }
 
-        // Fetch the list of available books from the repository
-        ArrayList<Book> availableBooks = BookRepository.getAvailableBooks();
+    /**
+     * Fills the screen from the opened catalog and enables searching it.
+     *
+     * @param catalogSource The catalog.
+     */
+    private void showCatalog(CatalogSource catalogSource) {
+        textCatalogStatus.setVisibility(View.GONE);
+        editSearchBooks.setEnabled(true);
 
-        // Initialize the adapter with the book data
-        AvailableBooksAdapter adapter = new AvailableBooksAdapter(this, availableBooks);
+        // Page through the catalog instead of loading it all at once
+        catalog = new PagedCatalog(catalogSource, getMainExecutor());
+
+        // Initialize the adapter with the paged catalog and a thumbnail-sized cover loader
+        CoverLoader coverLoader = new CoverLoader(this);
+        AvailableBooksAdapter adapter = new AvailableBooksAdapter(this, catalog, coverLoader);
         
         // Use a LinearLayoutManager to arrange items in a vertical list
         recyclerAvailableBooks.setLayoutManager(new LinearLayoutManager(this));
         
         // Attach the adapter to the RecyclerView to populate the list
         recyclerAvailableBooks.setAdapter(adapter);
+
+        setUpBulkActions(adapter);
+
+        // Mark books that are already in the user's list, for as long as the activity is started
+        MyListCache.getInstance(this).getSnapshots().observe(this, adapter::setMyList);
+
+        // Decode covers ahead of the scroll position so rows bind from the memory cache
+        recyclerAvailableBooks.addOnScrollListener(new RecyclerViewPreloader<>(
+                coverLoader.getRequestManager(), adapter, coverLoader.createPreloadSizeProvider(),
+                getResources().getInteger(R.integer.cover_preload_count)));
+
+        // Search as the user types; results are computed off the UI thread
+        searcher = new CatalogSearcher(catalogSource, getMainExecutor(), adapter::setSearchResults);
+        editSearchBooks.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                searcher.search(s.toString());
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
+    }
+
+    /**
+     * Shows the bulk action bar while books are selected. The back button ends
+     * multi-select mode instead of leaving the screen.
+     *
+     * @param adapter The adapter whose selection drives the bar.
+     */
+    private void setUpBulkActions(AvailableBooksAdapter adapter) {
+        View layoutBulkActions = findViewById(R.id.layoutBulkActions);
+        Button buttonBulkAction = findViewById(R.id.buttonBulkAction);
+        Button buttonClearSelection = findViewById(R.id.buttonClearSelection);
+
+        OnBackPressedCallback endSelection = new OnBackPressedCallback(false) {
+            @Override
+            public void handleOnBackPressed() {
+                adapter.clearSelection();
+            }
+        };
+        getOnBackPressedDispatcher().addCallback(this, endSelection);
+
+        adapter.getSelection().setListener(count -> {
+            layoutBulkActions.setVisibility(count > 0 ? View.VISIBLE : View.GONE);
+            buttonBulkAction.setText(getResources().getQuantityString(R.plurals.add_selected, count, count));
+            endSelection.setEnabled(count > 0);
+        });
+        buttonBulkAction.setOnClickListener(v -> adapter.addSelectedToMyList());
+        buttonClearSelection.setOnClickListener(v -> adapter.clearSelection());
+    }
+
+    /**
+     * Stops background page loads and searches when the screen goes away.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (searcher != null) {
+            searcher.close();
+        }
+        if (catalog != null) {
+            catalog.close();
+        }
     }
 }
\ No newline at end of file
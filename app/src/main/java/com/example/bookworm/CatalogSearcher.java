@@ -0,0 +1,127 @@
+package com.example.bookworm;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * CatalogSearcher runs search-as-you-type queries against a {@link CatalogSearchIndex}
+ * without ever blocking the UI thread. Queries are debounced, so only the text the user
+ * pauses on is searched; the index is built and queried on a background thread, and
+ * results for outdated queries are dropped before they reach the UI.
+ */
+public class CatalogSearcher {
+
+    /**
+     * Receives search results on the main thread.
+     */
+    public interface ResultListener {
+        /**
+         * Triggered when results for the latest query are ready.
+         *
+         * @param positions Catalog positions of the matches, best first,
+         *                  or null if the query was empty and the whole catalog should be shown.
+         */
+        void onResults(int[] positions);
+    }
+
+    /** Delay after the last keystroke before a query is run. */
+    private static final long DEBOUNCE_MILLIS = 150L;
+
+    /** The catalog being searched. */
+    private final CatalogSource source;
+
+    /** Executor used to deliver results to the main thread. */
+    private final Executor mainExecutor;
+
+    /** Listener notified with results. */
+    private final ResultListener listener;
+
+    /** Main-thread handler used for debouncing. */
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    /** Background thread that builds the index and runs queries. */
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookworm-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The index, built lazily on the worker thread. */
+    private CatalogSearchIndex index;
+
+    /** Incremented for every new query so stale results can be recognised. Main thread only. */
+    private int generation;
+
+    /** The query waiting for the debounce delay to pass. */
+    private String pendingQuery;
+
+    /** Runs the pending query once the user stops typing. */
+    private final Runnable runPendingQuery = this::runPendingQuery;
+
+    /**
+     * Creates a searcher for a catalog.
+     *
+     * @param source       The catalog to search.
+     * @param mainExecutor Executor that runs tasks on the main thread.
+     * @param listener     Listener notified with results.
+     */
+    public CatalogSearcher(CatalogSource source, Executor mainExecutor, ResultListener listener) {
+        this.source = source;
+        this.mainExecutor = mainExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * Requests a search. Called on every keystroke; only the last call within the
+     * debounce window actually runs.
+     *
+     * @param query The current text of the search field.
+     */
+    public void search(String query) {
+        generation++;
+        pendingQuery = query;
+        handler.removeCallbacks(runPendingQuery);
+
+        // Clearing the field restores the full catalog immediately
+        if (query == null || query.trim().isEmpty()) {
+            listener.onResults(null);
+            return;
+        }
+        handler.postDelayed(runPendingQuery, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Cancels pending queries and stops the worker thread.
+     */
+    public void close() {
+        generation++;
+        handler.removeCallbacks(runPendingQuery);
+        worker.shutdownNow();
+    }
+
+    /**
+     * Hands the debounced query to the worker thread.
+     */
+    private void runPendingQuery() {
+        int queryGeneration = generation;
+        String query = pendingQuery;
+
+        worker.execute(() -> {
+            if (index == null) {
+                index = new CatalogSearchIndex(source);
+            }
+            int[] positions = index.search(query);
+
+            mainExecutor.execute(() -> {
+                // A newer keystroke has already superseded this query
+                if (queryGeneration == generation) {
+                    listener.onResults(positions);
+                }
+            });
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.example.bookworm;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CoverCacheStats counts where every cover load was served from, so the hit rates of the
+ * memory and disk caches can be observed. It is attached as a listener to every cover
+ * request built by {@link CoverLoader}, including preloads.
+ */
+public class CoverCacheStats implements RequestListener<Drawable> {
+
+    /** The single instance shared by every cover request in the process. */
+    private static final CoverCacheStats instance = new CoverCacheStats();
+
+    /** Loads served from decoded thumbnails held in memory. */
+    private final AtomicLong memoryHits = new AtomicLong();
+
+    /** Loads served from downsampled thumbnails in the disk cache. */
+    private final AtomicLong diskHits = new AtomicLong();
+
+    /** Loads that had to decode the full-size source image. */
+    private final AtomicLong sourceLoads = new AtomicLong();
+
+    /** Loads that failed. */
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Creates the statistics. Use {@link #getInstance()} instead.
+     */
+    private CoverCacheStats() {
+    }
+
+    /**
+     * Returns the process-wide statistics.
+     *
+     * @return The shared CoverCacheStats.
+     */
+    public static CoverCacheStats getInstance() {
+        return instance;
+    }
+
+    /**
+     * Records a successful load by the source it was served from.
+     *
+     * @return False, so Glide still delivers the resource to the target.
+     */
+    @Override
+    public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target,
+                                   @NonNull DataSource dataSource, boolean isFirstResource) {
+        switch (dataSource) {
+            case MEMORY_CACHE:
+                memoryHits.incrementAndGet();
+                break;
+            case RESOURCE_DISK_CACHE:
+            case DATA_DISK_CACHE:
+                diskHits.incrementAndGet();
+                break;
+            default:
+                sourceLoads.incrementAndGet();
+                break;
+        }
+        return false;
+    }
+
+    /**
+     * Records a failed load.
+     *
+     * @return False, so Glide still shows its error placeholder.
+     */
+    @Override
+    public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                @NonNull Target<Drawable> target, boolean isFirstResource) {
+        failures.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Gets the number of loads served from memory.
+     *
+     * @return The memory cache hit count.
+     */
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    /**
+     * Gets the number of loads served from the disk cache.
+     *
+     * @return The disk cache hit count.
+     */
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    /**
+     * Gets the number of loads that decoded the full-size source image.
+     *
+     * @return The cache miss count.
+     */
+    public long getSourceLoadCount() {
+        return sourceLoads.get();
+    }
+
+    /**
+     * Gets the number of failed loads.
+     *
+     * @return The failure count.
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Gets the share of successful loads served from either cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing has been loaded yet.
+     */
+    public double getHitRate() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + sourceLoads.get();
+        return (total > 0) ? (double) hits / total : 0.0;
+    }
+}
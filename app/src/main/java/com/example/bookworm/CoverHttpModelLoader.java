@@ -0,0 +1,208 @@
+package com.example.bookworm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+/**
+ * CoverHttpModelLoader lets Glide load remote covers through the app's {@link CoverHttpCache},
+ * so downloads are revalidated and coalesced there. Glide then decodes the cached file at
+ * thumbnail size like any other cover.
+ */
+public class CoverHttpModelLoader implements ModelLoader<CoverHttpModelLoader.CoverUrl, InputStream> {
+
+    /** The cache remote covers are fetched through, resolved on first fetch. */
+    private final Supplier<CoverHttpCache> cache;
+
+    /**
+     * Creates a loader. Use {@link Factory} to register it with Glide.
+     *
+     * @param cache The cache remote covers are fetched through, resolved on first fetch.
+     */
+    CoverHttpModelLoader(Supplier<CoverHttpCache> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Describes how to load a remote cover. The URL is the cache key.
+     *
+     * @param model   The cover URL.
+     * @param width   The target width.
+     * @param height  The target height.
+     * @param options Glide options.
+     * @return The load data.
+     */
+    @Nullable
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull CoverUrl model, int width, int height, @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(model.url), new Fetcher(cache, model.url));
+    }
+
+    /**
+     * Accepts every cover URL.
+     *
+     * @param model The cover URL.
+     * @return True.
+     */
+    @Override
+    public boolean handles(@NonNull CoverUrl model) {
+        return true;
+    }
+
+    /**
+     * Glide model for a remote cover. A dedicated type keeps plain String loads on Glide's
+     * default path.
+     */
+    public static final class CoverUrl {
+
+        /** The cover URL. */
+        final String url;
+
+        /**
+         * Creates a model for a cover URL.
+         *
+         * @param url The cover URL.
+         */
+        public CoverUrl(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CoverUrl && url.equals(((CoverUrl) other).url);
+        }
+
+        @Override
+        public int hashCode() {
+            return url.hashCode();
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+
+    /**
+     * Fetches a cover through the HTTP cache on one of Glide's source threads.
+     */
+    private static class Fetcher implements DataFetcher<InputStream> {
+
+        /** The cache to fetch through, resolved on first fetch. */
+        private final Supplier<CoverHttpCache> cache;
+
+        /** The cover URL. */
+        private final String url;
+
+        /** The open cached file, if any. */
+        private InputStream stream;
+
+        /**
+         * Creates a fetcher for one load.
+         *
+         * @param cache The cache to fetch through, resolved on first fetch.
+         * @param url   The cover URL.
+         */
+        Fetcher(Supplier<CoverHttpCache> cache, String url) {
+            this.cache = cache;
+            this.url = url;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+            try {
+                stream = new FileInputStream(cache.get().get(url));
+                callback.onDataReady(stream);
+            } catch (IOException e) {
+                callback.onLoadFailed(e);
+            }
+        }
+
+        @Override
+        public void cleanup() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // Nothing left to release
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            // Downloads may be shared with other loads, so they are left to finish
+        }
+
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return InputStream.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.REMOTE;
+        }
+    }
+
+    /**
+     * Factory registered with Glide in {@link BookwormGlideModule}. The cache is created on
+     * the first fetch, on a Glide source thread, so locating its directory never touches the
+     * disk on the main thread while Glide is being set up.
+     */
+    public static class Factory implements ModelLoaderFactory<CoverUrl, InputStream> {
+
+        /** Creates the cache shared by every loader. */
+        private final Supplier<CoverHttpCache> cacheFactory;
+
+        /** The cache shared by every loader, or null until the first fetch. */
+        private CoverHttpCache cache;
+
+        /**
+         * Creates the factory.
+         *
+         * @param cacheFactory Creates the cache shared by every loader; called once.
+         */
+        public Factory(Supplier<CoverHttpCache> cacheFactory) {
+            this.cacheFactory = cacheFactory;
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<CoverUrl, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new CoverHttpModelLoader(this::getCache);
+        }
+
+        /**
+         * Returns the shared cache, creating it on first use.
+         *
+         * @return The cache.
+         */
+        private synchronized CoverHttpCache getCache() {
+            if (cache == null) {
+                cache = cacheFactory.get();
+            }
+            return cache;
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.bookworm;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
+/**
+ * CoverLoader builds the Glide requests for cover thumbnails. Every cover is decoded at
+ * the size of the row's ImageView rather than at the source image's full resolution,
+ * as RGB_565 since covers are opaque, and the downsampled result is kept in the disk cache
+ * so later binds skip decoding the source entirely. Books with a remote cover URL are
+ * fetched through {@link CoverHttpModelLoader}; their bundled cover, if any, is shown
+ * when the download fails.
+ *
+ * Binds and preloads use the same request, so a preloaded cover is a memory cache hit
+ * when its row is bound.
+ */
+public class CoverLoader {
+
+    /** Glide instance tied to the screen's lifecycle. */
+    private final RequestManager requestManager;
+
+    /** Options shared by every cover request. */
+    private final RequestOptions options;
+
+    /** Thumbnail width in pixels. */
+    private final int width;
+
+    /** Thumbnail height in pixels. */
+    private final int height;
+
+    /**
+     * Creates a loader for the browse rows of a screen.
+     *
+     * @param context The Activity context; requests are paused and cleared with its lifecycle.
+     */
+    public CoverLoader(Context context) {
+        this.requestManager = Glide.with(context);
+        this.width = context.getResources().getDimensionPixelSize(R.dimen.cover_thumbnail_width);
+        this.height = context.getResources().getDimensionPixelSize(R.dimen.cover_thumbnail_height);
+        this.options = new RequestOptions()
+                .override(width, height)
+                .fitCenter()
+                .format(DecodeFormat.PREFER_RGB_565)
+                // Cache the downsampled thumbnail rather than the full-size source
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE);
+    }
+
+    /**
+     * Builds the request for a book's cover.
+     *
+     * @param book The book whose cover to load.
+     * @return The request, not yet started.
+     */
+    public RequestBuilder<Drawable> request(@NonNull Book book) {
+        if (!book.hasCoverImageUrl()) {
+            return requestManager
+                    .load(book.getCoverImageResId())
+                    .apply(options)
+                    .listener(CoverCacheStats.getInstance());
+        }
+
+        RequestBuilder<Drawable> request = requestManager
+                .load(new CoverHttpModelLoader.CoverUrl(book.getCoverImageUrl()))
+                .apply(options)
+                .listener(CoverCacheStats.getInstance());
+        if (book.getCoverImageResId() != 0) {
+            request = request.error(book.getCoverImageResId());
+        }
+        return request;
+    }
+
+    /**
+     * Loads a book's cover into a row's ImageView.
+     *
+     * @param book      The book whose cover to show.
+     * @param imageView The row's cover view.
+     */
+    public void load(@NonNull Book book, @NonNull ImageView imageView) {
+        request(book).into(imageView);
+    }
+
+    /**
+     * Cancels any load into a view and clears it.
+     *
+     * @param imageView The row's cover view.
+     */
+    public void clear(@NonNull ImageView imageView) {
+        requestManager.clear(imageView);
+    }
+
+    /**
+     * Creates the size provider for preloading, matching the size used by binds.
+     *
+     * @return A fixed size provider.
+     */
+    public ListPreloader.PreloadSizeProvider<Book> createPreloadSizeProvider() {
+        return new FixedPreloadSizeProvider<>(width, height);
+    }
+
+    /**
+     * Gets the Glide instance used for cover requests.
+     *
+     * @return The request manager.
+     */
+    public RequestManager getRequestManager() {
+        return requestManager;
+    }
+}
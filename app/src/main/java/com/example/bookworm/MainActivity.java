@@ -1,6 +1,9 @@
 package com.example.bookworm;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.widget.Button;
 import android.widget.Toast;
@@ -11,6 +14,7 @@ import androidx.appcompat.app.AppCompatActivity;
  * MainActivity is the primary entry point of the Bookworm application.
  * It provides a simple dashboard with navigation buttons to either browse 
  * the library's catalog or view the user's personal list of saved books.
+ * It also schedules the background check that notifies the user about overdue books.
  */
 public class MainActivity extends AppCompatActivity {
 
@@ -46,5 +50,12 @@ public class MainActivity extends AppCompatActivity {
             Intent intent = new Intent(MainActivity.this, MyListActivity.class);
             startActivity(intent);
         });
+
+        // Overdue books are announced by a periodic background job
+        OverdueCheckJobService.schedule(this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[] {Manifest.permission.POST_NOTIFICATIONS}, 0);
+        }
     }
 }
\ No newline at end of file
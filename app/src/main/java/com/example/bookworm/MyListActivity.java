@@ -1,29 +1,81 @@
 package com.example.bookworm;
 
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.activity.OnBackPressedCallback;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * MyListActivity displays the collection of books the user has added to their personal list.
  * It provides features to set return reminders, view potential fines for overdue books,
- * and remove books from the list.
+ * and remove books from the list. The list and the fine are observed from {@link MyListCache}
+ * for as long as the activity is started, so changes made on any screen are pushed here
+ * instead of being reloaded when the activity resumes.
+ * Several books can be selected with a long press and returned in one go.
+ * The user can keep several named lists and choose which one is shown, and can sort the
+ * list by due date, title or author or show only the overdue books.
+ * The shown list can be exported to a file chosen with the system file picker, as NDJSON or
+ * CSV, and books can be imported into it from such a file.
  */
 public class MyListActivity extends AppCompatActivity {
 
+    /** MIME types offered when picking a file to import; providers often label NDJSON as generic. */
+    private static final String[] IMPORT_MIME_TYPES = {
+            "text/*", "application/x-ndjson", "application/json", "application/octet-stream"
+    };
+
     /** RecyclerView to display the user's personal book list. */
     private RecyclerView recyclerMyList;
     
     /** TextView to display the calculated total fine for late books. */
     private TextView textTotalFine;
 
-    /** The data set containing the user's books. */
-    private ArrayList<Book> myListBooks;
+    /** The adapter displaying the user's books. */
+    private MyListAdapter adapter;
+
+    /** Chooses which of the user's lists is shown. */
+    private Spinner spinnerLists;
+
+    /** The user's lists, as shown by {@link #spinnerLists}. */
+    private ArrayAdapter<ListInfo> listsAdapter;
+
+    /** Handler used to refresh the fine when the next book becomes overdue. */
+    private final Handler fineHandler = new Handler(Looper.getMainLooper());
+
+    /** Refreshes the fine display and schedules the following refresh. */
+    private final Runnable refreshFine = this::refreshFine;
+
+    /** Asks where to write an NDJSON export. */
+    private final ActivityResultLauncher<String> exportNdjson = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(LoanTransfer.Format.NDJSON.getMimeType()),
+            uri -> exportTo(uri, LoanTransfer.Format.NDJSON));
+
+    /** Asks where to write a CSV export. */
+    private final ActivityResultLauncher<String> exportCsv = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(LoanTransfer.Format.CSV.getMimeType()),
+            uri -> exportTo(uri, LoanTransfer.Format.CSV));
+
+    /** Asks which file to import. */
+    private final ActivityResultLauncher<String[]> importDocument = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importFrom);
 
     /**
      * Initializes the activity and sets up the user's personal list view.
@@ -39,38 +91,244 @@ public class MyListActivity extends AppCompatActivity {
         recyclerMyList = findViewById(R.id.recyclerMyList);
         textTotalFine = findViewById(R.id.textTotalFine);
 
-        // Load the user's books from storage
-        myListBooks = BookStorage.loadMyList(this);
+        adapter = new MyListAdapter(this);
+        recyclerMyList.setLayoutManager(new LinearLayoutManager(this));
+        recyclerMyList.setAdapter(adapter);
+        setUpBulkActions();
+        setUpLists();
+        setUpViews();
+        findViewById(R.id.buttonBackup).setOnClickListener(v -> showBackupDialog());
+
+        // Snapshots arrive only when the list changed; only rows that differ are rebound
+        MyListCache cache = MyListCache.getInstance(this);
+        cache.getSnapshots().observe(this, snapshot -> {
+            adapter.submitSnapshot(snapshot);
 
-        // Initialize the adapter with a listener to update the fine display when items change
-        MyListAdapter adapter = new MyListAdapter(this, myListBooks, totalFine -> {
-            textTotalFine.setText("Total fine: $" + totalFine);
+            // A change of return dates can move the next fine change
+            scheduleFineRefresh();
         });
+        cache.getTotalFineUpdates().observe(this, totalFine -> textTotalFine.setText("Total fine: $" + totalFine));
+    }
 
-        // Configure the RecyclerView
-        recyclerMyList.setLayoutManager(new LinearLayoutManager(this));
-        recyclerMyList.setAdapter(adapter);
+    /**
+     * Fills the list selector from the manifest and switches the shown list when another
+     * one is chosen. The New list button asks for a name and switches to the created list.
+     */
+    private void setUpLists() {
+        spinnerLists = findViewById(R.id.spinnerLists);
+        listsAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item);
+        listsAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerLists.setAdapter(listsAdapter);
+
+        MyListCache cache = MyListCache.getInstance(this);
+        cache.getLists().observe(this, this::showLists);
+        spinnerLists.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                ListInfo list = listsAdapter.getItem(position);
+                if (list != null && !list.getId().equals(cache.getListId())) {
+                    adapter.clearSelection();
+                    cache.switchTo(list.getId());
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        Button buttonNewList = findViewById(R.id.buttonNewList);
+        buttonNewList.setOnClickListener(v -> showNewListDialog());
+    }
+
+    /**
+     * Switches the adapter to the view chosen in the sort and filter selector. The spinner
+     * restores its selection with the activity, so the chosen view survives recreation.
+     */
+    private void setUpViews() {
+        Spinner spinnerView = findViewById(R.id.spinnerView);
+        spinnerView.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                adapter.setView(MyListView.values()[position]);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
+
+    /**
+     * Shows the user's lists in the selector, with the current list selected.
+     *
+     * @param lists The lists in display order.
+     */
+    private void showLists(List<ListInfo> lists) {
+        listsAdapter.clear();
+        listsAdapter.addAll(lists);
+        String currentId = MyListCache.getInstance(this).getListId();
+        for (int i = 0; i < lists.size(); i++) {
+            if (lists.get(i).getId().equals(currentId)) {
+                spinnerLists.setSelection(i, false);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Asks for a name and creates a new empty list, which then becomes the shown list.
+     */
+    private void showNewListDialog() {
+        EditText input = new EditText(this);
+        input.setHint(R.string.list_name_hint);
+        input.setSingleLine(true);
 
-        // Calculate and display the initial total fine
-        int startingFine = MyListAdapter.calculateTotalFine(myListBooks);
-        textTotalFine.setText("Total fine: $" + startingFine);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.new_list)
+                .setView(input)
+                .setPositiveButton(R.string.create_list, (dialog, which) -> {
+                    String name = input.getText().toString().trim();
+                    if (name.isEmpty()) {
+                        return;
+                    }
+                    MyListCache cache = MyListCache.getInstance(this);
+                    cache.createList(name).thenAccept(created -> {
+                        adapter.clearSelection();
+                        cache.switchTo(created.getId());
+                    });
+                })
+                .setNegativeButton(R.string.cancel_selection, null)
+                .show();
     }
 
     /**
-     * Refresh data and check for overdue books whenever the activity returns to the foreground.
+     * Offers to export the shown list as NDJSON or CSV, or to import books into it.
+     * Exports are named after the list.
+     */
+    private void showBackupDialog() {
+        ListInfo list = (ListInfo) spinnerLists.getSelectedItem();
+        String baseName = (list != null) ? list.getName() : getString(R.string.my_list);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.backup)
+                .setItems(R.array.backup_actions, (dialog, which) -> {
+                    if (which == 0) {
+                        exportNdjson.launch(baseName + "." + LoanTransfer.Format.NDJSON.getExtension());
+                    } else if (which == 1) {
+                        exportCsv.launch(baseName + "." + LoanTransfer.Format.CSV.getExtension());
+                    } else {
+                        importDocument.launch(IMPORT_MIME_TYPES);
+                    }
+                })
+                .setNegativeButton(R.string.cancel_selection, null)
+                .show();
+    }
+
+    /**
+     * Exports the shown list to the file the user picked.
+     *
+     * @param uri    The file to write, or null if the user backed out.
+     * @param format The file format.
+     */
+    private void exportTo(Uri uri, LoanTransfer.Format format) {
+        if (uri == null) {
+            return;
+        }
+        MyListCache.getInstance(this).exportTo(uri, format).whenComplete((count, error) -> {
+            String message = (error != null) ? getString(R.string.export_failed)
+                    : getResources().getQuantityString(R.plurals.books_exported_summary, count.intValue(),
+                    count.intValue());
+            Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * Imports the books of the file the user picked into the shown list.
+     *
+     * @param uri The file to read, or null if the user backed out.
+     */
+    private void importFrom(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        MyListCache.getInstance(this).importFrom(uri).whenComplete((report, error) -> {
+            String message;
+            if (error != null) {
+                message = getString(R.string.import_failed);
+            } else {
+                int added = (int) report.getBooksAdded();
+                int skipped = (int) (report.getDuplicates() + report.getMalformed());
+                message = getResources().getQuantityString(R.plurals.books_imported_summary, added, added, skipped);
+            }
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        });
+    }
+
+    /**
+     * Shows the bulk action bar while books are selected. The back button ends
+     * multi-select mode instead of leaving the screen.
+     */
+    private void setUpBulkActions() {
+        View layoutBulkActions = findViewById(R.id.layoutBulkActions);
+        Button buttonBulkAction = findViewById(R.id.buttonBulkAction);
+        Button buttonClearSelection = findViewById(R.id.buttonClearSelection);
+
+        OnBackPressedCallback endSelection = new OnBackPressedCallback(false) {
+            @Override
+            public void handleOnBackPressed() {
+                adapter.clearSelection();
+            }
+        };
+        getOnBackPressedDispatcher().addCallback(this, endSelection);
+
+        adapter.getSelection().setListener(count -> {
+            layoutBulkActions.setVisibility(count > 0 ? View.VISIBLE : View.GONE);
+            buttonBulkAction.setText(getResources().getQuantityString(R.plurals.return_selected, count, count));
+            endSelection.setEnabled(count > 0);
+        });
+        buttonBulkAction.setOnClickListener(v -> adapter.returnSelected());
+        buttonClearSelection.setOnClickListener(v -> adapter.clearSelection());
+    }
+
+    /**
+     * Brings the fine up to date in case a day passed while the activity was in the
+     * background. Overdue books are announced separately by {@link OverdueCheckJobService}.
      */
     @Override
     protected void onResume() {
         super.onResume();
+        refreshFine();
+    }
 
-        // Reload the list in case it was modified in another part of the app
-        myListBooks = BookStorage.loadMyList(this);
+    /**
+     * Stops scheduled fine refreshes while the activity is not visible.
+     */
+    @Override
+    protected void onPause() {
+        super.onPause();
+        fineHandler.removeCallbacks(refreshFine);
+    }
 
-        // Display late warnings for any books that have passed their return date
-        MyListAdapter.showLateWarnings(this, myListBooks);
+    /**
+     * Recomputes the total fine and the overdue view, which are published only if they
+     * changed, and schedules a refresh for the next time either changes on its own.
+     */
+    private void refreshFine() {
+        MyListCache.getInstance(this).refreshFine();
+        scheduleFineRefresh();
+    }
 
-        // Re-calculate the total fine
-        int fine = MyListAdapter.calculateTotalFine(myListBooks);
-        textTotalFine.setText("Total fine: $" + fine);
+    /**
+     * Schedules a refresh for the midnight at which the next book falls due or becomes
+     * fined, whichever comes first, replacing any refresh scheduled before. A book falls
+     * due days before it is fined, and the overdue view must show it from that day.
+     */
+    private void scheduleFineRefresh() {
+        fineHandler.removeCallbacks(refreshFine);
+        long nextChangeMillis = MyListCache.getInstance(this).getNextChangeMillis();
+        if (nextChangeMillis != Long.MAX_VALUE) {
+            fineHandler.postDelayed(refreshFine, Math.max(0L, nextChangeMillis - System.currentTimeMillis()));
+        }
     }
 }
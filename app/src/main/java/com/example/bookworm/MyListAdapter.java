@@ -1,63 +1,184 @@
 package com.example.bookworm;
 
+import android.annotation.SuppressLint;
+import android.app.DatePickerDialog;
 import android.content.Context;
+import android.os.Trace;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
-import android.widget.DatePicker;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.Calendar;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * MyListAdapter is responsible for rendering the books in the user's personal collection.
  * It provides the interface for setting return dates, triggering reminders, 
  * and removing books from the list. It also includes logic for fine calculation.
+ * The adapter displays one {@link MyListView} of immutable list snapshots: the books sorted
+ * by when they were added, by due date, title or author, or only the overdue ones. Views
+ * are maintained incrementally by the cache, so a snapshot already knows where each change
+ * landed in every view; when it follows the displayed snapshot directly, those positions
+ * are dispatched to the RecyclerView as they are, with no diffing. Switching views only
+ * swaps the list being displayed.
+ *
+ * Rows are kept light: the return date is shown as text and a date picker dialog is only
+ * created when the user taps "Set Up a Reminder". Click handlers are attached once per
+ * ViewHolder and look up their book at click time, and due date labels are formatted once
+ * per date, so binding a row allocates nothing. Inflate and bind are wrapped in trace
+ * sections so their cost per row shows up in system traces.
+ *
+ * Changes made from a row are only recorded in {@link MyListCache}; the hosting activity
+ * observes the cache and submits the resulting snapshot, as it does for changes made on
+ * other screens.
+ *
+ * Long-pressing a row starts a multi-select mode in which tapping rows picks books to
+ * return together. The cache records a bulk return as a single storage batch and publishes
+ * one snapshot, whose recorded changes remove the returned rows, merged into ranges where
+ * they are adjacent.
  */
 public class MyListAdapter extends RecyclerView.Adapter<MyListAdapter.MyListViewHolder> {
 
-    /**
-     * Interface for communicating fine changes back to the hosting activity.
-     */
-    public interface FineChangedListener {
-        /**
-         * Triggered whenever a change in the book list affects the total fine.
-         * 
-         * @param totalFineDollars The updated total fine amount.
-         */
-        void onFineChanged(int totalFineDollars);
-    }
+    /** Time taken to inflate a row. */
+    private static final LatencyHistogram INFLATE_LATENCY = PerfMetrics.histogram("mylist.inflateRow");
+
+    /** Time taken to bind a row. */
+    private static final LatencyHistogram BIND_LATENCY = PerfMetrics.histogram("mylist.bindRow");
+
+    /** Time taken to calculate the total fine of a whole list. */
+    private static final LatencyHistogram CALCULATE_FINE_LATENCY = PerfMetrics.histogram("fine.calculateTotal");
+
+    /** Payload for rebinding only the selected state of a row. */
+    private static final Object PAYLOAD_SELECTION = new Object();
 
     /** Context for inflating layouts and displaying UI notifications. */
     private final Context context;
+
+    /** Books picked in multi-select mode. */
+    private final BookSelection selection = new BookSelection();
     
-    /** The list of books in the user's personal collection. */
-    private final ArrayList<Book> myListBooks;
-    
-    /** Listener for updating the UI when the fine calculation changes. */
-    private final FineChangedListener fineChangedListener;
+    /** Forwards recorded view changes to the RecyclerView. */
+    private final ViewChanges.Callback updateCallback = new ViewChanges.Callback() {
+        @Override
+        public void onInserted(int position, int count) {
+            notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            notifyItemRangeChanged(position, count);
+        }
+    };
+
+    /** The displayed snapshot of the user's list, or null before the first one arrives. */
+    private MyListSnapshot snapshot;
+
+    /** The displayed view of the list. */
+    private MyListView view = MyListView.ADDED;
+
+    /** The books of the displayed view, in display order. */
+    private List<Book> books = Collections.emptyList();
+
+    /** Formats return dates for the due date label. */
+    private final DateTimeFormatter dueDateFormat = DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM);
+
+    /** Due date labels already formatted, by return date as an epoch day. */
+    private final SparseArray<String> dueDateLabels = new SparseArray<>();
+
+    /** Label shown for books without a return date. */
+    private final String noReturnDateLabel;
+
+    /** Button text while a reminder can still be set. */
+    private final String setReminderLabel;
+
+    /** Button text once a reminder has been set. */
+    private final String reminderSetLabel;
 
     /**
      * Constructs the MyListAdapter.
      * 
-     * @param context             The application context.
-     * @param myListBooks         The user's personal book list.
-     * @param fineChangedListener A listener to handle fine updates.
+     * @param context The application context.
      */
-    public MyListAdapter(Context context, ArrayList<Book> myListBooks, FineChangedListener fineChangedListener) {
+    public MyListAdapter(Context context) {
         this.context = context;
-        this.myListBooks = myListBooks;
-        this.fineChangedListener = fineChangedListener;
+        this.noReturnDateLabel = context.getString(R.string.no_return_date);
+        this.setReminderLabel = context.getString(R.string.set_up_a_reminder);
+        this.reminderSetLabel = context.getString(R.string.reminder_set);
+
+        // Rows are identified by book rather than by position
+        setHasStableIds(true);
     }
 
     /**
-     * Inflates the layout for individual book items in the user's list.
+     * Displays a new snapshot of the list. If it directly follows the displayed snapshot,
+     * only the rows its recorded changes touched in the displayed view are updated;
+     * otherwise, e.g. after another list was loaded, every row is rebound.
+     * 
+     * @param newSnapshot The new snapshot.
+     */
+    @SuppressLint("NotifyDataSetChanged")
+    public void submitSnapshot(MyListSnapshot newSnapshot) {
+        ViewChanges changes = newSnapshot.getChangesSince(snapshot);
+        snapshot = newSnapshot;
+        books = newSnapshot.getBooks(view);
+        if (changes != null) {
+            changes.dispatch(view, updateCallback);
+        } else {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Shows another view of the list. The view is already sorted, so switching is
+     * immediate whatever the size of the list.
+     *
+     * @param newView The view to show.
+     */
+    @SuppressLint("NotifyDataSetChanged")
+    public void setView(MyListView newView) {
+        if (newView == view) {
+            return;
+        }
+        view = newView;
+        if (snapshot != null) {
+            books = snapshot.getBooks(newView);
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Gets the displayed view of the list.
+     *
+     * @return The view.
+     */
+    public MyListView getView() {
+        return view;
+    }
+
+    /**
+     * Inflates the layout for individual book items in the user's list and attaches its
+     * click handlers, which stay with the ViewHolder for its whole lifetime.
      * 
      * @param parent   The parent ViewGroup.
      * @param viewType The view type ID.
@@ -66,158 +187,229 @@ public class MyListAdapter extends RecyclerView.Adapter<MyListAdapter.MyListView
     @NonNull
     @Override
     public MyListViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View rowView = LayoutInflater.from(context).inflate(R.layout.item_book_my_list, parent, false);
-        return new MyListViewHolder(rowView);
+        Trace.beginSection("MyList.inflateRow");
+        long start = System.nanoTime();
+        try {
+            View rowView = LayoutInflater.from(context).inflate(R.layout.item_book_my_list, parent, false);
+            MyListViewHolder holder = new MyListViewHolder(rowView);
+            holder.buttonSetReminder.setOnClickListener(v -> onSetReminderClicked(holder));
+            holder.buttonReturnBook.setOnClickListener(v -> onReturnClicked(holder));
+
+            // A long press starts multi-select mode; while it lasts, taps pick rows
+            rowView.setOnLongClickListener(v -> toggleSelection(holder));
+            rowView.setOnClickListener(v -> {
+                if (selection.isActive()) {
+                    toggleSelection(holder);
+                }
+            });
+            return holder;
+        } finally {
+            INFLATE_LATENCY.recordSince(start);
+            Trace.endSection();
+        }
     }
 
     /**
-     * Binds book data to the ViewHolder and sets up user interactions.
+     * Binds book data to the ViewHolder. Only cached strings are used, so nothing is allocated.
      * 
      * @param holder   The ViewHolder to be updated.
      * @param position The position of the item in the list.
      */
     @Override
     public void onBindViewHolder(@NonNull MyListViewHolder holder, int position) {
-        Book currentBook = myListBooks.get(position);
-
-        // Update basic book information
-        holder.textMyListTitle.setText(currentBook.getTitle());
-        holder.textMyListAuthor.setText(currentBook.getAuthor());
-
-        // Initialize the DatePicker if a return date has already been set
-        if (currentBook.getReturnDateMillis() > 0) {
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTimeInMillis(currentBook.getReturnDateMillis());
-            holder.datePickerReturn.updateDate(
-                    calendar.get(Calendar.YEAR),
-                    calendar.get(Calendar.MONTH),
-                    calendar.get(Calendar.DAY_OF_MONTH)
-            );
-            
-            // To prevent multiple conflicting reminders, the UI is locked once a date is set
-            holder.buttonSetReminder.setEnabled(false);
-            holder.buttonSetReminder.setText(R.string.reminder_set);
-            holder.datePickerReturn.setEnabled(false);
-        } else {
-            // Allow setting a reminder if one hasn't been established yet
-            holder.buttonSetReminder.setEnabled(true);
-            holder.buttonSetReminder.setText(R.string.set_up_a_reminder);
-            holder.datePickerReturn.setEnabled(true);
-        }
+        Trace.beginSection("MyList.bindRow");
+        long start = System.nanoTime();
+        try {
+            Book currentBook = books.get(position);
 
-        // Logic for setting a return date reminder
-        holder.buttonSetReminder.setOnClickListener(v -> {
-            // Convert DatePicker selection into milliseconds
-            long selectedReturnDateMillis = getDatePickerMillis(holder.datePickerReturn);
-            currentBook.setReturnDateMillis(selectedReturnDateMillis);
-
-            // Persist the updated book list
-            BookStorage.saveMyList(context, myListBooks);
-
-            Toast.makeText(context, "Reminder saved. We'll warn you if you're late.", Toast.LENGTH_SHORT).show();
-
-            // Notify the activity that the total fine might have changed
-            int fine = calculateTotalFine(myListBooks);
-            fineChangedListener.onFineChanged(fine);
-            
-            // Refresh this item to reflect the "Reminder Set" state
-            notifyItemChanged(holder.getAbsoluteAdapterPosition());
-        });
-
-        // Logic for returning a book (removing it from the list)
-        holder.buttonReturnBook.setOnClickListener(v -> {
-            int currentPos = holder.getAbsoluteAdapterPosition();
-            if (currentPos != RecyclerView.NO_POSITION) {
-                // Remove the book from the collection and update storage
-                myListBooks.remove(currentPos);
-                BookStorage.saveMyList(context, myListBooks);
-                notifyItemRemoved(currentPos);
-                
-                // Recalculate total fine after book removal
-                int fine = calculateTotalFine(myListBooks);
-                fineChangedListener.onFineChanged(fine);
-
-                Toast.makeText(context, "Book returned and removed from your list.", Toast.LENGTH_SHORT).show();
+            // Update basic book information
+            holder.textMyListTitle.setText(currentBook.getTitle());
+            holder.textMyListAuthor.setText(currentBook.getAuthor());
+            holder.itemView.setActivated(selection.isSelected(currentBook));
+
+            if (currentBook.hasReturnDate()) {
+                holder.textMyListDueDate.setText(getDueDateLabel(currentBook.getReturnEpochDay()));
+
+                // To prevent multiple conflicting reminders, the UI is locked once a date is set
+                holder.buttonSetReminder.setEnabled(false);
+                holder.buttonSetReminder.setText(reminderSetLabel);
+            } else {
+                // Allow setting a reminder if one hasn't been established yet
+                holder.textMyListDueDate.setText(noReturnDateLabel);
+                holder.buttonSetReminder.setEnabled(true);
+                holder.buttonSetReminder.setText(setReminderLabel);
             }
-        });
+        } finally {
+            BIND_LATENCY.recordSince(start);
+            Trace.endSection();
+        }
     }
 
     /**
-     * Returns the size of the user's book list.
-     * 
-     * @return Item count.
+     * Rebinds only the selected state of a row when the selection changed.
+     *
+     * @param holder   The ViewHolder to update.
+     * @param position The position of the item in the list.
+     * @param payloads The pending partial updates, empty for a full bind.
      */
     @Override
-    public int getItemCount() {
-        return myListBooks.size();
+    public void onBindViewHolder(@NonNull MyListViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        holder.itemView.setActivated(selection.isSelected(books.get(position)));
+    }
+
+    /**
+     * Gets the books picked in multi-select mode. The hosting activity listens to it to
+     * show the bulk action.
+     *
+     * @return The selection.
+     */
+    public BookSelection getSelection() {
+        return selection;
+    }
+
+    /**
+     * Returns every selected book in one batch and ends multi-select mode.
+     */
+    public void returnSelected() {
+        MyListCache.getInstance(context).returnAll(selection.getBooks()).thenAccept(returned ->
+                Toast.makeText(context, context.getResources().getQuantityString(
+                        R.plurals.books_returned_summary, returned, returned), Toast.LENGTH_SHORT).show());
+        clearSelection();
+    }
+
+    /**
+     * Ends multi-select mode, rebinding only the selected state of the rows.
+     */
+    public void clearSelection() {
+        if (!selection.isActive()) {
+            return;
+        }
+        selection.clear();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
     }
 
     /**
-     * Converts the current selection in a DatePicker into epoch milliseconds.
-     * Time components (hours, minutes, seconds) are reset to zero for consistent date comparison.
+     * Selects or deselects the book in a row.
+     *
+     * @param holder The ViewHolder of the row.
+     * @return True, as the press is always consumed.
+     */
+    private boolean toggleSelection(MyListViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) return true;
+
+        selection.toggle(books.get(position));
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        return true;
+    }
+
+    /**
+     * Opens a date picker for the book in the clicked row, starting at today's date.
      * 
-     * @param datePicker The DatePicker instance.
-     * @return Epoch milliseconds representing the selected date.
+     * @param holder The ViewHolder whose button was clicked.
      */
-    private long getDatePickerMillis(DatePicker datePicker) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.YEAR, datePicker.getYear());
-        calendar.set(Calendar.MONTH, datePicker.getMonth());
-        calendar.set(Calendar.DAY_OF_MONTH, datePicker.getDayOfMonth());
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        return calendar.getTimeInMillis();
+    private void onSetReminderClicked(MyListViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) return;
+        Book book = books.get(position);
+
+        // The picker's month is 0-based, LoanDates' is 1-based
+        LocalDate today = LocalDate.now();
+        new DatePickerDialog(context, R.style.DatePickerTheme,
+                (view, year, month, dayOfMonth) -> saveReturnDate(book, LoanDates.of(year, month + 1, dayOfMonth)),
+                today.getYear(),
+                today.getMonthValue() - 1,
+                today.getDayOfMonth()
+        ).show();
     }
 
     /**
-     * Static utility for calculating the total late fine across all books.
-     * Rule: Any book overdue by 10 days or more incurs a flat $10 fine.
+     * Records the return date chosen for a book. The cache publishes the change, so only
+     * this row is rebound to reflect the "Reminder Set" state.
      * 
-     * @param books The list of user books.
-     * @return The total fine in dollars.
+     * @param book           The book whose reminder is being set.
+     * @param returnEpochDay The chosen return date as an epoch day.
      */
-    public static int calculateTotalFine(ArrayList<Book> books) {
-        int totalFine = 0;
-        long nowMillis = System.currentTimeMillis();
+    private void saveReturnDate(Book book, int returnEpochDay) {
+        MyListCache.getInstance(context).setReturnDate(book, returnEpochDay);
+        Toast.makeText(context, "Reminder saved. We'll warn you if you're late.", Toast.LENGTH_SHORT).show();
+    }
 
-        for (Book book : books) {
-            long returnMillis = book.getReturnDateMillis();
-            if (returnMillis <= 0) continue; // Skip books without an established return date
+    /**
+     * Returns the book in the clicked row (removing it from the list). The cache publishes
+     * the change, and the diff removes just this row.
+     * 
+     * @param holder The ViewHolder whose button was clicked.
+     */
+    private void onReturnClicked(MyListViewHolder holder) {
+        int currentPos = holder.getBindingAdapterPosition();
+        if (currentPos == RecyclerView.NO_POSITION) return;
 
-            // Calculate the difference in time and convert it to days
-            long diffMillis = nowMillis - returnMillis;
-            long diffDays = diffMillis / (1000L * 60L * 60L * 24L);
+        // Remove the book from the collection and update storage
+        Book returnedBook = books.get(currentPos);
+        MyListCache.getInstance(context).returnBook(returnedBook);
 
-            // Apply fine if overdue by at least 10 full days
-            if (diffDays >= 10) {
-                totalFine += 10;
-            }
+        Toast.makeText(context, "Book returned and removed from your list.", Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Gets the due date label for a return date, formatting it only the first time it is seen.
+     * 
+     * @param returnEpochDay The return date as an epoch day.
+     * @return The label, e.g. "Due Oct 20, 2026".
+     */
+    private String getDueDateLabel(int returnEpochDay) {
+        String label = dueDateLabels.get(returnEpochDay);
+        if (label == null) {
+            label = context.getString(R.string.due_date, dueDateFormat.format(LocalDate.ofEpochDay(returnEpochDay)));
+            dueDateLabels.put(returnEpochDay, label);
         }
+        return label;
+    }
 
-        return totalFine;
+    /**
+     * Returns the size of the user's book list.
+     * 
+     * @return Item count.
+     */
+    @Override
+    public int getItemCount() {
+        return books.size();
     }
 
     /**
-     * Static utility that displays Toast notifications for books that are past their return date.
+     * Returns the stable id of the book at the given position.
      * 
-     * @param context The application context.
-     * @param books   The user's book collection.
+     * @param position The adapter position.
+     * @return The book's stable id, derived from its catalog key.
      */
-    public static void showLateWarnings(Context context, ArrayList<Book> books) {
-        long nowMillis = System.currentTimeMillis();
-
-        for (Book book : books) {
-            long returnMillis = book.getReturnDateMillis();
-            if (returnMillis <= 0) continue;
-
-            // Check if current system time has passed the return date
-            if (nowMillis > returnMillis) {
-                Toast.makeText(context,
-                        "Late return: " + book.getTitle(),
-                        Toast.LENGTH_LONG).show();
-            }
+    @Override
+    public long getItemId(int position) {
+        return books.get(position).getStableId();
+    }
+
+    /**
+     * Static utility for calculating the total late fine across all books.
+     * Rule: Any book overdue by 10 days or more incurs a flat $10 fine.
+     * This is the O(n) reference calculation; screens use the incrementally maintained
+     * total from {@link FineEngine} via MyListCache, which gives the same result.
+     * 
+     * @param books The list of user books.
+     * @return The total fine in dollars.
+     */
+    public static int calculateTotalFine(List<Book> books) {
+        Trace.beginSection("MyList.calculateTotalFine");
+        long start = System.nanoTime();
+        try {
+            int today = LoanDates.fromMillis(System.currentTimeMillis(), ZoneId.systemDefault());
+            return FineEngine.calculateTotalFine(books, today);
+        } finally {
+            CALCULATE_FINE_LATENCY.recordSince(start);
+            Trace.endSection();
         }
     }
 
@@ -232,8 +424,8 @@ public class MyListAdapter extends RecyclerView.Adapter<MyListAdapter.MyListView
         /** Author of the book. */
         TextView textMyListAuthor;
         
-        /** DatePicker for selecting the return date. */
-        DatePicker datePickerReturn;
+        /** Selected return date, or a note that none is set. */
+        TextView textMyListDueDate;
         
         /** Button to confirm the return date reminder. */
         Button buttonSetReminder;
@@ -251,7 +443,7 @@ public class MyListAdapter extends RecyclerView.Adapter<MyListAdapter.MyListView
 
             textMyListTitle = itemView.findViewById(R.id.textMyListTitle);
             textMyListAuthor = itemView.findViewById(R.id.textMyListAuthor);
-            datePickerReturn = itemView.findViewById(R.id.datePickerReturn);
+            textMyListDueDate = itemView.findViewById(R.id.textMyListDueDate);
             buttonSetReminder = itemView.findViewById(R.id.buttonSetReminder);
             buttonReturnBook = itemView.findViewById(R.id.buttonReturnBook);
         }
@@ -0,0 +1,597 @@
+package com.example.bookworm;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Trace;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * MyListCache is a process-wide, write-through cache of the user's current book list.
+ * The list is loaded from {@link BookStorage} once per process and then served from memory,
+ * so screens and click handlers never read or parse storage on the tap path.
+ * Writes update the in-memory list immediately and are passed on to BookStorage,
+ * which records them in order on its I/O thread.
+ *
+ * The list is held in a {@link MyListIndex}, so contains, add and remove are O(1)
+ * and the total fine is maintained incrementally instead of being recomputed
+ * from the whole list.
+ *
+ * The cache is also the observable repository of the list: every change publishes an
+ * immutable {@link MyListSnapshot} through {@link LiveData}, so screens observe the list
+ * with their lifecycle instead of reloading it when they resume, and are told when another
+ * screen changes it. Snapshots are versioned and only published when the list or the fine
+ * actually changed; an observer that becomes active again receives nothing unless a newer
+ * snapshot was published meanwhile. The fine is also published on its own and only when
+ * its value changes.
+ *
+ * The index also keeps the list's sorted and filtered {@link MyListViews} up to date, so a
+ * snapshot offers every view and the rows each change touched in it.
+ *
+ * Bulk adds and returns are applied to the index in one pass and recorded as a single
+ * storage batch, so selecting many books costs one commit, one fine update and one
+ * snapshot instead of one of each per book.
+ *
+ * The user can keep several named lists; the cache holds the one being shown. Switching
+ * lists loads only the chosen list's shard, after every change already requested for the
+ * previous list has been passed on to storage. The lists themselves are published from the
+ * manifest without opening any of them.
+ *
+ * The current list can be exported to a document and books imported from one. Imports
+ * stream straight into storage, after which the list is reloaded from its shard.
+ *
+ * The cache is confined to the main thread. The list is loaded on the I/O thread and handed
+ * over to the main thread, and changes requested before it arrives are applied afterwards,
+ * in the order they were made.
+ */
+public class MyListCache {
+
+    /** Time taken to compute the total fine from the index. */
+    private static final LatencyHistogram FINE_LATENCY = PerfMetrics.histogram("fine.total");
+
+    /** Number of books in the list when it was last published. */
+    private static final PerfCounter LIST_SIZE = PerfMetrics.counter("mylist.size");
+
+    /** The single instance shared by every screen in the process. */
+    private static MyListCache instance;
+
+    /** Application context used to reach BookStorage. */
+    private final Context context;
+
+    /** Supplies the catalog's books when legacy entries need their ids. Called on the I/O thread. */
+    private final Supplier<List<Book>> catalogBooks;
+
+    /** Id of the list being cached. */
+    private String listId = ShardedLists.DEFAULT_LIST_ID;
+
+    /** The user's lists, as last read from the manifest. */
+    private final MutableLiveData<List<ListInfo>> lists = new MutableLiveData<>();
+
+    /** The cached list, or null until it is first loaded. */
+    private MyListIndex index;
+
+    /** Whether the list is being loaded or has been loaded. */
+    private boolean loadStarted;
+
+    /** Changes requested before the list was loaded, in request order. */
+    private final ArrayList<Runnable> waitingForLoad = new ArrayList<>();
+
+    /** Tells which day it is, for fines. */
+    private final DayClock dayClock = DayClock.system();
+
+    /** The latest snapshot delivered to observers. */
+    private final MutableLiveData<MyListSnapshot> snapshots = new MutableLiveData<>();
+
+    /** The total fine of the latest delivered snapshot. */
+    private final MutableLiveData<Integer> totalFine = new MutableLiveData<>();
+
+    /** The latest snapshot taken, or null until the list is first loaded. */
+    private MyListSnapshot latest;
+
+    /** Version of the latest snapshot taken. */
+    private long version;
+
+    /** Number of changes applied to the list already in memory. */
+    private long hitCount;
+
+    /** Number of changes that had to wait for the list to be loaded from storage. */
+    private long missCount;
+
+    /**
+     * Creates a cache. The app uses {@link #getInstance(Context)} instead; tests create
+     * their own, so that each starts with an unloaded list.
+     *
+     * @param context The application context.
+     */
+    MyListCache(Context context) {
+        this(context, () -> BookRepository.getAvailableBooks(context));
+    }
+
+    /**
+     * Creates a cache that looks legacy entries up in the given catalog.
+     *
+     * @param context      The application context.
+     * @param catalogBooks Supplies the catalog's books; called on the I/O thread.
+     */
+    MyListCache(Context context, Supplier<List<Book>> catalogBooks) {
+        this.context = context;
+        this.catalogBooks = catalogBooks;
+    }
+
+    /**
+     * Returns the process-wide cache, creating it on first use.
+     *
+     * @param context Any context; only the application context is retained.
+     * @return The shared MyListCache.
+     */
+    public static synchronized MyListCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new MyListCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the user's list as observable snapshots, starting to load the list on first use.
+     * Observe it with a LifecycleOwner so the subscription ends with the screen.
+     *
+     * @return The snapshots, delivered on the main thread once the list is loaded.
+     */
+    public LiveData<MyListSnapshot> getSnapshots() {
+        load();
+        return snapshots;
+    }
+
+    /**
+     * Returns the total fine as an observable value that only changes when the fine does.
+     * Observe it with a LifecycleOwner so the subscription ends with the screen.
+     *
+     * @return The total fine in dollars, delivered on the main thread once the list is loaded.
+     */
+    public LiveData<Integer> getTotalFineUpdates() {
+        load();
+        return totalFine;
+    }
+
+    /**
+     * Returns the user's lists, starting to read them on first use.
+     *
+     * @return The lists in display order, delivered on the main thread.
+     */
+    public LiveData<List<ListInfo>> getLists() {
+        if (lists.getValue() == null) {
+            refreshLists();
+        }
+        return lists;
+    }
+
+    /**
+     * Re-reads the user's lists from the manifest and publishes them.
+     */
+    public void refreshLists() {
+        BookStorage.loadLists(context).thenAcceptAsync(lists::setValue, BookwormExecutors.main());
+    }
+
+    /**
+     * Creates an empty named list and publishes the updated lists.
+     *
+     * @param name The display name.
+     * @return A future completed on the main thread with the new list.
+     */
+    public CompletableFuture<ListInfo> createList(String name) {
+        return BookStorage.createList(context, name).thenApplyAsync(created -> {
+            refreshLists();
+            return created;
+        }, BookwormExecutors.main());
+    }
+
+    /**
+     * Writes the current list to a document, after every change already requested.
+     *
+     * @param uri    The document to write.
+     * @param format The file format.
+     * @return A future completed on the main thread with the number of books written.
+     */
+    public CompletableFuture<Long> exportTo(Uri uri, LoanTransfer.Format format) {
+        // Changes are recorded in order on the I/O thread, so the export sees all of them
+        return BookStorage.exportList(context, listId, uri, format)
+                .thenApplyAsync(Function.identity(), BookwormExecutors.main());
+    }
+
+    /**
+     * Adds the books of a document to the current list, skipping books already there,
+     * and reloads the list once they are stored.
+     *
+     * @param uri The document to read, as NDJSON or CSV.
+     * @return A future completed on the main thread with what the import added and skipped.
+     */
+    public CompletableFuture<ImportReport> importFrom(Uri uri) {
+        String importListId = listId;
+        return BookStorage.importList(context, importListId, uri).handleAsync((report, error) -> {
+            // A failed import may still have stored the batches read before the failure
+            if (error != null || report.getBooksAdded() > 0) {
+                reload(importListId);
+                refreshLists();
+            }
+            if (error != null) {
+                throw new CompletionException(error);
+            }
+            return report;
+        }, BookwormExecutors.main());
+    }
+
+    /**
+     * Gets the id of the list being cached.
+     *
+     * @return The current list's id.
+     */
+    public String getListId() {
+        return listId;
+    }
+
+    /**
+     * Makes another list the current one. Changes requested for the previous list are
+     * recorded first; observers then receive the new list's first snapshot once it is loaded.
+     *
+     * @param newListId The id of the list to show.
+     * @return A future completed on the main thread once the switch is made.
+     */
+    public CompletableFuture<Void> switchTo(String newListId) {
+        if (newListId.equals(listId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // Waiting for the load keeps changes queued for the previous list on that list
+        return whenLoaded(loaded -> {
+            listId = newListId;
+            index = null;
+            loadStarted = false;
+            load();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the latest snapshot of the user's list.
+     *
+     * @return The current snapshot, or null if the list has not been loaded yet.
+     */
+    public MyListSnapshot getSnapshot() {
+        return latest;
+    }
+
+    /**
+     * Adds a book to the user's list unless the same book is already there.
+     *
+     * @param book The book to add.
+     * @return A future completed on the main thread with true if the book was added,
+     *         or false if it was a duplicate.
+     */
+    public CompletableFuture<Boolean> add(Book book) {
+        return whenLoaded(loaded -> {
+            if (!loaded.add(book)) {
+                return false;
+            }
+            BookStorage.addBook(context, listId, book);
+            publishChange();
+            return true;
+        });
+    }
+
+    /**
+     * Removes a book from the user's list.
+     *
+     * @param book The book being returned.
+     * @return A future completed on the main thread with true if the book was in the list.
+     */
+    public CompletableFuture<Boolean> returnBook(Book book) {
+        return whenLoaded(loaded -> {
+            if (!loaded.remove(book)) {
+                return false;
+            }
+            BookStorage.returnBook(context, listId, book);
+            publishChange();
+            return true;
+        });
+    }
+
+    /**
+     * Adds several books to the user's list, skipping books that are already there.
+     *
+     * @param books The books to add.
+     * @return A future completed on the main thread with the number of books added.
+     */
+    public CompletableFuture<Integer> addAll(List<Book> books) {
+        ArrayList<Book> requested = new ArrayList<>(books);
+        return whenLoaded(loaded -> {
+            ArrayList<Book> added = loaded.addAll(requested);
+            if (added.isEmpty()) {
+                return 0;
+            }
+            BookStorage.addBooks(context, listId, added);
+            publishChange();
+            return added.size();
+        });
+    }
+
+    /**
+     * Removes several books from the user's list.
+     *
+     * @param books The books being returned.
+     * @return A future completed on the main thread with the number of books that were in the list.
+     */
+    public CompletableFuture<Integer> returnAll(List<Book> books) {
+        ArrayList<Book> requested = new ArrayList<>(books);
+        return whenLoaded(loaded -> {
+            ArrayList<Book> removed = loaded.removeAll(requested);
+            if (removed.isEmpty()) {
+                return 0;
+            }
+            BookStorage.returnBooks(context, listId, removed);
+            publishChange();
+            return removed.size();
+        });
+    }
+
+    /**
+     * Updates the return date of a book in the user's list. The cached book is replaced
+     * by an updated copy, so previously published snapshots stay unchanged.
+     *
+     * @param book           The book whose return date changed.
+     * @param returnEpochDay The new return date as an epoch day.
+     * @return A future completed on the main thread with true if the book was in the list.
+     */
+    public CompletableFuture<Boolean> setReturnDate(Book book, int returnEpochDay) {
+        return whenLoaded(loaded -> {
+            if (loaded.setReturnDate(book, returnEpochDay) == null) {
+                return false;
+            }
+            BookStorage.setReturnDate(context, listId, book, returnEpochDay);
+            publishChange();
+            return true;
+        });
+    }
+
+    /**
+     * Recomputes the fine and the overdue view for today and publishes them if they changed,
+     * e.g. because a book crossed its overdue threshold at midnight. Nothing is published if
+     * the list has not been loaded or nothing changed.
+     */
+    public void refreshFine() {
+        if (index == null) {
+            return;
+        }
+        // A new day can also make books overdue, which changes the overdue view
+        index.setToday(dayClock.today());
+        int fine = computeTotalFine();
+        ViewChanges changes = index.takeViewChanges();
+        if (fine == latest.getTotalFine() && changes != null && changes.isEmpty()) {
+            return;
+        }
+        latest = new MyListSnapshot(++version, index.getViews(), changes, fine);
+        deliver(latest);
+    }
+
+    /**
+     * Gets the next moment at which the list's published state will change without any
+     * user action: a book falling due, which adds it to the overdue view, or a book
+     * becoming fined, which changes the total fine.
+     *
+     * @return The epoch milliseconds of the local midnight of the earlier of those days,
+     *         or Long.MAX_VALUE if neither can change on its own or the list has not been
+     *         loaded yet.
+     */
+    public long getNextChangeMillis() {
+        if (index == null) {
+            return Long.MAX_VALUE;
+        }
+        int nextChangeDay = Math.min(index.getNextOverdueDay(), index.getNextFineChangeDay(dayClock.today()));
+        return (nextChangeDay != Integer.MAX_VALUE) ? dayClock.startOfDayMillis(nextChangeDay) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the number of changes that were applied to the list already in memory.
+     *
+     * @return The cache hit count.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of changes that had to wait for the list to be loaded from storage.
+     *
+     * @return The cache miss count.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Applies a change to the loaded list, waiting for the list to be loaded first if needed.
+     *
+     * @param change The change, run on the main thread with the loaded index.
+     * @param <T>    The change's result type.
+     * @return A future completed on the main thread with the change's result.
+     */
+    private <T> CompletableFuture<T> whenLoaded(Function<MyListIndex, T> change) {
+        if (index != null) {
+            hitCount++;
+            return CompletableFuture.completedFuture(change.apply(index));
+        }
+
+        missCount++;
+        CompletableFuture<T> result = new CompletableFuture<>();
+        waitingForLoad.add(() -> result.complete(change.apply(index)));
+        load();
+        return result;
+    }
+
+    /**
+     * Loads a list from storage again if it is still the current one, e.g. after books were
+     * stored without going through the cache. A load already under way is waited for first,
+     * since it may have read the list before the change.
+     *
+     * @param reloadListId The id of the list that changed.
+     */
+    private void reload(String reloadListId) {
+        whenLoaded(loaded -> {
+            if (reloadListId.equals(listId)) {
+                index = null;
+                loadStarted = false;
+                load();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Starts loading the list on the I/O thread unless it is already loading or loaded.
+     * Legacy entries are migrated there too, so only the finished index reaches the main thread.
+     */
+    private void load() {
+        if (loadStarted) {
+            return;
+        }
+        loadStarted = true;
+
+        String loadingListId = listId;
+        BookStorage.loadMyList(context, loadingListId)
+                .thenApply(stored -> buildIndex(loadingListId, stored))
+                .whenComplete((loaded, error) -> BookwormExecutors.main().execute(() -> {
+                    if (error != null) {
+                        // Storage is unusable; fail as loudly as a synchronous load would have
+                        throw new IllegalStateException("Unable to load the user's list", error);
+                    }
+                    onLoaded(loaded);
+                }));
+    }
+
+    /**
+     * Builds the index from the stored list, migrating legacy entries. Runs on the I/O thread.
+     *
+     * @param loadedListId The id of the list that was loaded.
+     * @param stored       The books loaded from storage.
+     * @return The new index.
+     */
+    private MyListIndex buildIndex(String loadedListId, ArrayList<Book> stored) {
+        boolean migrated = assignCatalogIds(stored);
+
+        MyListIndex loaded = new MyListIndex();
+        loaded.setAll(stored);
+
+        // Rewrite once so that every journal record from now on uses the new keys
+        if (migrated) {
+            BookStorage.saveMyList(context, loadedListId, loaded.getBooks());
+        }
+        return loaded;
+    }
+
+    /**
+     * Installs the loaded index, publishes the first snapshot and applies the changes that
+     * were waiting for it. Runs on the main thread.
+     *
+     * @param loaded The loaded index.
+     */
+    private void onLoaded(MyListIndex loaded) {
+        index = loaded;
+        publishChange();
+
+        for (int i = 0; i < waitingForLoad.size(); i++) {
+            waitingForLoad.get(i).run();
+        }
+        waitingForLoad.clear();
+    }
+
+    /**
+     * Takes a snapshot of the loaded list after a change and delivers it to observers. The
+     * snapshot shares the views' unchanged parts with the previous one and carries the
+     * positions of the change in every view, so taking it does not copy the list.
+     */
+    private void publishChange() {
+        index.setToday(dayClock.today());
+        latest = new MyListSnapshot(++version, index.getViews(), index.takeViewChanges(), computeTotalFine());
+        LIST_SIZE.set(latest.size());
+        deliver(latest);
+    }
+
+    /**
+     * Computes today's total fine from the loaded index.
+     *
+     * @return The total fine in dollars.
+     */
+    private int computeTotalFine() {
+        Trace.beginSection("MyListCache.totalFine");
+        long start = System.nanoTime();
+        try {
+            return index.getTotalFine(dayClock.today());
+        } finally {
+            FINE_LATENCY.recordSince(start);
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Delivers a snapshot to observers. Snapshots that are not newer than the one already
+     * delivered are dropped, so observers never see the list go backwards or receive the
+     * same data twice.
+     *
+     * @param snapshot The snapshot to deliver.
+     */
+    private void deliver(MyListSnapshot snapshot) {
+        MyListSnapshot delivered = snapshots.getValue();
+        if (delivered != null && delivered.getVersion() >= snapshot.getVersion()) {
+            return;
+        }
+        snapshots.setValue(snapshot);
+
+        Integer deliveredFine = totalFine.getValue();
+        if (deliveredFine == null || deliveredFine != snapshot.getTotalFine()) {
+            totalFine.setValue(snapshot.getTotalFine());
+        }
+    }
+
+    /**
+     * Gives legacy entries saved without an id the id of the catalog book with the same title.
+     *
+     * Entries with no match in the catalog keep their title-based keys.
+     *
+     * @param books The books loaded from storage; legacy entries are replaced in place.
+     * @return True if any entry was given an id, so the list needs rewriting.
+     */
+    private boolean assignCatalogIds(ArrayList<Book> books) {
+        HashMap<String, Book> catalogByKey = null;
+        boolean migrated = false;
+
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (book.getId() != null) continue;
+
+            if (catalogByKey == null) {
+                // Legacy entries have title-based keys, so index the catalog the same way
+                catalogByKey = new HashMap<>();
+                for (Book catalogBook : catalogBooks.get()) {
+                    catalogByKey.put(Book.titleKey(catalogBook.getTitle()), catalogBook);
+                }
+            }
+
+            Book catalogBook = catalogByKey.get(book.getKey());
+            if (catalogBook != null) {
+                Book withId = new Book(catalogBook.getId(), book.getTitle(), book.getAuthor(),
+                        book.getCoverImageResId(), book.getCoverImageUrl(), book.getWebsiteUrl());
+                withId.setReturnEpochDay(book.getReturnEpochDay());
+                books.set(i, withId);
+                migrated = true;
+            }
+        }
+        return migrated;
+    }
+}
\ No newline at end of file
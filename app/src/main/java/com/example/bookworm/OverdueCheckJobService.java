@@ -0,0 +1,67 @@
+package com.example.bookworm;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+
+/**
+ * OverdueCheckJobService periodically checks the user's list for overdue books in the
+ * background and lets {@link OverdueNotifier} post a summary. Running from the job
+ * scheduler keeps the check independent of which screen, if any, is open.
+ */
+public class OverdueCheckJobService extends JobService {
+
+    /** Id of the periodic overdue check job. */
+    private static final int JOB_ID = 1001;
+
+    /** How often the check runs. */
+    private static final long CHECK_INTERVAL_MILLIS = 1000L * 60L * 60L;
+
+    /**
+     * Schedules the periodic check unless it is already scheduled.
+     *
+     * @param context Any context.
+     */
+    public static void schedule(Context context) {
+        JobScheduler jobScheduler = context.getSystemService(JobScheduler.class);
+        if (jobScheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID, new ComponentName(context, OverdueCheckJobService.class))
+                .setPeriodic(CHECK_INTERVAL_MILLIS)
+                .setPersisted(false)
+                .build();
+        jobScheduler.schedule(jobInfo);
+    }
+
+    /**
+     * Runs the check on a background thread.
+     *
+     * @param params Parameters of the running job.
+     * @return True, since the work continues on another thread.
+     */
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Context appContext = getApplicationContext();
+        new Thread(() -> {
+            OverdueNotifier.checkAndNotify(appContext, DayClock.system());
+            jobFinished(params, false);
+        }, "bookworm-overdue-check").start();
+        return true;
+    }
+
+    /**
+     * Called if the job is stopped early; the next periodic run will pick up where it left off.
+     *
+     * @param params Parameters of the stopped job.
+     * @return False, since there is nothing to reschedule.
+     */
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.example.bookworm;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * OverdueNotifier posts a single summary notification for books that have become overdue.
+ * It runs from {@link OverdueCheckJobService} rather than from an activity, and uses an
+ * {@link OverdueTracker} to avoid repeating books that were already announced and to
+ * limit how often the user is notified. Tracker state is kept in SharedPreferences.
+ */
+public class OverdueNotifier {
+
+    /** Name of the SharedPreferences file holding notification state. */
+    private static final String PREFS_NAME = "bookworm_prefs";
+
+    /** Key for the set of announced books, stored as "key@returnEpochDay" entries. */
+    private static final String KEY_ANNOUNCED = "announced_overdue";
+
+    /** Key for the time of the last summary notification. */
+    private static final String KEY_LAST_NOTIFICATION = "last_overdue_notification_millis";
+
+    /** Id of the notification channel for overdue books. */
+    private static final String CHANNEL_ID = "overdue_books";
+
+    /** Id of the summary notification; reposting replaces the previous summary. */
+    private static final int NOTIFICATION_ID = 1;
+
+    /** Maximum number of titles listed in the expanded summary. */
+    private static final int MAX_LISTED_TITLES = 5;
+
+    /** Recorded dates above this value were written by older versions in epoch milliseconds. */
+    private static final long MAX_EPOCH_DAY = 100_000_000L;
+
+    /**
+     * Checks for newly overdue books and posts a summary notification if there are any.
+     * Blocks on storage, so it must be called off the UI thread.
+     *
+     * @param context The application context.
+     * @param clock   Source of the current time and day.
+     */
+    public static void checkAndNotify(Context context, DayClock clock) {
+        SharedPreferences preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        OverdueTracker tracker = new OverdueTracker(clock,
+                readAnnounced(preferences),
+                preferences.getLong(KEY_LAST_NOTIFICATION, 0L));
+        // Only overdue books can be announced, so the store's index answers this without a full load
+        tracker.setBooks(BookStorage.findOverdue(context, clock.today()).join());
+
+        List<Book> newlyOverdue = tracker.pollSummary();
+        if (!newlyOverdue.isEmpty() && !postSummary(context, newlyOverdue)) {
+            // Nothing was shown, so announce these books next time instead
+            tracker.retractSummary(newlyOverdue);
+        }
+
+        // Persist even without a summary, since returned or re-dated books were pruned
+        preferences.edit()
+                .putStringSet(KEY_ANNOUNCED, writeAnnounced(tracker.getAnnounced()))
+                .putLong(KEY_LAST_NOTIFICATION, tracker.getLastNotificationMillis())
+                .apply();
+    }
+
+    /**
+     * Builds and posts the summary notification.
+     *
+     * @param context      The application context.
+     * @param newlyOverdue The books to announce, oldest first.
+     * @return True if the notification was posted; false if notifications are disabled
+     *         or the permission was revoked.
+     */
+    private static boolean postSummary(Context context, List<Book> newlyOverdue) {
+        NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
+        if (!notificationManager.areNotificationsEnabled()) {
+            return false;
+        }
+        createChannel(context);
+
+        // Tapping the notification opens the user's list
+        Intent intent = new Intent(context, MyListActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+
+        String title = context.getResources().getQuantityString(
+                R.plurals.overdue_books_summary, newlyOverdue.size(), newlyOverdue.size());
+
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (int i = 0; i < Math.min(newlyOverdue.size(), MAX_LISTED_TITLES); i++) {
+            style.addLine(newlyOverdue.get(i).getTitle());
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle(title)
+                .setContentText(newlyOverdue.get(0).getTitle())
+                .setStyle(style)
+                .setContentIntent(pendingIntent)
+                .setAutoCancel(true);
+
+        try {
+            notificationManager.notify(NOTIFICATION_ID, builder.build());
+            return true;
+        } catch (SecurityException e) {
+            // The user revoked the notification permission
+            return false;
+        }
+    }
+
+    /**
+     * Creates the notification channel for overdue books if it does not exist yet.
+     *
+     * @param context The application context.
+     */
+    private static void createChannel(Context context) {
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                context.getString(R.string.overdue_channel_name),
+                NotificationManager.IMPORTANCE_DEFAULT);
+        context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+
+    /**
+     * Decodes the persisted announcement records.
+     * Entries written by older versions hold the return date in epoch milliseconds
+     * and are converted to epoch days, so their books are not announced again.
+     *
+     * @param preferences The preferences holding notification state.
+     * @return The return date (epoch day) announced for each book key.
+     */
+    private static Map<String, Integer> readAnnounced(SharedPreferences preferences) {
+        HashMap<String, Integer> announced = new HashMap<>();
+        for (String entry : preferences.getStringSet(KEY_ANNOUNCED, new HashSet<>())) {
+            int separator = entry.lastIndexOf('@');
+            if (separator <= 0) continue;
+            try {
+                long returnDate = Long.parseLong(entry.substring(separator + 1));
+                int returnEpochDay = (returnDate > MAX_EPOCH_DAY)
+                        ? LoanDates.fromLegacyMillis(returnDate)
+                        : (int) returnDate;
+                announced.put(entry.substring(0, separator), returnEpochDay);
+            } catch (NumberFormatException e) {
+                // Skip malformed entries
+            }
+        }
+        return announced;
+    }
+
+    /**
+     * Encodes announcement records for SharedPreferences.
+     *
+     * @param announced The return date (epoch day) announced for each book key.
+     * @return The encoded entries.
+     */
+    private static Set<String> writeAnnounced(Map<String, Integer> announced) {
+        HashSet<String> entries = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : announced.entrySet()) {
+            entries.add(entry.getKey() + "@" + entry.getValue());
+        }
+        return entries;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,525 @@
+package com.example.bookworm;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * SqliteLoanStore keeps the user's list in a SQLite table with one row per book, as an
+ * alternative to the {@link BookJournal}. The database runs in write-ahead logging mode,
+ * and the table is indexed on the book key and on the return date, so the overdue books
+ * and the total fine are answered by range queries on the index instead of loading and
+ * scanning the whole list.
+ *
+ * As with the journal, all database access happens on a single writer thread. Changes
+ * recorded in quick succession are applied together in one transaction, so a burst of
+ * changes, a bulk add or return, or a whole list being replaced, costs a single commit.
+ * A batch whose transaction fails (e.g. the disk is full) is rolled back and stays queued
+ * for the next batch, and the failure is thrown to the next caller that waits on the
+ * store rather than on the writer thread.
+ * Exports read the list through a cursor, and imports check for books already in the list
+ * on the key index, so neither needs the whole list in memory.
+ */
+public class SqliteLoanStore extends SQLiteOpenHelper implements LoanStore {
+
+    /** Tag for log messages. */
+    private static final String TAG = "BookwormLoans";
+
+    /** Time taken to commit each batch; the count is the number of transactions. */
+    private static final LatencyHistogram COMMIT_LATENCY = PerfMetrics.histogram("loans.commit");
+
+    /** Batches that failed in the background and were queued again. */
+    private static final PerfCounter WRITE_FAILURES = PerfMetrics.counter("loans.writeFailures");
+
+    /** Name of the database file of the default list. */
+    private static final String DATABASE_NAME = "loans.db";
+
+    /** Current schema version. */
+    private static final int DATABASE_VERSION = 1;
+
+    /** Table holding one row per book in the list. */
+    private static final String TABLE_LOANS = "loans";
+
+    /** Columns read back into a {@link Book}, in cursor order. */
+    private static final String BOOK_COLUMNS =
+            "book_id, title, author, cover_res_id, cover_url, website_url, return_epoch_day";
+
+    /** Inserts a book at the end of the list, or updates it in place if it is already there. */
+    private static final String SQL_UPSERT = "INSERT INTO " + TABLE_LOANS
+            + " (book_key, " + BOOK_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+            + " ON CONFLICT(book_key) DO UPDATE SET"
+            + " book_id = excluded.book_id, title = excluded.title, author = excluded.author,"
+            + " cover_res_id = excluded.cover_res_id, cover_url = excluded.cover_url,"
+            + " website_url = excluded.website_url, return_epoch_day = excluded.return_epoch_day";
+
+    /** Inserts a book at the end of the list unless a book with the same key is already there. */
+    private static final String SQL_INSERT_ABSENT = "INSERT INTO " + TABLE_LOANS
+            + " (book_key, " + BOOK_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+            + " ON CONFLICT(book_key) DO NOTHING";
+
+    /** The application context, used to locate the database file. */
+    private final Context context;
+
+    /** Name of this store's database file. */
+    private final String databaseName;
+
+    /** Single writer thread that owns all database access, preserving change order. */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookworm-loans");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Changes waiting to be applied by the next batch. Guarded by {@code this}. */
+    private ArrayList<Change> pending = new ArrayList<>();
+
+    /** Whether a batch has already been scheduled on the writer thread. Guarded by {@code this}. */
+    private boolean flushScheduled;
+
+    /**
+     * A single recorded change, applied inside the batch transaction.
+     */
+    private interface Change {
+
+        /**
+         * Applies the change.
+         *
+         * @param db     The database, inside a transaction.
+         * @param upsert The compiled upsert statement for this batch.
+         */
+        void apply(SQLiteDatabase db, SQLiteStatement upsert);
+    }
+
+    /**
+     * Creates the store of the default list. The database is opened on first use.
+     *
+     * @param context The application context.
+     */
+    public SqliteLoanStore(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Creates a store in its own database file, e.g. for one of several named lists.
+     * The database is opened on first use.
+     *
+     * @param context      The application context.
+     * @param databaseName The name of the database file.
+     */
+    public SqliteLoanStore(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        this.context = context;
+        this.databaseName = databaseName;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Creates the loans table and its indexes.
+     *
+     * @param db The new database.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // The rowid keeps the order in which books were added
+        db.execSQL("CREATE TABLE " + TABLE_LOANS + " ("
+                + "position INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "book_key TEXT NOT NULL, "
+                + "book_id TEXT, "
+                + "title TEXT NOT NULL, "
+                + "author TEXT NOT NULL, "
+                + "cover_res_id INTEGER NOT NULL DEFAULT 0, "
+                + "cover_url TEXT NOT NULL DEFAULT '', "
+                + "website_url TEXT, "
+                + "return_epoch_day INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE UNIQUE INDEX loans_book_key ON " + TABLE_LOANS + " (book_key)");
+        db.execSQL("CREATE INDEX loans_return_epoch_day ON " + TABLE_LOANS + " (return_epoch_day)");
+    }
+
+    /**
+     * Upgrades the schema. There is only one version so far.
+     *
+     * @param db         The database.
+     * @param oldVersion The version on disk.
+     * @param newVersion The current version.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // No upgrades yet
+    }
+
+    /**
+     * Checks whether the database has been created.
+     *
+     * @return True if the database file exists.
+     */
+    @Override
+    public boolean exists() {
+        return context.getDatabasePath(databaseName).exists();
+    }
+
+    /**
+     * Loads the whole list.
+     *
+     * @return The books, in the order they were added.
+     */
+    @Override
+    public ArrayList<Book> loadAll() {
+        return query("SELECT " + BOOK_COLUMNS + " FROM " + TABLE_LOANS + " ORDER BY position");
+    }
+
+    /**
+     * Passes every book to an action through a cursor, which holds only a window of rows
+     * at a time.
+     *
+     * @param action Receives the books, in the order they were added, on the writer thread.
+     */
+    @Override
+    public void forEach(Consumer<? super Book> action) {
+        await(() -> {
+            flushPending();
+            try (Cursor cursor = getReadableDatabase().rawQuery(
+                    "SELECT " + BOOK_COLUMNS + " FROM " + TABLE_LOANS + " ORDER BY position", null)) {
+                while (cursor.moveToNext()) {
+                    action.accept(readBook(cursor));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Records that a book was added to the list.
+     *
+     * @param book The book that was added.
+     */
+    @Override
+    public void add(Book book) {
+        enqueue((db, upsert) -> bindAndUpsert(upsert, book));
+    }
+
+    /**
+     * Records that a book was returned and removed from the list.
+     *
+     * @param book The book that was returned.
+     */
+    @Override
+    public void remove(Book book) {
+        String key = book.getKey();
+        enqueue((db, upsert) -> db.delete(TABLE_LOANS, "book_key = ?", new String[] {key}));
+    }
+
+    /**
+     * Records that several books were added to the list, in the same transaction.
+     *
+     * @param books The books that were added, in the order they were added.
+     */
+    @Override
+    public void addAll(List<Book> books) {
+        ArrayList<Book> snapshot = new ArrayList<>(books);
+        enqueue((db, upsert) -> {
+            for (int i = 0; i < snapshot.size(); i++) {
+                bindAndUpsert(upsert, snapshot.get(i));
+            }
+        });
+    }
+
+    /**
+     * Inserts the books the list does not hold yet in one transaction, after any pending
+     * changes. The unique key index decides which books are already there.
+     *
+     * @param books The candidate books.
+     * @return The number of books added.
+     */
+    @Override
+    public int addAllAbsent(List<Book> books) {
+        ArrayList<Book> snapshot = new ArrayList<>(books);
+        return await(() -> {
+            flushPending();
+            SQLiteDatabase db = getWritableDatabase();
+            int added = 0;
+            long commitStart = System.nanoTime();
+            db.beginTransactionNonExclusive();
+            try (SQLiteStatement insert = db.compileStatement(SQL_INSERT_ABSENT)) {
+                for (int i = 0; i < snapshot.size(); i++) {
+                    if (bindAndUpsert(insert, snapshot.get(i)) != -1) {
+                        added++;
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            COMMIT_LATENCY.recordSince(commitStart);
+            return added;
+        });
+    }
+
+    /**
+     * Records that several books were returned, deleting them in the same transaction.
+     *
+     * @param books The books that were returned.
+     */
+    @Override
+    public void removeAll(List<Book> books) {
+        String[] keys = new String[books.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = books.get(i).getKey();
+        }
+        enqueue((db, upsert) -> {
+            try (SQLiteStatement delete = db.compileStatement(
+                    "DELETE FROM " + TABLE_LOANS + " WHERE book_key = ?")) {
+                for (String key : keys) {
+                    delete.bindString(1, key);
+                    delete.executeUpdateDelete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Records a new return date for a book in the list.
+     *
+     * @param book           The book whose return date changed.
+     * @param returnEpochDay The new return date as an epoch day.
+     */
+    @Override
+    public void setReturnDate(Book book, int returnEpochDay) {
+        String key = book.getKey();
+        enqueue((db, upsert) -> db.execSQL(
+                "UPDATE " + TABLE_LOANS + " SET return_epoch_day = ? WHERE book_key = ?",
+                new Object[] {returnEpochDay, key}));
+    }
+
+    /**
+     * Replaces the whole list in the same transaction as any other pending changes.
+     *
+     * @param books The complete new list.
+     */
+    @Override
+    public void replaceAll(List<Book> books) {
+        ArrayList<Book> snapshot = new ArrayList<>(books);
+        enqueue((db, upsert) -> {
+            db.delete(TABLE_LOANS, null, null);
+            for (int i = 0; i < snapshot.size(); i++) {
+                bindAndUpsert(upsert, snapshot.get(i));
+            }
+        });
+    }
+
+    /**
+     * Finds the overdue books with a range query on the return date index.
+     *
+     * @param today Today's epoch day.
+     * @return The overdue books, earliest return date first.
+     */
+    @Override
+    public ArrayList<Book> findOverdue(int today) {
+        // A book is overdue from its return date itself (see LoanDates.isOverdue)
+        return query("SELECT " + BOOK_COLUMNS + " FROM " + TABLE_LOANS
+                        + " WHERE return_epoch_day BETWEEN ? AND ? ORDER BY return_epoch_day, position",
+                String.valueOf(LoanDates.NO_DATE + 1), String.valueOf(today));
+    }
+
+    /**
+     * Gets the total late fine by counting fined books on the return date index.
+     *
+     * @param today Today's epoch day.
+     * @return The total fine in dollars.
+     */
+    @Override
+    public int getTotalFine(int today) {
+        long finedCount = await(() -> {
+            flushPending();
+            return DatabaseUtils.longForQuery(getReadableDatabase(),
+                    "SELECT COUNT(*) FROM " + TABLE_LOANS + " WHERE return_epoch_day BETWEEN ? AND ?",
+                    new String[] {
+                            String.valueOf(LoanDates.NO_DATE + 1),
+                            String.valueOf(today - FineEngine.FINE_THRESHOLD_DAYS)
+                    });
+        });
+        return (int) finedCount * FineEngine.FINE_PER_BOOK_DOLLARS;
+    }
+
+    /**
+     * Blocks until every change recorded so far has been committed.
+     */
+    @Override
+    public void sync() {
+        await(() -> {
+            flushPending();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a query for books after applying any pending changes.
+     *
+     * @param sql  The query, selecting {@link #BOOK_COLUMNS}.
+     * @param args The query arguments.
+     * @return The books in query order.
+     */
+    private ArrayList<Book> query(String sql, String... args) {
+        return await(() -> {
+            flushPending();
+            ArrayList<Book> books = new ArrayList<>();
+            try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+                while (cursor.moveToNext()) {
+                    books.add(readBook(cursor));
+                }
+            }
+            return books;
+        });
+    }
+
+    /**
+     * Reads the book at the cursor's position.
+     *
+     * @param cursor A cursor over {@link #BOOK_COLUMNS}.
+     * @return The book.
+     */
+    private static Book readBook(Cursor cursor) {
+        Book book = new Book(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                cursor.getInt(3), cursor.getString(4), cursor.getString(5));
+        book.setReturnEpochDay(cursor.getInt(6));
+        return book;
+    }
+
+    /**
+     * Binds a book to the upsert statement, or to the insert statement of an import, and runs it.
+     *
+     * @param upsert The compiled upsert or insert statement.
+     * @param book   The book to write.
+     * @return The book's row id, or -1 if an insert skipped a book already in the list.
+     */
+    private static long bindAndUpsert(SQLiteStatement upsert, Book book) {
+        // Unbound parameters are NULL, which is how legacy books without an id are stored
+        upsert.clearBindings();
+        upsert.bindString(1, book.getKey());
+        if (book.getId() != null) {
+            upsert.bindString(2, book.getId());
+        }
+        upsert.bindString(3, book.getTitle());
+        upsert.bindString(4, book.getAuthor());
+        upsert.bindLong(5, book.getCoverImageResId());
+        upsert.bindString(6, book.getCoverImageUrl());
+        if (book.getWebsiteUrl() != null) {
+            upsert.bindString(7, book.getWebsiteUrl());
+        }
+        upsert.bindLong(8, book.getReturnEpochDay());
+        return upsert.executeInsert();
+    }
+
+    /**
+     * Queues a change for the next batch, scheduling one if necessary.
+     *
+     * @param change The change to apply.
+     */
+    private synchronized void enqueue(Change change) {
+        pending.add(change);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            writer.execute(this::flushInBackground);
+        }
+    }
+
+    /**
+     * Takes ownership of the pending changes so they can be applied outside the lock.
+     *
+     * @return The changes recorded since the last batch.
+     */
+    private synchronized ArrayList<Change> drainPending() {
+        ArrayList<Change> drained = pending;
+        pending = new ArrayList<>();
+        flushScheduled = false;
+        return drained;
+    }
+
+    /**
+     * Puts changes whose batch failed back at the front of the queue, ahead of any
+     * recorded since, so the next batch applies them in their original order.
+     *
+     * @param changes The changes of the failed batch.
+     */
+    private synchronized void requeue(ArrayList<Change> changes) {
+        changes.addAll(pending);
+        pending = changes;
+    }
+
+    /**
+     * Runs a batch scheduled by {@link #enqueue(Change)}. A failure is logged instead of
+     * being thrown on the writer thread; the changes stay queued for the next batch.
+     */
+    private void flushInBackground() {
+        try {
+            flushPending();
+        } catch (SQLiteException e) {
+            WRITE_FAILURES.add(1);
+            Log.w(TAG, "Unable to write loan changes; they will be retried", e);
+        }
+    }
+
+    /**
+     * Applies all pending changes in a single transaction. Runs on the writer thread.
+     *
+     * @throws SQLiteException If the transaction failed; it is rolled back and its changes
+     *                         are queued again.
+     */
+    private void flushPending() {
+        ArrayList<Change> changes = drainPending();
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        boolean committed = false;
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            long commitStart = System.nanoTime();
+            db.beginTransactionNonExclusive();
+            try (SQLiteStatement upsert = db.compileStatement(SQL_UPSERT)) {
+                for (int i = 0; i < changes.size(); i++) {
+                    changes.get(i).apply(db, upsert);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            committed = true;
+            COMMIT_LATENCY.recordSince(commitStart);
+        } finally {
+            if (!committed) {
+                requeue(changes);
+            }
+        }
+    }
+
+    /**
+     * Runs a task on the writer thread and waits for its result.
+     *
+     * @param task The task to run.
+     * @param <T>  The result type.
+     * @return The task's result.
+     */
+    private <T> T await(Callable<T> task) {
+        try {
+            return writer.submit(task).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Loan database operation failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for loan database", e);
+        }
+    }
+}
\ No newline at end of file
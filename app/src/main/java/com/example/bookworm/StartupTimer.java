@@ -0,0 +1,109 @@
+package com.example.bookworm;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Trace;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+
+/**
+ * StartupTimer measures how long each screen takes to start, from the beginning of its
+ * onCreate to its first frame being drawn, and records it in {@link PerfMetrics} as
+ * "startup.&lt;ActivityName&gt;". The same span is shown as an async trace section, so it
+ * lines up with the other sections in a system trace. Activities need no changes; the
+ * timer is registered once by {@link BookwormApplication}.
+ */
+final class StartupTimer implements Application.ActivityLifecycleCallbacks {
+
+    /** Start times of activities that have not drawn their first frame yet. Main thread only. */
+    private final HashMap<Activity, Long> startNanos = new HashMap<>();
+
+    /** Cookie distinguishing concurrent startup trace sections. */
+    private int nextTraceCookie;
+
+    /**
+     * Notes the start time before the activity's onCreate runs.
+     *
+     * @param activity           The activity being created.
+     * @param savedInstanceState The activity's saved state, if any.
+     */
+    @Override
+    public void onActivityPreCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+        startNanos.put(activity, System.nanoTime());
+    }
+
+    /**
+     * Waits for the first frame once the activity has set its content view.
+     *
+     * @param activity           The created activity.
+     * @param savedInstanceState The activity's saved state, if any.
+     */
+    @Override
+    public void onActivityPostCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+        Long start = startNanos.get(activity);
+        if (start == null) {
+            return;
+        }
+        String name = "startup." + activity.getClass().getSimpleName();
+        int cookie = nextTraceCookie++;
+        Trace.beginAsyncSection(name, cookie);
+
+        View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (startNanos.remove(activity) != null) {
+                    PerfMetrics.histogram(name).recordSince(start);
+                    Trace.endAsyncSection(name, cookie);
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Forgets an activity that was destroyed before drawing anything.
+     *
+     * @param activity The destroyed activity.
+     */
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+        startNanos.remove(activity);
+    }
+
+    /** Not used. */
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+    }
+
+    /** Not used. */
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+    }
+
+    /** Not used. */
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+    }
+
+    /** Not used. */
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+    }
+
+    /** Not used. */
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+    }
+
+    /** Not used. */
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.example.bookworm;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests for {@link MyListCache} against the journal store in Robolectric's files directory.
+ * The test thread is the main thread; storage work runs on the real I/O thread.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MyListCacheTest {
+
+    /** The application context. */
+    private Context context;
+
+    /** The cache under test, with nothing loaded yet. */
+    private MyListCache cache;
+
+    /**
+     * Creates a cache over an empty files directory.
+     */
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        settle();
+        BookStorage.reset();
+        cache = new MyListCache(context);
+    }
+
+    /**
+     * Creates a book.
+     *
+     * @param i Number used for the id and title.
+     * @return The book.
+     */
+    private static Book book(int i) {
+        return new Book(Long.toString(9780000000000L + i), "Title " + i, "Author", 0, null);
+    }
+
+    /**
+     * Gets the ids of some books.
+     *
+     * @param books The books.
+     * @return Their ids, in order.
+     */
+    private static List<String> ids(List<Book> books) {
+        ArrayList<String> ids = new ArrayList<>();
+        for (Book book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Waits for the work queued on the I/O thread and runs what it handed to the main
+     * thread, until neither has anything left.
+     */
+    private static void settle() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture.runAsync(() -> { }, BookwormExecutors.io()).get(10, TimeUnit.SECONDS);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+
+    /**
+     * Loads the list and waits until it is in memory.
+     */
+    private void loadList() throws Exception {
+        cache.getSnapshots();
+        settle();
+        assertNotNull(cache.getSnapshot());
+    }
+
+    /**
+     * Changes made once the list is in memory are applied at once and counted as hits.
+     */
+    @Test
+    public void changeToLoadedListIsHit() throws Exception {
+        loadList();
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+
+        CompletableFuture<Boolean> added = cache.add(book(1));
+        CompletableFuture<Boolean> duplicate = cache.add(book(1));
+
+        assertTrue(added.getNow(false));
+        assertFalse(duplicate.getNow(true));
+        assertEquals(hits + 2, cache.getHitCount());
+        assertEquals(misses, cache.getMissCount());
+        assertEquals(1, cache.getSnapshot().size());
+    }
+
+    /**
+     * A change requested before the list is loaded waits for the load and counts as a miss.
+     */
+    @Test
+    public void changeBeforeLoadIsMiss() throws Exception {
+        CompletableFuture<Boolean> added = cache.add(book(1));
+        assertFalse(added.isDone());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        settle();
+        assertTrue(added.getNow(false));
+        assertEquals(ids(List.of(book(1))), ids(cache.getSnapshot().getBooks()));
+    }
+
+    /**
+     * Every change made through the cache reaches {@link BookStorage}.
+     */
+    @Test
+    public void changesAreWrittenThrough() throws Exception {
+        loadList();
+        cache.add(book(1));
+        cache.addAll(List.of(book(2), book(3), book(4)));
+        cache.returnBook(book(2));
+        cache.returnAll(List.of(book(4)));
+        cache.setReturnDate(book(3), 20_000);
+        settle();
+
+        ArrayList<Book> stored = BookStorage.loadMyList(context, ShardedLists.DEFAULT_LIST_ID)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(ids(List.of(book(1), book(3))), ids(stored));
+        assertEquals(20_000, stored.get(1).getReturnEpochDay());
+    }
+
+    /**
+     * Refreshing an unchanged list and repeating a change that does nothing publish no new
+     * snapshot; the fine is only published again when its value changes.
+     */
+    @Test
+    public void unchangedListPublishesNothing() throws Exception {
+        ArrayList<MyListSnapshot> snapshots = new ArrayList<>();
+        ArrayList<Integer> fines = new ArrayList<>();
+        cache.getSnapshots().observeForever(snapshots::add);
+        cache.getTotalFineUpdates().observeForever(fines::add);
+        settle();
+        assertEquals(1, snapshots.size());
+        assertEquals(1, fines.size());
+
+        cache.add(book(1));
+        assertEquals(2, snapshots.size());
+        assertTrue(snapshots.get(1).getVersion() > snapshots.get(0).getVersion());
+
+        cache.refreshFine();
+        cache.add(book(1));
+        cache.returnBook(book(2));
+        cache.addAll(List.of(book(1)));
+        settle();
+        assertEquals(2, snapshots.size());
+        assertEquals(List.of(0), fines);
+    }
+
+    /**
+     * Stores a list the way versions before the journal did, and opens storage again so that
+     * it is migrated into the default list.
+     *
+     * @param json The list as GSON wrote it.
+     */
+    private void storeLegacyList(String json) {
+        context.getSharedPreferences("bookworm_prefs", Context.MODE_PRIVATE).edit()
+                .putString("my_list_books", json).commit();
+        BookStorage.reset();
+    }
+
+    /**
+     * Loads the list in a new cache, as a new process would.
+     *
+     * @param catalog The catalog's books.
+     * @return The loaded list.
+     */
+    private List<Book> startAndLoad(List<Book> catalog) throws Exception {
+        MyListCache started = new MyListCache(context, () -> catalog);
+        started.getSnapshots();
+        settle();
+        return started.getSnapshot().getBooks();
+    }
+
+    /**
+     * A legacy entry with no match in the catalog keeps its title-based key and does not
+     * make every start rewrite the list.
+     */
+    @Test
+    public void unmatchedLegacyEntryIsNotRewritten() throws Exception {
+        storeLegacyList("[{\"title\":\"Not in the catalog\",\"author\":\"Someone\","
+                + "\"coverImageResId\":0,\"returnDateMillis\":0}]");
+        LatencyHistogram saves = PerfMetrics.histogram("storage.saveMyList");
+        long before = saves.getCount();
+
+        for (int start = 0; start < 2; start++) {
+            List<Book> books = startAndLoad(List.of(book(1)));
+            assertEquals(1, books.size());
+            assertNull(books.get(0).getId());
+        }
+        assertEquals(before, saves.getCount());
+    }
+
+    /**
+     * A legacy entry found in the catalog is given its id, and the list is rewritten on the
+     * first start only.
+     */
+    @Test
+    public void matchedLegacyEntryIsRewrittenOnce() throws Exception {
+        storeLegacyList("[{\"title\":\"Title 1\",\"author\":\"Author\",\"coverImageResId\":0,"
+                + "\"returnDateMillis\":0},{\"title\":\"Not in the catalog\",\"author\":\"Someone\","
+                + "\"coverImageResId\":0,\"returnDateMillis\":0}]");
+        LatencyHistogram saves = PerfMetrics.histogram("storage.saveMyList");
+        long before = saves.getCount();
+
+        for (int start = 0; start < 2; start++) {
+            List<Book> books = startAndLoad(List.of(book(1), book(2)));
+            assertEquals(book(1).getId(), books.get(0).getId());
+            assertNull(books.get(1).getId());
+        }
+        assertEquals(before + 1, saves.getCount());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.example.bookworm;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SqliteLoanStore} on Robolectric's native SQLite, which supports the
+ * upsert syntax the store relies on.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class SqliteLoanStoreTest {
+
+    /** An arbitrary "today" as an epoch day. */
+    private static final int TODAY = 20_000;
+
+    /** Number of transactions committed by every store; compared before and after. */
+    private static final LatencyHistogram COMMITS = PerfMetrics.histogram("loans.commit");
+
+    /** The store under test. */
+    private SqliteLoanStore store;
+
+    /**
+     * Opens an empty store in the test's application sandbox.
+     */
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        store = new SqliteLoanStore(context, "test_loans.db");
+    }
+
+    /**
+     * Creates a book.
+     *
+     * @param i              Number used for the id and title.
+     * @param returnEpochDay The return date, or {@link LoanDates#NO_DATE}.
+     * @return The book.
+     */
+    private static Book book(int i, int returnEpochDay) {
+        return new Book(Long.toString(9780000000000L + i), "Title " + i, "Author " + (i % 50), 0, null)
+                .withReturnEpochDay(returnEpochDay);
+    }
+
+    /**
+     * Gets the ids of some books.
+     *
+     * @param books The books.
+     * @return Their ids, in order.
+     */
+    private static List<String> ids(List<Book> books) {
+        ArrayList<String> ids = new ArrayList<>();
+        for (Book book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * With 100k rows, the index queries for overdue books and the total fine agree with
+     * a scan of the whole list.
+     */
+    @Test
+    public void hundredThousandRowsMatchReference() {
+        Random random = new Random(16);
+        ArrayList<Book> books = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            int returnDay = (i % 3 == 0) ? LoanDates.NO_DATE : TODAY - 40 + random.nextInt(60);
+            books.add(book(i, returnDay));
+        }
+        store.addAll(books);
+        store.sync();
+
+        assertEquals(ids(books), ids(store.loadAll()));
+        for (int today = TODAY - 45; today <= TODAY + 25; today += 5) {
+            ArrayList<Book> expectedOverdue = new ArrayList<>();
+            for (Book book : books) {
+                if (LoanDates.isOverdue(book.getReturnEpochDay(), today)) {
+                    expectedOverdue.add(book);
+                }
+            }
+            expectedOverdue.sort((a, b) -> Integer.compare(a.getReturnEpochDay(), b.getReturnEpochDay()));
+
+            assertEquals("day " + today, ids(expectedOverdue), ids(store.findOverdue(today)));
+            assertEquals("day " + today, FineEngine.calculateTotalFine(books, today), store.getTotalFine(today));
+        }
+    }
+
+    /**
+     * Updating a book that is already in the list keeps its place instead of moving it to the end.
+     */
+    @Test
+    public void upsertKeepsPosition() {
+        store.add(book(1, LoanDates.NO_DATE));
+        store.add(book(2, LoanDates.NO_DATE));
+        store.add(book(3, LoanDates.NO_DATE));
+
+        store.add(book(1, TODAY));
+        store.setReturnDate(book(2, LoanDates.NO_DATE), TODAY - 1);
+        store.add(book(4, LoanDates.NO_DATE));
+
+        ArrayList<Book> books = store.loadAll();
+        assertEquals(ids(List.of(book(1, 0), book(2, 0), book(3, 0), book(4, 0))), ids(books));
+        assertEquals(TODAY, books.get(0).getReturnEpochDay());
+        assertEquals(TODAY - 1, books.get(1).getReturnEpochDay());
+    }
+
+    /**
+     * Changes recorded while the writer is busy are committed together in one transaction,
+     * and a bulk add is a single transaction however many books it holds.
+     */
+    @Test
+    public void oneTransactionPerBatch() throws Exception {
+        store.add(book(0, LoanDates.NO_DATE));
+        store.sync();
+
+        // Hold the writer thread inside an export while changes pile up
+        CountDownLatch exporting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread exporter = new Thread(() -> store.forEach(book -> {
+            exporting.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        exporter.start();
+        assertTrue(exporting.await(10, TimeUnit.SECONDS));
+
+        long before = COMMITS.getCount();
+        for (int i = 1; i <= 200; i++) {
+            store.add(book(i, TODAY - i));
+        }
+        store.remove(book(0, LoanDates.NO_DATE));
+        release.countDown();
+        exporter.join();
+        store.sync();
+        assertEquals(1, COMMITS.getCount() - before);
+        assertEquals(200, store.loadAll().size());
+
+        ArrayList<Book> bulk = new ArrayList<>();
+        for (int i = 1000; i < 6000; i++) {
+            bulk.add(book(i, LoanDates.NO_DATE));
+        }
+        before = COMMITS.getCount();
+        store.addAll(bulk);
+        store.sync();
+        assertEquals(1, COMMITS.getCount() - before);
+        assertEquals(5200, store.loadAll().size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+// JMH benchmarks for the hot paths in :core.
+// Run with ./gradlew :benchmarks:jmh; results are written as JSON to
+// benchmarks/build/results/jmh/results.json for comparison between runs.
+
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmh(project(":core"))
+    // Reflective Gson is the baseline the streaming codec is compared against
+    jmh(libs.gson)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    // Reports allocation per operation (gc.alloc.rate.norm) next to each score
+    profilers.add("gc")
+    // Narrow a run with e.g. -Pjmh.includes=FineBenchmark
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+}
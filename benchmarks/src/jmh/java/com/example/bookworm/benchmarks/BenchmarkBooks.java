@@ -0,0 +1,112 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.Book;
+import com.example.bookworm.CatalogCompiler;
+import com.example.bookworm.CatalogSource;
+import com.example.bookworm.ColumnarCatalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * BenchmarkBooks generates deterministic synthetic books, so every benchmark run
+ * measures the same data at a given size.
+ */
+final class BenchmarkBooks {
+
+    /** Fixed "today" (epoch day) used by the benchmarks, so results don't depend on the wall clock. */
+    static final int TODAY = 20_371;
+
+    /** Number of distinct authors in the synthetic data. */
+    private static final int AUTHOR_COUNT = 2000;
+
+    /** Words titles are made of. */
+    private static final String[] WORDS = {
+            "clean", "code", "effective", "java", "design", "patterns", "pragmatic", "programmer",
+            "black", "hat", "python", "refactoring", "systems", "data", "intensive", "applications",
+            "concurrency", "practice", "algorithms", "structures", "compilers", "networks",
+            "operating", "distributed", "secure", "modern", "functional", "reactive"
+    };
+
+    /** Utility class; not instantiable. */
+    private BenchmarkBooks() {
+    }
+
+    /**
+     * Creates synthetic books, a third of them with a return date spread over the last 30 days.
+     *
+     * @param count The number of books.
+     * @return The books.
+     */
+    static ArrayList<Book> create(int count) {
+        Random random = new Random(42);
+        ArrayList<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new Book(
+                    Long.toString(9780000000000L + i),
+                    title(random) + " " + i,
+                    "Author " + random.nextInt(AUTHOR_COUNT),
+                    0,
+                    "https://example.com/books/" + i);
+            if (i % 3 == 0) {
+                book.setReturnEpochDay(TODAY - random.nextInt(30));
+            }
+            books.add(book);
+        }
+        return books;
+    }
+
+    /**
+     * Creates a columnar catalog of synthetic books.
+     *
+     * @param count The number of books.
+     * @return The catalog.
+     */
+    static CatalogSource createCatalog(int count) {
+        ColumnarCatalog.Builder builder = new ColumnarCatalog.Builder(count);
+        for (Book book : create(count)) {
+            builder.add(book);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Compiles a catalog of synthetic books into the binary layout read by BinaryCatalog.
+     *
+     * @param count The number of books.
+     * @return The compiled catalog.
+     */
+    static byte[] compileCatalog(int count) {
+        CatalogCompiler compiler = new CatalogCompiler();
+        for (Book book : create(count)) {
+            compiler.add(book.getId(), book.getTitle(), book.getAuthor(), "cover_" + (book.getTitle().length() % 8), null,
+                    book.getWebsiteUrl());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            compiler.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Builds a random two- or three-word title.
+     *
+     * @param random The random source.
+     * @return The title.
+     */
+    private static String title(Random random) {
+        int words = 2 + random.nextInt(2);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) title.append(' ');
+            title.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return title.toString();
+    }
+}
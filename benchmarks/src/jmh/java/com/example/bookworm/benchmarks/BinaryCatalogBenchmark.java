@@ -0,0 +1,105 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.BinaryCatalog;
+import com.example.bookworm.Book;
+import com.example.bookworm.CatalogSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the memory-mapped binary catalog: opening it, which the browse screen does on
+ * every cold start, and materialising one page of books, as the paging layer does.
+ * Compare {@link #loadPage()} with {@link ColumnarCatalogBenchmark}, which builds the
+ * catalog in memory instead of opening it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BinaryCatalogBenchmark {
+
+    /** Rows per page, as loaded by the paging layer. */
+    private static final int PAGE_SIZE = 40;
+
+    /** Number of books in the catalog. */
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    /** The compiled catalog file. */
+    private Path file;
+
+    /** The compiled catalog, mapped into memory. */
+    private MappedByteBuffer mapped;
+
+    /** The catalog under test. */
+    private CatalogSource catalog;
+
+    /** Offset of the next page to load. */
+    private int nextOffset;
+
+    /**
+     * Compiles the catalog to a temporary file and maps it.
+     *
+     * @throws IOException If the file cannot be written or mapped.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("catalog", ".bin");
+        Files.write(file, BenchmarkBooks.compileCatalog(size));
+        try (FileChannel channel = FileChannel.open(file)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catalog = new BinaryCatalog(mapped, coverName -> 0);
+    }
+
+    /**
+     * Deletes the catalog file.
+     *
+     * @throws IOException If the file cannot be deleted.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Opens the mapped catalog.
+     *
+     * @return The opened catalog.
+     * @throws IOException If the catalog is invalid.
+     */
+    @Benchmark
+    public CatalogSource open() throws IOException {
+        return new BinaryCatalog(mapped, coverName -> 0);
+    }
+
+    /**
+     * Loads the next page, wrapping around at the end of the catalog.
+     *
+     * @return The page.
+     */
+    @Benchmark
+    public List<Book> loadPage() {
+        List<Book> page = catalog.loadRange(nextOffset, PAGE_SIZE);
+        nextOffset += PAGE_SIZE;
+        if (nextOffset >= size) {
+            nextOffset = 0;
+        }
+        return page;
+    }
+}
\ No newline at end of file
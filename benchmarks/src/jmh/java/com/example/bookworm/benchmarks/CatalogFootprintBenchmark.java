@@ -0,0 +1,92 @@
+package com.example.bookworm.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how much heap a catalog retains: one Book object per entry, as the catalog
+ * was held before, against the columnar layout. Each operation builds a catalog and
+ * reports the growth of the live heap, measured after full collections, as the
+ * {@code retainedBytes} secondary result. JMH sums that result over the measurement
+ * iterations, so divide it by the iteration count for the bytes per catalog. The score
+ * itself is the build time. Narrow a run with -Pjmh.includes=CatalogFootprintBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogFootprintBenchmark {
+
+    /** Number of books in the catalog. */
+    @Param({"100000", "1000000"})
+    public int size;
+
+    /** How the catalog is held: "objects" (a list of Book) or "columnar" (ColumnarCatalog). */
+    @Param({"objects", "columnar"})
+    public String layout;
+
+    /**
+     * Heap retained by the catalog built in the iteration, reported next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        /** Growth of the live heap while the catalog was built, in bytes. */
+        public long retainedBytes;
+
+        /**
+         * Clears the measurement of the previous iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedBytes = 0;
+        }
+    }
+
+    /**
+     * Builds a catalog and records the heap it retains. Only the catalog stays reachable:
+     * the columnar layout is built from books that are dropped once it is finished.
+     *
+     * @param footprint Receives the retained heap.
+     * @return The catalog, so it stays reachable until it has been measured.
+     */
+    @Benchmark
+    public Object build(Footprint footprint) {
+        long before = liveHeapBytes();
+        Object catalog = "columnar".equals(layout)
+                ? BenchmarkBooks.createCatalog(size)
+                : BenchmarkBooks.create(size);
+        footprint.retainedBytes = liveHeapBytes() - before;
+        return catalog;
+    }
+
+    /**
+     * Gets the size of the live heap after full collections.
+     *
+     * @return The used heap in bytes.
+     */
+    private static long liveHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Collect until the used heap stops shrinking, so garbage is not counted
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.Book;
+import com.example.bookworm.BookCodec;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming {@link BookCodec} with the reflective Gson round trip the app
+ * used before, for both encoding and decoding the user's list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodecBenchmark {
+
+    /** Number of books in the user's list. JSON for 1M books is ~150 MB, so the sweep stops at 100k. */
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    /** List type used by the reflective round trip. */
+    private static final Type BOOK_LIST_TYPE = new TypeToken<ArrayList<Book>>() {}.getType();
+
+    /** The reflective baseline. */
+    private final Gson gson = new Gson();
+
+    /** The user's list. */
+    private ArrayList<Book> books;
+
+    /** The list encoded as JSON. */
+    private String json;
+
+    /**
+     * Generates the list and its JSON form.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        books = BenchmarkBooks.create(size);
+        StringWriter writer = new StringWriter();
+        BookCodec.writeList(writer, books);
+        json = writer.toString();
+    }
+
+    /**
+     * Encodes with the streaming codec.
+     *
+     * @return The JSON length.
+     */
+    @Benchmark
+    public int codecWrite() throws IOException {
+        StringWriter writer = new StringWriter();
+        BookCodec.writeList(writer, books);
+        return writer.getBuffer().length();
+    }
+
+    /**
+     * Decodes with the streaming codec.
+     *
+     * @return The decoded books.
+     */
+    @Benchmark
+    public List<Book> codecRead() throws IOException {
+        return BookCodec.readList(new StringReader(json));
+    }
+
+    /**
+     * Encodes with reflective Gson.
+     *
+     * @return The JSON length.
+     */
+    @Benchmark
+    public int gsonWrite() {
+        return gson.toJson(books).length();
+    }
+
+    /**
+     * Decodes with reflective Gson.
+     *
+     * @return The decoded books.
+     */
+    @Benchmark
+    public List<Book> gsonRead() {
+        return gson.fromJson(json, BOOK_LIST_TYPE);
+    }
+}
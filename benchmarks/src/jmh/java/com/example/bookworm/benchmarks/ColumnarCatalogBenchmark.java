@@ -0,0 +1,62 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.Book;
+import com.example.bookworm.CatalogSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the columnar catalog takes to materialise one page of Book views,
+ * which is the work done for every page the browse screen loads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColumnarCatalogBenchmark {
+
+    /** Rows per page, as loaded by the paging layer. */
+    private static final int PAGE_SIZE = 40;
+
+    /** Number of books in the catalog. */
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    /** The catalog under test. */
+    private CatalogSource catalog;
+
+    /** Offset of the next page to load. */
+    private int nextOffset;
+
+    /**
+     * Builds the catalog.
+     */
+    @Setup
+    public void setUp() {
+        catalog = BenchmarkBooks.createCatalog(size);
+    }
+
+    /**
+     * Loads the next page, wrapping around at the end of the catalog.
+     *
+     * @return The page.
+     */
+    @Benchmark
+    public List<Book> loadPage() {
+        List<Book> page = catalog.loadRange(nextOffset, PAGE_SIZE);
+        nextOffset += PAGE_SIZE;
+        if (nextOffset >= size) {
+            nextOffset = 0;
+        }
+        return page;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.Book;
+import com.example.bookworm.MyListIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the "already in my list?" check done before every add, both as the keyed
+ * lookup the app uses and as the linear scan it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DuplicateCheckBenchmark {
+
+    /** Number of books in the user's list. */
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    /** The user's list. */
+    private ArrayList<Book> books;
+
+    /** The same list, indexed. */
+    private MyListIndex index;
+
+    /** A book that is not in the list, so a scan has to visit every entry. */
+    private Book missingBook;
+
+    /** A copy of a book in the middle of the list. */
+    private Book presentBook;
+
+    /**
+     * Generates the list and the probe books.
+     */
+    @Setup
+    public void setUp() {
+        books = BenchmarkBooks.create(size);
+        index = new MyListIndex();
+        index.setAll(books);
+        missingBook = new Book("9789999999999", "Missing", "Nobody", 0, null);
+        Book middle = books.get(size / 2);
+        presentBook = new Book(middle.getId(), middle.getTitle(), middle.getAuthor(), 0, null);
+    }
+
+    /**
+     * Looks up a missing book in the index.
+     *
+     * @return Whether it was found.
+     */
+    @Benchmark
+    public boolean indexedMiss() {
+        return index.contains(missingBook);
+    }
+
+    /**
+     * Looks up a present book in the index.
+     *
+     * @return Whether it was found.
+     */
+    @Benchmark
+    public boolean indexedHit() {
+        return index.contains(presentBook);
+    }
+
+    /**
+     * Scans the list for a missing book.
+     *
+     * @return Whether it was found.
+     */
+    @Benchmark
+    public boolean scanMiss() {
+        return books.contains(missingBook);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.Book;
+import com.example.bookworm.FineEngine;
+import com.example.bookworm.MyListIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the O(n) reference fine calculation with the incrementally maintained total,
+ * including the cost of re-dating one book between reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FineBenchmark {
+
+    /** Number of books in the user's list. */
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    /** The user's list. */
+    private ArrayList<Book> books;
+
+    /** The same list, indexed. */
+    private MyListIndex index;
+
+    /** Position of the book re-dated by the next update. */
+    private int nextUpdate;
+
+    /**
+     * Generates the list and builds the index.
+     */
+    @Setup
+    public void setUp() {
+        books = BenchmarkBooks.create(size);
+        index = new MyListIndex();
+        index.setAll(books);
+    }
+
+    /**
+     * Scans the whole list, as the adapter used to on every change.
+     *
+     * @return The total fine.
+     */
+    @Benchmark
+    public int scanTotal() {
+        return FineEngine.calculateTotalFine(books, BenchmarkBooks.TODAY);
+    }
+
+    /**
+     * Reads the incrementally maintained total.
+     *
+     * @return The total fine.
+     */
+    @Benchmark
+    public int incrementalTotal() {
+        return index.getTotalFine(BenchmarkBooks.TODAY);
+    }
+
+    /**
+     * Re-dates one book, then reads the incrementally maintained total.
+     *
+     * @return The total fine.
+     */
+    @Benchmark
+    public int incrementalUpdateAndTotal() {
+        Book book = books.get(nextUpdate);
+        nextUpdate = (nextUpdate + 1) % size;
+        index.setReturnDate(book, BenchmarkBooks.TODAY - (nextUpdate % 30));
+        return index.getTotalFine(BenchmarkBooks.TODAY);
+    }
+}
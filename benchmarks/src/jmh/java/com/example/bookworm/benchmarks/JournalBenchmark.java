@@ -0,0 +1,105 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.Book;
+import com.example.bookworm.BookJournal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the storage round trip: rewriting the whole list, replaying it on a cold
+ * start, and persisting a single change. Includes the real fsync cost of the disk the
+ * benchmark runs on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JournalBenchmark {
+
+    /** Number of books in the user's list. */
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    /** Directory holding the journal files. */
+    private File directory;
+
+    /** The journal under test. */
+    private BookJournal journal;
+
+    /** The user's list. */
+    private ArrayList<Book> books;
+
+    /** Position of the book re-dated by the next single-change benchmark. */
+    private int nextUpdate;
+
+    /**
+     * Creates a journal holding the generated list.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bookworm-journal-bench").toFile();
+        books = BenchmarkBooks.create(size);
+        journal = new BookJournal(directory);
+        journal.replaceAll(books);
+        journal.sync();
+    }
+
+    /**
+     * Deletes the journal files.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Rewrites the whole list and waits until it is on disk.
+     */
+    @Benchmark
+    public void rewriteAndSync() {
+        journal.replaceAll(books);
+        journal.sync();
+    }
+
+    /**
+     * Replays the journal as a cold start does, using a fresh journal instance.
+     *
+     * @return The replayed list.
+     */
+    @Benchmark
+    public List<Book> coldReplay() {
+        return new BookJournal(directory).loadAll();
+    }
+
+    /**
+     * Persists one return date change and waits until it is on disk.
+     */
+    @Benchmark
+    public void setReturnDateAndSync() {
+        Book book = books.get(nextUpdate);
+        nextUpdate = (nextUpdate + 1) % size;
+        journal.setReturnDate(book, BenchmarkBooks.TODAY + (nextUpdate % 365) + 1);
+        journal.sync();
+    }
+}
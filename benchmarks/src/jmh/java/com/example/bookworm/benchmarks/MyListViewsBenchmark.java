@@ -0,0 +1,105 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.Book;
+import com.example.bookworm.MyListIndex;
+import com.example.bookworm.MyListView;
+import com.example.bookworm.ViewChanges;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures keeping the sorted and filtered My List views up to date: an add and a return
+ * applied to every view incrementally, against re-sorting the list after a change, and
+ * switching the displayed view and reading a screenful of rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MyListViewsBenchmark {
+
+    /** Number of rows on a screen. */
+    private static final int SCREEN_ROWS = 20;
+
+    /** Number of books in the user's list. */
+    @Param({"1000", "50000"})
+    public int size;
+
+    /** The user's list. */
+    private ArrayList<Book> books;
+
+    /** The same list, indexed with its views. */
+    private MyListIndex index;
+
+    /** A book that is not in the list. */
+    private Book extraBook;
+
+    /** The view shown by the next switch. */
+    private int nextView;
+
+    /**
+     * Generates the list and builds the index and its views.
+     */
+    @Setup
+    public void setUp() {
+        books = BenchmarkBooks.create(size);
+        index = new MyListIndex();
+        index.setAll(books);
+        index.setToday(BenchmarkBooks.TODAY);
+        index.takeViewChanges();
+        extraBook = new Book("9789999999999", "Middle", "Somebody", 0, null);
+        extraBook.setReturnEpochDay(BenchmarkBooks.TODAY - 5);
+    }
+
+    /**
+     * Adds a book and returns it again, updating every view and recording the positions.
+     *
+     * @return The recorded changes.
+     */
+    @Benchmark
+    public ViewChanges incrementalAddAndReturn() {
+        index.add(extraBook);
+        index.remove(extraBook);
+        return index.takeViewChanges();
+    }
+
+    /**
+     * Re-sorts the list by due date, as a view rebuilt after every change would.
+     *
+     * @return The sorted copy.
+     */
+    @Benchmark
+    public List<Book> resortAfterChange() {
+        ArrayList<Book> sorted = new ArrayList<>(books);
+        sorted.sort(Comparator.comparingInt(Book::getReturnEpochDay).thenComparing(Book::getTitle));
+        return sorted;
+    }
+
+    /**
+     * Switches to the next view and reads the rows of the first screen.
+     *
+     * @return The number of title characters read, so the rows are not optimised away.
+     */
+    @Benchmark
+    public int switchView() {
+        MyListView view = MyListView.values()[nextView];
+        nextView = (nextView + 1) % MyListView.values().length;
+        List<Book> rows = index.getViews().getBooks(view);
+        int characters = 0;
+        for (int i = 0; i < Math.min(SCREEN_ROWS, rows.size()); i++) {
+            characters += rows.get(i).getTitle().length();
+        }
+        return characters;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.example.bookworm.benchmarks;
+
+import com.example.bookworm.CatalogSearchIndex;
+import com.example.bookworm.CatalogSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures prefix queries against the catalog search index, for a short single-word
+ * prefix, a full word and a two-word query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SearchBenchmark {
+
+    /** Number of books in the catalog. */
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    /** The index under test. */
+    private CatalogSearchIndex index;
+
+    /**
+     * Builds the index over a generated catalog.
+     */
+    @Setup
+    public void setUp() {
+        CatalogSource catalog = BenchmarkBooks.createCatalog(size);
+        index = new CatalogSearchIndex(catalog);
+    }
+
+    /**
+     * Queries a two-letter prefix, as typed while the user starts a word.
+     *
+     * @return The matching positions.
+     */
+    @Benchmark
+    public int[] shortPrefix() {
+        return index.search("co");
+    }
+
+    /**
+     * Queries a complete word.
+     *
+     * @return The matching positions.
+     */
+    @Benchmark
+    public int[] singleWord() {
+        return index.search("python");
+    }
+
+    /**
+     * Queries two words, which intersects their candidates.
+     *
+     * @return The matching positions.
+     */
+    @Benchmark
+    public int[] twoWords() {
+        return index.search("clean cod");
+    }
+}
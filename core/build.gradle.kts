@@ -0,0 +1,25 @@
+// Pure-JVM model, storage and engine code shared by the app and the benchmarks.
+// Nothing in this module may depend on the Android framework.
+
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    // BookCodec exposes the streaming JsonReader and JsonWriter types
+    api(libs.gson)
+    testImplementation(libs.junit)
+}
+
+// Serves a catalog source with the stand-in catalog service the tests use, for trying
+// syncs on a device: ./gradlew :core:serveCatalog --args="<catalog.json> [port]"
+tasks.register<JavaExec>("serveCatalog") {
+    description = "Serves a catalog source file with LocalCatalogServer."
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("com.example.bookworm.LocalCatalogServer")
+}
@@ -0,0 +1,201 @@
+package com.example.bookworm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * BinaryCatalog reads a catalog compiled by {@link CatalogCompiler} straight from a buffer,
+ * normally a memory-mapped asset. Opening the catalog only checks the header and resolves
+ * the few distinct cover names; nothing else is read. Every book has a fixed-size row in
+ * an offset table, so a position is found with one multiplication, and its strings are
+ * decoded from the shared string pool only when the book is actually read. Pages that are
+ * never displayed are never touched, so opening costs the same for five books or a million.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header   magic "BWCT", version, book count, cover count, rows offset, pool offset
+ *   covers   cover count x pool reference to a drawable name
+ *   rows     book count x (id, title, author, cover index, cover URL, website URL)
+ *   pool     distinct strings, each an unsigned 16-bit byte length and UTF-8 bytes
+ * </pre>
+ * String fields are byte offsets into the pool, or {@link #NONE} for null; the cover field
+ * is an index into the cover table, or {@link #NONE} for a book without a bundled cover.
+ *
+ * Reads use absolute positions only, so one instance can be read from any thread.
+ */
+public final class BinaryCatalog implements CatalogSource {
+
+    /** File signature, "BWCT". */
+    static final int MAGIC = 0x42574354;
+
+    /** Version of the layout written by {@link CatalogCompiler}. */
+    static final int VERSION = 1;
+
+    /** Size of the header in bytes. */
+    static final int HEADER_SIZE = 24;
+
+    /** Number of int fields in a row. */
+    static final int ROW_FIELDS = 6;
+
+    /** Size of a row in bytes. */
+    static final int ROW_SIZE = ROW_FIELDS * 4;
+
+    /** Marks an absent string or cover. */
+    static final int NONE = -1;
+
+    /** The compiled catalog. */
+    private final ByteBuffer buffer;
+
+    /** Number of books in the catalog. */
+    private final int count;
+
+    /** Position of the first row in the buffer. */
+    private final int rowsOffset;
+
+    /** Position of the string pool in the buffer. */
+    private final int poolOffset;
+
+    /** Cover drawable resource id of each cover table entry. */
+    private final int[] coverImageResIds;
+
+    /** Drawable name of each cover table entry. */
+    private final String[] coverNames;
+
+    /**
+     * Opens a compiled catalog.
+     *
+     * @param buffer        The compiled catalog, from position 0 to its limit. It is not modified.
+     * @param coverResolver Maps a bundled cover's drawable name to its resource id (0 if unknown).
+     * @throws IOException If the buffer does not hold a catalog this version can read.
+     */
+    public BinaryCatalog(ByteBuffer buffer, ToIntFunction<String> coverResolver) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (this.buffer.limit() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled catalog");
+        }
+        int version = this.buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported catalog version " + version);
+        }
+        this.count = this.buffer.getInt(8);
+        int coverCount = this.buffer.getInt(12);
+        this.rowsOffset = this.buffer.getInt(16);
+        this.poolOffset = this.buffer.getInt(20);
+        if (count < 0 || coverCount < 0 || rowsOffset != HEADER_SIZE + coverCount * 4L
+                || (long) rowsOffset + (long) count * ROW_SIZE != poolOffset || poolOffset > this.buffer.limit()) {
+            throw new IOException("Corrupt catalog header");
+        }
+
+        // Only a handful of distinct covers exist, so they are resolved once up front
+        this.coverImageResIds = new int[coverCount];
+        this.coverNames = new String[coverCount];
+        for (int i = 0; i < coverCount; i++) {
+            coverNames[i] = readString(this.buffer.getInt(HEADER_SIZE + i * 4));
+            coverImageResIds[i] = coverResolver.applyAsInt(coverNames[i]);
+        }
+    }
+
+    /**
+     * Gets the number of books in the catalog.
+     *
+     * @return The catalog size.
+     */
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Decodes a range of books.
+     *
+     * @param offset The position of the first book.
+     * @param limit  The maximum number of books.
+     * @return New Book objects for the range.
+     */
+    @Override
+    public List<Book> loadRange(int offset, int limit) {
+        int start = Math.min(Math.max(offset, 0), count);
+        int end = (int) Math.min((long) start + limit, count);
+        ArrayList<Book> books = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            books.add(get(i));
+        }
+        return books;
+    }
+
+    /**
+     * Decodes the book at a position.
+     *
+     * @param position The catalog position.
+     * @return A new Book holding that position's data.
+     */
+    public Book get(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + count);
+        }
+        int row = rowsOffset + position * ROW_SIZE;
+        int cover = buffer.getInt(row + 12);
+        return new Book(
+                readString(buffer.getInt(row)),
+                readString(buffer.getInt(row + 4)),
+                readString(buffer.getInt(row + 8)),
+                (cover != NONE) ? coverImageResIds[cover] : 0,
+                readString(buffer.getInt(row + 16)),
+                readString(buffer.getInt(row + 20)));
+    }
+
+    /**
+     * Decodes the title at a position without decoding the rest of the book.
+     *
+     * @param position The catalog position.
+     * @return The title.
+     */
+    public String getTitle(int position) {
+        return readString(buffer.getInt(rowsOffset + position * ROW_SIZE + 4));
+    }
+
+    /**
+     * Decodes the author at a position without decoding the rest of the book.
+     *
+     * @param position The catalog position.
+     * @return The author.
+     */
+    public String getAuthor(int position) {
+        return readString(buffer.getInt(rowsOffset + position * ROW_SIZE + 8));
+    }
+
+    /**
+     * Gets the drawable name of the bundled cover at a position, as it was compiled.
+     *
+     * @param position The catalog position.
+     * @return The cover's drawable name, or null if the book has no bundled cover.
+     */
+    String getCoverName(int position) {
+        int cover = buffer.getInt(rowsOffset + position * ROW_SIZE + 12);
+        return (cover != NONE) ? coverNames[cover] : null;
+    }
+
+    /**
+     * Decodes a string from the pool.
+     *
+     * @param reference The string's byte offset in the pool, or NONE.
+     * @return The string, or null for NONE.
+     */
+    private String readString(int reference) {
+        if (reference == NONE) {
+            return null;
+        }
+        int position = poolOffset + reference;
+        int length = buffer.getShort(position) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
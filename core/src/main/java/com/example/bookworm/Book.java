@@ -0,0 +1,248 @@
+package com.example.bookworm;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Book is the primary data model for representing a single library book.
+ * It contains static information about the book (title, author, cover image)
+ * and dynamic user state, specifically the selected return date.
+ * Books are identified by a stable catalog id (the ISBN), which is used for
+ * equality, hashing and RecyclerView stable ids.
+ * Implements Serializable to allow storage and transmission between app components.
+ */
+public class Book implements Serializable {
+
+    /**
+     * The stable catalog id of the book (its ISBN-13).
+     * May be null for books saved by older versions of the app.
+     */
+    private final String id;
+
+    /** The title of the book. */
+    private final String title;
+    
+    /** The author of the book. */
+    private final String author;
+
+    /** 
+     * The resource ID for the cover image (R.drawable.*). 
+     * This allows loading book covers locally from the app's resources.
+     */
+    private final int coverImageResId;
+
+    /**
+     * An optional URL of a remote cover image (null if none).
+     * When set, the cover is downloaded instead of using the bundled resource.
+     */
+    private final String coverImageUrl;
+
+    /** 
+     * An optional URL for more information about the book. 
+     * This can be used to open a web browser for further details.
+     */
+    private final String websiteUrl;
+
+    /** 
+     * The return date as an epoch day (see {@link LoanDates}; 0 means not set). 
+     * This tracks when the user plans to return the book.
+     */
+    private int returnEpochDay;
+
+    /**
+     * Constructs a new Book object with essential information.
+     * 
+     * @param id               The stable catalog id (ISBN-13) of the book.
+     * @param title            The title of the book.
+     * @param author           The author of the book.
+     * @param coverImageResId  The drawable resource ID for the cover image.
+     * @param websiteUrl       A link for additional information about the book.
+     */
+    public Book(String id, String title, String author, int coverImageResId, String websiteUrl) {
+        this(id, title, author, coverImageResId, null, websiteUrl);
+    }
+
+    /**
+     * Constructs a new Book object whose cover may be downloaded from a remote URL.
+     * 
+     * @param id               The stable catalog id (ISBN-13) of the book.
+     * @param title            The title of the book.
+     * @param author           The author of the book.
+     * @param coverImageResId  The drawable resource ID for the bundled cover image (0 if none).
+     * @param coverImageUrl    The URL of the remote cover image, or null to use the bundled one.
+     * @param websiteUrl       A link for additional information about the book.
+     */
+    public Book(String id, String title, String author, int coverImageResId, String coverImageUrl,
+                String websiteUrl) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.coverImageResId = coverImageResId;
+        this.coverImageUrl = (coverImageUrl != null && !coverImageUrl.isEmpty()) ? coverImageUrl : null;
+        this.websiteUrl = websiteUrl;
+        this.returnEpochDay = LoanDates.NO_DATE; // Default return date is unset
+    }
+
+    /**
+     * Gets the stable catalog id of the book.
+     * 
+     * @return The book's ISBN-13, or null for legacy entries saved without one.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the key that identifies this book in lists and indexes.
+     * This is the catalog id when present, falling back to the lower-cased title
+     * for legacy entries that were saved without an id.
+     * 
+     * @return The identity key of the book.
+     */
+    public String getKey() {
+        return (id != null && !id.isEmpty()) ? id : titleKey(title);
+    }
+
+    /**
+     * Builds the fallback key used for books without a catalog id.
+     * 
+     * @param title The title of the book.
+     * @return The title-based identity key.
+     */
+    public static String titleKey(String title) {
+        return "title:" + title.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets a 64-bit id derived from the book's key, suitable for RecyclerView stable ids.
+     * The same book always maps to the same value, regardless of its position in a list.
+     * 
+     * @return A stable 64-bit hash (FNV-1a) of the book's key.
+     */
+    public long getStableId() {
+        String key = getKey();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Gets the title of the book.
+     * 
+     * @return The book's title.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Gets the author of the book.
+     * 
+     * @return The book's author.
+     */
+    public String getAuthor() {
+        return author;
+    }
+
+    /**
+     * Gets the drawable resource ID for the cover image.
+     * 
+     * @return The cover image resource ID (R.drawable.*).
+     */
+    public int getCoverImageResId() {
+        return coverImageResId;
+    }
+
+    /**
+     * Gets the URL of the remote cover image.
+     * 
+     * @return The cover URL, or an empty string if the book only has a bundled cover.
+     */
+    public String getCoverImageUrl() {
+        return (coverImageUrl != null) ? coverImageUrl : "";
+    }
+
+    /**
+     * Checks whether the cover should be downloaded rather than loaded from resources.
+     * 
+     * @return True if the book has a remote cover URL.
+     */
+    public boolean hasCoverImageUrl() {
+        return coverImageUrl != null;
+    }
+
+    /**
+     * Gets the website URL for further book details.
+     * 
+     * @return The book's website URL.
+     */
+    public String getWebsiteUrl() {
+        return websiteUrl;
+    }
+
+    /**
+     * Gets the user-specified return date.
+     * 
+     * @return The return date as an epoch day, or 0 ({@link LoanDates#NO_DATE}) if unset.
+     */
+    public int getReturnEpochDay() {
+        return returnEpochDay;
+    }
+
+    /**
+     * Checks whether the user has chosen a return date.
+     * 
+     * @return True if a return date is set.
+     */
+    public boolean hasReturnDate() {
+        return returnEpochDay != LoanDates.NO_DATE;
+    }
+
+    /**
+     * Creates a copy of this book with a different return date, leaving this instance unchanged.
+     * Lists handed to the UI rely on this so that their snapshots never change underneath them.
+     * 
+     * @param returnEpochDay The return date of the copy as an epoch day.
+     * @return A new Book with the same identity and the given return date.
+     */
+    public Book withReturnEpochDay(int returnEpochDay) {
+        Book copy = new Book(id, title, author, coverImageResId, coverImageUrl, websiteUrl);
+        copy.returnEpochDay = returnEpochDay;
+        return copy;
+    }
+
+    /**
+     * Sets the return date for the book.
+     * 
+     * @param returnEpochDay The new return date as an epoch day, or 0 to clear it.
+     */
+    public void setReturnEpochDay(int returnEpochDay) {
+        this.returnEpochDay = returnEpochDay;
+    }
+
+    /**
+     * Books are equal when they share the same identity key; the return date is not compared.
+     * 
+     * @param other The object to compare with.
+     * @return True if both objects represent the same book.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof Book)) return false;
+        return getKey().equals(((Book) other).getKey());
+    }
+
+    /**
+     * Hashes the book by its identity key, consistent with {@link #equals(Object)}.
+     * 
+     * @return The hash code of the book's key.
+     */
+    @Override
+    public int hashCode() {
+        return getKey().hashCode();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,237 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * BookCodec reads and writes books as JSON by streaming tokens directly to and from
+ * a Reader or Writer. Unlike a reflective Gson round trip, it needs no TypeToken,
+ * no reflection and no intermediate JSON string for the whole list.
+ *
+ * The field names match those GSON generated from {@link Book}, so data written by
+ * older versions of the app is read unchanged. Unknown fields are skipped. Return dates
+ * are written as epoch days; the millisecond return dates written by older versions are
+ * converted to epoch days in the device's time zone when read.
+ *
+ * Stored lists hold the bundled cover as its drawable resource id. Resource ids change
+ * from one build to the next, so files meant for another install hold the drawable's name
+ * instead, written and read by the overloads that take a cover name function.
+ */
+public final class BookCodec {
+
+    /** JSON field holding the catalog id. */
+    private static final String FIELD_ID = "id";
+
+    /** JSON field holding the title. */
+    private static final String FIELD_TITLE = "title";
+
+    /** JSON field holding the author. */
+    private static final String FIELD_AUTHOR = "author";
+
+    /** JSON field holding the cover drawable resource id. */
+    private static final String FIELD_COVER_IMAGE_RES_ID = "coverImageResId";
+
+    /** JSON field holding the bundled cover's drawable name, in files meant for another install. */
+    private static final String FIELD_COVER = "cover";
+
+    /** JSON field holding the remote cover URL. */
+    private static final String FIELD_COVER_IMAGE_URL = "coverImageUrl";
+
+    /** JSON field holding the website URL. */
+    private static final String FIELD_WEBSITE_URL = "websiteUrl";
+
+    /** JSON field holding the return date as an epoch day. */
+    private static final String FIELD_RETURN_EPOCH_DAY = "returnEpochDay";
+
+    /** JSON field holding the return date in epoch milliseconds, written by older versions. */
+    private static final String FIELD_RETURN_DATE_MILLIS = "returnDateMillis";
+
+    /** Utility class; not instantiable. */
+    private BookCodec() {
+    }
+
+    /**
+     * Writes a list of books as a JSON array.
+     *
+     * @param writer The destination. It is flushed but not closed.
+     * @param books  The books to write.
+     */
+    public static void writeList(Writer writer, List<Book> books) throws IOException {
+        JsonWriter out = new JsonWriter(writer);
+        out.beginArray();
+        for (Book book : books) {
+            writeBook(out, book);
+        }
+        out.endArray();
+        out.flush();
+    }
+
+    /**
+     * Reads a JSON array of books.
+     *
+     * @param reader The source. It is not closed.
+     * @return The books, or an empty list if the source holds JSON null.
+     */
+    public static ArrayList<Book> readList(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        ArrayList<Book> books = new ArrayList<>();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return books;
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            Book book = readBook(in);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        in.endArray();
+        return books;
+    }
+
+    /**
+     * Writes one book as a JSON object.
+     *
+     * @param out  The JSON stream.
+     * @param book The book to write.
+     */
+    public static void writeBook(JsonWriter out, Book book) throws IOException {
+        writeBook(out, book, null);
+    }
+
+    /**
+     * Writes one book as a JSON object, naming its bundled cover instead of giving the
+     * cover's resource id.
+     *
+     * @param out        The JSON stream.
+     * @param book       The book to write.
+     * @param coverNames Gives the drawable name of a cover resource id, or null if the id
+     *                   is not a bundled cover; null to write the resource id itself.
+     */
+    public static void writeBook(JsonWriter out, Book book, IntFunction<String> coverNames) throws IOException {
+        out.beginObject();
+        if (book.getId() != null) {
+            out.name(FIELD_ID).value(book.getId());
+        }
+        out.name(FIELD_TITLE).value(book.getTitle());
+        out.name(FIELD_AUTHOR).value(book.getAuthor());
+        if (coverNames == null) {
+            out.name(FIELD_COVER_IMAGE_RES_ID).value(book.getCoverImageResId());
+        } else if (book.getCoverImageResId() != 0) {
+            String coverName = coverNames.apply(book.getCoverImageResId());
+            if (coverName != null) {
+                out.name(FIELD_COVER).value(coverName);
+            }
+        }
+        if (book.hasCoverImageUrl()) {
+            out.name(FIELD_COVER_IMAGE_URL).value(book.getCoverImageUrl());
+        }
+        if (book.getWebsiteUrl() != null) {
+            out.name(FIELD_WEBSITE_URL).value(book.getWebsiteUrl());
+        }
+        out.name(FIELD_RETURN_EPOCH_DAY).value(book.getReturnEpochDay());
+        out.endObject();
+    }
+
+    /**
+     * Reads one book from a JSON object.
+     *
+     * @param in The JSON stream, positioned at the object (or at JSON null).
+     * @return The book, or null if the value was JSON null or had no title.
+     */
+    public static Book readBook(JsonReader in) throws IOException {
+        return readBook(in, null);
+    }
+
+    /**
+     * Reads one book from a JSON object, looking its bundled cover up by name. A cover
+     * resource id in the object came from another build, so it is ignored.
+     *
+     * @param in            The JSON stream, positioned at the object (or at JSON null).
+     * @param coverResolver Gives the resource id of a drawable name, or 0 if there is no
+     *                      such drawable; null to read the resource id itself.
+     * @return The book, or null if the value was JSON null or had no title.
+     */
+    public static Book readBook(JsonReader in, ToIntFunction<String> coverResolver) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        String id = null;
+        String title = null;
+        String author = null;
+        int coverImageResId = 0;
+        String coverImageUrl = null;
+        String websiteUrl = null;
+        int returnEpochDay = LoanDates.NO_DATE;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case FIELD_ID:
+                    id = in.nextString();
+                    break;
+                case FIELD_TITLE:
+                    title = in.nextString();
+                    break;
+                case FIELD_AUTHOR:
+                    author = in.nextString();
+                    break;
+                case FIELD_COVER_IMAGE_RES_ID:
+                    if (coverResolver == null) {
+                        coverImageResId = in.nextInt();
+                    } else {
+                        in.skipValue();
+                    }
+                    break;
+                case FIELD_COVER:
+                    if (coverResolver != null) {
+                        coverImageResId = coverResolver.applyAsInt(in.nextString());
+                    } else {
+                        in.skipValue();
+                    }
+                    break;
+                case FIELD_COVER_IMAGE_URL:
+                    coverImageUrl = in.nextString();
+                    break;
+                case FIELD_WEBSITE_URL:
+                    websiteUrl = in.nextString();
+                    break;
+                case FIELD_RETURN_EPOCH_DAY:
+                    returnEpochDay = in.nextInt();
+                    break;
+                case FIELD_RETURN_DATE_MILLIS:
+                    returnEpochDay = LoanDates.fromLegacyMillis(in.nextLong());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        if (title == null) {
+            return null;
+        }
+        Book book = new Book(id, title, (author != null) ? author : "", coverImageResId, coverImageUrl,
+                websiteUrl);
+        book.setReturnEpochDay(returnEpochDay);
+        return book;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,1084 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * BookJournal is an append-only, file-backed log of changes to the user's book list.
+ * Instead of rewriting the whole list on every change, each add, return and return-date
+ * update is appended as a single checksummed record. The list is rebuilt by replaying
+ * the records, and the log is compacted into a fresh segment once it grows too large.
+ *
+ * All file access happens on a single writer thread. Records appended in quick
+ * succession are written together and made durable with a single fsync. If a group
+ * commit fails (e.g. the disk is full), its records stay queued, in order, and are written
+ * by the next commit; the failure is thrown to the next caller that waits on the journal,
+ * such as {@link #sync()} or {@link #loadAll()}, instead of on the writer thread.
+ * A bulk add or return is written as a batch record giving the number of records that
+ * follow; replay applies them only once all have been read intact, so a batch torn by a
+ * crash is dropped as a whole.
+ * Records are encoded with {@link BookCodec} straight into a reusable byte buffer, which
+ * is checksummed and copied to the file without building a JSON string per record.
+ *
+ * Every segment starts with a format record. Segments written before return dates became
+ * epoch days have none; they are replayed with their millisecond dates converted and are
+ * rewritten in the current format when the journal is opened.
+ *
+ * Decoding time during replay, group commit latency and bytes written are recorded in
+ * {@link PerfMetrics}.
+ *
+ * The journal is the default {@link LoanStore}. It has no index, so the overdue and fine
+ * queries replay the journal and scan the list. {@link #forEach(Consumer)} streams instead:
+ * a first pass over the segment notes where each live book's record is, without decoding
+ * any book, and a second pass reads the books one at a time, so an export holds one book
+ * and a small position per book rather than the whole list. Opening the journal only
+ * counts the live books the same way.
+ *
+ * An import that skips books already in the list has to know which keys the list holds.
+ * The journal collects them once and then keeps them up to date as it writes, so that
+ * state grows with the list (one key per book), not with the file being imported; an
+ * import whose memory must not grow with the list needs an indexed store such as the
+ * SQLite one.
+ */
+public class BookJournal implements LoanStore {
+
+    /** Record type for adding a book to the list. */
+    static final String OP_ADD = "add";
+
+    /** Record type for returning (removing) a book from the list. */
+    static final String OP_RETURN = "return";
+
+    /** Record type for changing the return date of a book already in the list. */
+    static final String OP_SET_RETURN_DATE = "set_return_date";
+
+    /** Record type announcing that the next records, as many as its key says, form one batch. */
+    private static final String OP_BATCH = "batch";
+
+    /** Internal record type that replaces the whole list with a new set of books. */
+    private static final String OP_RESET = "reset";
+
+    /** Record type at the start of a segment; its key is the segment's format version. */
+    private static final String OP_FORMAT = "format";
+
+    /** Current segment format: return dates are stored as epoch days. */
+    private static final int FORMAT_VERSION = 2;
+
+    /** Name of the live journal segment inside the storage directory. */
+    private static final String JOURNAL_FILE_NAME = "my_list.journal";
+
+    /** Name of the temporary segment written during compaction before it is swapped in. */
+    private static final String COMPACT_FILE_NAME = "my_list.journal.compact";
+
+    /** Minimum number of records in the journal before compaction is considered. */
+    private static final int MIN_COMPACTION_RECORDS = 256;
+
+    /** Time spent decoding the JSON records of a replayed segment. */
+    private static final LatencyHistogram PARSE_LATENCY = PerfMetrics.histogram("journal.parse");
+
+    /** Time taken by one group commit, including its fsync. */
+    private static final LatencyHistogram COMMIT_LATENCY = PerfMetrics.histogram("journal.groupCommit");
+
+    /** Bytes written to journal segments, including compaction. */
+    private static final PerfCounter BYTES_WRITTEN = PerfMetrics.counter("journal.bytesWritten");
+
+    /** Records written to journal segments, including compaction. */
+    private static final PerfCounter RECORDS_WRITTEN = PerfMetrics.counter("journal.recordsWritten");
+
+    /** Group commits that failed in the background and left their records queued. */
+    private static final PerfCounter WRITE_FAILURES = PerfMetrics.counter("journal.writeFailures");
+
+    /** The live journal segment. */
+    private final File journalFile;
+
+    /** The temporary segment used for atomic swaps. */
+    private final File compactFile;
+
+    /** Single writer thread that owns all file access, preserving record order. */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bookworm-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Reusable buffer holding the encoded payload of the record being written. Writer thread only. */
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+
+    /** Character view of {@link #recordBuffer}. Writer thread only. */
+    private final OutputStreamWriter recordWriter = new OutputStreamWriter(recordBuffer, StandardCharsets.UTF_8);
+
+    /** Reusable buffer holding the journal line being replayed. Writer thread only. */
+    private byte[] lineBuffer = new byte[256];
+
+    /** Records waiting to be written by the next group commit. Guarded by {@code this}. */
+    private ArrayList<Record> pending = new ArrayList<>();
+
+    /** Whether a group commit has already been scheduled on the writer thread. Guarded by {@code this}. */
+    private boolean flushScheduled;
+
+    /** Whether the journal has been opened and recovered. Writer thread only. */
+    private boolean opened;
+
+    /** Number of records currently stored in the journal segment. Writer thread only. */
+    private int recordCount;
+
+    /** Whether the last replayed segment ended in a record that failed verification. Writer thread only. */
+    private boolean tornTail;
+
+    /** Format version of the last replayed segment (0 if it had no format record). Writer thread only. */
+    private int segmentFormat;
+
+    /** Number of live books after the last compaction. Writer thread only. */
+    private int liveCountAtLastCompaction;
+
+    /** Keys of the books in the list, or null until {@link #addAllAbsent(List)} needs them. Writer thread only. */
+    private HashSet<String> liveKeys;
+
+    /**
+     * A single entry in the journal. Only the fields relevant to the operation are set.
+     */
+    static class Record {
+
+        /** The operation this record describes (one of the OP_* constants). */
+        String op;
+
+        /** The key of the book the operation applies to. */
+        String key;
+
+        /** The full book, for add records. */
+        Book book;
+
+        /** The new return date as an epoch day, for set-return-date records. */
+        int returnEpochDay;
+
+        /** The replacement list, for reset records. Never written to disk. */
+        List<Book> books;
+
+        /** The records that make up a batch, for batch records. Written after the batch record. */
+        List<Record> batch;
+
+        /** Whether the record carries a book, set on replay even when the book is not decoded. */
+        boolean hasBook;
+
+        /** Byte offset of the record's line in the segment it was replayed from. */
+        long offset;
+    }
+
+    /**
+     * Where the record of a live book is in a segment, and the return date it was given
+     * after that record, if any.
+     */
+    private static final class BookPosition {
+
+        /** Byte offset of the line of the book's add record. */
+        final long offset;
+
+        /** Whether a later record changed the book's return date. */
+        boolean returnDateChanged;
+
+        /** The changed return date as an epoch day. */
+        int returnEpochDay;
+
+        /**
+         * Creates a position.
+         *
+         * @param offset Byte offset of the line of the book's add record.
+         */
+        BookPosition(long offset) {
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * A byte buffer whose contents can be checksummed and copied without making a copy first.
+     */
+    private static class RecordBuffer extends ByteArrayOutputStream {
+
+        /**
+         * Adds the buffered bytes to a checksum.
+         *
+         * @param crc The checksum to update.
+         */
+        void updateChecksum(CRC32 crc) {
+            crc.update(buf, 0, count);
+        }
+    }
+
+    /**
+     * Creates a journal stored in the given directory.
+     *
+     * @param directory The directory that holds the journal segments.
+     */
+    public BookJournal(File directory) {
+        this.journalFile = new File(directory, JOURNAL_FILE_NAME);
+        this.compactFile = new File(directory, COMPACT_FILE_NAME);
+    }
+
+    /**
+     * Checks whether a journal segment has already been written.
+     *
+     * @return True if the journal exists on disk.
+     */
+    @Override
+    public boolean exists() {
+        return journalFile.exists();
+    }
+
+    /**
+     * Appends an "add book" record.
+     *
+     * @param book The book that was added to the list.
+     */
+    @Override
+    public void add(Book book) {
+        Record record = new Record();
+        record.op = OP_ADD;
+        record.key = book.getKey();
+        record.book = book;
+        append(record);
+    }
+
+    /**
+     * Appends a "return book" record.
+     *
+     * @param book The book that was removed from the list.
+     */
+    @Override
+    public void remove(Book book) {
+        Record record = new Record();
+        record.op = OP_RETURN;
+        record.key = book.getKey();
+        append(record);
+    }
+
+    /**
+     * Appends "add book" records for several books as one batch.
+     *
+     * @param books The books that were added to the list.
+     */
+    @Override
+    public void addAll(List<Book> books) {
+        ArrayList<Record> batch = new ArrayList<>(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            Record record = new Record();
+            record.op = OP_ADD;
+            record.key = books.get(i).getKey();
+            record.book = books.get(i);
+            batch.add(record);
+        }
+        appendBatch(batch);
+    }
+
+    /**
+     * Appends "add book" records for the books the list does not hold yet, as one batch,
+     * and writes them before returning. The first call replays the journal to learn which
+     * books are in the list.
+     *
+     * @param books The candidate books.
+     * @return The number of books added.
+     */
+    @Override
+    public int addAllAbsent(List<Book> books) {
+        return await(() -> {
+            flushPending();
+            if (liveKeys == null) {
+                liveKeys = new HashSet<>(indexSegment(journalFile).keySet());
+            }
+
+            ArrayList<Book> absent = new ArrayList<>();
+            HashSet<String> batchKeys = new HashSet<>();
+            for (int i = 0; i < books.size(); i++) {
+                String key = books.get(i).getKey();
+                if (!liveKeys.contains(key) && batchKeys.add(key)) {
+                    absent.add(books.get(i));
+                }
+            }
+            addAll(absent);
+            flushPending();
+            return absent.size();
+        });
+    }
+
+    /**
+     * Appends "return book" records for several books as one batch.
+     *
+     * @param books The books that were removed from the list.
+     */
+    @Override
+    public void removeAll(List<Book> books) {
+        ArrayList<Record> batch = new ArrayList<>(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            Record record = new Record();
+            record.op = OP_RETURN;
+            record.key = books.get(i).getKey();
+            batch.add(record);
+        }
+        appendBatch(batch);
+    }
+
+    /**
+     * Appends a "set return date" record.
+     *
+     * @param book           The book whose return date changed.
+     * @param returnEpochDay The new return date as an epoch day.
+     */
+    @Override
+    public void setReturnDate(Book book, int returnEpochDay) {
+        Record record = new Record();
+        record.op = OP_SET_RETURN_DATE;
+        record.key = book.getKey();
+        record.returnEpochDay = returnEpochDay;
+        append(record);
+    }
+
+    /**
+     * Replaces the whole list. The journal is rewritten as a fresh segment
+     * containing only the given books.
+     *
+     * @param books The complete new list.
+     */
+    @Override
+    public void replaceAll(List<Book> books) {
+        Record record = new Record();
+        record.op = OP_RESET;
+        record.books = new ArrayList<>(books);
+        append(record);
+    }
+
+    /**
+     * Rebuilds the list by replaying the journal. Any records still waiting for
+     * a group commit are written first, so the result reflects every append made so far.
+     *
+     * @return The current list of books, in the order they were added.
+     */
+    @Override
+    public ArrayList<Book> loadAll() {
+        return await(() -> {
+            flushPending();
+            return readSegment(journalFile);
+        });
+    }
+
+    /**
+     * Streams the list to an action without rebuilding it. A first pass over the journal
+     * finds the record of each live book; the books are then read back from those records
+     * one at a time.
+     *
+     * @param action Receives the books, in the order they were added, on the writer thread.
+     */
+    @Override
+    public void forEach(Consumer<? super Book> action) {
+        await(() -> {
+            flushPending();
+            LinkedHashMap<String, BookPosition> positions = indexSegment(journalFile);
+            InputStream in = null;
+            long position = 0;
+            try {
+                for (BookPosition book : positions.values()) {
+                    // A book added again while in the list keeps its place but has a later record
+                    if (in == null || book.offset < position) {
+                        if (in != null) {
+                            in.close();
+                        }
+                        in = new BufferedInputStream(new FileInputStream(journalFile));
+                        position = 0;
+                    }
+                    skipFully(in, book.offset - position);
+                    int length = readLine(in);
+                    position = book.offset + length + 1;
+                    Record record = parseRecord(length, true);
+                    if (record == null || record.book == null) {
+                        throw new IOException("Journal record at " + book.offset + " no longer readable");
+                    }
+                    if (book.returnDateChanged) {
+                        record.book.setReturnEpochDay(book.returnEpochDay);
+                    }
+                    action.accept(record.book);
+                }
+            } finally {
+                if (in != null) {
+                    in.close();
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Finds the overdue books by replaying the journal and scanning the list.
+     *
+     * @param today Today's epoch day.
+     * @return The overdue books, earliest return date first.
+     */
+    @Override
+    public ArrayList<Book> findOverdue(int today) {
+        ArrayList<Book> overdue = new ArrayList<>();
+        for (Book book : loadAll()) {
+            if (LoanDates.isOverdue(book.getReturnEpochDay(), today)) {
+                overdue.add(book);
+            }
+        }
+        overdue.sort(Comparator.comparingInt(Book::getReturnEpochDay));
+        return overdue;
+    }
+
+    /**
+     * Gets the total late fine by replaying the journal and scanning the list.
+     *
+     * @param today Today's epoch day.
+     * @return The total fine in dollars.
+     */
+    @Override
+    public int getTotalFine(int today) {
+        return FineEngine.calculateTotalFine(loadAll(), today);
+    }
+
+    /**
+     * Blocks until every record appended so far has been written and synced to disk.
+     *
+     * @throws IllegalStateException If the records could not be written; they stay queued.
+     */
+    @Override
+    public void sync() {
+        await(() -> {
+            flushPending();
+            return null;
+        });
+    }
+
+    /**
+     * Queues a record for the next group commit, scheduling one if necessary.
+     *
+     * @param record The record to append.
+     */
+    private synchronized void append(Record record) {
+        pending.add(record);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            writer.execute(this::flushInBackground);
+        }
+    }
+
+    /**
+     * Queues a batch of records for the next group commit. A single record needs no batch.
+     *
+     * @param batch The records of the batch.
+     */
+    private void appendBatch(List<Record> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            append(batch.get(0));
+            return;
+        }
+        Record record = new Record();
+        record.op = OP_BATCH;
+        record.key = Integer.toString(batch.size());
+        record.batch = batch;
+        append(record);
+    }
+
+    /**
+     * Takes ownership of the pending records so they can be written outside the lock.
+     *
+     * @return The records appended since the last group commit.
+     */
+    private synchronized ArrayList<Record> drainPending() {
+        ArrayList<Record> drained = pending;
+        pending = new ArrayList<>();
+        flushScheduled = false;
+        return drained;
+    }
+
+    /**
+     * Puts records whose group commit failed back at the front of the queue, ahead of
+     * any appended since, so the next commit writes them in their original order.
+     *
+     * @param records The records of the failed commit.
+     */
+    private synchronized void requeue(ArrayList<Record> records) {
+        records.addAll(pending);
+        pending = records;
+    }
+
+    /**
+     * Runs a group commit scheduled by {@link #append(Record)}. A failure is not thrown
+     * on the writer thread: the records stay queued and the next commit, or the next
+     * caller waiting on the journal, retries them.
+     */
+    private void flushInBackground() {
+        try {
+            flushPending();
+        } catch (IOException e) {
+            WRITE_FAILURES.add(1);
+        }
+    }
+
+    /**
+     * Writes all pending records with a single fsync and compacts the journal if it
+     * has grown past its threshold. Runs on the writer thread.
+     *
+     * @throws IOException If the records could not be written; they are queued again.
+     */
+    private void flushPending() throws IOException {
+        open();
+
+        ArrayList<Record> records = drainPending();
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            writeRecords(records);
+        } catch (IOException e) {
+            requeue(records);
+            // The key set may list books that were not written; it is rebuilt on demand
+            liveKeys = null;
+            throw e;
+        }
+
+        // The records are durable, so a failed compaction only leaves the journal longer
+        if (recordCount >= MIN_COMPACTION_RECORDS + 2 * liveCountAtLastCompaction) {
+            writeSegment(readSegment(journalFile));
+        }
+    }
+
+    /**
+     * Writes a group of records and syncs them. If the append fails part way, the journal
+     * is cut back to its previous length, so a retry does not follow a torn record.
+     *
+     * @param records The records to write, in order.
+     */
+    private void writeRecords(ArrayList<Record> records) throws IOException {
+        // A reset supersedes everything queued before it
+        int start = 0;
+        for (int i = records.size() - 1; i >= 0; i--) {
+            if (OP_RESET.equals(records.get(i).op)) {
+                writeSegment(records.get(i).books);
+                if (liveKeys != null) {
+                    liveKeys.clear();
+                    trackKeys(records.get(i).books);
+                }
+                start = i + 1;
+                break;
+            }
+        }
+        if (start == records.size()) {
+            return;
+        }
+
+        long commitStart = System.nanoTime();
+        boolean newSegment = !journalFile.exists();
+        long lengthBefore = journalFile.length();
+        int countBefore = recordCount;
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            BufferedOutputStream bufferedOut = new BufferedOutputStream(out);
+            if (newSegment) {
+                writeFormatRecord(bufferedOut);
+                recordCount++;
+            }
+            for (int i = start; i < records.size(); i++) {
+                recordCount += writeRecordOrBatch(bufferedOut, records.get(i));
+                trackKeys(records.get(i));
+            }
+            bufferedOut.flush();
+
+            // One fsync for the whole group
+            out.getFD().sync();
+        } catch (IOException e) {
+            recordCount = countBefore;
+            discardTail(lengthBefore);
+            throw e;
+        }
+        COMMIT_LATENCY.recordSince(commitStart);
+    }
+
+    /**
+     * Cuts the journal back to the length it had before a failed append. If even that
+     * fails, the journal is replayed on the next commit, which drops a torn tail.
+     *
+     * @param length The length to cut the journal back to.
+     */
+    private void discardTail(long length) {
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(length);
+        } catch (IOException e) {
+            opened = false;
+        }
+    }
+
+    /**
+     * Keeps {@link #liveKeys} up to date with a written record, if it is being kept.
+     *
+     * @param record The record that was written.
+     */
+    private void trackKeys(Record record) {
+        if (liveKeys == null) {
+            return;
+        }
+        if (record.batch != null) {
+            for (int i = 0; i < record.batch.size(); i++) {
+                trackKeys(record.batch.get(i));
+            }
+        } else if (OP_ADD.equals(record.op)) {
+            liveKeys.add(record.key);
+        } else if (OP_RETURN.equals(record.op)) {
+            liveKeys.remove(record.key);
+        }
+    }
+
+    /**
+     * Adds the keys of a replacement list to {@link #liveKeys}.
+     *
+     * @param books The books written as the new segment.
+     */
+    private void trackKeys(List<Book> books) {
+        for (int i = 0; i < books.size(); i++) {
+            liveKeys.add(books.get(i).getKey());
+        }
+    }
+
+    /**
+     * Opens the journal on first use. If the previous session crashed in the middle of
+     * a write, the torn tail is discarded by rewriting the intact records as a new segment.
+     * A segment in an older format is migrated the same way.
+     */
+    private void open() throws IOException {
+        if (opened) {
+            return;
+        }
+
+        // A leftover compaction segment was never swapped in, so the live journal is still authoritative
+        if (compactFile.exists()) {
+            compactFile.delete();
+        }
+
+        liveCountAtLastCompaction = indexSegment(journalFile).size();
+        if (tornTail || (journalFile.exists() && segmentFormat < FORMAT_VERSION)) {
+            writeSegment(readSegment(journalFile));
+        }
+        opened = true;
+    }
+
+    /**
+     * Writes the given books to a new segment, syncs it, and atomically swaps it in
+     * as the live journal.
+     *
+     * @param books The books the new segment should contain.
+     */
+    private void writeSegment(List<Book> books) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(compactFile)) {
+            BufferedOutputStream bufferedOut = new BufferedOutputStream(out);
+            writeFormatRecord(bufferedOut);
+
+            Record record = new Record();
+            record.op = OP_ADD;
+            for (Book book : books) {
+                record.key = book.getKey();
+                record.book = book;
+                writeRecord(bufferedOut, record);
+            }
+            bufferedOut.flush();
+            out.getFD().sync();
+        }
+
+        // rename() replaces the target atomically, so readers see either the old or the new segment
+        if (!compactFile.renameTo(journalFile)) {
+            throw new IOException("Unable to swap in compacted journal segment");
+        }
+        recordCount = books.size() + 1;
+        liveCountAtLastCompaction = books.size();
+    }
+
+    /**
+     * Writes the format record that starts every segment.
+     *
+     * @param out The destination.
+     */
+    private void writeFormatRecord(OutputStream out) throws IOException {
+        Record record = new Record();
+        record.op = OP_FORMAT;
+        record.key = Integer.toString(FORMAT_VERSION);
+        writeRecord(out, record);
+    }
+
+    /**
+     * Writes a record, followed by its members if it is a batch.
+     *
+     * @param out    The destination.
+     * @param record The record to write.
+     * @return The number of lines written.
+     */
+    private int writeRecordOrBatch(OutputStream out, Record record) throws IOException {
+        writeRecord(out, record);
+        if (record.batch == null) {
+            return 1;
+        }
+        for (int i = 0; i < record.batch.size(); i++) {
+            writeRecord(out, record.batch.get(i));
+        }
+        return 1 + record.batch.size();
+    }
+
+    /**
+     * Writes one record as a single line: the CRC32 of the JSON payload as eight hex digits,
+     * a space, and the payload.
+     *
+     * @param out    The destination.
+     * @param record The record to write.
+     */
+    private void writeRecord(OutputStream out, Record record) throws IOException {
+        recordBuffer.reset();
+        JsonWriter json = new JsonWriter(recordWriter);
+        json.beginObject();
+        json.name("op").value(record.op);
+        json.name("key").value(record.key);
+        if (record.book != null) {
+            json.name("book");
+            BookCodec.writeBook(json, record.book);
+        }
+        if (OP_SET_RETURN_DATE.equals(record.op)) {
+            json.name("returnEpochDay").value(record.returnEpochDay);
+        }
+        json.endObject();
+        json.flush();
+
+        CRC32 crc = new CRC32();
+        recordBuffer.updateChecksum(crc);
+        writeHex(out, crc.getValue());
+        out.write(' ');
+        recordBuffer.writeTo(out);
+        out.write('\n');
+
+        // Checksum, space, payload and newline
+        BYTES_WRITTEN.add(8 + 1 + recordBuffer.size() + 1);
+        RECORDS_WRITTEN.add(1);
+    }
+
+    /**
+     * Replays a segment into a list of books.
+     *
+     * @param file The segment to read.
+     * @return The books described by the segment, in insertion order.
+     */
+    private ArrayList<Book> readSegment(File file) throws IOException {
+        LinkedHashMap<String, Book> booksByKey = new LinkedHashMap<>();
+        replaySegment(file, true, record -> applyRecord(booksByKey, record));
+        return new ArrayList<>(booksByKey.values());
+    }
+
+    /**
+     * Replays a segment into the positions of the live books' records, without decoding
+     * any book.
+     *
+     * @param file The segment to read.
+     * @return The position of each live book, by key, in insertion order.
+     */
+    private LinkedHashMap<String, BookPosition> indexSegment(File file) throws IOException {
+        LinkedHashMap<String, BookPosition> positions = new LinkedHashMap<>();
+        replaySegment(file, false, record -> applyPosition(positions, record));
+        return positions;
+    }
+
+    /**
+     * Replays a segment, passing its intact records on in order. Replay stops at the first
+     * record whose checksum does not match, since everything after a torn write is
+     * untrustworthy. The records of a batch are held back until the whole batch has been
+     * read, and a batch cut short by the end of the segment or a torn record is discarded.
+     * Also refreshes the record count and torn-tail state for the segment.
+     *
+     * @param file        The segment to read.
+     * @param decodeBooks Whether to decode the books of add records, or only note that
+     *                    they have one.
+     * @param target      Receives the records to apply.
+     */
+    private void replaySegment(File file, boolean decodeBooks, Consumer<Record> target) throws IOException {
+        ArrayList<Record> batch = new ArrayList<>();
+        int batchRemaining = 0;
+        int count = 0;
+        long offset = 0;
+        long parseNanos = 0;
+        tornTail = false;
+        segmentFormat = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            int length;
+            while ((length = readLine(in)) >= 0) {
+                long parseStart = System.nanoTime();
+                Record record = parseRecord(length, decodeBooks);
+                parseNanos += System.nanoTime() - parseStart;
+                if (record == null) {
+                    tornTail = true;
+                    break;
+                }
+                record.offset = offset;
+                offset += length + 1;
+                if (count == 0 && OP_FORMAT.equals(record.op)) {
+                    segmentFormat = parseCount(record.key);
+                }
+                count++;
+
+                if (batchRemaining > 0) {
+                    batch.add(record);
+                    if (--batchRemaining == 0) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            target.accept(batch.get(i));
+                        }
+                        batch.clear();
+                    }
+                } else if (OP_BATCH.equals(record.op)) {
+                    batchRemaining = parseCount(record.key);
+                } else {
+                    target.accept(record);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // No journal yet means an empty list
+        }
+        if (batchRemaining > 0) {
+            // The batch was cut short, so none of it happened
+            tornTail = true;
+        }
+        PARSE_LATENCY.record(parseNanos);
+        recordCount = count;
+    }
+
+    /**
+     * Reads one line into {@link #lineBuffer}, growing it as needed.
+     *
+     * @param in The segment being read.
+     * @return The length of the line without its terminator, or -1 at the end of the segment.
+     */
+    private int readLine(InputStream in) throws IOException {
+        int length = 0;
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (length == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, length * 2);
+            }
+            lineBuffer[length++] = (byte) b;
+        }
+        return (b == -1 && length == 0) ? -1 : length;
+    }
+
+    /**
+     * Applies a single replayed record to the list being rebuilt.
+     *
+     * @param booksByKey The books replayed so far, keyed by journal key.
+     * @param record     The record to apply.
+     */
+    private static void applyRecord(LinkedHashMap<String, Book> booksByKey, Record record) {
+        switch (record.op) {
+            case OP_ADD:
+                if (record.book != null) {
+                    booksByKey.put(record.key, record.book);
+                }
+                break;
+            case OP_RETURN:
+                booksByKey.remove(record.key);
+                break;
+            case OP_SET_RETURN_DATE:
+                Book book = booksByKey.get(record.key);
+                if (book != null) {
+                    book.setReturnEpochDay(record.returnEpochDay);
+                }
+                break;
+            default:
+                // Unknown record types from newer versions are ignored
+                break;
+        }
+    }
+
+    /**
+     * Applies a single replayed record to the positions of the live books.
+     *
+     * @param positions The positions replayed so far, keyed by journal key.
+     * @param record    The record to apply.
+     */
+    private static void applyPosition(LinkedHashMap<String, BookPosition> positions, Record record) {
+        switch (record.op) {
+            case OP_ADD:
+                if (record.hasBook) {
+                    positions.put(record.key, new BookPosition(record.offset));
+                }
+                break;
+            case OP_RETURN:
+                positions.remove(record.key);
+                break;
+            case OP_SET_RETURN_DATE:
+                BookPosition position = positions.get(record.key);
+                if (position != null) {
+                    position.returnDateChanged = true;
+                    position.returnEpochDay = record.returnEpochDay;
+                }
+                break;
+            default:
+                // Unknown record types from newer versions are ignored
+                break;
+        }
+    }
+
+    /**
+     * Skips bytes of a stream.
+     *
+     * @param in    The stream.
+     * @param count The number of bytes to skip.
+     * @throws IOException If the stream ends first.
+     */
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Journal ended early");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Parses and verifies the journal line held in {@link #lineBuffer}.
+     *
+     * @param length      The length of the line.
+     * @param decodeBooks Whether to decode the book of an add record, or only note that it
+     *                    has one.
+     * @return The record, or null if the line is torn or corrupted.
+     */
+    private Record parseRecord(int length, boolean decodeBooks) {
+        // Eight hex digits, a space, and at least an empty JSON object
+        if (length < 11 || lineBuffer[8] != ' ') {
+            return null;
+        }
+        long expected = 0;
+        for (int i = 0; i < 8; i++) {
+            int digit = Character.digit(lineBuffer[i], 16);
+            if (digit < 0) {
+                return null;
+            }
+            expected = (expected << 4) | digit;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(lineBuffer, 9, length - 9);
+        if (crc.getValue() != expected) {
+            return null;
+        }
+
+        try {
+            JsonReader json = new JsonReader(new InputStreamReader(
+                    new ByteArrayInputStream(lineBuffer, 9, length - 9), StandardCharsets.UTF_8));
+            Record record = new Record();
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "op":
+                        record.op = json.nextString();
+                        break;
+                    case "key":
+                        record.key = json.nextString();
+                        break;
+                    case "book":
+                        record.hasBook = true;
+                        if (decodeBooks) {
+                            record.book = BookCodec.readBook(json);
+                        } else {
+                            json.skipValue();
+                        }
+                        break;
+                    case "returnEpochDay":
+                        record.returnEpochDay = json.nextInt();
+                        break;
+                    case "returnDateMillis":
+                        // Written by versions before the epoch-day format
+                        record.returnEpochDay = LoanDates.fromLegacyMillis(json.nextLong());
+                        break;
+                    default:
+                        json.skipValue();
+                        break;
+                }
+            }
+            json.endObject();
+            return (record.op != null && record.key != null) ? record : null;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the number held in the key of a format or batch record.
+     *
+     * @param key The key of the record.
+     * @return The format version or batch size, or 0 if it is malformed.
+     */
+    private static int parseCount(String key) {
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Writes a checksum as eight lower-case hex digits.
+     *
+     * @param out   The destination.
+     * @param value The 32-bit checksum.
+     */
+    private static void writeHex(OutputStream out, long value) throws IOException {
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            out.write(Character.forDigit((int) (value >>> shift) & 0xf, 16));
+        }
+    }
+
+    /**
+     * Runs a task on the writer thread and waits for its result.
+     *
+     * @param task The task to run.
+     * @param <T>  The result type.
+     * @return The task's result.
+     */
+    private <T> T await(Callable<T> task) {
+        try {
+            return writer.submit(task).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Book journal operation failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for book journal", e);
+        }
+    }
+}
\ No newline at end of file
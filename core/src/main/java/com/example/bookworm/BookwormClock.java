@@ -0,0 +1,19 @@
+package com.example.bookworm;
+
+/**
+ * BookwormClock is the source of the current time for time-dependent logic such as
+ * overdue detection. Production code uses {@link #SYSTEM}; tests can supply a fake
+ * clock to make time-based behavior deterministic.
+ */
+public interface BookwormClock {
+
+    /** The real wall clock. */
+    BookwormClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * Gets the current time.
+     *
+     * @return The current time in epoch milliseconds.
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,286 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * CatalogChange is one entry of the catalog's change history: a book added or updated
+ * ("upsert") or removed ("delete") at a given catalog version.
+ *
+ * Changes are exchanged as JSON objects with the fields "v" (the version), "op", "id" and,
+ * for upserts, the fields of a catalog source entry: "title", "author", "cover" (the name of
+ * a bundled drawable), "coverUrl" and "websiteUrl". The same objects are streamed by the
+ * catalog service and kept in {@link CatalogStore}'s change log. An object without "op" is
+ * an upsert, so the entries of a catalog source file read as changes too.
+ */
+public final class CatalogChange {
+
+    /** Operation name of an added or updated book. */
+    private static final String OP_UPSERT = "upsert";
+
+    /** Operation name of a removed book. */
+    private static final String OP_DELETE = "delete";
+
+    /** The catalog version this change produced. */
+    private final long version;
+
+    /** Whether the book was removed. */
+    private final boolean deleted;
+
+    /** The book's catalog id (ISBN-13). */
+    private final String id;
+
+    /** The title, or null for a delete. */
+    private final String title;
+
+    /** The author, or null for a delete. */
+    private final String author;
+
+    /** The name of the bundled cover drawable, or null. */
+    private final String coverName;
+
+    /** The remote cover URL, or null. */
+    private final String coverUrl;
+
+    /** The website URL, or null. */
+    private final String websiteUrl;
+
+    /**
+     * Creates a change.
+     *
+     * @param version    The catalog version.
+     * @param deleted    Whether the book was removed.
+     * @param id         The catalog id.
+     * @param title      The title, or null for a delete.
+     * @param author     The author, or null for a delete.
+     * @param coverName  The bundled cover's drawable name, or null.
+     * @param coverUrl   The remote cover URL, or null.
+     * @param websiteUrl The website URL, or null.
+     */
+    private CatalogChange(long version, boolean deleted, String id, String title, String author,
+                          String coverName, String coverUrl, String websiteUrl) {
+        this.version = version;
+        this.deleted = deleted;
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.coverName = coverName;
+        this.coverUrl = coverUrl;
+        this.websiteUrl = websiteUrl;
+    }
+
+    /**
+     * Creates the change that adds or updates a book.
+     *
+     * @param version    The catalog version.
+     * @param id         The catalog id (ISBN-13).
+     * @param title      The title.
+     * @param author     The author.
+     * @param coverName  The bundled cover's drawable name, or null.
+     * @param coverUrl   The remote cover URL, or null.
+     * @param websiteUrl The website URL, or null.
+     * @return The change.
+     */
+    public static CatalogChange upsert(long version, String id, String title, String author,
+                                       String coverName, String coverUrl, String websiteUrl) {
+        return new CatalogChange(version, false, id, title, author, coverName, coverUrl, websiteUrl);
+    }
+
+    /**
+     * Creates the change that removes a book.
+     *
+     * @param version The catalog version.
+     * @param id      The catalog id.
+     * @return The change.
+     */
+    public static CatalogChange delete(long version, String id) {
+        return new CatalogChange(version, true, id, null, null, null, null, null);
+    }
+
+    /**
+     * Returns the same change at another version.
+     *
+     * @param newVersion The catalog version.
+     * @return The change.
+     */
+    public CatalogChange withVersion(long newVersion) {
+        return new CatalogChange(newVersion, deleted, id, title, author, coverName, coverUrl, websiteUrl);
+    }
+
+    /**
+     * Reads a change object.
+     *
+     * @param json A reader positioned at the object.
+     * @return The change.
+     * @throws IOException If the object cannot be read or lacks a required field.
+     */
+    public static CatalogChange read(JsonReader json) throws IOException {
+        long version = 0;
+        String op = OP_UPSERT;
+        String id = null;
+        String title = null;
+        String author = null;
+        String coverName = null;
+        String coverUrl = null;
+        String websiteUrl = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "v":
+                    version = json.nextLong();
+                    break;
+                case "op":
+                    op = json.nextString();
+                    break;
+                case "id":
+                    id = json.nextString();
+                    break;
+                case "title":
+                    title = json.nextString();
+                    break;
+                case "author":
+                    author = json.nextString();
+                    break;
+                case "cover":
+                    coverName = json.nextString();
+                    break;
+                case "coverUrl":
+                    coverUrl = json.nextString();
+                    break;
+                case "websiteUrl":
+                    websiteUrl = json.nextString();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (id == null) {
+            throw new IOException("Catalog change " + version + " has no id");
+        }
+        if (OP_DELETE.equals(op)) {
+            return delete(version, id);
+        }
+        if (!OP_UPSERT.equals(op) || title == null || author == null) {
+            throw new IOException("Catalog change " + version + " is not a valid upsert or delete");
+        }
+        return upsert(version, id, title, author, coverName, coverUrl, websiteUrl);
+    }
+
+    /**
+     * Writes the change as an object. Absent fields are left out.
+     *
+     * @param json The writer.
+     * @throws IOException If writing fails.
+     */
+    public void write(JsonWriter json) throws IOException {
+        json.beginObject();
+        json.name("v").value(version);
+        json.name("op").value(deleted ? OP_DELETE : OP_UPSERT);
+        json.name("id").value(id);
+        if (!deleted) {
+            json.name("title").value(title);
+            json.name("author").value(author);
+            writeOptional(json, "cover", coverName);
+            writeOptional(json, "coverUrl", coverUrl);
+            writeOptional(json, "websiteUrl", websiteUrl);
+        }
+        json.endObject();
+    }
+
+    /**
+     * Writes a field unless its value is null.
+     *
+     * @param json  The writer.
+     * @param name  The field name.
+     * @param value The value, or null.
+     * @throws IOException If writing fails.
+     */
+    private static void writeOptional(JsonWriter json, String name, String value) throws IOException {
+        if (value != null) {
+            json.name(name).value(value);
+        }
+    }
+
+    /**
+     * Gets the catalog version this change produced.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether the book was removed.
+     *
+     * @return True for a delete, false for an upsert.
+     */
+    public boolean isDelete() {
+        return deleted;
+    }
+
+    /**
+     * Gets the book's catalog id.
+     *
+     * @return The id (ISBN-13).
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the title.
+     *
+     * @return The title, or null for a delete.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Gets the author.
+     *
+     * @return The author, or null for a delete.
+     */
+    public String getAuthor() {
+        return author;
+    }
+
+    /**
+     * Gets the bundled cover's drawable name.
+     *
+     * @return The name, or null.
+     */
+    public String getCoverName() {
+        return coverName;
+    }
+
+    /**
+     * Gets the remote cover URL.
+     *
+     * @return The URL, or null.
+     */
+    public String getCoverUrl() {
+        return coverUrl;
+    }
+
+    /**
+     * Gets the website URL.
+     *
+     * @return The URL, or null.
+     */
+    public String getWebsiteUrl() {
+        return websiteUrl;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,301 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * CatalogCompiler turns the catalog's JSON source into the binary layout read by
+ * {@link BinaryCatalog}. It runs at build time (see the compileCatalog task in the app
+ * module), so the app ships a ready-to-map asset instead of building the catalog in code.
+ *
+ * The source is a JSON array of objects with the fields "id", "title", "author",
+ * "cover" (the name of a bundled drawable), "coverUrl" and "websiteUrl"; only id, title
+ * and author are required. Equal strings are stored once in the string pool, so an author
+ * shared by many books costs one entry.
+ *
+ * Books can also be updated or removed by id after they were added, which is how
+ * {@link CatalogStore} merges synced changes into a catalog. Strings only used by the old
+ * version of an updated or removed book stay in the pool until the next compilation.
+ */
+public final class CatalogCompiler {
+
+    /** Offset table, one int array of {@link BinaryCatalog#ROW_FIELDS} per book; null for a removed book. */
+    private final ArrayList<int[]> rows = new ArrayList<>();
+
+    /** Row index of each id, including removed books, which an upsert brings back in place. */
+    private final HashMap<String, Integer> rowIndexes = new HashMap<>();
+
+    /** Number of removed rows. */
+    private int removedCount;
+
+    /** Pool references of the distinct cover names, in cover index order. */
+    private final ArrayList<Integer> covers = new ArrayList<>();
+
+    /** Cover index of each distinct cover name. */
+    private final HashMap<String, Integer> coverIndexes = new HashMap<>();
+
+    /** Pool reference of each distinct string. */
+    private final HashMap<String, Integer> poolReferences = new HashMap<>();
+
+    /** The string pool being built. */
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+    /**
+     * Compiles a catalog source file.
+     *
+     * @param args The JSON source path and the output path.
+     * @throws IOException If reading the source or writing the output fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CatalogCompiler <catalog.json> <catalog.bin>");
+            System.exit(2);
+        }
+        Path source = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+
+        CatalogCompiler compiler = new CatalogCompiler();
+        try (Reader reader = new InputStreamReader(Files.newInputStream(source), StandardCharsets.UTF_8)) {
+            compiler.readJson(reader);
+        }
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            compiler.writeTo(out);
+        }
+    }
+
+    /**
+     * Adds every book of a JSON catalog source.
+     *
+     * @param reader The JSON source.
+     * @throws IOException If the source cannot be read or a book lacks a required field.
+     */
+    public void readJson(Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        json.beginArray();
+        while (json.hasNext()) {
+            String id = null;
+            String title = null;
+            String author = null;
+            String cover = null;
+            String coverUrl = null;
+            String websiteUrl = null;
+
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        id = json.nextString();
+                        break;
+                    case "title":
+                        title = json.nextString();
+                        break;
+                    case "author":
+                        author = json.nextString();
+                        break;
+                    case "cover":
+                        cover = json.nextString();
+                        break;
+                    case "coverUrl":
+                        coverUrl = json.nextString();
+                        break;
+                    case "websiteUrl":
+                        websiteUrl = json.nextString();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (id == null || title == null || author == null) {
+                throw new IOException("Book " + rows.size() + " needs an id, a title and an author");
+            }
+            add(id, title, author, cover, coverUrl, websiteUrl);
+        }
+        json.endArray();
+    }
+
+    /**
+     * Adds a book.
+     *
+     * @param id         The catalog id (ISBN-13).
+     * @param title      The title.
+     * @param author     The author.
+     * @param coverName  The name of the bundled cover drawable, or null.
+     * @param coverUrl   The remote cover URL, or null.
+     * @param websiteUrl The website URL, or null.
+     * @return This compiler.
+     */
+    public CatalogCompiler add(String id, String title, String author, String coverName, String coverUrl,
+                               String websiteUrl) {
+        rowIndexes.put(id, rows.size());
+        rows.add(row(id, title, author, coverName, coverUrl, websiteUrl));
+        return this;
+    }
+
+    /**
+     * Updates the book with an id in place, or adds it if there is none. A removed book
+     * comes back at its old position.
+     *
+     * @param id         The catalog id (ISBN-13).
+     * @param title      The title.
+     * @param author     The author.
+     * @param coverName  The name of the bundled cover drawable, or null.
+     * @param coverUrl   The remote cover URL, or null.
+     * @param websiteUrl The website URL, or null.
+     * @return This compiler.
+     */
+    public CatalogCompiler upsert(String id, String title, String author, String coverName, String coverUrl,
+                                  String websiteUrl) {
+        Integer index = rowIndexes.get(id);
+        if (index == null) {
+            return add(id, title, author, coverName, coverUrl, websiteUrl);
+        }
+        if (rows.get(index) == null) {
+            removedCount--;
+        }
+        rows.set(index, row(id, title, author, coverName, coverUrl, websiteUrl));
+        return this;
+    }
+
+    /**
+     * Removes the book with an id, if there is one.
+     *
+     * @param id The catalog id.
+     * @return This compiler.
+     */
+    public CatalogCompiler remove(String id) {
+        Integer index = rowIndexes.get(id);
+        if (index != null && rows.get(index) != null) {
+            rows.set(index, null);
+            removedCount++;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of books added.
+     *
+     * @return The book count.
+     */
+    public int getCount() {
+        return rows.size() - removedCount;
+    }
+
+    /**
+     * Writes the compiled catalog.
+     *
+     * @param out The destination; it is not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        int rowsOffset = BinaryCatalog.HEADER_SIZE + covers.size() * 4;
+        long poolOffset = rowsOffset + (long) getCount() * BinaryCatalog.ROW_SIZE;
+        if (poolOffset + pool.size() > Integer.MAX_VALUE) {
+            throw new IOException("Catalog too large");
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(BinaryCatalog.MAGIC);
+        data.writeInt(BinaryCatalog.VERSION);
+        data.writeInt(getCount());
+        data.writeInt(covers.size());
+        data.writeInt(rowsOffset);
+        data.writeInt((int) poolOffset);
+        for (int i = 0; i < covers.size(); i++) {
+            data.writeInt(covers.get(i));
+        }
+        for (int[] row : rows) {
+            if (row == null) {
+                continue;
+            }
+            for (int field : row) {
+                data.writeInt(field);
+            }
+        }
+        pool.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * Builds the offset table row of a book, adding its strings to the pool.
+     *
+     * @param id         The catalog id.
+     * @param title      The title.
+     * @param author     The author.
+     * @param coverName  The name of the bundled cover drawable, or null.
+     * @param coverUrl   The remote cover URL, or null.
+     * @param websiteUrl The website URL, or null.
+     * @return The row.
+     */
+    private int[] row(String id, String title, String author, String coverName, String coverUrl,
+                      String websiteUrl) {
+        int cover = BinaryCatalog.NONE;
+        if (coverName != null && !coverName.isEmpty()) {
+            Integer index = coverIndexes.get(coverName);
+            if (index == null) {
+                index = covers.size();
+                covers.add(intern(coverName));
+                coverIndexes.put(coverName, index);
+            }
+            cover = index;
+        }
+        return new int[] {
+                intern(id),
+                intern(title),
+                intern(author),
+                cover,
+                (coverUrl != null && !coverUrl.isEmpty()) ? intern(coverUrl) : BinaryCatalog.NONE,
+                intern(websiteUrl)
+        };
+    }
+
+    /**
+     * Adds a string to the pool unless an equal string is already there.
+     *
+     * @param value The string, or null.
+     * @return The string's pool reference, or NONE for null.
+     */
+    private int intern(String value) {
+        if (value == null) {
+            return BinaryCatalog.NONE;
+        }
+        Integer reference = poolReferences.get(value);
+        if (reference != null) {
+            return reference;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String longer than 65535 bytes: " + value.substring(0, 40) + "...");
+        }
+        reference = pool.size();
+        pool.write(bytes.length >>> 8);
+        pool.write(bytes.length);
+        pool.write(bytes, 0, bytes.length);
+        poolReferences.put(value, reference);
+        return reference;
+    }
+}
\ No newline at end of file
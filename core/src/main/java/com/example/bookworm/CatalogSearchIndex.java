@@ -0,0 +1,447 @@
+package com.example.bookworm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * CatalogSearchIndex is an in-memory search index over the titles and authors of a catalog.
+ * Titles and authors are split into lower-case tokens and stored in a prefix trie; each
+ * node that ends a token carries the postings (catalog positions) for that token, which
+ * together form the inverted index.
+ *
+ * Every trie node also keeps the best few postings of its whole subtree, ranked when the
+ * index is built, so a single-word prefix query is answered by walking the prefix alone.
+ * Multi-word queries intersect the postings of every word, starting from the most selective
+ * one, so every book matching all the words is ranked; only the matches are read from the
+ * catalog to be scored.
+ */
+public class CatalogSearchIndex {
+
+    /** Maximum number of results returned by a query. */
+    static final int MAX_RESULTS = 20;
+
+    /** Base score for a match in the title. */
+    private static final int TITLE_SCORE = 1000;
+
+    /** Base score for a match in the author list. */
+    private static final int AUTHOR_SCORE = 500;
+
+    /** The catalog the index was built from, used to verify multi-word matches. */
+    private final CatalogSource source;
+
+    /** The root of the token trie. */
+    private final Node root = new Node();
+
+    /**
+     * A node in the token trie.
+     */
+    private static class Node {
+
+        /** Characters leading to each child, parallel to {@link #children}. */
+        char[] keys = new char[0];
+
+        /** Child nodes. */
+        Node[] children = new Node[0];
+
+        /** Catalog positions of books containing the token ending at this node. Build time only. */
+        int[] postings;
+
+        /** Scores parallel to {@link #postings}. Build time only. */
+        int[] postingScores;
+
+        /** Number of valid entries in {@link #postings}. */
+        int postingCount;
+
+        /** Total number of postings in this subtree. */
+        int subtreeCount;
+
+        /** Best positions in this subtree, highest score first. */
+        int[] top = new int[0];
+
+        /** Scores parallel to {@link #top}. */
+        int[] topScores = new int[0];
+
+        /**
+         * Finds the child reached by a character.
+         *
+         * @param c The next character.
+         * @return The child, or null if there is none.
+         */
+        Node child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Finds or creates the child reached by a character.
+         *
+         * @param c The next character.
+         * @return The existing or new child.
+         */
+        Node childOrCreate(char c) {
+            Node existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            Node created = new Node();
+            children[children.length - 1] = created;
+            return created;
+        }
+
+        /**
+         * Records that the book at a position contains this node's token.
+         *
+         * @param position The catalog position.
+         * @param score    How well the token represents the book.
+         */
+        void addPosting(int position, int score) {
+            if (postings == null) {
+                postings = new int[2];
+                postingScores = new int[2];
+            } else if (postingCount == postings.length) {
+                postings = Arrays.copyOf(postings, postingCount * 2);
+                postingScores = Arrays.copyOf(postingScores, postingCount * 2);
+            }
+            postings[postingCount] = position;
+            postingScores[postingCount] = score;
+            postingCount++;
+        }
+    }
+
+    /**
+     * Builds an index over every book in a catalog. This reads the whole catalog
+     * page by page, so it must be called off the UI thread.
+     *
+     * @param source The catalog to index.
+     */
+    public CatalogSearchIndex(CatalogSource source) {
+        this.source = source;
+
+        int count = source.getCount();
+        for (int offset = 0; offset < count; offset += PagedCatalog.PAGE_SIZE) {
+            List<Book> page = source.loadRange(offset, PagedCatalog.PAGE_SIZE);
+            for (int i = 0; i < page.size(); i++) {
+                indexBook(offset + i, page.get(i));
+            }
+        }
+        finish(root);
+    }
+
+    /**
+     * Searches the catalog. The last word of the query is matched as a prefix so results
+     * can be shown while the user is still typing.
+     *
+     * @param query The text typed by the user.
+     * @return Catalog positions of the best matches, best first. Empty if nothing matches.
+     */
+    public int[] search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new int[0];
+        }
+
+        Node[] nodes = new Node[tokens.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = find(tokens.get(i));
+            if (nodes[i] == null) {
+                return new int[0];
+            }
+        }
+
+        if (nodes.length == 1) {
+            return Arrays.copyOf(nodes[0].top, Math.min(nodes[0].top.length, MAX_RESULTS));
+        }
+
+        // Start from the word with the fewest postings, so the candidate set is smallest
+        Arrays.sort(nodes, (a, b) -> Integer.compare(a.subtreeCount, b.subtreeCount));
+        int[] candidates = positionsOf(nodes[0]);
+        for (int i = 1; i < nodes.length && candidates.length > 0; i++) {
+            candidates = retainPostings(candidates, nodes[i]);
+        }
+
+        int[] results = new int[MAX_RESULTS];
+        int[] resultScores = new int[MAX_RESULTS];
+        int resultCount = 0;
+        for (int c = 0; c < candidates.length; c++) {
+            int position = candidates[c];
+            List<Book> loaded = source.loadRange(position, 1);
+            if (loaded.isEmpty()) continue;
+
+            int score = scoreAll(loaded.get(0), tokens);
+            if (score > 0) {
+                resultCount = insertRanked(results, resultScores, resultCount, position, score);
+            }
+        }
+        return Arrays.copyOf(results, resultCount);
+    }
+
+    /**
+     * Splits text into lower-case alphanumeric tokens.
+     *
+     * @param text The text to split.
+     * @return The tokens, in order.
+     */
+    static List<String> tokenize(String text) {
+        ArrayList<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds the title and author tokens of one book to the trie.
+     *
+     * @param position The catalog position of the book.
+     * @param book     The book to index.
+     */
+    private void indexBook(int position, Book book) {
+        // Shorter titles rank higher, as do words near the start of the title
+        int lengthPenalty = Math.min(book.getTitle().length(), 100);
+
+        List<String> titleTokens = tokenize(book.getTitle());
+        for (int i = 0; i < titleTokens.size(); i++) {
+            insert(titleTokens.get(i), position, TITLE_SCORE - 10 * Math.min(i, 20) - lengthPenalty);
+        }
+        List<String> authorTokens = tokenize(book.getAuthor());
+        for (int i = 0; i < authorTokens.size(); i++) {
+            insert(authorTokens.get(i), position, AUTHOR_SCORE - 10 * Math.min(i, 20) - lengthPenalty);
+        }
+    }
+
+    /**
+     * Inserts one token occurrence into the trie.
+     *
+     * @param token    The token.
+     * @param position The catalog position of the book containing it.
+     * @param score    The score of this occurrence.
+     */
+    private void insert(String token, int position, int score) {
+        Node node = root;
+        for (int i = 0; i < token.length(); i++) {
+            node = node.childOrCreate(token.charAt(i));
+        }
+        node.addPosting(position, score);
+    }
+
+    /**
+     * Computes subtree counts and top results bottom-up, then drops build-time postings
+     * scores that are no longer needed.
+     *
+     * @param node The subtree to finish.
+     */
+    private static void finish(Node node) {
+        int[] top = new int[MAX_RESULTS];
+        int[] topScores = new int[MAX_RESULTS];
+        int topCount = 0;
+        int subtreeCount = node.postingCount;
+
+        for (int i = 0; i < node.postingCount; i++) {
+            topCount = insertRanked(top, topScores, topCount, node.postings[i], node.postingScores[i]);
+        }
+        for (Node child : node.children) {
+            finish(child);
+            subtreeCount += child.subtreeCount;
+            for (int i = 0; i < child.top.length; i++) {
+                topCount = insertRanked(top, topScores, topCount, child.top[i], child.topScores[i]);
+            }
+        }
+
+        node.subtreeCount = subtreeCount;
+        node.top = Arrays.copyOf(top, topCount);
+        node.topScores = Arrays.copyOf(topScores, topCount);
+        if (node.postings != null) {
+            node.postings = Arrays.copyOf(node.postings, node.postingCount);
+            node.postingScores = null;
+        }
+    }
+
+    /**
+     * Inserts a position into a bounded ranked list, keeping each position at most once
+     * with its best score.
+     *
+     * @param positions The ranked positions.
+     * @param scores    Scores parallel to {@code positions}.
+     * @param count     Number of valid entries.
+     * @param position  The position to insert.
+     * @param score     Its score.
+     * @return The new number of valid entries.
+     */
+    private static int insertRanked(int[] positions, int[] scores, int count, int position, int score) {
+        for (int i = 0; i < count; i++) {
+            if (positions[i] == position) {
+                if (scores[i] >= score) {
+                    return count;
+                }
+                // Remove the weaker entry and re-insert below
+                System.arraycopy(positions, i + 1, positions, i, count - i - 1);
+                System.arraycopy(scores, i + 1, scores, i, count - i - 1);
+                count--;
+                break;
+            }
+        }
+
+        int index = count;
+        while (index > 0 && scores[index - 1] < score) {
+            index--;
+        }
+        if (index >= positions.length) {
+            return count;
+        }
+        int moved = Math.min(count, positions.length - 1) - index;
+        System.arraycopy(positions, index, positions, index + 1, moved);
+        System.arraycopy(scores, index, scores, index + 1, moved);
+        positions[index] = position;
+        scores[index] = score;
+        return Math.min(count + 1, positions.length);
+    }
+
+    /**
+     * Walks the trie along a prefix.
+     *
+     * @param prefix The prefix to look up.
+     * @return The node for the prefix, or null if no token starts with it.
+     */
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Gets the distinct positions of the books with a token in a subtree.
+     *
+     * @param node The subtree root.
+     * @return The positions, in ascending order.
+     */
+    private static int[] positionsOf(Node node) {
+        int[] positions = new int[node.subtreeCount];
+        int count = collect(node, positions, 0);
+        Arrays.sort(positions, 0, count);
+
+        // A book appears once per matching token
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || positions[distinct - 1] != positions[i]) {
+                positions[distinct++] = positions[i];
+            }
+        }
+        return Arrays.copyOf(positions, distinct);
+    }
+
+    /**
+     * Gathers the postings of a subtree.
+     *
+     * @param node      The subtree root.
+     * @param positions Receives the postings; it has room for the whole subtree.
+     * @param count     Number of entries already in the buffer.
+     * @return The new number of entries in the buffer.
+     */
+    private static int collect(Node node, int[] positions, int count) {
+        for (int i = 0; i < node.postingCount; i++) {
+            positions[count++] = node.postings[i];
+        }
+        for (Node child : node.children) {
+            count = collect(child, positions, count);
+        }
+        return count;
+    }
+
+    /**
+     * Keeps the candidates that also have a token in a subtree. The subtree's postings are
+     * scanned once and looked up among the sorted candidates, so nothing the size of the
+     * subtree is allocated.
+     *
+     * @param candidates The candidate positions, in ascending order.
+     * @param node       The subtree root of another query word.
+     * @return The candidates found in the subtree, in ascending order.
+     */
+    private static int[] retainPostings(int[] candidates, Node node) {
+        boolean[] found = new boolean[candidates.length];
+        mark(node, candidates, found);
+
+        int kept = 0;
+        int[] retained = new int[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            if (found[i]) {
+                retained[kept++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(retained, kept);
+    }
+
+    /**
+     * Marks the candidates that have a posting in a subtree.
+     *
+     * @param node       The subtree root.
+     * @param candidates The candidate positions, in ascending order.
+     * @param found      Set to true for each candidate found.
+     */
+    private static void mark(Node node, int[] candidates, boolean[] found) {
+        for (int i = 0; i < node.postingCount; i++) {
+            int index = Arrays.binarySearch(candidates, node.postings[i]);
+            if (index >= 0) {
+                found[index] = true;
+            }
+        }
+        for (Node child : node.children) {
+            mark(child, candidates, found);
+        }
+    }
+
+    /**
+     * Scores a book against every word of a query. Each word must prefix-match a token of
+     * the title or author; the book's score is that of its weakest word.
+     *
+     * @param book   The candidate book.
+     * @param tokens The query words.
+     * @return The score, or 0 if some word does not match.
+     */
+    private static int scoreAll(Book book, List<String> tokens) {
+        int lengthPenalty = Math.min(book.getTitle().length(), 100);
+        List<String> titleTokens = tokenize(book.getTitle());
+        List<String> authorTokens = tokenize(book.getAuthor());
+
+        int weakest = Integer.MAX_VALUE;
+        for (String token : tokens) {
+            int best = 0;
+            for (int i = 0; i < titleTokens.size(); i++) {
+                if (titleTokens.get(i).startsWith(token)) {
+                    best = Math.max(best, TITLE_SCORE - 10 * Math.min(i, 20) - lengthPenalty);
+                }
+            }
+            for (int i = 0; i < authorTokens.size(); i++) {
+                if (authorTokens.get(i).startsWith(token)) {
+                    best = Math.max(best, AUTHOR_SCORE - 10 * Math.min(i, 20) - lengthPenalty);
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            weakest = Math.min(weakest, best);
+        }
+        return weakest;
+    }
+}
\ No newline at end of file
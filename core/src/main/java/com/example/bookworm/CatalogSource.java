@@ -0,0 +1,27 @@
+package com.example.bookworm;
+
+import java.util.List;
+
+/**
+ * CatalogSource gives positional, page-at-a-time access to the library's catalog.
+ * Implementations may be backed by memory, a file or a network service; callers never
+ * need the whole catalog at once, only the range they are about to display.
+ */
+public interface CatalogSource {
+
+    /**
+     * Gets the total number of books in the catalog.
+     *
+     * @return The catalog size.
+     */
+    int getCount();
+
+    /**
+     * Loads a contiguous range of books. May block, so it must not be called on the UI thread.
+     *
+     * @param offset The position of the first book to load.
+     * @param limit  The maximum number of books to load.
+     * @return The books in the range, which is shorter than {@code limit} at the end of the catalog.
+     */
+    List<Book> loadRange(int offset, int limit);
+}
\ No newline at end of file
@@ -0,0 +1,370 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+
+/**
+ * CatalogStore is the local copy of the catalog kept up to date by {@link CatalogSyncEngine}.
+ *
+ * The store's directory holds a compiled catalog (catalog.bin, the layout read by
+ * {@link BinaryCatalog}), the version it was compiled at, and a change log. Until the first
+ * sync that changes anything, the catalog bundled with the app serves as the compiled
+ * catalog at version 0. Synced changes are appended to the log one JSON line at a time as
+ * they are streamed in; none of them is kept in memory. A checkpoint forces the log to
+ * disk; the store's version is that of the last change in the log, so a sync that is
+ * interrupted resumes after the last change that reached the disk.
+ *
+ * Compaction streams the log, one change at a time, over a {@link CatalogCompiler} loaded
+ * with the compiled catalog, writes the result as a new compiled catalog, which replaces the
+ * old one by a rename, and then empties the log. If the process dies in between, the log is
+ * replayed over the new catalog on the next open; changes are idempotent, so that is harmless.
+ *
+ * The store also keeps the ETag the service sent with the catalog it holds, so the next
+ * sync can send it back as a validator.
+ *
+ * The store is not thread-safe; the sync engine uses it from one thread.
+ */
+public final class CatalogStore implements Closeable {
+
+    /** Name of the compiled catalog file. */
+    public static final String CATALOG_FILE_NAME = "catalog.bin";
+
+    /** Name of the file holding the compiled catalog's version. */
+    private static final String VERSION_FILE_NAME = "catalog.version";
+
+    /** Name of the file holding the ETag of the synced catalog. */
+    private static final String ETAG_FILE_NAME = "catalog.etag";
+
+    /** Name of the change log. */
+    private static final String LOG_FILE_NAME = "changes.log";
+
+    /** Suffix of files being written. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The store's directory. */
+    private final File directory;
+
+    /** The catalog bundled with the app, used until a catalog is compiled here. */
+    private final ByteBuffer bundledCatalog;
+
+    /** Version of the compiled catalog. */
+    private long compiledVersion;
+
+    /** Version of the last change applied. */
+    private long version;
+
+    /** Number of logged changes not compacted yet. */
+    private int loggedCount;
+
+    /** ETag of the synced catalog, or null if the service sent none. */
+    private String etag;
+
+    /** Stream of the change log, or null until the first change is appended. */
+    private FileOutputStream logStream;
+
+    /** Writer appending to the change log, or null until the first change is appended. */
+    private Writer logWriter;
+
+    /**
+     * Opens the store in a directory, replaying the change log of an earlier sync that was
+     * not compacted. A partly written last line is cut off.
+     *
+     * @param directory      The store's directory; it is created if needed.
+     * @param bundledCatalog The compiled catalog bundled with the app.
+     * @throws IOException If the directory or the log cannot be read.
+     */
+    public CatalogStore(File directory, ByteBuffer bundledCatalog) throws IOException {
+        this.directory = directory;
+        this.bundledCatalog = bundledCatalog;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        File versionFile = new File(directory, VERSION_FILE_NAME);
+        if (getCatalogFile().isFile() && versionFile.isFile()) {
+            String text = new String(Files.readAllBytes(versionFile.toPath()), StandardCharsets.UTF_8).trim();
+            try {
+                compiledVersion = Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt catalog version: " + text, e);
+            }
+        }
+        version = compiledVersion;
+        File etagFile = new File(directory, ETAG_FILE_NAME);
+        if (etagFile.isFile()) {
+            etag = new String(Files.readAllBytes(etagFile.toPath()), StandardCharsets.UTF_8);
+        }
+        replayLog();
+    }
+
+    /**
+     * Gets the version of the catalog as stored, including changes not compacted yet.
+     *
+     * @return The version of the last change applied, or 0 for the bundled catalog.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of changes waiting to be compacted.
+     *
+     * @return The number of logged changes.
+     */
+    public int getPendingCount() {
+        return loggedCount;
+    }
+
+    /**
+     * Gets the ETag the service sent with the catalog last synced.
+     *
+     * @return The ETag, or null if there is none.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Records the ETag the service sent with the catalog now held.
+     *
+     * @param newEtag The ETag, or null if the service sent none.
+     * @throws IOException If the ETag cannot be written.
+     */
+    public void setEtag(String newEtag) throws IOException {
+        if (newEtag == null) {
+            Files.deleteIfExists(new File(directory, ETAG_FILE_NAME).toPath());
+        } else {
+            writeFile(ETAG_FILE_NAME, newEtag);
+        }
+        etag = newEtag;
+    }
+
+    /**
+     * Gets the compiled catalog file.
+     *
+     * @return The file; it does not exist until the first compaction.
+     */
+    public File getCatalogFile() {
+        return new File(directory, CATALOG_FILE_NAME);
+    }
+
+    /**
+     * Appends a change to the log. The change is buffered until the next checkpoint.
+     *
+     * @param change A change with a version above the store's.
+     * @throws IOException If the log cannot be written.
+     */
+    public void apply(CatalogChange change) throws IOException {
+        if (change.getVersion() <= version) {
+            throw new IllegalArgumentException("Change " + change.getVersion() + " is not after " + version);
+        }
+        if (logWriter == null) {
+            logStream = new FileOutputStream(new File(directory, LOG_FILE_NAME), true);
+            logWriter = new BufferedWriter(new OutputStreamWriter(logStream, StandardCharsets.UTF_8));
+        }
+        JsonWriter json = new JsonWriter(logWriter);
+        change.write(json);
+        json.flush();
+        logWriter.write('\n');
+        loggedCount++;
+        version = change.getVersion();
+    }
+
+    /**
+     * Forces the logged changes to disk, so a later sync resumes after them.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        if (logWriter != null) {
+            logWriter.flush();
+            logStream.getFD().sync();
+        }
+    }
+
+    /**
+     * Merges the logged changes into a new compiled catalog and empties the log. Unchanged
+     * books keep their positions, changed books are updated in place, removed books are
+     * dropped and new books are appended in the order they were first changed.
+     *
+     * @throws IOException If the catalog cannot be read or written.
+     */
+    public void compact() throws IOException {
+        if (loggedCount == 0) {
+            return;
+        }
+        checkpoint();
+
+        CatalogCompiler compiler = new CatalogCompiler();
+        BinaryCatalog base = openCompiled();
+        for (int i = 0; i < base.getCount(); i++) {
+            Book book = base.get(i);
+            compiler.add(book.getId(), book.getTitle(), book.getAuthor(), base.getCoverName(i),
+                    book.getCoverImageUrl(), book.getWebsiteUrl());
+        }
+        readLog(change -> {
+            if (change.isDelete()) {
+                compiler.remove(change.getId());
+            } else {
+                compiler.upsert(change.getId(), change.getTitle(), change.getAuthor(), change.getCoverName(),
+                        change.getCoverUrl(), change.getWebsiteUrl());
+            }
+        });
+
+        File temp = new File(directory, CATALOG_FILE_NAME + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            compiler.writeTo(buffered);
+            buffered.flush();
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(getCatalogFile())) {
+            throw new IOException("Unable to replace " + getCatalogFile());
+        }
+        writeFile(VERSION_FILE_NAME, Long.toString(version));
+        compiledVersion = version;
+
+        // Only now may the log go: until here it is what makes the new catalog complete
+        closeLog();
+        Files.deleteIfExists(new File(directory, LOG_FILE_NAME).toPath());
+        loggedCount = 0;
+    }
+
+    /**
+     * Closes the change log. Logged changes that were not checkpointed may be lost.
+     *
+     * @throws IOException If the log cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closeLog();
+    }
+
+    /**
+     * Opens the catalog the log applies to: the compiled one, or the bundled one.
+     *
+     * @return The catalog, with no cover resolution.
+     * @throws IOException If the catalog cannot be read.
+     */
+    private BinaryCatalog openCompiled() throws IOException {
+        File file = getCatalogFile();
+        if (!file.isFile()) {
+            return new BinaryCatalog(bundledCatalog, coverName -> 0);
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            // The mapping stays valid after the file is closed
+            return new BinaryCatalog(input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length()),
+                    coverName -> 0);
+        }
+    }
+
+    /**
+     * Replays the change log to find the store's version and cuts off a partly written
+     * last line.
+     *
+     * @throws IOException If the log cannot be read or holds a corrupt complete line.
+     */
+    private void replayLog() throws IOException {
+        File logFile = new File(directory, LOG_FILE_NAME);
+        if (!logFile.isFile()) {
+            return;
+        }
+        long complete = readLog(change -> {
+            loggedCount++;
+            version = Math.max(version, change.getVersion());
+        });
+        if (complete < logFile.length()) {
+            try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+                file.setLength(complete);
+            }
+        }
+    }
+
+    /**
+     * Reads the change log one line at a time. Changes already in the compiled catalog,
+     * logged before a compaction finished, and a partly written last line are skipped.
+     *
+     * @param consumer Receives the changes, in log order.
+     * @return The length of the log's complete lines, in bytes.
+     * @throws IOException If the log cannot be read or holds a corrupt complete line.
+     */
+    private long readLog(Consumer<CatalogChange> consumer) throws IOException {
+        File logFile = new File(directory, LOG_FILE_NAME);
+        if (!logFile.isFile()) {
+            return 0;
+        }
+        long complete = 0;
+        long read = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(logFile))) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                read++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                CatalogChange change = CatalogChange.read(new JsonReader(new StringReader(text)));
+                if (change.getVersion() > compiledVersion) {
+                    consumer.accept(change);
+                }
+                line.reset();
+                complete = read;
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Writes a small file in the store's directory, replacing the old one by a rename.
+     *
+     * @param name The file name.
+     * @param text The file's content.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeFile(String name, String text) throws IOException {
+        File temp = new File(directory, name + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(new File(directory, name))) {
+            throw new IOException("Unable to replace " + name);
+        }
+    }
+
+    /**
+     * Closes the change log if it is open.
+     *
+     * @throws IOException If the log cannot be closed.
+     */
+    private void closeLog() throws IOException {
+        if (logWriter != null) {
+            Writer writer = logWriter;
+            logWriter = null;
+            logStream = null;
+            writer.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,274 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * CatalogSyncEngine brings a {@link CatalogStore} up to date with the catalog service.
+ *
+ * A sync asks for the changes since the store's version only: the version is sent as the
+ * "since" parameter, and the ETag the service sent with the last complete sync is sent
+ * back as an If-None-Match validator, so an up-to-date catalog costs a bodiless 304 reply. The request accepts gzip and the engine inflates the body itself,
+ * so the bytes it reports are the bytes that crossed the network. The response is parsed
+ * as a stream, one change at a time, and each change goes straight into the store's log;
+ * the payload is never held in memory as a whole.
+ *
+ * The store is checkpointed every {@value #CHECKPOINT_INTERVAL} changes and whenever the
+ * sync ends, including when it fails. The next sync asks for the changes after the last
+ * checkpointed one, so an interrupted sync resumes where it stopped instead of starting
+ * over. Once every change has arrived, the store is compacted into a new catalog.
+ *
+ * Protocol: {@code GET <service>/catalog/changes?since=<version>} answers 304 or 200 with
+ * an ETag identifying the latest version and a JSON object {"version": latest,
+ * "changes": [...]} whose changes (see {@link CatalogChange}) come in increasing version
+ * order. The ETag is opaque to the engine; it is stored and echoed unchanged.
+ *
+ * The engine holds no Android state, so it can be exercised against a local stand-in
+ * server in the tests. It blocks on the network and must be used off the UI thread.
+ */
+public final class CatalogSyncEngine {
+
+    /** Number of changes applied between checkpoints. */
+    static final int CHECKPOINT_INTERVAL = 256;
+
+    /** Timeout for connecting and for each read, in milliseconds. */
+    private static final int TIMEOUT_MILLIS = 15_000;
+
+    /** Time taken to apply the changes of a sync to the store. */
+    private static final LatencyHistogram APPLY_LATENCY = PerfMetrics.histogram("catalog.syncApply");
+
+    /** Time taken by a whole sync. */
+    private static final LatencyHistogram SYNC_LATENCY = PerfMetrics.histogram("catalog.sync");
+
+    /** Response body bytes received by syncs, as sent on the wire. */
+    private static final PerfCounter BYTES_TRANSFERRED = PerfMetrics.counter("catalog.syncBytes");
+
+    /** Base URL of the catalog service. */
+    private final URL serviceUrl;
+
+    /** The local catalog being synced. */
+    private final CatalogStore store;
+
+    /**
+     * Creates an engine.
+     *
+     * @param serviceUrl Base URL of the catalog service, ending with a slash.
+     * @param store      The local catalog to keep up to date.
+     */
+    public CatalogSyncEngine(URL serviceUrl, CatalogStore store) {
+        this.serviceUrl = serviceUrl;
+        this.store = store;
+    }
+
+    /**
+     * Fetches the changes since the store's version and applies them.
+     *
+     * @return What the sync did.
+     * @throws IOException If the service cannot be reached or the sync is interrupted; the
+     *                     changes received until then are kept and the next sync resumes
+     *                     after them.
+     */
+    public SyncReport sync() throws IOException {
+        long start = System.nanoTime();
+        long fromVersion = store.getVersion();
+        boolean resumed = store.getPendingCount() > 0;
+
+        URL url = new URL(serviceUrl, "catalog/changes?since=" + fromVersion);
+        HttpURLConnection connection;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+        } catch (ClassCastException e) {
+            throw new IOException("Not an HTTP URL: " + url);
+        }
+
+        int applied = 0;
+        long applyNanos = 0;
+        CountingInputStream wire = null;
+        CountingInputStream decoded = null;
+        try {
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setUseCaches(false);
+            // Asking for gzip explicitly turns off transparent decompression, so the
+            // wire bytes can be counted
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            if (store.getEtag() != null) {
+                connection.setRequestProperty("If-None-Match", store.getEtag());
+            }
+
+            int code = connection.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                if (resumed) {
+                    // Every change had arrived before the interruption; only compaction is left
+                    long applyStart = System.nanoTime();
+                    store.compact();
+                    applyNanos = System.nanoTime() - applyStart;
+                    // The validator now describes the catalog this store holds
+                    if (connection.getHeaderField("ETag") != null) {
+                        store.setEtag(connection.getHeaderField("ETag"));
+                    }
+                }
+                return finish(fromVersion, 0, resumed, 0, 0, applyNanos, start);
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + code + " for " + url);
+            }
+
+            wire = new CountingInputStream(connection.getInputStream());
+            InputStream body = "gzip".equalsIgnoreCase(connection.getContentEncoding())
+                    ? new GZIPInputStream(wire) : wire;
+            decoded = new CountingInputStream(body);
+
+            long latestVersion = -1;
+            try (JsonReader json = new JsonReader(new InputStreamReader(decoded, StandardCharsets.UTF_8))) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = json.nextName();
+                    if (name.equals("version")) {
+                        latestVersion = json.nextLong();
+                    } else if (name.equals("changes")) {
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            CatalogChange change = CatalogChange.read(json);
+                            if (change.getVersion() <= store.getVersion()) {
+                                // Already applied by an earlier, interrupted sync
+                                continue;
+                            }
+                            long applyStart = System.nanoTime();
+                            store.apply(change);
+                            applied++;
+                            if (applied % CHECKPOINT_INTERVAL == 0) {
+                                store.checkpoint();
+                            }
+                            applyNanos += System.nanoTime() - applyStart;
+                        }
+                        json.endArray();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            }
+            if (latestVersion < 0 || store.getVersion() < latestVersion) {
+                throw new IOException("Catalog sync ended at version " + store.getVersion()
+                        + " of " + latestVersion);
+            }
+
+            long applyStart = System.nanoTime();
+            store.compact();
+            applyNanos += System.nanoTime() - applyStart;
+            store.setEtag(connection.getHeaderField("ETag"));
+            return finish(fromVersion, applied, resumed, wire.getCount(), decoded.getCount(), applyNanos, start);
+        } finally {
+            // Keep whatever arrived, so that the next sync resumes after it
+            store.checkpoint();
+            if (wire != null) {
+                BYTES_TRANSFERRED.add(wire.getCount());
+            }
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Builds the report of a completed sync and records its timings.
+     *
+     * @param fromVersion      The store's version before the sync.
+     * @param applied          Number of changes applied.
+     * @param resumed          Whether an interrupted sync was continued.
+     * @param bytesTransferred Response body bytes as sent on the wire.
+     * @param bytesDecoded     Response body bytes after decompression.
+     * @param applyNanos       Time spent applying changes.
+     * @param start            The sync's start, from {@link System#nanoTime()}.
+     * @return The report.
+     */
+    private SyncReport finish(long fromVersion, int applied, boolean resumed, long bytesTransferred,
+                              long bytesDecoded, long applyNanos, long start) {
+        long totalNanos = System.nanoTime() - start;
+        APPLY_LATENCY.record(applyNanos);
+        SYNC_LATENCY.record(totalNanos);
+        return new SyncReport(fromVersion, store.getVersion(), applied, resumed,
+                bytesTransferred, bytesDecoded, applyNanos, totalNanos);
+    }
+
+    /**
+     * Counts the bytes read through it.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        /** Number of bytes read so far. */
+        private long count;
+
+        /**
+         * Wraps a stream.
+         *
+         * @param in The stream to count.
+         */
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Reads one byte.
+         *
+         * @return The byte, or -1 at the end of the stream.
+         * @throws IOException If reading fails.
+         */
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        /**
+         * Reads bytes into an array.
+         *
+         * @param buffer The destination.
+         * @param offset The first index to fill.
+         * @param length The maximum number of bytes.
+         * @return The number of bytes read, or -1 at the end of the stream.
+         * @throws IOException If reading fails.
+         */
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        /**
+         * Skips bytes, counting them as read.
+         *
+         * @param n The number of bytes to skip.
+         * @return The number of bytes skipped.
+         * @throws IOException If skipping fails.
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        /**
+         * Gets the number of bytes read so far.
+         *
+         * @return The byte count.
+         */
+        long getCount() {
+            return count;
+        }
+    }
+}
\ No newline at end of file
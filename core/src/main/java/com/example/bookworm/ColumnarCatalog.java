@@ -0,0 +1,288 @@
+package com.example.bookworm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ColumnarCatalog stores the catalog column by column instead of as one object per book.
+ * Authors are dictionary-encoded, so a name shared by many books is stored once and each
+ * book only holds an int code. Numeric catalog ids (ISBN-13) are packed into a long column,
+ * and cover resource ids live in a primitive array too. This avoids a Book object, an id
+ * string and a duplicate author string for every entry. Return dates belong to the user's
+ * list, not to the catalog, so they are not stored here.
+ *
+ * Book objects are created on demand as lightweight views when a position is read,
+ * which is what the paging layer does for the rows it displays.
+ */
+public class ColumnarCatalog implements CatalogSource {
+
+    /** Marks a book whose id is not numeric and is kept in {@link #textIds} instead. */
+    private static final long NON_NUMERIC_ID = -1L;
+
+    /** Catalog id (ISBN-13) of each book as a number, or NON_NUMERIC_ID. */
+    private final long[] numericIds;
+
+    /** Ids that are not purely numeric, or null if every id is numeric. */
+    private final String[] textIds;
+
+    /** Title of each book. */
+    private final String[] titles;
+
+    /** Dictionary code of each book's author. */
+    private final int[] authorCodes;
+
+    /** Distinct author names, indexed by dictionary code. */
+    private final String[] authorDictionary;
+
+    /** Cover drawable resource id of each book. */
+    private final int[] coverImageResIds;
+
+    /** Remote cover URL of each book, or null if every book uses a bundled cover. */
+    private final String[] coverImageUrls;
+
+    /** Website URL of each book. */
+    private final String[] websiteUrls;
+
+    /** Number of books in the catalog. */
+    private final int count;
+
+    /**
+     * Creates a catalog from filled columns. Use {@link Builder} instead.
+     *
+     * @param builder The builder holding the columns.
+     */
+    private ColumnarCatalog(Builder builder) {
+        this.count = builder.count;
+        this.numericIds = Arrays.copyOf(builder.numericIds, count);
+        this.textIds = (builder.textIds != null) ? Arrays.copyOf(builder.textIds, count) : null;
+        this.titles = Arrays.copyOf(builder.titles, count);
+        this.authorCodes = Arrays.copyOf(builder.authorCodes, count);
+        this.authorDictionary = builder.authorDictionary.toArray(new String[0]);
+        this.coverImageResIds = Arrays.copyOf(builder.coverImageResIds, count);
+        this.coverImageUrls = (builder.coverImageUrls != null) ? Arrays.copyOf(builder.coverImageUrls, count) : null;
+        this.websiteUrls = Arrays.copyOf(builder.websiteUrls, count);
+    }
+
+    /**
+     * Gets the number of books in the catalog.
+     *
+     * @return The catalog size.
+     */
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Creates views for a range of books.
+     *
+     * @param offset The position of the first book.
+     * @param limit  The maximum number of books.
+     * @return New Book views for the range.
+     */
+    @Override
+    public List<Book> loadRange(int offset, int limit) {
+        int start = Math.min(Math.max(offset, 0), count);
+        int end = (int) Math.min((long) start + limit, count);
+        ArrayList<Book> books = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            books.add(get(i));
+        }
+        return books;
+    }
+
+    /**
+     * Creates a view of the book at a position.
+     *
+     * @param position The catalog position.
+     * @return A new Book holding that position's data.
+     */
+    public Book get(int position) {
+        long numericId = numericIds[position];
+        String id = (numericId != NON_NUMERIC_ID) ? Long.toString(numericId) : textIds[position];
+        String coverImageUrl = (coverImageUrls != null) ? coverImageUrls[position] : null;
+        return new Book(id, titles[position], authorDictionary[authorCodes[position]],
+                coverImageResIds[position], coverImageUrl, websiteUrls[position]);
+    }
+
+    /**
+     * Gets the number of distinct authors in the catalog.
+     *
+     * @return The size of the author dictionary.
+     */
+    public int getAuthorCount() {
+        return authorDictionary.length;
+    }
+
+    /**
+     * Builder that appends books column by column, interning authors as it goes.
+     */
+    public static class Builder {
+
+        /** Numeric catalog id column. */
+        private long[] numericIds;
+
+        /** Text catalog id column, allocated when the first non-numeric id is added. */
+        private String[] textIds;
+
+        /** Title column. */
+        private String[] titles;
+
+        /** Author code column. */
+        private int[] authorCodes;
+
+        /** Cover resource id column. */
+        private int[] coverImageResIds;
+
+        /** Remote cover URL column, allocated when the first book with a cover URL is added. */
+        private String[] coverImageUrls;
+
+        /** Website URL column. */
+        private String[] websiteUrls;
+
+        /** Distinct author names in order of first appearance. */
+        private final ArrayList<String> authorDictionary = new ArrayList<>();
+
+        /** Dictionary code of each distinct author name. */
+        private final HashMap<String, Integer> authorCodesByName = new HashMap<>();
+
+        /** Number of books added so far. */
+        private int count;
+
+        /**
+         * Creates a builder.
+         *
+         * @param expectedCount Expected number of books, used to size the columns.
+         */
+        public Builder(int expectedCount) {
+            int capacity = Math.max(expectedCount, 8);
+            numericIds = new long[capacity];
+            titles = new String[capacity];
+            authorCodes = new int[capacity];
+            coverImageResIds = new int[capacity];
+            websiteUrls = new String[capacity];
+        }
+
+        /**
+         * Appends a book.
+         *
+         * @param id              The catalog id (ISBN-13).
+         * @param title           The title.
+         * @param author          The author.
+         * @param coverImageResId The cover drawable resource id.
+         * @param websiteUrl      The website URL.
+         * @return This builder.
+         */
+        public Builder add(String id, String title, String author, int coverImageResId, String websiteUrl) {
+            return add(id, title, author, coverImageResId, null, websiteUrl);
+        }
+
+        /**
+         * Appends a book with a remote cover.
+         *
+         * @param id              The catalog id (ISBN-13).
+         * @param title           The title.
+         * @param author          The author.
+         * @param coverImageResId The bundled cover drawable resource id (0 if none).
+         * @param coverImageUrl   The remote cover URL, or null.
+         * @param websiteUrl      The website URL.
+         * @return This builder.
+         */
+        public Builder add(String id, String title, String author, int coverImageResId, String coverImageUrl,
+                           String websiteUrl) {
+            if (count == numericIds.length) {
+                grow();
+            }
+
+            Integer authorCode = authorCodesByName.get(author);
+            if (authorCode == null) {
+                authorCode = authorDictionary.size();
+                authorDictionary.add(author);
+                authorCodesByName.put(author, authorCode);
+            }
+
+            long numericId = parseNumericId(id);
+            numericIds[count] = numericId;
+            if (numericId == NON_NUMERIC_ID) {
+                if (textIds == null) {
+                    textIds = new String[numericIds.length];
+                }
+                textIds[count] = id;
+            }
+            titles[count] = title;
+            authorCodes[count] = authorCode;
+            coverImageResIds[count] = coverImageResId;
+            if (coverImageUrl != null && !coverImageUrl.isEmpty()) {
+                if (coverImageUrls == null) {
+                    coverImageUrls = new String[numericIds.length];
+                }
+                coverImageUrls[count] = coverImageUrl;
+            }
+            websiteUrls[count] = websiteUrl;
+            count++;
+            return this;
+        }
+
+        /**
+         * Appends a book's catalog data. Any return date on the book is ignored.
+         *
+         * @param book The book to append.
+         * @return This builder.
+         */
+        public Builder add(Book book) {
+            return add(book.getId(), book.getTitle(), book.getAuthor(), book.getCoverImageResId(),
+                    book.getCoverImageUrl(), book.getWebsiteUrl());
+        }
+
+        /**
+         * Creates the catalog, trimming the columns to size.
+         *
+         * @return The finished catalog.
+         */
+        public ColumnarCatalog build() {
+            return new ColumnarCatalog(this);
+        }
+
+        /**
+         * Packs an id into a long if it is a canonical decimal number (such as an ISBN-13),
+         * so that it converts back to exactly the same string.
+         *
+         * @param id The catalog id.
+         * @return The numeric id, or NON_NUMERIC_ID if it must be stored as text.
+         */
+        private static long parseNumericId(String id) {
+            if (id == null || id.isEmpty() || id.length() > 18 || (id.length() > 1 && id.charAt(0) == '0')) {
+                return NON_NUMERIC_ID;
+            }
+            long value = 0;
+            for (int i = 0; i < id.length(); i++) {
+                char c = id.charAt(i);
+                if (c < '0' || c > '9') {
+                    return NON_NUMERIC_ID;
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        /**
+         * Doubles the capacity of every column.
+         */
+        private void grow() {
+            int capacity = numericIds.length * 2;
+            numericIds = Arrays.copyOf(numericIds, capacity);
+            if (textIds != null) {
+                textIds = Arrays.copyOf(textIds, capacity);
+            }
+            titles = Arrays.copyOf(titles, capacity);
+            authorCodes = Arrays.copyOf(authorCodes, capacity);
+            coverImageResIds = Arrays.copyOf(coverImageResIds, capacity);
+            if (coverImageUrls != null) {
+                coverImageUrls = Arrays.copyOf(coverImageUrls, capacity);
+            }
+            websiteUrls = Arrays.copyOf(websiteUrls, capacity);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,423 @@
+package com.example.bookworm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CoverHttpCache downloads remote cover images into a bounded disk cache.
+ *
+ * Each cached image is stored next to a small metadata file holding its ETag,
+ * Last-Modified date and expiry. A cached image is served without any request while it
+ * is fresh according to the server's Cache-Control max-age; after that it is revalidated
+ * with a conditional request, and a 304 reply reuses the cached bytes. Responses are
+ * streamed straight to disk, so a large image is never buffered in memory.
+ *
+ * Concurrent requests for the same URL are coalesced: the first caller downloads while
+ * the others wait for and share its result. When the cache grows past its budget, the
+ * least recently used images are deleted. The class holds no Android state, so it can
+ * be exercised against a local HTTP server with a fake {@link BookwormClock}.
+ */
+public class CoverHttpCache {
+
+    /** Suffix of cached image files. */
+    private static final String BODY_SUFFIX = ".img";
+
+    /** Suffix of metadata files. */
+    private static final String META_SUFFIX = ".meta";
+
+    /** Suffix of files being written. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Metadata key holding the ETag validator. */
+    private static final String META_ETAG = "etag";
+
+    /** Metadata key holding the Last-Modified validator. */
+    private static final String META_LAST_MODIFIED = "lastModified";
+
+    /** Metadata key holding the expiry in epoch milliseconds. */
+    private static final String META_EXPIRES = "expires";
+
+    /** Timeout for connecting and for each read, in milliseconds. */
+    private static final int TIMEOUT_MILLIS = 15_000;
+
+    /** Size of the buffer used to stream responses to disk. */
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /** Directory holding the cached images and their metadata. */
+    private final File directory;
+
+    /** Maximum total size of the cached images, in bytes. */
+    private final long maxBytes;
+
+    /** Source of the current time, used for freshness and LRU order. */
+    private final BookwormClock clock;
+
+    /** Downloads in progress, by URL. */
+    private final ConcurrentHashMap<String, CompletableFuture<File>> inFlight = new ConcurrentHashMap<>();
+
+    /** Number of HTTP requests sent. */
+    private final AtomicLong networkRequests = new AtomicLong();
+
+    /** Number of lookups served from the cache without any request. */
+    private final AtomicLong freshHits = new AtomicLong();
+
+    /** Number of lookups served from the cache after a 304 reply. */
+    private final AtomicLong revalidatedHits = new AtomicLong();
+
+    /** Number of lookups that downloaded the image. */
+    private final AtomicLong downloads = new AtomicLong();
+
+    /** Number of lookups that shared a download already in progress. */
+    private final AtomicLong coalescedRequests = new AtomicLong();
+
+    /**
+     * Creates a cache in a directory. The directory is created if needed.
+     *
+     * @param directory The cache directory; nothing else should be stored in it.
+     * @param maxBytes  Maximum total size of the cached images, in bytes.
+     * @param clock     Source of the current time.
+     */
+    public CoverHttpCache(File directory, long maxBytes, BookwormClock clock) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a local file holding the image at a URL, downloading or revalidating it
+     * if needed. Blocks while the network is used, so it must be called off the UI thread.
+     * If revalidation fails because the network is unavailable, the cached copy is returned.
+     *
+     * @param url The image URL.
+     * @return The cached image file; callers must not modify or delete it.
+     * @throws IOException If the image is neither cached nor downloadable.
+     */
+    public File get(String url) throws IOException {
+        CompletableFuture<File> download = new CompletableFuture<>();
+        CompletableFuture<File> existing = inFlight.putIfAbsent(url, download);
+        if (existing != null) {
+            // Someone else is already fetching this URL
+            coalescedRequests.incrementAndGet();
+            return await(existing);
+        }
+
+        try {
+            File file = load(url);
+            download.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(url, download);
+        }
+    }
+
+    /**
+     * Gets the number of HTTP requests sent, including conditional ones.
+     *
+     * @return The request count.
+     */
+    public long getNetworkRequestCount() {
+        return networkRequests.get();
+    }
+
+    /**
+     * Gets the number of lookups served from fresh cache entries without a request.
+     *
+     * @return The fresh hit count.
+     */
+    public long getFreshHitCount() {
+        return freshHits.get();
+    }
+
+    /**
+     * Gets the number of lookups served from the cache after the server replied 304.
+     *
+     * @return The revalidated hit count.
+     */
+    public long getRevalidatedHitCount() {
+        return revalidatedHits.get();
+    }
+
+    /**
+     * Gets the number of lookups that downloaded the full image.
+     *
+     * @return The download count.
+     */
+    public long getDownloadCount() {
+        return downloads.get();
+    }
+
+    /**
+     * Gets the number of lookups that shared another caller's download.
+     *
+     * @return The coalesced request count.
+     */
+    public long getCoalescedCount() {
+        return coalescedRequests.get();
+    }
+
+    /**
+     * Serves a URL from the cache, revalidating or downloading it as needed.
+     * Only one thread loads a given URL at a time.
+     *
+     * @param url The image URL.
+     * @return The cached image file.
+     */
+    private File load(String url) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create cover cache directory " + directory);
+        }
+
+        String name = cacheName(url);
+        File body = new File(directory, name + BODY_SUFFIX);
+        File metaFile = new File(directory, name + META_SUFFIX);
+        Properties meta = body.isFile() ? readMeta(metaFile) : null;
+        long nowMillis = clock.currentTimeMillis();
+
+        if (meta != null && nowMillis < parseLong(meta.getProperty(META_EXPIRES))) {
+            freshHits.incrementAndGet();
+            body.setLastModified(nowMillis);
+            return body;
+        }
+
+        HttpURLConnection connection;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+        } catch (ClassCastException e) {
+            throw new IOException("Not an HTTP URL: " + url);
+        }
+        try {
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setUseCaches(false);
+            if (meta != null) {
+                // Ask the server to confirm our copy instead of sending it again
+                String etag = meta.getProperty(META_ETAG);
+                String lastModified = meta.getProperty(META_LAST_MODIFIED);
+                if (etag != null) connection.setRequestProperty("If-None-Match", etag);
+                if (lastModified != null) connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            networkRequests.incrementAndGet();
+            int code = connection.getResponseCode();
+
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && meta != null) {
+                revalidatedHits.incrementAndGet();
+                // A 304 may carry updated validators or freshness
+                writeMeta(metaFile, responseMeta(connection, meta, nowMillis));
+                body.setLastModified(nowMillis);
+                return body;
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + code + " for " + url);
+            }
+
+            // Stream to a temporary file so a failed download never replaces a good copy
+            File temp = new File(directory, name + TEMP_SUFFIX);
+            try (InputStream in = connection.getInputStream();
+                 OutputStream out = new FileOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (!temp.renameTo(body)) {
+                temp.delete();
+                throw new IOException("Cannot store cover for " + url);
+            }
+            body.setLastModified(nowMillis);
+            writeMeta(metaFile, responseMeta(connection, null, nowMillis));
+            downloads.incrementAndGet();
+
+            trim(body);
+            return body;
+        } catch (IOException e) {
+            if (meta != null && body.isFile()) {
+                // Offline or server error: a stale cover is better than none
+                return body;
+            }
+            throw e;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Builds the metadata to store for a response.
+     *
+     * @param connection The connection holding the response headers.
+     * @param previous   The metadata of the revalidated entry, or null for a new download.
+     * @param nowMillis  The time the response was received.
+     * @return The metadata for the cached entry.
+     */
+    private static Properties responseMeta(HttpURLConnection connection, Properties previous, long nowMillis) {
+        Properties meta = new Properties();
+        if (previous != null) {
+            meta.putAll(previous);
+        }
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        if (etag != null) meta.setProperty(META_ETAG, etag);
+        if (lastModified != null) meta.setProperty(META_LAST_MODIFIED, lastModified);
+        meta.setProperty(META_EXPIRES, Long.toString(nowMillis + maxAgeMillis(connection.getHeaderField("Cache-Control"))));
+        return meta;
+    }
+
+    /**
+     * Reads how long a response may be used without revalidation.
+     *
+     * @param cacheControl The Cache-Control header, or null.
+     * @return The max-age in milliseconds, or 0 if the response must always be revalidated.
+     */
+    private static long maxAgeMillis(String cacheControl) {
+        if (cacheControl == null) return 0;
+        long maxAgeSeconds = 0;
+        for (String directive : cacheControl.split(",")) {
+            String trimmed = directive.trim().toLowerCase(Locale.ROOT);
+            if (trimmed.equals("no-cache") || trimmed.equals("no-store")) {
+                return 0;
+            }
+            if (trimmed.startsWith("max-age=")) {
+                maxAgeSeconds = Math.max(0, parseLong(trimmed.substring("max-age=".length())));
+            }
+        }
+        return maxAgeSeconds * 1000L;
+    }
+
+    /**
+     * Deletes the least recently used images until the cache fits its budget.
+     *
+     * @param keep The image just stored, which is never deleted.
+     */
+    private void trim(File keep) {
+        File[] bodies = directory.listFiles((dir, fileName) -> fileName.endsWith(BODY_SUFFIX));
+        if (bodies == null) return;
+
+        long totalBytes = 0;
+        for (File file : bodies) {
+            totalBytes += file.length();
+        }
+        if (totalBytes <= maxBytes) return;
+
+        Arrays.sort(bodies, Comparator.comparingLong(File::lastModified));
+        for (File file : bodies) {
+            if (totalBytes <= maxBytes) break;
+            if (file.equals(keep)) continue;
+
+            long length = file.length();
+            String name = file.getName().substring(0, file.getName().length() - BODY_SUFFIX.length());
+            new File(directory, name + META_SUFFIX).delete();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    /**
+     * Reads an entry's metadata.
+     *
+     * @param metaFile The metadata file.
+     * @return The metadata, or null if it is missing or unreadable.
+     */
+    private static Properties readMeta(File metaFile) {
+        Properties meta = new Properties();
+        try (InputStream in = new FileInputStream(metaFile)) {
+            meta.load(in);
+            return meta;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes an entry's metadata, replacing the previous file atomically.
+     *
+     * @param metaFile The metadata file.
+     * @param meta     The metadata.
+     */
+    private static void writeMeta(File metaFile, Properties meta) throws IOException {
+        File temp = new File(metaFile.getPath() + TEMP_SUFFIX);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            meta.store(out, null);
+        }
+        if (!temp.renameTo(metaFile)) {
+            temp.delete();
+            throw new IOException("Cannot store cover metadata " + metaFile);
+        }
+    }
+
+    /**
+     * Waits for a download started by another caller.
+     *
+     * @param download The shared download.
+     * @return The cached image file.
+     */
+    private static File await(CompletableFuture<File> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a cover download");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Derives a file name from a URL.
+     *
+     * @param url The image URL.
+     * @return The hex SHA-1 of the URL.
+     */
+    private static String cacheName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    /**
+     * Parses a number, treating anything malformed as 0.
+     *
+     * @param value The text to parse, or null.
+     * @return The parsed value, or 0.
+     */
+    private static long parseLong(String value) {
+        if (value == null) return 0;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
\ No newline at end of file
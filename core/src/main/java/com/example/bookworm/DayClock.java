@@ -0,0 +1,94 @@
+package com.example.bookworm;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.function.Supplier;
+
+/**
+ * DayClock tells which calendar day it is in the device's time zone.
+ *
+ * The day is computed with java.time once and then reused until the next local midnight,
+ * so asking for today's epoch day is normally an allocation-free comparison against the
+ * cached day boundaries. The time zone is re-read at least every hour, so a change of
+ * time zone is picked up without restarting the app.
+ */
+public class DayClock {
+
+    /** Maximum time a computed day is trusted before the time zone is checked again. */
+    private static final long ZONE_RECHECK_MILLIS = 1000L * 60L * 60L;
+
+    /** Source of the current time. */
+    private final BookwormClock clock;
+
+    /** Source of the current time zone. */
+    private final Supplier<ZoneId> zoneSupplier;
+
+    /** The cached epoch day. */
+    private int today;
+
+    /** First instant at which the cached day is valid. */
+    private long validFromMillis = Long.MAX_VALUE;
+
+    /** First instant at which the cached day must be recomputed. */
+    private long validUntilMillis = Long.MIN_VALUE;
+
+    /**
+     * Creates a day clock.
+     *
+     * @param clock        Source of the current time.
+     * @param zoneSupplier Source of the current time zone.
+     */
+    public DayClock(BookwormClock clock, Supplier<ZoneId> zoneSupplier) {
+        this.clock = clock;
+        this.zoneSupplier = zoneSupplier;
+    }
+
+    /**
+     * Creates a day clock for the system time and the device's default time zone.
+     *
+     * @return A new DayClock.
+     */
+    public static DayClock system() {
+        return new DayClock(BookwormClock.SYSTEM, ZoneId::systemDefault);
+    }
+
+    /**
+     * Gets today's date.
+     *
+     * @return Today's epoch day in the current time zone.
+     */
+    public synchronized int today() {
+        long nowMillis = clock.currentTimeMillis();
+        if (nowMillis >= validFromMillis && nowMillis < validUntilMillis) {
+            return today;
+        }
+
+        ZoneId zone = zoneSupplier.get();
+        LocalDate date = Instant.ofEpochMilli(nowMillis).atZone(zone).toLocalDate();
+        today = (int) date.toEpochDay();
+        validFromMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        long nextMidnightMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        validUntilMillis = Math.min(nextMidnightMillis, nowMillis + ZONE_RECHECK_MILLIS);
+        return today;
+    }
+
+    /**
+     * Gets the first instant of a day in the current time zone, e.g. to schedule a refresh.
+     *
+     * @param epochDay The epoch day.
+     * @return The start of that day in epoch milliseconds.
+     */
+    public long startOfDayMillis(int epochDay) {
+        return LoanDates.startOfDayMillis(epochDay, zoneSupplier.get());
+    }
+
+    /**
+     * Gets the current time.
+     *
+     * @return The current time in epoch milliseconds.
+     */
+    public long currentTimeMillis() {
+        return clock.currentTimeMillis();
+    }
+}
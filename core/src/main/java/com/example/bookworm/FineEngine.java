@@ -0,0 +1,174 @@
+package com.example.bookworm;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * FineEngine maintains the total late fine of the user's list incrementally.
+ * Rule: Any book overdue by 10 days or more incurs a flat $10 fine, exactly as in
+ * the reference calculation {@link #calculateTotalFine(List, int)}.
+ *
+ * Loans are kept in two sets ordered by the day their fine starts: those already fined
+ * and those still pending. Adding, returning or re-dating a book is O(log n), and as the
+ * days pass books simply move from the pending set to the fined set in due-date order,
+ * so the total never has to be recomputed by scanning the whole list. Dates are epoch
+ * days (see {@link LoanDates}), so "overdue by 10 days" counts calendar days and is not
+ * thrown off by DST changes.
+ */
+public class FineEngine {
+
+    /** Number of full days a book must be overdue before it is fined. */
+    public static final int FINE_THRESHOLD_DAYS = 10;
+
+    /** Flat fine per overdue book, in dollars. */
+    public static final int FINE_PER_BOOK_DOLLARS = 10;
+
+    /** Orders loans by the day their fine starts, then by key to keep them distinct. */
+    private static final Comparator<Loan> BY_FINE_START = (a, b) -> {
+        int byDay = Integer.compare(a.fineStartDay, b.fineStartDay);
+        return (byDay != 0) ? byDay : a.key.compareTo(b.key);
+    };
+
+    /** Loans that are not fined yet, earliest fine start first. */
+    private final TreeSet<Loan> pending = new TreeSet<>(BY_FINE_START);
+
+    /** Loans that are already fined, earliest fine start first. */
+    private final TreeSet<Loan> fined = new TreeSet<>(BY_FINE_START);
+
+    /** Every tracked loan, by book key. */
+    private final HashMap<String, Loan> loansByKey = new HashMap<>();
+
+    /**
+     * A book with a return date, as tracked by the engine.
+     */
+    private static class Loan {
+
+        /** The book's key. */
+        final String key;
+
+        /** The first day on which the book counts as fined, as an epoch day. */
+        final int fineStartDay;
+
+        /** Whether the loan is currently in the fined set. */
+        boolean isFined;
+
+        /**
+         * Creates a loan entry.
+         *
+         * @param key          The book's key.
+         * @param fineStartDay The first day on which the book is fined.
+         */
+        Loan(String key, int fineStartDay) {
+            this.key = key;
+            this.fineStartDay = fineStartDay;
+        }
+    }
+
+    /**
+     * Replaces every tracked loan with the books of a list.
+     *
+     * @param books The user's books.
+     */
+    public void setAll(List<Book> books) {
+        pending.clear();
+        fined.clear();
+        loansByKey.clear();
+        for (Book book : books) {
+            put(book);
+        }
+    }
+
+    /**
+     * Starts tracking a book, or updates it if its return date changed.
+     * Books without a return date are not tracked.
+     *
+     * @param book The book to track.
+     */
+    public void put(Book book) {
+        remove(book.getKey());
+
+        if (!book.hasReturnDate()) return; // Skip books without an established return date
+
+        Loan loan = new Loan(book.getKey(), book.getReturnEpochDay() + FINE_THRESHOLD_DAYS);
+        loansByKey.put(loan.key, loan);
+        pending.add(loan);
+    }
+
+    /**
+     * Stops tracking a book.
+     *
+     * @param key The key of the book that was returned.
+     */
+    public void remove(String key) {
+        Loan loan = loansByKey.remove(key);
+        if (loan == null) return;
+
+        if (loan.isFined) {
+            fined.remove(loan);
+        } else {
+            pending.remove(loan);
+        }
+    }
+
+    /**
+     * Gets the total fine on a given day. Only loans whose state changed since the last
+     * call are moved, so repeated calls on the same day are a couple of int comparisons.
+     *
+     * @param today Today's epoch day.
+     * @return The total fine in dollars.
+     */
+    public int getTotalFine(int today) {
+        // Books whose fine has started since the last call
+        while (!pending.isEmpty() && pending.first().fineStartDay <= today) {
+            Loan loan = pending.pollFirst();
+            loan.isFined = true;
+            fined.add(loan);
+        }
+
+        // If the date moved backwards, books may no longer be fined
+        while (!fined.isEmpty() && fined.last().fineStartDay > today) {
+            Loan loan = fined.pollLast();
+            loan.isFined = false;
+            pending.add(loan);
+        }
+
+        return fined.size() * FINE_PER_BOOK_DOLLARS;
+    }
+
+    /**
+     * Gets the next day on which the total fine will change on its own,
+     * so the UI only needs to refresh then.
+     *
+     * @return The epoch day on which the next book becomes fined,
+     *         or Integer.MAX_VALUE if no pending book has a return date.
+     */
+    public int getNextChangeDay() {
+        return pending.isEmpty() ? Integer.MAX_VALUE : pending.first().fineStartDay;
+    }
+
+    /**
+     * Calculates the total late fine by scanning the whole list.
+     * This is the O(n) reference calculation that the incremental total must match.
+     *
+     * @param books The list of user books.
+     * @param today Today's epoch day.
+     * @return The total fine in dollars.
+     */
+    public static int calculateTotalFine(List<Book> books, int today) {
+        int totalFine = 0;
+
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (!book.hasReturnDate()) continue; // Skip books without an established return date
+
+            // Apply fine if overdue by at least 10 full days
+            if (today - book.getReturnEpochDay() >= FINE_THRESHOLD_DAYS) {
+                totalFine += FINE_PER_BOOK_DOLLARS;
+            }
+        }
+
+        return totalFine;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.example.bookworm;
+
+import java.util.Locale;
+
+/**
+ * ImportReport describes one import by {@link LoanTransfer}: how many records the file
+ * held, how many books were added to the list, and how many were skipped because the list
+ * already held them or because they could not be read.
+ */
+public final class ImportReport {
+
+    /** Number of records read from the file, including skipped ones. */
+    private final long recordsRead;
+
+    /** Number of books added to the list. */
+    private final long booksAdded;
+
+    /** Number of records skipped because the list already held the book. */
+    private final long duplicates;
+
+    /** Number of records skipped because they could not be read. */
+    private final long malformed;
+
+    /** Number of batches committed to the store. */
+    private final int batches;
+
+    /** Time taken by the whole import, in nanoseconds. */
+    private final long totalNanos;
+
+    /**
+     * Creates a report.
+     *
+     * @param recordsRead Number of records read from the file.
+     * @param booksAdded  Number of books added to the list.
+     * @param duplicates  Number of records skipped as duplicates.
+     * @param malformed   Number of records skipped as unreadable.
+     * @param batches     Number of batches committed.
+     * @param totalNanos  Time taken by the whole import, in nanoseconds.
+     */
+    public ImportReport(long recordsRead, long booksAdded, long duplicates, long malformed, int batches,
+                        long totalNanos) {
+        this.recordsRead = recordsRead;
+        this.booksAdded = booksAdded;
+        this.duplicates = duplicates;
+        this.malformed = malformed;
+        this.batches = batches;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Gets the number of records read from the file.
+     *
+     * @return The record count, including skipped records.
+     */
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    /**
+     * Gets the number of books added to the list.
+     *
+     * @return The book count.
+     */
+    public long getBooksAdded() {
+        return booksAdded;
+    }
+
+    /**
+     * Gets the number of records skipped because the list already held the book, or an
+     * earlier record of the file had the same book.
+     *
+     * @return The duplicate count.
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Gets the number of records skipped because they could not be read.
+     *
+     * @return The malformed record count.
+     */
+    public long getMalformed() {
+        return malformed;
+    }
+
+    /**
+     * Gets the number of batches committed to the store.
+     *
+     * @return The batch count.
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Gets the time taken by the whole import.
+     *
+     * @return The total time in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Describes the import in one line, for logs.
+     *
+     * @return The description.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d records: %d added, %d duplicates, %d malformed in %d batches, %.1f ms",
+                recordsRead, booksAdded, duplicates, malformed, batches, totalNanos / 1e6);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.example.bookworm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram records durations in nanoseconds into logarithmic buckets.
+ *
+ * Each power of two is split into four sub-buckets, so a recorded value is known to within
+ * 25% over the whole range from a nanosecond to centuries. Recording is one bucket lookup
+ * (a leading-zero count and a shift) and a few atomic increments: it takes no lock and
+ * allocates nothing, so histograms can stay enabled on hot paths in release builds.
+ * Reading percentiles scans the 256 buckets and is meant for the metrics screen only.
+ */
+public final class LatencyHistogram {
+
+    /** Number of sub-buckets per power of two, as a bit count. */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /** Number of sub-buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Number of buckets, enough for any non-negative long. */
+    private static final int BUCKET_COUNT = 256;
+
+    /** Number of values recorded in each bucket. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /** Number of values recorded. */
+    private final AtomicLong count = new AtomicLong();
+
+    /** Sum of the values recorded, in nanoseconds. */
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /** Largest value recorded, in nanoseconds. */
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds; negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since a start time.
+     *
+     * @param startNanos A value previously returned by {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the number of values recorded.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the mean of the values recorded.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMeanNanos() {
+        long n = count.get();
+        return (n > 0) ? totalNanos.get() / n : 0L;
+    }
+
+    /**
+     * Gets the largest value recorded.
+     *
+     * @return The maximum in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Estimates a percentile. The result is the upper bound of the bucket holding the
+     * percentile, capped at the maximum, so it never understates the latency.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The estimate in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Clears every recorded value. Values recorded concurrently may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+    }
+
+    /**
+     * Finds the bucket of a value.
+     *
+     * @param value A non-negative value.
+     * @return The bucket index.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The bucket's inclusive upper bound.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS - 1) {
+            return bucket;
+        }
+        int next = bucket + 1;
+        int highestBit = next / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        if (highestBit > 62) {
+            return Long.MAX_VALUE;
+        }
+        long lowerBoundOfNext = (long) (SUB_BUCKETS + next % SUB_BUCKETS) << (highestBit - SUB_BUCKET_BITS);
+        return lowerBoundOfNext - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.example.bookworm;
+
+/**
+ * ListInfo describes one of the user's named lists as recorded in the {@link ListManifest}:
+ * its id, display name, version and size. It is everything a screen needs to offer the
+ * lists for selection, so the lists themselves need not be loaded for that.
+ * Instances are immutable; changes produce updated copies.
+ */
+public final class ListInfo {
+
+    /** Stable id of the list, which also names its shard. */
+    private final String id;
+
+    /** Display name chosen by the user. */
+    private final String name;
+
+    /** Number of changes recorded in the list; increases with every change. */
+    private final long version;
+
+    /** Number of books in the list. */
+    private final int bookCount;
+
+    /**
+     * Creates a list description.
+     *
+     * @param id        The list's stable id.
+     * @param name      The display name.
+     * @param version   The list's version.
+     * @param bookCount The number of books in the list.
+     */
+    public ListInfo(String id, String name, long version, int bookCount) {
+        this.id = id;
+        this.name = name;
+        this.version = version;
+        this.bookCount = bookCount;
+    }
+
+    /**
+     * Gets the list's stable id.
+     *
+     * @return The id.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the display name.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the list's version.
+     *
+     * @return The number of changes recorded in the list.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of books in the list.
+     *
+     * @return The book count.
+     */
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    /**
+     * Creates a copy with another display name.
+     *
+     * @param newName The new name.
+     * @return The renamed copy.
+     */
+    public ListInfo withName(String newName) {
+        return new ListInfo(id, newName, version, bookCount);
+    }
+
+    /**
+     * Creates a copy for the next version of the list.
+     *
+     * @param newBookCount The number of books after the change.
+     * @return The updated copy.
+     */
+    public ListInfo withChange(int newBookCount) {
+        return new ListInfo(id, name, version + 1, Math.max(0, newBookCount));
+    }
+
+    /**
+     * Returns the display name, as shown by list selectors.
+     *
+     * @return The name.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ListManifest is the small JSON file describing the user's named lists: one
+ * {@link ListInfo} per list, in display order. It holds no books, so the app can show and
+ * pick lists without reading any list's shard. The file is replaced atomically, so a crash
+ * leaves either the old or the new manifest.
+ *
+ * The manifest also records the number the next new list's id is made from. It only ever
+ * grows, so an id is never given out twice, even after its list was deleted. Manifests
+ * written before it was recorded (format 1) do not have it.
+ *
+ * Format: {@code {"format":2,"nextListNumber":..,
+ * "lists":[{"id":..,"name":..,"version":..,"bookCount":..}]}}
+ */
+public final class ListManifest {
+
+    /** Current manifest format. */
+    private static final int FORMAT_VERSION = 2;
+
+    /** Value of {@link Contents#getNextListNumber()} when the manifest does not record it. */
+    public static final int UNKNOWN_LIST_NUMBER = 0;
+
+    /**
+     * The contents of a manifest.
+     */
+    public static final class Contents {
+
+        /** The lists in display order. */
+        private final ArrayList<ListInfo> lists;
+
+        /** Number the next new list's id is made from, or UNKNOWN_LIST_NUMBER. */
+        private final int nextListNumber;
+
+        /**
+         * Creates manifest contents.
+         *
+         * @param lists          The lists in display order.
+         * @param nextListNumber Number the next new list's id is made from, or
+         *                       UNKNOWN_LIST_NUMBER.
+         */
+        public Contents(ArrayList<ListInfo> lists, int nextListNumber) {
+            this.lists = lists;
+            this.nextListNumber = nextListNumber;
+        }
+
+        /**
+         * Gets the lists.
+         *
+         * @return The lists in display order.
+         */
+        public ArrayList<ListInfo> getLists() {
+            return lists;
+        }
+
+        /**
+         * Gets the number the next new list's id is made from.
+         *
+         * @return The number, or UNKNOWN_LIST_NUMBER if the manifest predates it.
+         */
+        public int getNextListNumber() {
+            return nextListNumber;
+        }
+    }
+
+    /** Utility class; not instantiable. */
+    private ListManifest() {
+    }
+
+    /**
+     * Reads a manifest.
+     *
+     * @param file The manifest file.
+     * @return The manifest's contents, or null if there is no manifest yet.
+     * @throws IOException If the manifest exists but cannot be read.
+     */
+    public static Contents read(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return readContents(new JsonReader(reader));
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Corrupt list manifest", e);
+        }
+    }
+
+    /**
+     * Replaces a manifest atomically: the new manifest is written and synced to a temporary
+     * file, which is then renamed over the old one.
+     *
+     * @param file           The manifest file.
+     * @param lists          The lists in display order.
+     * @param nextListNumber Number the next new list's id is made from.
+     * @throws IOException If the manifest cannot be written.
+     */
+    public static void write(File file, List<ListInfo> lists, int nextListNumber) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("format").value(FORMAT_VERSION);
+            json.name("nextListNumber").value(nextListNumber);
+            json.name("lists").beginArray();
+            for (ListInfo list : lists) {
+                json.beginObject();
+                json.name("id").value(list.getId());
+                json.name("name").value(list.getName());
+                json.name("version").value(list.getVersion());
+                json.name("bookCount").value(list.getBookCount());
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+            out.getFD().sync();
+        }
+
+        if (!temp.renameTo(file)) {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    /**
+     * Reads the manifest object.
+     *
+     * @param json The manifest JSON.
+     * @return The manifest's contents.
+     */
+    private static Contents readContents(JsonReader json) throws IOException {
+        ArrayList<ListInfo> lists = new ArrayList<>();
+        int nextListNumber = UNKNOWN_LIST_NUMBER;
+        json.beginObject();
+        while (json.hasNext()) {
+            String field = json.nextName();
+            if ("nextListNumber".equals(field)) {
+                nextListNumber = json.nextInt();
+                continue;
+            }
+            if (!"lists".equals(field)) {
+                json.skipValue();
+                continue;
+            }
+            json.beginArray();
+            while (json.hasNext()) {
+                ListInfo list = readList(json);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            json.endArray();
+        }
+        json.endObject();
+        return new Contents(lists, nextListNumber);
+    }
+
+    /**
+     * Reads one list description.
+     *
+     * @param json The manifest JSON, positioned at a list object.
+     * @return The list, or null if it has no id.
+     */
+    private static ListInfo readList(JsonReader json) throws IOException {
+        String id = null;
+        String name = null;
+        long version = 0;
+        int bookCount = 0;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String field = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = json.nextString();
+                    break;
+                case "name":
+                    name = json.nextString();
+                    break;
+                case "version":
+                    version = json.nextLong();
+                    break;
+                case "bookCount":
+                    bookCount = json.nextInt();
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        return (id != null) ? new ListInfo(id, (name != null) ? name : id, version, bookCount) : null;
+    }
+}
\ No newline at end of file
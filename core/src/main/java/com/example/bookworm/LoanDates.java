@@ -0,0 +1,83 @@
+package com.example.bookworm;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * LoanDates converts between loan return dates and wall-clock time.
+ *
+ * A return date is a calendar date, so it is stored as a primitive {@code int} epoch day
+ * (days since 1970-01-01, as in {@link LocalDate#toEpochDay()}), with 0 meaning that no
+ * date is set. Comparing two dates is a plain integer comparison, and the number of days
+ * between them is a subtraction that is correct across DST changes, unlike dividing a
+ * difference in milliseconds by 24 hours. Time zones only matter when converting to or
+ * from an instant, which is what the methods here do.
+ */
+public final class LoanDates {
+
+    /** Epoch day value meaning "no return date set". */
+    public static final int NO_DATE = 0;
+
+    /** Utility class; not instantiable. */
+    private LoanDates() {
+    }
+
+    /**
+     * Creates the epoch day of a calendar date.
+     *
+     * @param year       The year.
+     * @param month      The month, from 1 (January) to 12 (December).
+     * @param dayOfMonth The day of the month.
+     * @return The epoch day.
+     */
+    public static int of(int year, int month, int dayOfMonth) {
+        return (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+
+    /**
+     * Gets the calendar date of an instant in a time zone.
+     *
+     * @param epochMillis The instant in epoch milliseconds.
+     * @param zone        The time zone.
+     * @return The epoch day of that instant's local date.
+     */
+    public static int fromMillis(long epochMillis, ZoneId zone) {
+        return (int) Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Converts a return date stored by older versions of the app, which saved the local
+     * midnight of the chosen day in epoch milliseconds.
+     *
+     * @param returnDateMillis The legacy return date, or 0 if it was not set.
+     * @return The epoch day in the device's time zone, or NO_DATE if it was not set.
+     */
+    public static int fromLegacyMillis(long returnDateMillis) {
+        return (returnDateMillis > 0) ? fromMillis(returnDateMillis, ZoneId.systemDefault()) : NO_DATE;
+    }
+
+    /**
+     * Gets the first instant of a calendar date in a time zone.
+     *
+     * @param epochDay The epoch day.
+     * @param zone     The time zone.
+     * @return The start of that day in epoch milliseconds.
+     */
+    public static long startOfDayMillis(int epochDay, ZoneId zone) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Checks whether a book is overdue: its return date is set and has been reached.
+     * A book is overdue from its return date itself, as it was when the date was stored
+     * as that day's local midnight and compared with the current time.
+     *
+     * @param returnEpochDay The book's return date, or NO_DATE.
+     * @param today          Today's epoch day.
+     * @return True if the return date is today or earlier.
+     */
+    public static boolean isOverdue(int returnEpochDay, int today) {
+        return returnEpochDay != NO_DATE && today >= returnEpochDay;
+    }
+}
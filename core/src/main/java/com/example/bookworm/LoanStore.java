@@ -0,0 +1,121 @@
+package com.example.bookworm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * LoanStore persists the user's list of borrowed books. Changes are recorded one book at
+ * a time, or as a batch that is stored atomically: after a crash either every book of a
+ * batch is stored or none is. The list can also be queried for overdue books and the total fine without
+ * the caller having to load and scan it. Implementations may write asynchronously, but
+ * every read reflects all changes recorded before it.
+ * For export and import, the list can also be streamed one book at a time and added to in
+ * batches that skip the books already in it.
+ *
+ * Return dates are epoch days (see {@link LoanDates}), and fines follow the rule of
+ * {@link FineEngine#calculateTotalFine(List, int)}.
+ */
+public interface LoanStore {
+
+    /**
+     * Checks whether the store already holds a list, even an empty one.
+     *
+     * @return True if the list has been written before.
+     */
+    boolean exists();
+
+    /**
+     * Loads the whole list.
+     *
+     * @return The books, in the order they were added.
+     */
+    ArrayList<Book> loadAll();
+
+    /**
+     * Passes every book in the list to an action, one at a time, without loading the
+     * whole list first where the store allows it.
+     *
+     * @param action Receives the books, in the order they were added. It runs on the
+     *               store's own thread, so it must not call back into the store.
+     */
+    void forEach(Consumer<? super Book> action);
+
+    /**
+     * Records that a book was added to the list.
+     *
+     * @param book The book that was added.
+     */
+    void add(Book book);
+
+    /**
+     * Records that a book was returned and removed from the list.
+     *
+     * @param book The book that was returned.
+     */
+    void remove(Book book);
+
+    /**
+     * Records that several books were added to the list, as one atomic batch.
+     *
+     * @param books The books that were added, in the order they were added.
+     */
+    void addAll(List<Book> books);
+
+    /**
+     * Adds the books the list does not hold yet, compared by {@link Book#getKey()}, as one
+     * atomic batch. Books already in the list keep their return dates, and of several
+     * books with the same key only the first is added. Unlike the other changes, the batch
+     * is recorded before this method returns.
+     *
+     * @param books The candidate books, in the order they should be added.
+     * @return The number of books added.
+     */
+    int addAllAbsent(List<Book> books);
+
+    /**
+     * Records that several books were returned and removed from the list, as one atomic batch.
+     *
+     * @param books The books that were returned.
+     */
+    void removeAll(List<Book> books);
+
+    /**
+     * Records a new return date for a book in the list.
+     *
+     * @param book           The book whose return date changed.
+     * @param returnEpochDay The new return date as an epoch day.
+     */
+    void setReturnDate(Book book, int returnEpochDay);
+
+    /**
+     * Replaces the whole list with the given books in a single batch.
+     *
+     * @param books The complete new list.
+     */
+    void replaceAll(List<Book> books);
+
+    /**
+     * Finds the books that are overdue on a given day.
+     *
+     * @param today Today's epoch day.
+     * @return The overdue books, earliest return date first.
+     */
+    ArrayList<Book> findOverdue(int today);
+
+    /**
+     * Gets the total late fine on a given day.
+     *
+     * @param today Today's epoch day.
+     * @return The total fine in dollars.
+     */
+    int getTotalFine(int today);
+
+    /**
+     * Blocks until every change recorded so far is durable.
+     *
+     * @throws IllegalStateException If the changes could not be written. They stay queued
+     *                               and are written by a later call once storage recovers.
+     */
+    void sync();
+}
\ No newline at end of file
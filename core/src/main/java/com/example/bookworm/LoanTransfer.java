@@ -0,0 +1,712 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * LoanTransfer exports a list of borrowed books to a file and imports one back, so a list
+ * can be backed up or moved to another device.
+ *
+ * Two formats are supported. NDJSON files hold one book per line, as the JSON object
+ * written by {@link BookCodec}. CSV files start with a header row naming the columns,
+ * which may come in any order; unknown columns are ignored, fields are quoted as in
+ * RFC 4180 where needed, and return dates are ISO dates (left empty when not set).
+ *
+ * A bundled cover is written as its drawable name and looked up by name on import, since
+ * drawable resource ids change from one build of the app to the next. Files written by
+ * older versions hold the resource id instead; it is ignored, and those books are
+ * imported without a bundled cover.
+ *
+ * Both directions stream. An export writes each book as {@link LoanStore#forEach(Consumer)}
+ * passes it. An import reads one record at a time and hands the books to
+ * {@link LoanStore#addAllAbsent(java.util.List)} in batches of {@link #BATCH_SIZE}, so a batch is
+ * the most the import holds in memory however large the file is. Books the list already
+ * holds keep their return dates, and records that cannot be read are skipped; both are
+ * counted in the {@link ImportReport}.
+ */
+public final class LoanTransfer {
+
+    /**
+     * A file format for exported lists.
+     */
+    public enum Format {
+
+        /** One JSON object per line. */
+        NDJSON("application/x-ndjson", "ndjson"),
+
+        /** Comma-separated values with a header row. */
+        CSV("text/csv", "csv");
+
+        /** The format's MIME type. */
+        private final String mimeType;
+
+        /** The usual file name extension, without the dot. */
+        private final String extension;
+
+        /**
+         * Creates a format.
+         *
+         * @param mimeType  The format's MIME type.
+         * @param extension The usual file name extension, without the dot.
+         */
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        /**
+         * Gets the format's MIME type.
+         *
+         * @return The MIME type.
+         */
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        /**
+         * Gets the usual file name extension.
+         *
+         * @return The extension, without the dot.
+         */
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Guesses the format of a file from its name and MIME type. Files that do not look
+         * like CSV are read as NDJSON.
+         *
+         * @param fileName The file's name, or null if unknown.
+         * @param mimeType The file's MIME type, or null if unknown.
+         * @return The format.
+         */
+        public static Format detect(String fileName, String mimeType) {
+            if (fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith("." + CSV.extension)) {
+                return CSV;
+            }
+            if (mimeType != null && (mimeType.equals(CSV.mimeType) || mimeType.equals("text/comma-separated-values"))) {
+                return CSV;
+            }
+            return NDJSON;
+        }
+    }
+
+    /** Number of books added to the store per batch on import. */
+    public static final int BATCH_SIZE = 500;
+
+    /** Longest record accepted on import, in characters; bounds memory on corrupt files. */
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    /** CSV column holding the catalog id. */
+    private static final int COLUMN_ID = 0;
+
+    /** CSV column holding the title. */
+    private static final int COLUMN_TITLE = 1;
+
+    /** CSV column holding the author. */
+    private static final int COLUMN_AUTHOR = 2;
+
+    /** CSV column holding the bundled cover's drawable name. */
+    private static final int COLUMN_COVER = 3;
+
+    /** CSV column holding the remote cover URL. */
+    private static final int COLUMN_COVER_URL = 4;
+
+    /** CSV column holding the website URL. */
+    private static final int COLUMN_WEBSITE_URL = 5;
+
+    /** CSV column holding the return date. */
+    private static final int COLUMN_RETURN_DATE = 6;
+
+    /** CSV header names, indexed by the COLUMN_* constants. */
+    private static final String[] CSV_COLUMNS = {
+            "id", "title", "author", "cover", "cover_url", "website_url", "return_date"
+    };
+
+    /** Most distinct cover names an import remembers the lookup of; bounds memory on corrupt files. */
+    private static final int MAX_RESOLVED_COVERS = 1024;
+
+    /** Time taken by whole exports. */
+    private static final LatencyHistogram EXPORT_LATENCY = PerfMetrics.histogram("transfer.export");
+
+    /** Time taken by whole imports. */
+    private static final LatencyHistogram IMPORT_LATENCY = PerfMetrics.histogram("transfer.import");
+
+    /** Number of books written by exports. */
+    private static final PerfCounter EXPORTED_BOOKS = PerfMetrics.counter("transfer.exportedBooks");
+
+    /** Number of books added by imports. */
+    private static final PerfCounter IMPORTED_BOOKS = PerfMetrics.counter("transfer.importedBooks");
+
+    /** Utility class; not instantiable. */
+    private LoanTransfer() {
+    }
+
+    /**
+     * Writes every book of a list to a file.
+     *
+     * @param store      The list to export.
+     * @param writer     The destination. It is flushed but not closed.
+     * @param format     The file format.
+     * @param coverNames Gives the drawable name of a bundled cover's resource id, or null
+     *                   if the id is not a drawable of this build.
+     * @return The number of books written.
+     * @throws IOException If the destination cannot be written.
+     */
+    public static long exportTo(LoanStore store, Writer writer, Format format, IntFunction<String> coverNames)
+            throws IOException {
+        long start = System.nanoTime();
+        Exporter exporter = new Exporter(new BufferedWriter(writer), format, coverNames);
+        if (format == Format.CSV) {
+            exporter.writeCsvRow(CSV_COLUMNS);
+        }
+        store.forEach(exporter);
+        if (exporter.failure != null) {
+            throw exporter.failure;
+        }
+        exporter.out.flush();
+
+        EXPORTED_BOOKS.add(exporter.count);
+        EXPORT_LATENCY.recordSince(start);
+        return exporter.count;
+    }
+
+    /**
+     * Adds the books of a file to a list, skipping the books the list already holds.
+     * Each batch is committed as it fills, so if the import fails part way, the batches
+     * before the failure stay in the list and importing the file again adds the rest.
+     *
+     * @param store         The list to import into.
+     * @param reader        The source. It is not closed.
+     * @param format        The file format.
+     * @param coverResolver Gives the resource id of a bundled cover's drawable name, or 0
+     *                      if this build has no such drawable. Each name is looked up once.
+     * @return What the import read, added and skipped.
+     * @throws IOException If the source cannot be read, or is a CSV file without a title column.
+     */
+    public static ImportReport importFrom(LoanStore store, Reader reader, Format format,
+                                          ToIntFunction<String> coverResolver) throws IOException {
+        long start = System.nanoTime();
+        ToIntFunction<String> covers = new CoverCache(coverResolver);
+        RecordReader records = (format == Format.CSV)
+                ? new CsvRecordReader(reader, covers) : new NdjsonRecordReader(reader, covers);
+        ArrayList<Book> batch = new ArrayList<>(BATCH_SIZE);
+        long added = 0;
+        int batches = 0;
+        Book book;
+        while ((book = records.next()) != null) {
+            batch.add(book);
+            if (batch.size() == BATCH_SIZE) {
+                added += store.addAllAbsent(batch);
+                batches++;
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            added += store.addAllAbsent(batch);
+            batches++;
+        }
+
+        IMPORTED_BOOKS.add(added);
+        IMPORT_LATENCY.recordSince(start);
+        long duplicates = records.recordCount - records.malformedCount - added;
+        return new ImportReport(records.recordCount, added, duplicates, records.malformedCount, batches,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Writes the books a store passes to it. A store's action cannot throw checked
+     * exceptions, so the first write failure is kept and the remaining books are ignored.
+     */
+    private static final class Exporter implements Consumer<Book> {
+
+        /** The destination. */
+        final BufferedWriter out;
+
+        /** The file format. */
+        final Format format;
+
+        /** Gives the drawable name of a cover resource id. */
+        final IntFunction<String> coverNames;
+
+        /** CSV fields of the book being written, reused for every book. */
+        final String[] fields = new String[CSV_COLUMNS.length];
+
+        /** Number of books written. */
+        long count;
+
+        /** The first write failure, or null. */
+        IOException failure;
+
+        /**
+         * Creates an exporter.
+         *
+         * @param out        The destination.
+         * @param format     The file format.
+         * @param coverNames Gives the drawable name of a cover resource id.
+         */
+        Exporter(BufferedWriter out, Format format, IntFunction<String> coverNames) {
+            this.out = out;
+            this.format = format;
+            this.coverNames = coverNames;
+        }
+
+        /**
+         * Writes one book, unless an earlier write failed.
+         *
+         * @param book The book to write.
+         */
+        @Override
+        public void accept(Book book) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                if (format == Format.CSV) {
+                    writeCsvRow(toCsvFields(book));
+                } else {
+                    JsonWriter json = new JsonWriter(out);
+                    BookCodec.writeBook(json, book, coverNames);
+                    json.flush();
+                    out.write('\n');
+                }
+                count++;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Fills {@link #fields} with a book's CSV fields.
+         *
+         * @param book The book.
+         * @return The fields, in column order.
+         */
+        String[] toCsvFields(Book book) {
+            fields[COLUMN_ID] = (book.getId() != null) ? book.getId() : "";
+            fields[COLUMN_TITLE] = book.getTitle();
+            fields[COLUMN_AUTHOR] = book.getAuthor();
+            String coverName = (book.getCoverImageResId() != 0) ? coverNames.apply(book.getCoverImageResId()) : null;
+            fields[COLUMN_COVER] = (coverName != null) ? coverName : "";
+            fields[COLUMN_COVER_URL] = book.hasCoverImageUrl() ? book.getCoverImageUrl() : "";
+            fields[COLUMN_WEBSITE_URL] = (book.getWebsiteUrl() != null) ? book.getWebsiteUrl() : "";
+            fields[COLUMN_RETURN_DATE] = book.hasReturnDate()
+                    ? LocalDate.ofEpochDay(book.getReturnEpochDay()).toString() : "";
+            return fields;
+        }
+
+        /**
+         * Writes one CSV row, quoting the fields that need it.
+         *
+         * @param row The fields.
+         */
+        void writeCsvRow(String[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                String field = row[i];
+                if (field.indexOf(',') < 0 && field.indexOf('"') < 0
+                        && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+                    out.write(field);
+                    continue;
+                }
+                out.write('"');
+                for (int j = 0; j < field.length(); j++) {
+                    char c = field.charAt(j);
+                    if (c == '"') {
+                        out.write('"');
+                    }
+                    out.write(c);
+                }
+                out.write('"');
+            }
+            out.write("\r\n");
+        }
+    }
+
+    /**
+     * Reads the books of a file one record at a time through a fixed-size buffer.
+     */
+    private abstract static class RecordReader {
+
+        /** The source. */
+        private final Reader in;
+
+        /** Gives the resource id of a cover's drawable name. */
+        final ToIntFunction<String> coverResolver;
+
+        /** Characters read ahead from the source. */
+        private final char[] buffer = new char[8192];
+
+        /** Position of the next character in {@link #buffer}. */
+        private int position;
+
+        /** Number of valid characters in {@link #buffer}. */
+        private int limit;
+
+        /** Number of records read, including malformed ones. */
+        long recordCount;
+
+        /** Number of records skipped as malformed. */
+        long malformedCount;
+
+        /**
+         * Creates a reader.
+         *
+         * @param in            The source.
+         * @param coverResolver Gives the resource id of a cover's drawable name.
+         */
+        RecordReader(Reader in, ToIntFunction<String> coverResolver) {
+            this.in = in;
+            this.coverResolver = coverResolver;
+        }
+
+        /**
+         * Reads the next book, skipping malformed records.
+         *
+         * @return The book, or null at the end of the file.
+         * @throws IOException If the source cannot be read.
+         */
+        Book next() throws IOException {
+            while (readRecord()) {
+                recordCount++;
+                Book book = parseRecord();
+                if (book != null) {
+                    return book;
+                }
+                malformedCount++;
+            }
+            return null;
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return False at the end of the file.
+         * @throws IOException If the source cannot be read or the record is too long.
+         */
+        abstract boolean readRecord() throws IOException;
+
+        /**
+         * Turns the record just read into a book.
+         *
+         * @return The book, or null if the record is malformed.
+         */
+        abstract Book parseRecord();
+
+        /**
+         * Reads one character.
+         *
+         * @return The character, or -1 at the end of the file.
+         * @throws IOException If the source cannot be read.
+         */
+        int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * Checks that a record being read is still within {@link #MAX_RECORD_LENGTH}.
+         *
+         * @param length The record's length so far.
+         * @throws IOException If the record is too long.
+         */
+        void checkLength(int length) throws IOException {
+            if (length > MAX_RECORD_LENGTH) {
+                throw new IOException("Record " + (recordCount + 1) + " is longer than "
+                        + MAX_RECORD_LENGTH + " characters");
+            }
+        }
+    }
+
+    /**
+     * Reads NDJSON, one {@link BookCodec} object per line. Blank lines are skipped.
+     */
+    private static final class NdjsonRecordReader extends RecordReader {
+
+        /** The line just read. */
+        private final StringBuilder line = new StringBuilder();
+
+        /**
+         * Creates a reader.
+         *
+         * @param in            The source.
+         * @param coverResolver Gives the resource id of a cover's drawable name.
+         */
+        NdjsonRecordReader(Reader in, ToIntFunction<String> coverResolver) {
+            super(in, coverResolver);
+        }
+
+        /**
+         * Reads the next non-blank line into {@link #line}.
+         *
+         * @return False at the end of the file.
+         * @throws IOException If the source cannot be read or the line is too long.
+         */
+        @Override
+        boolean readRecord() throws IOException {
+            int c;
+            do {
+                line.setLength(0);
+                while ((c = read()) != -1 && c != '\n') {
+                    line.append((char) c);
+                    checkLength(line.length());
+                }
+                if (!isBlank(line)) {
+                    return true;
+                }
+            } while (c != -1);
+            return false;
+        }
+
+        /**
+         * Decodes the line just read.
+         *
+         * @return The book, or null if the line is not a book object.
+         */
+        @Override
+        Book parseRecord() {
+            try {
+                return BookCodec.readBook(new JsonReader(new StringReader(line.toString())), coverResolver);
+            } catch (IOException | IllegalStateException | NumberFormatException e) {
+                // Not a JSON object, or a field of the wrong type
+                return null;
+            }
+        }
+
+        /**
+         * Checks whether a line holds only whitespace, such as the carriage return of a CRLF file.
+         *
+         * @param text The line.
+         * @return True if the line is blank.
+         */
+        private static boolean isBlank(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                if (!Character.isWhitespace(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reads CSV with a header row. Quoted fields may hold commas, quotes and line breaks.
+     * Blank lines are skipped.
+     */
+    private static final class CsvRecordReader extends RecordReader {
+
+        /** The fields of the record just read. */
+        private final ArrayList<String> fields = new ArrayList<>();
+
+        /** The field being read. */
+        private final StringBuilder field = new StringBuilder();
+
+        /** Index in a record of each of {@link #CSV_COLUMNS}, or -1 if absent; null until the header is read. */
+        private int[] columnIndex;
+
+        /**
+         * Creates a reader.
+         *
+         * @param in            The source.
+         * @param coverResolver Gives the resource id of a cover's drawable name.
+         */
+        CsvRecordReader(Reader in, ToIntFunction<String> coverResolver) {
+            super(in, coverResolver);
+        }
+
+        /**
+         * Reads the next row, reading the header row first if it has not been read.
+         *
+         * @return False at the end of the file.
+         * @throws IOException If the source cannot be read, a row is too long, or the header is unusable.
+         */
+        @Override
+        boolean readRecord() throws IOException {
+            if (columnIndex == null) {
+                readHeader();
+            }
+            return readFields();
+        }
+
+        /**
+         * Reads the header row and finds the known columns in it.
+         *
+         * @throws IOException If the file is empty or has no title column.
+         */
+        private void readHeader() throws IOException {
+            if (!readFields()) {
+                throw new IOException("The CSV file is empty");
+            }
+            columnIndex = new int[CSV_COLUMNS.length];
+            Arrays.fill(columnIndex, -1);
+            for (int i = 0; i < fields.size(); i++) {
+                // Spreadsheets often start UTF-8 files with a byte order mark
+                String name = fields.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+                for (int column = 0; column < CSV_COLUMNS.length; column++) {
+                    if (CSV_COLUMNS[column].equals(name) && columnIndex[column] < 0) {
+                        columnIndex[column] = i;
+                    }
+                }
+            }
+            if (columnIndex[COLUMN_TITLE] < 0) {
+                throw new IOException("The CSV file has no " + CSV_COLUMNS[COLUMN_TITLE] + " column");
+            }
+        }
+
+        /**
+         * Reads the fields of the next non-blank row into {@link #fields}.
+         *
+         * @return False at the end of the file.
+         * @throws IOException If the source cannot be read or the row is too long.
+         */
+        private boolean readFields() throws IOException {
+            int c = read();
+            while (c == '\r' || c == '\n') {
+                c = read();
+            }
+            if (c == -1) {
+                return false;
+            }
+
+            fields.clear();
+            field.setLength(0);
+            int length = 0;
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            while (true) {
+                checkLength(++length);
+                if (quoted) {
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            // The closing quote; the character after it is read as unquoted
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == -1) {
+                        // An unterminated quote ends with the file
+                        quoted = false;
+                        continue;
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    return true;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        /**
+         * Builds a book from the row just read.
+         *
+         * @return The book, or null if the row has no title or an unreadable date.
+         */
+        @Override
+        Book parseRecord() {
+            String title = field(COLUMN_TITLE);
+            if (title.isEmpty()) {
+                return null;
+            }
+            String id = field(COLUMN_ID);
+            String cover = field(COLUMN_COVER);
+            String websiteUrl = field(COLUMN_WEBSITE_URL);
+            String returnDate = field(COLUMN_RETURN_DATE);
+            try {
+                Book book = new Book(id.isEmpty() ? null : id, title, field(COLUMN_AUTHOR),
+                        cover.isEmpty() ? 0 : coverResolver.applyAsInt(cover), field(COLUMN_COVER_URL),
+                        websiteUrl.isEmpty() ? null : websiteUrl);
+                if (!returnDate.isEmpty()) {
+                    book.setReturnEpochDay((int) LocalDate.parse(returnDate).toEpochDay());
+                }
+                return book;
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Gets a field of the record just read.
+         *
+         * @param column One of the COLUMN_* constants.
+         * @return The field, trimmed, or an empty string if the file or the row lacks it.
+         */
+        private String field(int column) {
+            int index = columnIndex[column];
+            return (index >= 0 && index < fields.size()) ? fields.get(index).trim() : "";
+        }
+    }
+    /**
+     * Remembers the resource id of each cover name an import looks up. Looking a drawable
+     * up by name is slow on Android, and a list holds few distinct covers, so each is
+     * looked up once per import.
+     */
+    private static final class CoverCache implements ToIntFunction<String> {
+
+        /** Looks a cover name up. */
+        private final ToIntFunction<String> resolver;
+
+        /** The resource id of each name looked up so far. */
+        private final HashMap<String, Integer> resIds = new HashMap<>();
+
+        /**
+         * Creates a cache.
+         *
+         * @param resolver Looks a cover name up.
+         */
+        CoverCache(ToIntFunction<String> resolver) {
+            this.resolver = resolver;
+        }
+
+        /**
+         * Gets the resource id of a cover name, looking it up if it has not been seen.
+         *
+         * @param coverName The drawable name.
+         * @return The resource id, or 0 if there is no such drawable.
+         */
+        @Override
+        public int applyAsInt(String coverName) {
+            Integer resId = resIds.get(coverName);
+            if (resId == null) {
+                resId = resolver.applyAsInt(coverName);
+                if (resIds.size() < MAX_RESOLVED_COVERS) {
+                    resIds.put(coverName, resId);
+                }
+            }
+            return resId;
+        }
+    }
+}
\ No newline at end of file
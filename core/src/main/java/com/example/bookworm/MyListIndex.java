@@ -0,0 +1,263 @@
+package com.example.bookworm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * MyListIndex is the in-memory form of the user's list, independent of storage and Android.
+ * Books are held in a hash index keyed on {@link Book#getKey()}, so the duplicate check,
+ * add and remove are O(1) while iteration keeps the order in which books were added.
+ * A {@link FineEngine} is kept in step with every change, so the total fine is
+ * maintained incrementally instead of being recomputed from the whole list.
+ * The sorted and filtered {@link MyListViews} are kept in step the same way, in O(log n)
+ * per change, and the position of every change in every view is recorded so that the
+ * next snapshot can tell a screen exactly which rows changed.
+ *
+ * The index is not thread-safe; {@link MyListCache} guards it and persists each change.
+ */
+public class MyListIndex {
+
+    /** The books indexed by key, in insertion order. */
+    private final LinkedHashMap<String, Book> booksByKey = new LinkedHashMap<>();
+
+    /** Incrementally maintained fine total for the indexed books. */
+    private final FineEngine fineEngine = new FineEngine();
+
+    /** Position of each book in the order books were added, by key. */
+    private final HashMap<String, Long> addedOrder = new HashMap<>();
+
+    /** Sequence number given to the next book added. */
+    private long nextAddedOrder;
+
+    /** The epoch day the overdue view is computed for. */
+    private int today = LoanDates.NO_DATE;
+
+    /** Incrementally maintained views of the indexed books. */
+    private MyListViews views = MyListViews.of(new ArrayList<>(), this::getAddedOrder, today);
+
+    /** Changes of the views since they were last taken. */
+    private final ViewChanges.Builder viewChanges = new ViewChanges.Builder();
+
+    /**
+     * Replaces the indexed books. If a key occurs more than once, the last book wins.
+     *
+     * @param books The books to index, in list order.
+     */
+    public void setAll(Collection<Book> books) {
+        booksByKey.clear();
+        addedOrder.clear();
+        for (Book book : books) {
+            booksByKey.put(book.getKey(), book);
+        }
+        for (String key : booksByKey.keySet()) {
+            addedOrder.put(key, nextAddedOrder++);
+        }
+        ArrayList<Book> indexed = new ArrayList<>(booksByKey.values());
+        fineEngine.setAll(indexed);
+        views = MyListViews.of(indexed, this::getAddedOrder, today);
+        viewChanges.replaced();
+    }
+
+    /**
+     * Gets the number of indexed books.
+     *
+     * @return The list size.
+     */
+    public int size() {
+        return booksByKey.size();
+    }
+
+    /**
+     * Returns a snapshot of the indexed books.
+     *
+     * @return The books, in the order they were added.
+     */
+    public ArrayList<Book> getBooks() {
+        return new ArrayList<>(booksByKey.values());
+    }
+
+    /**
+     * Checks whether the same book is already indexed.
+     *
+     * @param book The book to look for.
+     * @return True if a book with the same key is in the list.
+     */
+    public boolean contains(Book book) {
+        return booksByKey.containsKey(book.getKey());
+    }
+
+    /**
+     * Gets the indexed book with the same key.
+     *
+     * @param book The book to look for.
+     * @return The indexed book, or null if it is not in the list.
+     */
+    public Book get(Book book) {
+        return booksByKey.get(book.getKey());
+    }
+
+    /**
+     * Adds a book unless the same book is already indexed.
+     *
+     * @param book The book to add.
+     * @return True if the book was added, false if it was a duplicate.
+     */
+    public boolean add(Book book) {
+        if (booksByKey.putIfAbsent(book.getKey(), book) != null) {
+            return false;
+        }
+        fineEngine.put(book);
+        addedOrder.put(book.getKey(), nextAddedOrder++);
+        views = views.plus(book, viewChanges);
+        return true;
+    }
+
+    /**
+     * Removes a book.
+     *
+     * @param book The book being returned.
+     * @return True if the book was in the list.
+     */
+    public boolean remove(Book book) {
+        Book indexedBook = booksByKey.remove(book.getKey());
+        if (indexedBook == null) {
+            return false;
+        }
+        fineEngine.remove(book.getKey());
+        views = views.minus(indexedBook, viewChanges);
+        addedOrder.remove(book.getKey());
+        return true;
+    }
+
+    /**
+     * Adds every book that is not already in the list, keeping their order.
+     *
+     * @param books The books to add.
+     * @return The books that were added, without duplicates.
+     */
+    public ArrayList<Book> addAll(Collection<Book> books) {
+        ArrayList<Book> added = new ArrayList<>();
+        for (Book book : books) {
+            if (add(book)) {
+                added.add(book);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes every given book that is in the list.
+     *
+     * @param books The books being returned.
+     * @return The indexed books that were removed, in the order given.
+     */
+    public ArrayList<Book> removeAll(Collection<Book> books) {
+        ArrayList<Book> removed = new ArrayList<>();
+        for (Book book : books) {
+            Book indexedBook = booksByKey.remove(book.getKey());
+            if (indexedBook != null) {
+                fineEngine.remove(book.getKey());
+                views = views.minus(indexedBook, viewChanges);
+                addedOrder.remove(book.getKey());
+                removed.add(indexedBook);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces an indexed book with an updated copy carrying a new return date.
+     *
+     * @param book           The book whose return date changed.
+     * @param returnEpochDay The new return date as an epoch day.
+     * @return The updated copy, or null if the book is not in the list.
+     */
+    public Book setReturnDate(Book book, int returnEpochDay) {
+        Book indexedBook = booksByKey.get(book.getKey());
+        if (indexedBook == null) {
+            return null;
+        }
+        Book updatedBook = indexedBook.withReturnEpochDay(returnEpochDay);
+        booksByKey.put(book.getKey(), updatedBook);
+        fineEngine.put(updatedBook);
+        views = views.replace(indexedBook, updatedBook, viewChanges);
+        return updatedBook;
+    }
+
+    /**
+     * Gets the total late fine on a given day.
+     *
+     * @param today Today's epoch day.
+     * @return The total fine in dollars.
+     */
+    public int getTotalFine(int today) {
+        return fineEngine.getTotalFine(today);
+    }
+
+    /**
+     * Gets the next day on which the total fine will change without any user action.
+     *
+     * @param today Today's epoch day.
+     * @return The epoch day on which the next book becomes fined,
+     *         or Integer.MAX_VALUE if the fine cannot change on its own.
+     */
+    public int getNextFineChangeDay(int today) {
+        fineEngine.getTotalFine(today);
+        return fineEngine.getNextChangeDay();
+    }
+
+    /**
+     * Gets the next day on which a book becomes overdue, which changes the overdue view
+     * without any user action. Books fall due days before they are fined, so this comes
+     * before {@link #getNextFineChangeDay(int)} whenever a book is pending.
+     *
+     * @return The epoch day after the one set with {@link #setToday(int)} on which the
+     *         next book becomes overdue, or Integer.MAX_VALUE if none will.
+     */
+    public int getNextOverdueDay() {
+        return views.getNextOverdueDay();
+    }
+
+    /**
+     * Sets the day the overdue view is computed for. Books that became overdue since the
+     * previous day are recorded as inserted into the overdue view.
+     *
+     * @param newToday Today's epoch day.
+     */
+    public void setToday(int newToday) {
+        today = newToday;
+        views = views.withToday(newToday, viewChanges);
+    }
+
+    /**
+     * Gets the current views of the indexed books. They are immutable and unaffected by
+     * later changes.
+     *
+     * @return The views.
+     */
+    public MyListViews getViews() {
+        return views;
+    }
+
+    /**
+     * Returns how the views changed since this method was last called and starts
+     * recording anew.
+     *
+     * @return The changes, or null if the whole list was replaced meanwhile.
+     */
+    public ViewChanges takeViewChanges() {
+        return viewChanges.build();
+    }
+
+    /**
+     * Gets a book's position in the order books were added.
+     *
+     * @param book An indexed book.
+     * @return Its sequence number.
+     */
+    private long getAddedOrder(Book book) {
+        return addedOrder.get(book.getKey());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.example.bookworm;
+
+import java.util.List;
+
+/**
+ * MyListSnapshot is an immutable view of the user's list at one point in time, as published
+ * to subscribers. Every change to the list produces a snapshot with a higher version, so
+ * subscribers can tell new data from a repeated delivery by comparing versions.
+ *
+ * A snapshot holds the list's {@link MyListViews}, which share their unchanged parts with
+ * the previous snapshot's, so taking a snapshot does not copy the list. It also carries the
+ * {@link ViewChanges} that lead from the previous snapshot to this one, so a subscriber
+ * that displayed the previous snapshot can update only the rows that changed.
+ */
+public final class MyListSnapshot {
+
+    /** Position of this snapshot in the sequence of published snapshots. */
+    private final long version;
+
+    /** The sorted and filtered views of the books. */
+    private final MyListViews views;
+
+    /** How the views changed since the snapshot with the previous version, or null. */
+    private final ViewChanges changes;
+
+    /** The total late fine in dollars when the snapshot was taken. */
+    private final int totalFine;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param version   The snapshot's version.
+     * @param views     The views of the books.
+     * @param changes   How the views changed since the snapshot with version - 1, or null if
+     *                  the list was replaced, e.g. by loading another list.
+     * @param totalFine The total late fine in dollars.
+     */
+    public MyListSnapshot(long version, MyListViews views, ViewChanges changes, int totalFine) {
+        this.version = version;
+        this.views = views;
+        this.changes = changes;
+        this.totalFine = totalFine;
+    }
+
+    /**
+     * Gets the snapshot's version.
+     *
+     * @return The version; later snapshots have higher versions.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the books in the list.
+     *
+     * @return An unmodifiable list of the books, in the order they were added.
+     */
+    public List<Book> getBooks() {
+        return views.getBooks(MyListView.ADDED);
+    }
+
+    /**
+     * Gets the books shown by a view of the list.
+     *
+     * @param view The view.
+     * @return An unmodifiable list of the view's books, in the view's order.
+     */
+    public List<Book> getBooks(MyListView view) {
+        return views.getBooks(view);
+    }
+
+    /**
+     * Gets the number of books in the list.
+     *
+     * @return The list size.
+     */
+    public int size() {
+        return views.size();
+    }
+
+    /**
+     * Gets how the views changed since the previous snapshot.
+     *
+     * @param previous The snapshot the subscriber displays.
+     * @return The changes that turn the previous snapshot's views into this one's, or null
+     *         if they are unknown because the previous snapshot is not the one right before
+     *         this one or the list was replaced.
+     */
+    public ViewChanges getChangesSince(MyListSnapshot previous) {
+        return (previous != null && previous.version == version - 1) ? changes : null;
+    }
+
+    /**
+     * Checks whether the same book is in the list. O(log n).
+     *
+     * @param book The book to look for.
+     * @return True if a book with the same key is in the list.
+     */
+    public boolean contains(Book book) {
+        return views.contains(book);
+    }
+
+    /**
+     * Checks whether two snapshots contain the same books, ignoring their order and return
+     * dates. Snapshots that share their key index are recognised without comparing keys.
+     *
+     * @param other The other snapshot, or null.
+     * @return True if both snapshots contain books with the same keys.
+     */
+    public boolean hasSameKeysAs(MyListSnapshot other) {
+        return other != null && other.views.hasSameKeysAs(views);
+    }
+
+    /**
+     * Gets the total late fine.
+     *
+     * @return The total fine in dollars when the snapshot was taken.
+     */
+    public int getTotalFine() {
+        return totalFine;
+    }
+}
\ No newline at end of file
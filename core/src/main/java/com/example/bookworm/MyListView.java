@@ -0,0 +1,24 @@
+package com.example.bookworm;
+
+/**
+ * MyListView names the ways the user's list can be shown: sorted in one of several orders,
+ * or filtered to the overdue books. Each view is maintained incrementally by
+ * {@link MyListViews}, so switching between them never sorts the list.
+ */
+public enum MyListView {
+
+    /** Every book, in the order the books were added. */
+    ADDED,
+
+    /** Every book, earliest return date first; books without a return date come last. */
+    DUE_DATE,
+
+    /** Every book, by title. */
+    TITLE,
+
+    /** Every book, by author and then by title. */
+    AUTHOR,
+
+    /** Only the overdue books, earliest return date first. */
+    OVERDUE
+}
\ No newline at end of file
@@ -0,0 +1,380 @@
+package com.example.bookworm;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * MyListViews holds every {@link MyListView} of the user's list at one point in time.
+ *
+ * Each sorted view is an {@link OrderedTree}, so an add, return or re-dating changes each
+ * view in O(log n) and the change's position in every view is known without sorting or
+ * diffing; the positions are recorded in a {@link ViewChanges.Builder} as the change is
+ * made. The overdue view is not kept separately: with books ordered by return date and
+ * undated books last, the overdue books are exactly the first ones, so the view is a
+ * prefix of the due date view whose length is maintained with the list and found again
+ * in O(log n) when the day changes. Switching views only picks another tree.
+ *
+ * Instances are immutable. Changing the list returns new views that share all unchanged
+ * nodes with the old ones, so a published snapshot keeps its views unchanged.
+ */
+public final class MyListViews {
+
+    /** Orders books by key; used for membership checks. */
+    private static final Comparator<Book> BY_KEY = Comparator.comparing(Book::getKey);
+
+    /** Orders books by title, then by key to keep them distinct. */
+    private static final Comparator<Book> BY_TITLE = (a, b) -> {
+        int byTitle = String.CASE_INSENSITIVE_ORDER.compare(a.getTitle(), b.getTitle());
+        return (byTitle != 0) ? byTitle : a.getKey().compareTo(b.getKey());
+    };
+
+    /** Orders books by author, then by title. */
+    private static final Comparator<Book> BY_AUTHOR = (a, b) -> {
+        int byAuthor = String.CASE_INSENSITIVE_ORDER.compare(a.getAuthor(), b.getAuthor());
+        return (byAuthor != 0) ? byAuthor : BY_TITLE.compare(a, b);
+    };
+
+    /** Orders books by return date with undated books last, then by title. */
+    private static final Comparator<Book> BY_DUE_DATE = (a, b) -> {
+        int byDate = Long.compare(dueOrder(a), dueOrder(b));
+        return (byDate != 0) ? byDate : BY_TITLE.compare(a, b);
+    };
+
+    /** The books by key, for membership checks only; copies may be out of date. */
+    private final OrderedTree<Book> byKey;
+
+    /** The books in the order they were added. */
+    private final OrderedTree<Book> byAdded;
+
+    /** The books by return date. */
+    private final OrderedTree<Book> byDueDate;
+
+    /** The books by title. */
+    private final OrderedTree<Book> byTitle;
+
+    /** The books by author. */
+    private final OrderedTree<Book> byAuthor;
+
+    /** The epoch day the overdue view was computed for. */
+    private final int today;
+
+    /** Number of overdue books, which lead the due date view. */
+    private final int overdueCount;
+
+    /**
+     * Creates views.
+     *
+     * @param byKey        The books by key.
+     * @param byAdded      The books in the order they were added.
+     * @param byDueDate    The books by return date.
+     * @param byTitle      The books by title.
+     * @param byAuthor     The books by author.
+     * @param today        The epoch day the overdue view is computed for.
+     * @param overdueCount Number of overdue books on that day.
+     */
+    private MyListViews(OrderedTree<Book> byKey, OrderedTree<Book> byAdded, OrderedTree<Book> byDueDate,
+                        OrderedTree<Book> byTitle, OrderedTree<Book> byAuthor, int today, int overdueCount) {
+        this.byKey = byKey;
+        this.byAdded = byAdded;
+        this.byDueDate = byDueDate;
+        this.byTitle = byTitle;
+        this.byAuthor = byAuthor;
+        this.today = today;
+        this.overdueCount = overdueCount;
+    }
+
+    /**
+     * Builds the views of a list in O(n log n), sorting each order once.
+     *
+     * @param books      The books, each with a distinct key.
+     * @param addedOrder Gives each book's position in the order books were added; it must
+     *                   keep giving the same value for a key while the book is in the list.
+     * @param today      Today's epoch day, for the overdue view.
+     * @return The views.
+     */
+    public static MyListViews of(Collection<Book> books, ToLongFunction<Book> addedOrder, int today) {
+        OrderedTree<Book> byDueDate = OrderedTree.of(BY_DUE_DATE, books);
+        return new MyListViews(
+                OrderedTree.of(BY_KEY, books),
+                OrderedTree.of(Comparator.comparingLong(addedOrder), books),
+                byDueDate,
+                OrderedTree.of(BY_TITLE, books),
+                OrderedTree.of(BY_AUTHOR, books),
+                today,
+                byDueDate.countWhile(book -> isOverdue(book, today)));
+    }
+
+    /**
+     * Gets the books shown by a view.
+     *
+     * @param view The view.
+     * @return An unmodifiable list of the view's books, in the view's order.
+     */
+    public List<Book> getBooks(MyListView view) {
+        switch (view) {
+            case DUE_DATE:
+                return byDueDate.asList();
+            case TITLE:
+                return byTitle.asList();
+            case AUTHOR:
+                return byAuthor.asList();
+            case OVERDUE:
+                return byDueDate.asList(overdueCount);
+            default:
+                return byAdded.asList();
+        }
+    }
+
+    /**
+     * Gets the number of books in the list.
+     *
+     * @return The size of every view but the overdue one.
+     */
+    public int size() {
+        return byKey.size();
+    }
+
+    /**
+     * Gets the number of overdue books.
+     *
+     * @return The size of the overdue view.
+     */
+    public int getOverdueCount() {
+        return overdueCount;
+    }
+
+    /**
+     * Gets the next day on which a book becomes overdue, after the day the views were
+     * computed for. The due date view holds the overdue books first, so the next one to
+     * fall due is the book right after them. O(log n).
+     *
+     * @return The next book's return date as an epoch day, or Integer.MAX_VALUE if every
+     *         book is overdue already or has no return date.
+     */
+    public int getNextOverdueDay() {
+        if (overdueCount == byDueDate.size()) {
+            return Integer.MAX_VALUE;
+        }
+        Book next = byDueDate.get(overdueCount);
+        return next.hasReturnDate() ? next.getReturnEpochDay() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Checks whether the same book is in the list. O(log n).
+     *
+     * @param book The book to look for.
+     * @return True if a book with the same key is in the list.
+     */
+    public boolean contains(Book book) {
+        return byKey.contains(book);
+    }
+
+    /**
+     * Checks whether two lists contain the same books, ignoring their order and return dates.
+     * Views that share their key index are recognised without comparing keys.
+     *
+     * @param other The other views.
+     * @return True if both lists contain books with the same keys.
+     */
+    public boolean hasSameKeysAs(MyListViews other) {
+        if (other.byKey.isSameTreeAs(byKey)) {
+            return true;
+        }
+        if (other.size() != size()) {
+            return false;
+        }
+        Iterator<Book> mine = byKey.asList().iterator();
+        Iterator<Book> theirs = other.byKey.asList().iterator();
+        while (mine.hasNext()) {
+            if (!mine.next().getKey().equals(theirs.next().getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the views with a book added.
+     *
+     * @param book    A book that is not in the list.
+     * @param changes Receives the book's position in every view.
+     * @return The new views.
+     */
+    MyListViews plus(Book book, ViewChanges.Builder changes) {
+        OrderedTree<Book> newByAdded = insert(byAdded, book, MyListView.ADDED, changes);
+        OrderedTree<Book> newByDueDate = insert(byDueDate, book, MyListView.DUE_DATE, changes);
+        int newOverdueCount = overdueCount;
+        if (isOverdue(book, today)) {
+            changes.inserted(MyListView.OVERDUE, newByDueDate.indexOf(book), 1);
+            newOverdueCount++;
+        }
+        return new MyListViews(byKey.insert(book), newByAdded, newByDueDate,
+                insert(byTitle, book, MyListView.TITLE, changes),
+                insert(byAuthor, book, MyListView.AUTHOR, changes),
+                today, newOverdueCount);
+    }
+
+    /**
+     * Returns the views without a book.
+     *
+     * @param book    The book as it is held in the list.
+     * @param changes Receives the book's former position in every view.
+     * @return The new views.
+     */
+    MyListViews minus(Book book, ViewChanges.Builder changes) {
+        int newOverdueCount = overdueCount;
+        if (isOverdue(book, today)) {
+            changes.removed(MyListView.OVERDUE, byDueDate.indexOf(book), 1);
+            newOverdueCount--;
+        }
+        return new MyListViews(byKey.remove(book),
+                remove(byAdded, book, MyListView.ADDED, changes),
+                remove(byDueDate, book, MyListView.DUE_DATE, changes),
+                remove(byTitle, book, MyListView.TITLE, changes),
+                remove(byAuthor, book, MyListView.AUTHOR, changes),
+                today, newOverdueCount);
+    }
+
+    /**
+     * Returns the views with a book replaced by an updated copy, e.g. with a new return date.
+     *
+     * @param book    The book as it is held in the list.
+     * @param updated The updated copy, with the same key.
+     * @param changes Receives the book's moves and content changes in every view.
+     * @return The new views.
+     */
+    MyListViews replace(Book book, Book updated, ViewChanges.Builder changes) {
+        OrderedTree<Book> newByDueDate = replace(byDueDate, book, updated, MyListView.DUE_DATE, changes);
+
+        // The overdue view is a prefix of the due date view, so membership decides the operation
+        boolean wasOverdue = isOverdue(book, today);
+        boolean isOverdue = isOverdue(updated, today);
+        int newOverdueCount = overdueCount;
+        if (wasOverdue && isOverdue) {
+            recordReplace(byDueDate.indexOf(book), newByDueDate.indexOf(updated), MyListView.OVERDUE, changes);
+        } else if (wasOverdue) {
+            changes.removed(MyListView.OVERDUE, byDueDate.indexOf(book), 1);
+            newOverdueCount--;
+        } else if (isOverdue) {
+            changes.inserted(MyListView.OVERDUE, newByDueDate.indexOf(updated), 1);
+            newOverdueCount++;
+        }
+
+        // The key index is only used for membership, so it keeps the old copy and its identity
+        return new MyListViews(byKey,
+                replace(byAdded, book, updated, MyListView.ADDED, changes),
+                newByDueDate,
+                replace(byTitle, book, updated, MyListView.TITLE, changes),
+                replace(byAuthor, book, updated, MyListView.AUTHOR, changes),
+                today, newOverdueCount);
+    }
+
+    /**
+     * Returns the views for another day. Only the overdue view depends on the day: books
+     * that became overdue are appended to it, in O(log n).
+     *
+     * @param newToday The new epoch day.
+     * @param changes  Receives the change of the overdue view.
+     * @return The new views, or these views if the day is unchanged.
+     */
+    MyListViews withToday(int newToday, ViewChanges.Builder changes) {
+        if (newToday == today) {
+            return this;
+        }
+        int newOverdueCount = byDueDate.countWhile(book -> isOverdue(book, newToday));
+        if (newOverdueCount > overdueCount) {
+            changes.inserted(MyListView.OVERDUE, overdueCount, newOverdueCount - overdueCount);
+        } else if (newOverdueCount < overdueCount) {
+            changes.removed(MyListView.OVERDUE, newOverdueCount, overdueCount - newOverdueCount);
+        }
+        return new MyListViews(byKey, byAdded, byDueDate, byTitle, byAuthor, newToday, newOverdueCount);
+    }
+
+    /**
+     * Inserts a book into one view's tree and records its position.
+     *
+     * @param tree    The view's tree.
+     * @param book    The book.
+     * @param view    The view.
+     * @param changes Receives the insert.
+     * @return The new tree.
+     */
+    private static OrderedTree<Book> insert(OrderedTree<Book> tree, Book book, MyListView view,
+                                            ViewChanges.Builder changes) {
+        OrderedTree<Book> newTree = tree.insert(book);
+        changes.inserted(view, newTree.indexOf(book), 1);
+        return newTree;
+    }
+
+    /**
+     * Removes a book from one view's tree and records its former position.
+     *
+     * @param tree    The view's tree.
+     * @param book    The book.
+     * @param view    The view.
+     * @param changes Receives the removal.
+     * @return The new tree.
+     */
+    private static OrderedTree<Book> remove(OrderedTree<Book> tree, Book book, MyListView view,
+                                            ViewChanges.Builder changes) {
+        changes.removed(view, tree.indexOf(book), 1);
+        return tree.remove(book);
+    }
+
+    /**
+     * Replaces a book in one view's tree and records the move and content change.
+     *
+     * @param tree    The view's tree.
+     * @param book    The book as it is held.
+     * @param updated The updated copy.
+     * @param view    The view.
+     * @param changes Receives the move, if any, and the content change.
+     * @return The new tree.
+     */
+    private static OrderedTree<Book> replace(OrderedTree<Book> tree, Book book, Book updated, MyListView view,
+                                             ViewChanges.Builder changes) {
+        int from = tree.indexOf(book);
+        OrderedTree<Book> newTree = tree.remove(book).insert(updated);
+        recordReplace(from, newTree.indexOf(updated), view, changes);
+        return newTree;
+    }
+
+    /**
+     * Records a row whose content changed and which may have moved.
+     *
+     * @param from    The row's position before the change.
+     * @param to      The row's position after the change.
+     * @param view    The view.
+     * @param changes Receives the move, if any, and the content change.
+     */
+    private static void recordReplace(int from, int to, MyListView view, ViewChanges.Builder changes) {
+        if (from != to) {
+            changes.moved(view, from, to);
+        }
+        changes.changed(view, to, 1);
+    }
+
+    /**
+     * Checks whether a book is overdue on a given day.
+     *
+     * @param book  The book.
+     * @param today The epoch day.
+     * @return True if the book has a return date before that day.
+     */
+    private static boolean isOverdue(Book book, int today) {
+        return LoanDates.isOverdue(book.getReturnEpochDay(), today);
+    }
+
+    /**
+     * Gets a book's rank in the due date order, placing books without a return date last.
+     *
+     * @param book The book.
+     * @return The sort key.
+     */
+    private static long dueOrder(Book book) {
+        return book.hasReturnDate() ? book.getReturnEpochDay() : Long.MAX_VALUE;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,510 @@
+package com.example.bookworm;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * OrderedTree is an immutable sorted collection with positional access: a persistent
+ * treap whose nodes also count the size of their subtree.
+ *
+ * Inserting or removing a value, finding its position and getting the value at a position
+ * are all O(log n) expected. An insert or remove copies only the nodes on the path it
+ * walks and shares every other node with the tree it was made from, so an earlier tree
+ * stays valid and unchanged after a change. That lets a published snapshot keep its
+ * ordering for free while the next one is built.
+ *
+ * The comparator must be a total order over the values held: values that compare as equal
+ * are treated as the same value.
+ *
+ * @param <T> The type of the values.
+ */
+public final class OrderedTree<T> {
+
+    /** The order of the values. */
+    private final Comparator<? super T> comparator;
+
+    /** The root node, or null if the tree is empty. */
+    private final Node<T> root;
+
+    /**
+     * A node of the tree. Nodes are never modified once built.
+     *
+     * @param <T> The type of the value.
+     */
+    private static final class Node<T> {
+
+        /** The value held by the node. */
+        final T value;
+
+        /** Heap priority; a node's priority is never lower than its children's. */
+        final int priority;
+
+        /** The subtree of smaller values, or null. */
+        final Node<T> left;
+
+        /** The subtree of larger values, or null. */
+        final Node<T> right;
+
+        /** Number of nodes in this subtree, including this one. */
+        final int size;
+
+        /**
+         * Creates a node.
+         *
+         * @param value    The value.
+         * @param priority The heap priority.
+         * @param left     The subtree of smaller values, or null.
+         * @param right    The subtree of larger values, or null.
+         */
+        Node(T value, int priority, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + sizeOf(left) + sizeOf(right);
+        }
+
+        /**
+         * Creates a copy of this node with other children.
+         *
+         * @param newLeft  The new subtree of smaller values, or null.
+         * @param newRight The new subtree of larger values, or null.
+         * @return The copy.
+         */
+        Node<T> with(Node<T> newLeft, Node<T> newRight) {
+            return new Node<>(value, priority, newLeft, newRight);
+        }
+    }
+
+    /**
+     * The two halves of a split subtree.
+     *
+     * @param <T> The type of the values.
+     */
+    private static final class Split<T> {
+
+        /** The subtree of values before the split point, or null. */
+        Node<T> smaller;
+
+        /** The subtree of values after the split point, or null. */
+        Node<T> larger;
+    }
+
+    /**
+     * Creates a tree.
+     *
+     * @param comparator The order of the values.
+     * @param root       The root node, or null.
+     */
+    private OrderedTree(Comparator<? super T> comparator, Node<T> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    /**
+     * Creates an empty tree.
+     *
+     * @param comparator The order of the values.
+     * @param <T>        The type of the values.
+     * @return The empty tree.
+     */
+    public static <T> OrderedTree<T> empty(Comparator<? super T> comparator) {
+        return new OrderedTree<>(comparator, null);
+    }
+
+    /**
+     * Creates a tree holding the given values. The values are sorted once and the tree is
+     * built from them in linear time, which is much cheaper than inserting them one by one.
+     *
+     * @param comparator The order of the values.
+     * @param values     The values; none may compare as equal to another.
+     * @param <T>        The type of the values.
+     * @return The tree.
+     */
+    public static <T> OrderedTree<T> of(Comparator<? super T> comparator, Collection<? extends T> values) {
+        ArrayList<T> sorted = new ArrayList<>(values);
+        sorted.sort(comparator);
+        int n = sorted.size();
+        if (n == 0) {
+            return empty(comparator);
+        }
+
+        // Build the Cartesian tree of random priorities over the sorted values with a
+        // stack, recording children by index, then create the immutable nodes bottom-up
+        int[] priorities = new int[n];
+        int[] left = new int[n];
+        int[] right = new int[n];
+        int[] stack = new int[n];
+        int depth = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < n; i++) {
+            priorities[i] = random.nextInt();
+            left[i] = -1;
+            right[i] = -1;
+            int last = -1;
+            while (depth > 0 && priorities[stack[depth - 1]] < priorities[i]) {
+                last = stack[--depth];
+            }
+            left[i] = last;
+            if (depth > 0) {
+                right[stack[depth - 1]] = i;
+            }
+            stack[depth++] = i;
+        }
+        return new OrderedTree<>(comparator, build(stack[0], sorted, priorities, left, right));
+    }
+
+    /**
+     * Creates the nodes of a subtree recorded by index.
+     *
+     * @param i          The index of the subtree's root, or -1.
+     * @param values     The sorted values.
+     * @param priorities The priority of each value.
+     * @param left       The index of each value's left child, or -1.
+     * @param right      The index of each value's right child, or -1.
+     * @param <T>        The type of the values.
+     * @return The subtree's root node, or null.
+     */
+    private static <T> Node<T> build(int i, List<T> values, int[] priorities, int[] left, int[] right) {
+        if (i < 0) {
+            return null;
+        }
+        // Subtrees are expected to be O(log n) deep, so recursion is safe
+        Node<T> leftNode = build(left[i], values, priorities, left, right);
+        Node<T> rightNode = build(right[i], values, priorities, left, right);
+        return new Node<>(values.get(i), priorities[i], leftNode, rightNode);
+    }
+
+    /**
+     * Gets the number of values.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * Gets the value at a position.
+     *
+     * @param index The position, from 0 to size() - 1.
+     * @return The value.
+     * @throws IndexOutOfBoundsException If the position is out of range.
+     */
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    /**
+     * Finds the position of a value.
+     *
+     * @param value The value to look for.
+     * @return The position of the value that compares as equal, or -1 if there is none.
+     */
+    public int indexOf(T value) {
+        int before = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int order = comparator.compare(value, node.value);
+            if (order < 0) {
+                node = node.left;
+            } else if (order > 0) {
+                before += sizeOf(node.left) + 1;
+                node = node.right;
+            } else {
+                return before + sizeOf(node.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a value is held.
+     *
+     * @param value The value to look for.
+     * @return True if a value that compares as equal is held.
+     */
+    public boolean contains(T value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Counts the values at the start of the order that match a condition. The condition
+     * must hold for a prefix of the order and nowhere after it, e.g. "due by today"
+     * over values ordered by due date.
+     *
+     * @param condition The condition.
+     * @return The length of the matching prefix.
+     */
+    public int countWhile(Predicate<? super T> condition) {
+        int count = 0;
+        Node<T> node = root;
+        while (node != null) {
+            if (condition.test(node.value)) {
+                count += sizeOf(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a tree that also holds a value. If a value that compares as equal is already
+     * held, it is replaced.
+     *
+     * @param value The value to insert.
+     * @return The new tree; this tree is unchanged.
+     */
+    public OrderedTree<T> insert(T value) {
+        // Removing an equal value first keeps the split below from duplicating it
+        Node<T> base = remove(root, value);
+        return new OrderedTree<>(comparator, insert(base, value, ThreadLocalRandom.current().nextInt()));
+    }
+
+    /**
+     * Returns a tree without a value.
+     *
+     * @param value The value to remove.
+     * @return The new tree, or this tree if no value compares as equal.
+     */
+    public OrderedTree<T> remove(T value) {
+        Node<T> newRoot = remove(root, value);
+        return (newRoot == root) ? this : new OrderedTree<>(comparator, newRoot);
+    }
+
+    /**
+     * Checks whether two trees hold the same nodes, without comparing their values. Trees
+     * derived from each other only by changes that were undone are not recognised.
+     *
+     * @param other The other tree.
+     * @return True if both trees share their root.
+     */
+    public boolean isSameTreeAs(OrderedTree<?> other) {
+        return other.root == root;
+    }
+
+    /**
+     * Returns the values as a list, in order.
+     *
+     * @return An unmodifiable list view; get is O(log n) and iteration O(1) per value.
+     */
+    public List<T> asList() {
+        return asList(size());
+    }
+
+    /**
+     * Returns the first values as a list, in order.
+     *
+     * @param count The number of values to include, at most size().
+     * @return An unmodifiable list view; get is O(log n) and iteration O(1) per value.
+     */
+    public List<T> asList(int count) {
+        if (count < 0 || count > size()) {
+            throw new IndexOutOfBoundsException("Count " + count + ", size " + size());
+        }
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                if (index >= count) {
+                    throw new IndexOutOfBoundsException("Index " + index + ", size " + count);
+                }
+                return OrderedTree.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public Iterator<T> iterator() {
+                return new InOrderIterator<>(root, count);
+            }
+        };
+    }
+
+    /**
+     * Inserts a value into a subtree.
+     *
+     * @param node     The subtree's root, or null; it does not hold the value.
+     * @param value    The value.
+     * @param priority The priority of the new node.
+     * @return The new subtree's root.
+     */
+    private Node<T> insert(Node<T> node, T value, int priority) {
+        if (node == null) {
+            return new Node<>(value, priority, null, null);
+        }
+        int order = comparator.compare(value, node.value);
+        if (priority > node.priority) {
+            // The new node becomes this subtree's root
+            Split<T> parts = split(node, value);
+            return new Node<>(value, priority, parts.smaller, parts.larger);
+        }
+        return (order < 0)
+                ? node.with(insert(node.left, value, priority), node.right)
+                : node.with(node.left, insert(node.right, value, priority));
+    }
+
+    /**
+     * Removes a value from a subtree.
+     *
+     * @param node  The subtree's root, or null.
+     * @param value The value.
+     * @return The new subtree's root, or the same root if the value is not held.
+     */
+    private Node<T> remove(Node<T> node, T value) {
+        if (node == null) {
+            return null;
+        }
+        int order = comparator.compare(value, node.value);
+        if (order == 0) {
+            return merge(node.left, node.right);
+        }
+        if (order < 0) {
+            Node<T> newLeft = remove(node.left, value);
+            return (newLeft == node.left) ? node : node.with(newLeft, node.right);
+        }
+        Node<T> newRight = remove(node.right, value);
+        return (newRight == node.right) ? node : node.with(node.left, newRight);
+    }
+
+    /**
+     * Splits a subtree that does not hold a value into the values before and after it.
+     *
+     * @param node  The subtree's root, or null.
+     * @param value The value to split at.
+     * @return The roots of the smaller and the larger values.
+     */
+    private Split<T> split(Node<T> node, T value) {
+        if (node == null) {
+            return new Split<>();
+        }
+        if (comparator.compare(value, node.value) < 0) {
+            Split<T> parts = split(node.left, value);
+            parts.larger = node.with(parts.larger, node.right);
+            return parts;
+        }
+        Split<T> parts = split(node.right, value);
+        parts.smaller = node.with(node.left, parts.smaller);
+        return parts;
+    }
+
+    /**
+     * Joins two subtrees where every value of the first is smaller than every value of the second.
+     *
+     * @param smaller The subtree of smaller values, or null.
+     * @param larger  The subtree of larger values, or null.
+     * @param <T>     The type of the values.
+     * @return The joined subtree's root, or null.
+     */
+    private static <T> Node<T> merge(Node<T> smaller, Node<T> larger) {
+        if (smaller == null) {
+            return larger;
+        }
+        if (larger == null) {
+            return smaller;
+        }
+        if (smaller.priority > larger.priority) {
+            return smaller.with(smaller.left, merge(smaller.right, larger));
+        }
+        return larger.with(merge(smaller, larger.left), larger.right);
+    }
+
+    /**
+     * Gets the size of a subtree.
+     *
+     * @param node The subtree's root, or null.
+     * @return The number of nodes.
+     */
+    private static int sizeOf(Node<?> node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    /**
+     * Walks a tree in order with an explicit stack of the pending ancestors.
+     *
+     * @param <T> The type of the values.
+     */
+    private static final class InOrderIterator<T> implements Iterator<T> {
+
+        /** Nodes whose value and right subtree have not been visited yet. */
+        private final ArrayDeque<Node<T>> pending = new ArrayDeque<>();
+
+        /** Number of values still to return. */
+        private int remaining;
+
+        /**
+         * Creates an iterator over the first values of a tree.
+         *
+         * @param root  The tree's root, or null.
+         * @param count The number of values to return.
+         */
+        InOrderIterator(Node<T> root, int count) {
+            this.remaining = count;
+            pushLeftSpine(root);
+        }
+
+        /**
+         * Checks whether there are more values.
+         *
+         * @return True if next() will return a value.
+         */
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * Returns the next value in order.
+         *
+         * @return The value.
+         */
+        @Override
+        public T next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            Node<T> node = pending.pop();
+            pushLeftSpine(node.right);
+            return node.value;
+        }
+
+        /**
+         * Pushes a node and its chain of left descendants.
+         *
+         * @param node The node, or null.
+         */
+        private void pushLeftSpine(Node<T> node) {
+            while (node != null) {
+                pending.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.example.bookworm;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * OverdueTracker decides which overdue books still need to be announced to the user.
+ * Books that have not been announced yet are kept in an index sorted by return date, so
+ * the newly overdue ones are found with a single range query. A book is overdue from its
+ * return date, in the device's time zone (see {@link LoanDates}). Announcements are
+ * coalesced: at most one summary is produced per notification window, and everything
+ * that became overdue in the meantime is included in the next summary.
+ *
+ * A book is announced once per return date; returning it or choosing a new date makes
+ * it eligible again. The tracker holds no Android state, so it can be driven by a
+ * {@link DayClock} over a fake {@link BookwormClock}.
+ */
+public class OverdueTracker {
+
+    /** Minimum time between two summary notifications. */
+    static final long NOTIFICATION_WINDOW_MILLIS = 1000L * 60L * 60L * 6L;
+
+    /** Orders books by return date, then by key to keep them distinct. */
+    private static final Comparator<Book> BY_RETURN_DATE = (a, b) -> {
+        int byDate = Integer.compare(a.getReturnEpochDay(), b.getReturnEpochDay());
+        return (byDate != 0) ? byDate : a.getKey().compareTo(b.getKey());
+    };
+
+    /** Source of the current time and day. */
+    private final DayClock clock;
+
+    /** Dated books that have not been announced for their current return date. */
+    private final TreeSet<Book> unannounced = new TreeSet<>(BY_RETURN_DATE);
+
+    /** Return date (epoch day) that was announced for each book key. */
+    private final HashMap<String, Integer> announced;
+
+    /** When the last summary was produced, in epoch milliseconds (0 if never). */
+    private long lastNotificationMillis;
+
+    /** The value of {@link #lastNotificationMillis} before the last summary was produced. */
+    private long previousNotificationMillis;
+
+    /**
+     * Creates a tracker with previously persisted state.
+     *
+     * @param clock                  Source of the current time and day.
+     * @param announced              Return date (epoch day) already announced for each book key.
+     * @param lastNotificationMillis When the last summary was produced (0 if never).
+     */
+    public OverdueTracker(DayClock clock, Map<String, Integer> announced, long lastNotificationMillis) {
+        this.clock = clock;
+        this.announced = new HashMap<>(announced);
+        this.lastNotificationMillis = lastNotificationMillis;
+    }
+
+    /**
+     * Loads the user's current list. Announcement records for books that were returned
+     * or re-dated are dropped, and the remaining books are indexed by return date.
+     *
+     * @param books The user's books, or just the overdue ones; books that are not
+     *              overdue yet cannot be announced anyway.
+     */
+    public void setBooks(List<Book> books) {
+        unannounced.clear();
+        HashMap<String, Integer> stillAnnounced = new HashMap<>();
+
+        for (Book book : books) {
+            if (!book.hasReturnDate()) continue; // Books without a return date can't be late
+
+            int returnDay = book.getReturnEpochDay();
+            Integer announcedDay = announced.get(book.getKey());
+            if (announcedDay != null && announcedDay == returnDay) {
+                stillAnnounced.put(book.getKey(), returnDay);
+            } else {
+                unannounced.add(book);
+            }
+        }
+
+        announced.clear();
+        announced.putAll(stillAnnounced);
+    }
+
+    /**
+     * Produces the next summary if the notification window allows it. The returned
+     * books are marked as announced.
+     *
+     * @return The books that became overdue since the last summary, oldest first;
+     *         empty if there are none or the window has not elapsed yet.
+     */
+    public List<Book> pollSummary() {
+        long nowMillis = clock.currentTimeMillis();
+        int today = clock.today();
+        ArrayList<Book> newlyOverdue = new ArrayList<>();
+
+        if (lastNotificationMillis > 0 && nowMillis - lastNotificationMillis < NOTIFICATION_WINDOW_MILLIS) {
+            return newlyOverdue;
+        }
+
+        // Every unannounced book due today or earlier is late
+        while (!unannounced.isEmpty() && LoanDates.isOverdue(unannounced.first().getReturnEpochDay(), today)) {
+            Book book = unannounced.pollFirst();
+            announced.put(book.getKey(), book.getReturnEpochDay());
+            newlyOverdue.add(book);
+        }
+
+        if (!newlyOverdue.isEmpty()) {
+            previousNotificationMillis = lastNotificationMillis;
+            lastNotificationMillis = nowMillis;
+        }
+        return newlyOverdue;
+    }
+
+    /**
+     * Takes back the last summary because it could not be shown, e.g. when notifications
+     * are disabled. Its books become unannounced again and the notification window is
+     * restored, so they are included in the next summary instead of being lost.
+     *
+     * @param summary The books returned by the last call to {@link #pollSummary()}.
+     */
+    public void retractSummary(List<Book> summary) {
+        if (summary.isEmpty()) return;
+
+        for (Book book : summary) {
+            announced.remove(book.getKey());
+            unannounced.add(book);
+        }
+        lastNotificationMillis = previousNotificationMillis;
+    }
+
+    /**
+     * Gets the return date announced for each book, for persisting between runs.
+     *
+     * @return A copy of the announcement records.
+     */
+    public Map<String, Integer> getAnnounced() {
+        return new HashMap<>(announced);
+    }
+
+    /**
+     * Gets when the last summary was produced, for persisting between runs.
+     *
+     * @return The time in epoch milliseconds, or 0 if no summary was ever produced.
+     */
+    public long getLastNotificationMillis() {
+        return lastNotificationMillis;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.example.bookworm;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * PagedCatalog keeps a bounded window of catalog pages in memory on behalf of the UI.
+ * Books are requested by position; if the page holding a position is not resident yet,
+ * a placeholder (null) is returned and the page is loaded on a background thread.
+ * Pages ahead of the requested position are prefetched so scrolling rarely hits a
+ * placeholder, and the least recently used pages are evicted once the window is full.
+ * A page that fails to load is logged and requested again the next time one of its
+ * positions is read.
+ *
+ * All public methods must be called on the main thread; results are delivered there too.
+ */
+public class PagedCatalog {
+
+    /**
+     * Receives notifications when a range of placeholders has been replaced by real books.
+     */
+    public interface Listener {
+        /**
+         * Triggered on the main thread after a page has been loaded.
+         *
+         * @param positionStart The position of the first loaded book.
+         * @param itemCount     The number of books loaded.
+         */
+        void onRangeLoaded(int positionStart, int itemCount);
+    }
+
+    /** Number of books per page. */
+    static final int PAGE_SIZE = 40;
+
+    /** Maximum number of pages kept in memory at once. */
+    static final int MAX_RESIDENT_PAGES = 8;
+
+    /** Number of pages loaded ahead of the most recently requested position. */
+    static final int PREFETCH_PAGES = 2;
+
+    /** Logs pages that failed to load. */
+    private static final Logger LOG = Logger.getLogger(PagedCatalog.class.getName());
+
+    /** The catalog being paged. */
+    private final CatalogSource source;
+
+    /** Executor used to deliver loaded pages back to the main thread. */
+    private final Executor mainExecutor;
+
+    /** Runs page loads in the background. */
+    private final Executor loader;
+
+    /** Total number of books in the catalog. */
+    private final int count;
+
+    /** Resident pages keyed by page index, in least-recently-used order. */
+    private final LinkedHashMap<Integer, List<Book>> pages =
+            new LinkedHashMap<Integer, List<Book>>(MAX_RESIDENT_PAGES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<Book>> eldest) {
+                    return size() > MAX_RESIDENT_PAGES;
+                }
+            };
+
+    /** Pages currently being loaded, so each page is requested only once. */
+    private final HashSet<Integer> pagesInFlight = new HashSet<>();
+
+    /** Listener notified when pages arrive, or null. */
+    private Listener listener;
+
+    /** Set once the catalog is closed; late results are then dropped. */
+    private boolean closed;
+
+    /**
+     * Creates a paged view over a catalog source.
+     *
+     * @param source       The catalog to page through.
+     * @param mainExecutor Executor that runs tasks on the main thread.
+     */
+    public PagedCatalog(CatalogSource source, Executor mainExecutor) {
+        this(source, mainExecutor, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookworm-catalog");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Creates a paged view that loads pages on a given executor.
+     *
+     * @param source       The catalog to page through.
+     * @param mainExecutor Executor that runs tasks on the main thread.
+     * @param loader       Executor that runs page loads; shut down on close if it is an
+     *                     ExecutorService.
+     */
+    PagedCatalog(CatalogSource source, Executor mainExecutor, Executor loader) {
+        this.source = source;
+        this.mainExecutor = mainExecutor;
+        this.loader = loader;
+        this.count = source.getCount();
+    }
+
+    /**
+     * Sets the listener notified when pages finish loading.
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the total number of books, including those not loaded yet.
+     *
+     * @return The catalog size.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the book at a position, starting a load for its page if needed.
+     * Pages following the position are prefetched in the background.
+     *
+     * @param position The catalog position.
+     * @return The book, or null if its page has not been loaded yet.
+     */
+    public Book getItem(int position) {
+        int pageIndex = position / PAGE_SIZE;
+        for (int i = 1; i <= PREFETCH_PAGES; i++) {
+            requestPage(pageIndex + i);
+        }
+
+        List<Book> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return null;
+        }
+        int indexInPage = position - pageIndex * PAGE_SIZE;
+        return (indexInPage < page.size()) ? page.get(indexInPage) : null;
+    }
+
+    /**
+     * Returns the book at a position only if its page is already resident.
+     * Unlike {@link #getItem(int)}, this never triggers a load.
+     *
+     * @param position The catalog position.
+     * @return The book, or null if its page is not in memory.
+     */
+    public Book peekItem(int position) {
+        int pageIndex = position / PAGE_SIZE;
+        List<Book> page = pages.get(pageIndex);
+        int indexInPage = position - pageIndex * PAGE_SIZE;
+        return (page != null && indexInPage < page.size()) ? page.get(indexInPage) : null;
+    }
+
+    /**
+     * Stops background loading. Pages that arrive afterwards are discarded.
+     */
+    public void close() {
+        closed = true;
+        listener = null;
+        if (loader instanceof ExecutorService) {
+            ((ExecutorService) loader).shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules a background load for a page unless it is resident, in flight or out of range.
+     *
+     * @param pageIndex The index of the page to load.
+     */
+    private void requestPage(int pageIndex) {
+        int offset = pageIndex * PAGE_SIZE;
+        if (closed || offset >= count || pages.containsKey(pageIndex) || !pagesInFlight.add(pageIndex)) {
+            return;
+        }
+
+        loader.execute(() -> {
+            List<Book> page;
+            try {
+                page = new ArrayList<>(source.loadRange(offset, PAGE_SIZE));
+            } catch (RuntimeException e) {
+                // Forget the request, so the page is loaded again when it is next read
+                LOG.log(Level.WARNING, "Unable to load catalog page " + pageIndex, e);
+                mainExecutor.execute(() -> pagesInFlight.remove(pageIndex));
+                return;
+            }
+            mainExecutor.execute(() -> onPageLoaded(pageIndex, page));
+        });
+    }
+
+    /**
+     * Stores a freshly loaded page and notifies the listener. Runs on the main thread.
+     *
+     * @param pageIndex The index of the loaded page.
+     * @param page      The books in the page.
+     */
+    private void onPageLoaded(int pageIndex, List<Book> page) {
+        pagesInFlight.remove(pageIndex);
+        if (closed) {
+            return;
+        }
+        pages.put(pageIndex, page);
+        if (listener != null) {
+            listener.onRangeLoaded(pageIndex * PAGE_SIZE, page.size());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.bookworm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PerfCounter is a named running total, such as bytes written, or a last-seen size.
+ * Updates are single atomic operations: lock-free and allocation-free.
+ */
+public final class PerfCounter {
+
+    /** The current value. */
+    private final AtomicLong value = new AtomicLong();
+
+    /**
+     * Adds to the total.
+     *
+     * @param delta The amount to add.
+     */
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    /**
+     * Replaces the value, for counters that track a current size.
+     *
+     * @param newValue The new value.
+     */
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    /**
+     * Gets the current value.
+     *
+     * @return The value.
+     */
+    public long get() {
+        return value.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PerfMetrics is the process-wide registry of latency histograms and counters.
+ *
+ * Instruments are looked up by name once, typically into a static final field, and then
+ * recorded into directly, so the hot path never touches the registry. Names are dotted,
+ * with the area first (e.g. "storage.loadMyList"). The registry can be dumped as JSON
+ * for the debug metrics screen or a bug report.
+ */
+public final class PerfMetrics {
+
+    /** Histograms by name. */
+    private static final ConcurrentHashMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    /** Counters by name. */
+    private static final ConcurrentHashMap<String, PerfCounter> COUNTERS = new ConcurrentHashMap<>();
+
+    /** Percentiles included in the JSON dump. */
+    private static final double[] DUMPED_PERCENTILES = {50.0, 90.0, 99.0};
+
+    /** Utility class; not instantiable. */
+    private PerfMetrics() {
+    }
+
+    /**
+     * Gets the histogram with a name, creating it on first use.
+     *
+     * @param name The histogram's name.
+     * @return The histogram.
+     */
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Gets the counter with a name, creating it on first use.
+     *
+     * @param name The counter's name.
+     * @return The counter.
+     */
+    public static PerfCounter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new PerfCounter());
+    }
+
+    /**
+     * Clears every histogram and counter. The instruments stay registered.
+     */
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+        for (PerfCounter counter : COUNTERS.values()) {
+            counter.set(0L);
+        }
+    }
+
+    /**
+     * Writes every instrument as JSON, sorted by name:
+     * {@code {"histograms": {name: {count, meanNanos, p50Nanos, p90Nanos, p99Nanos, maxNanos}},
+     * "counters": {name: value}}}.
+     *
+     * @param out The destination; it is flushed but not closed.
+     * @throws IOException If writing fails.
+     */
+    public static void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginObject();
+
+        json.name("histograms").beginObject();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            json.name(entry.getKey()).beginObject();
+            json.name("count").value(histogram.getCount());
+            json.name("meanNanos").value(histogram.getMeanNanos());
+            for (double percentile : DUMPED_PERCENTILES) {
+                json.name("p" + (int) percentile + "Nanos").value(histogram.getPercentileNanos(percentile));
+            }
+            json.name("maxNanos").value(histogram.getMaxNanos());
+            json.endObject();
+        }
+        json.endObject();
+
+        json.name("counters").beginObject();
+        for (Map.Entry<String, PerfCounter> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue().get());
+        }
+        json.endObject();
+
+        json.endObject();
+        json.flush();
+    }
+}
\ No newline at end of file
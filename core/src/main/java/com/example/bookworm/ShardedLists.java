@@ -0,0 +1,300 @@
+package com.example.bookworm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ShardedLists keeps the user's named lists, each in its own shard: a separate
+ * {@link LoanStore} with its own files. Loading or changing one list only opens and writes
+ * that list's shard; the others are not touched. A {@link ListManifest} records each list's
+ * name, version and size, so the lists can be shown without opening any shard.
+ *
+ * Every change to a list bumps its version in memory and marks the manifest dirty; the
+ * caller writes the manifest with {@link #writeManifestIfDirty()}, so a burst of changes
+ * costs one manifest write. The default list always exists and cannot be deleted.
+ *
+ * Methods block on disk and are meant to be called from a single background thread;
+ * they are synchronized only as a safeguard.
+ */
+public class ShardedLists {
+
+    /** Id of the list that always exists; older versions of the app only had this one. */
+    public static final String DEFAULT_LIST_ID = "default";
+
+    /** Prefix of the ids given to new lists. */
+    private static final String LIST_ID_PREFIX = "list-";
+
+    /**
+     * Opens and deletes the shards of lists.
+     */
+    public interface ShardStorage {
+
+        /**
+         * Opens the shard of a list, creating it if it does not exist.
+         *
+         * @param listId The list's id.
+         * @return The list's store.
+         */
+        LoanStore open(String listId);
+
+        /**
+         * Deletes the shard of a list. The shard has been closed and is not used again.
+         *
+         * @param listId The list's id.
+         */
+        void delete(String listId);
+    }
+
+    /** The manifest file. */
+    private final File manifestFile;
+
+    /** Opens and deletes shards. */
+    private final ShardStorage shards;
+
+    /** Name given to the default list when the manifest is created. */
+    private final String defaultListName;
+
+    /** The lists in display order, or null until the manifest is read. */
+    private ArrayList<ListInfo> lists;
+
+    /** Number the next new list's id is made from; never decreases. */
+    private int nextListNumber;
+
+    /** Shards opened so far, by list id. */
+    private final HashMap<String, LoanStore> openShards = new HashMap<>();
+
+    /** Whether the lists changed since the manifest was last written. */
+    private boolean manifestDirty;
+
+    /**
+     * Creates the registry. Nothing is read until it is first used.
+     *
+     * @param manifestFile    The manifest file.
+     * @param shards          Opens and deletes shards.
+     * @param defaultListName Name given to the default list when the manifest is created.
+     */
+    public ShardedLists(File manifestFile, ShardStorage shards, String defaultListName) {
+        this.manifestFile = manifestFile;
+        this.shards = shards;
+        this.defaultListName = defaultListName;
+    }
+
+    /**
+     * Gets the lists without opening any shard.
+     *
+     * @return A copy of the lists, in display order; the default list comes first.
+     * @throws IOException If the manifest cannot be read.
+     */
+    public synchronized ArrayList<ListInfo> getLists() throws IOException {
+        return new ArrayList<>(lists());
+    }
+
+    /**
+     * Gets a list's description.
+     *
+     * @param listId The list's id.
+     * @return The list, or null if there is no such list.
+     * @throws IOException If the manifest cannot be read.
+     */
+    public synchronized ListInfo get(String listId) throws IOException {
+        int index = indexOf(listId);
+        return (index >= 0) ? lists.get(index) : null;
+    }
+
+    /**
+     * Gets the store of a list, opening its shard on first use.
+     *
+     * @param listId The list's id.
+     * @return The list's store.
+     * @throws IOException              If the manifest cannot be read.
+     * @throws IllegalArgumentException If there is no such list.
+     */
+    public synchronized LoanStore getStore(String listId) throws IOException {
+        if (indexOf(listId) < 0) {
+            throw new IllegalArgumentException("No list " + listId);
+        }
+        LoanStore store = openShards.get(listId);
+        if (store == null) {
+            store = shards.open(listId);
+            openShards.put(listId, store);
+        }
+        return store;
+    }
+
+    /**
+     * Creates an empty list at the end of the display order. Its shard is created when the
+     * list is first used. Ids are never reused, so a new list cannot pick up the files of a
+     * deleted list whose shard was not fully removed.
+     *
+     * @param name The display name.
+     * @return The new list.
+     * @throws IOException If the manifest cannot be read.
+     */
+    public synchronized ListInfo create(String name) throws IOException {
+        ListInfo list = new ListInfo(LIST_ID_PREFIX + nextListNumber(), name, 0, 0);
+        lists.add(list);
+        nextListNumber++;
+        manifestDirty = true;
+        return list;
+    }
+
+    /**
+     * Renames a list.
+     *
+     * @param listId The list's id.
+     * @param name   The new display name.
+     * @return The renamed list, or null if there is no such list.
+     * @throws IOException If the manifest cannot be read.
+     */
+    public synchronized ListInfo rename(String listId, String name) throws IOException {
+        int index = indexOf(listId);
+        if (index < 0) {
+            return null;
+        }
+        ListInfo renamed = lists.get(index).withName(name);
+        lists.set(index, renamed);
+        manifestDirty = true;
+        return renamed;
+    }
+
+    /**
+     * Deletes a list and its shard. The manifest is written first, so after a crash the
+     * list is gone even if its files are still there.
+     *
+     * @param listId The list's id.
+     * @return True if the list existed.
+     * @throws IOException              If the manifest cannot be read or written.
+     * @throws IllegalArgumentException If the list is the default list.
+     */
+    public synchronized boolean delete(String listId) throws IOException {
+        if (DEFAULT_LIST_ID.equals(listId)) {
+            throw new IllegalArgumentException("The default list cannot be deleted");
+        }
+        int index = indexOf(listId);
+        if (index < 0) {
+            return false;
+        }
+        lists.remove(index);
+        manifestDirty = true;
+        writeManifestIfDirty();
+
+        LoanStore store = openShards.remove(listId);
+        if (store != null) {
+            store.sync();
+        }
+        shards.delete(listId);
+        return true;
+    }
+
+    /**
+     * Records that a list changed: its version is bumped and its size updated.
+     *
+     * @param listId       The list's id.
+     * @param newBookCount The number of books after the change.
+     * @throws IOException If the manifest cannot be read.
+     */
+    public synchronized void recordChange(String listId, int newBookCount) throws IOException {
+        int index = indexOf(listId);
+        if (index >= 0) {
+            lists.set(index, lists.get(index).withChange(newBookCount));
+            manifestDirty = true;
+        }
+    }
+
+    /**
+     * Records that books were added to or removed from a list.
+     *
+     * @param listId The list's id.
+     * @param delta  The change in the number of books.
+     * @throws IOException If the manifest cannot be read.
+     */
+    public synchronized void recordDelta(String listId, int delta) throws IOException {
+        ListInfo list = get(listId);
+        if (list != null) {
+            recordChange(listId, list.getBookCount() + delta);
+        }
+    }
+
+    /**
+     * Writes the manifest if any list changed since it was last written.
+     *
+     * @throws IOException If the manifest cannot be written.
+     */
+    public synchronized void writeManifestIfDirty() throws IOException {
+        if (!manifestDirty) {
+            return;
+        }
+        ListManifest.write(manifestFile, lists, nextListNumber());
+        manifestDirty = false;
+    }
+
+    /**
+     * Gets the lists, reading the manifest on first use. Without a manifest, the lists start
+     * out as the default list alone, sized from its shard, which may hold a list written
+     * before named lists existed.
+     *
+     * @return The lists.
+     */
+    private ArrayList<ListInfo> lists() throws IOException {
+        if (lists == null) {
+            ListManifest.Contents manifest = ListManifest.read(manifestFile);
+            lists = (manifest != null) ? manifest.getLists() : null;
+            nextListNumber = (manifest != null) ? manifest.getNextListNumber() : ListManifest.UNKNOWN_LIST_NUMBER;
+            if (lists == null) {
+                lists = new ArrayList<>();
+                lists.add(new ListInfo(DEFAULT_LIST_ID, defaultListName, 0, 0));
+                LoanStore defaultStore = getStore(DEFAULT_LIST_ID);
+                int bookCount = defaultStore.exists() ? defaultStore.loadAll().size() : 0;
+                lists.set(0, new ListInfo(DEFAULT_LIST_ID, defaultListName, 0, bookCount));
+                manifestDirty = true;
+            } else if (indexOf(DEFAULT_LIST_ID) < 0) {
+                lists.add(0, new ListInfo(DEFAULT_LIST_ID, defaultListName, 0, 0));
+                manifestDirty = true;
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * Gets the number the next new list's id is made from. A manifest written before the
+     * number was recorded starts it after the highest id still in use.
+     *
+     * @return The number.
+     */
+    private int nextListNumber() throws IOException {
+        List<ListInfo> all = lists();
+        if (nextListNumber == ListManifest.UNKNOWN_LIST_NUMBER) {
+            int next = 1;
+            for (ListInfo list : all) {
+                if (list.getId().startsWith(LIST_ID_PREFIX)) {
+                    try {
+                        next = Math.max(next, Integer.parseInt(list.getId().substring(LIST_ID_PREFIX.length())) + 1);
+                    } catch (NumberFormatException e) {
+                        // Not an id this class generated
+                    }
+                }
+            }
+            nextListNumber = next;
+        }
+        return nextListNumber;
+    }
+
+    /**
+     * Finds a list's position in the display order.
+     *
+     * @param listId The list's id.
+     * @return The position, or -1 if there is no such list.
+     */
+    private int indexOf(String listId) throws IOException {
+        List<ListInfo> all = lists();
+        for (int i = 0; i < all.size(); i++) {
+            if (all.get(i).getId().equals(listId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
\ No newline at end of file
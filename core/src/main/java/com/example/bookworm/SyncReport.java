@@ -0,0 +1,152 @@
+package com.example.bookworm;
+
+import java.util.Locale;
+
+/**
+ * SyncReport describes one run of {@link CatalogSyncEngine}: which versions it went
+ * between, how many changes it applied, how many bytes crossed the network and how long
+ * applying them to the local store took.
+ */
+public final class SyncReport {
+
+    /** The store's version before the sync. */
+    private final long fromVersion;
+
+    /** The store's version after the sync. */
+    private final long toVersion;
+
+    /** Number of changes applied. */
+    private final int changesApplied;
+
+    /** Whether the sync continued changes left over by an interrupted sync. */
+    private final boolean resumed;
+
+    /** Response body bytes received, as sent on the wire (compressed if gzip was used). */
+    private final long bytesTransferred;
+
+    /** Response body bytes after decompression. */
+    private final long bytesDecoded;
+
+    /** Time spent writing changes to the store and compacting it, in nanoseconds. */
+    private final long applyNanos;
+
+    /** Time taken by the whole sync, in nanoseconds. */
+    private final long totalNanos;
+
+    /**
+     * Creates a report.
+     *
+     * @param fromVersion      The store's version before the sync.
+     * @param toVersion        The store's version after the sync.
+     * @param changesApplied   Number of changes applied.
+     * @param resumed          Whether an interrupted sync was continued.
+     * @param bytesTransferred Response body bytes as sent on the wire.
+     * @param bytesDecoded     Response body bytes after decompression.
+     * @param applyNanos       Time spent applying changes, in nanoseconds.
+     * @param totalNanos       Time taken by the whole sync, in nanoseconds.
+     */
+    public SyncReport(long fromVersion, long toVersion, int changesApplied, boolean resumed,
+                      long bytesTransferred, long bytesDecoded, long applyNanos, long totalNanos) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.changesApplied = changesApplied;
+        this.resumed = resumed;
+        this.bytesTransferred = bytesTransferred;
+        this.bytesDecoded = bytesDecoded;
+        this.applyNanos = applyNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Gets the store's version before the sync.
+     *
+     * @return The version.
+     */
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * Gets the store's version after the sync.
+     *
+     * @return The version.
+     */
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    /**
+     * Gets the number of changes applied.
+     *
+     * @return The change count; 0 if the catalog was already up to date.
+     */
+    public int getChangesApplied() {
+        return changesApplied;
+    }
+
+    /**
+     * Checks whether the catalog changed.
+     *
+     * @return True if the local catalog was rewritten.
+     */
+    public boolean isCatalogChanged() {
+        return changesApplied > 0 || resumed;
+    }
+
+    /**
+     * Checks whether the sync continued changes left over by an interrupted sync.
+     *
+     * @return True if changes of an earlier sync were still waiting to be compacted.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Gets the number of response body bytes received.
+     *
+     * @return The bytes as sent on the wire, compressed if gzip was used.
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * Gets the number of response body bytes after decompression.
+     *
+     * @return The decoded bytes.
+     */
+    public long getBytesDecoded() {
+        return bytesDecoded;
+    }
+
+    /**
+     * Gets the time spent writing changes to the store and compacting it.
+     *
+     * @return The apply time in nanoseconds.
+     */
+    public long getApplyNanos() {
+        return applyNanos;
+    }
+
+    /**
+     * Gets the time taken by the whole sync, including the network.
+     *
+     * @return The total time in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Describes the sync in one line, for logs.
+     *
+     * @return The description.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "v%d -> v%d: %d changes%s, %d bytes (%d decoded), apply %.1f ms, total %.1f ms",
+                fromVersion, toVersion, changesApplied, resumed ? " (resumed)" : "",
+                bytesTransferred, bytesDecoded, applyNanos / 1e6, totalNanos / 1e6);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,271 @@
+package com.example.bookworm;
+
+import java.util.Arrays;
+
+/**
+ * ViewChanges records how each {@link MyListView} changed between two consecutive
+ * snapshots of the user's list, as the positional inserts, removals, moves and content
+ * changes that turn the earlier view into the later one.
+ *
+ * The changes are recorded while the list is changed, at the positions the ordered
+ * indexes report, so a screen can animate exactly the rows that changed without diffing
+ * the two lists. Operations are listed in the order they must be applied: each position
+ * refers to the view as left by the operations before it. Neighbouring inserts, removals
+ * and changes are merged into ranges.
+ */
+public final class ViewChanges {
+
+    /** Operation code: rows inserted at a position. */
+    private static final int INSERTED = 0;
+
+    /** Operation code: rows removed at a position. */
+    private static final int REMOVED = 1;
+
+    /** Operation code: one row moved from one position to another. */
+    private static final int MOVED = 2;
+
+    /** Operation code: rows whose content changed in place. */
+    private static final int CHANGED = 3;
+
+    /** Number of ints used by an operation: the code and two arguments. */
+    private static final int OP_SIZE = 3;
+
+    /** The operations of each view, by view ordinal. */
+    private final int[][] operations;
+
+    /**
+     * Receives the operations of a view, in order. The methods mirror those of
+     * RecyclerView's ListUpdateCallback, so an adapter can forward them directly.
+     */
+    public interface Callback {
+
+        /**
+         * Called when rows were inserted.
+         *
+         * @param position The position of the first inserted row.
+         * @param count    The number of rows inserted.
+         */
+        void onInserted(int position, int count);
+
+        /**
+         * Called when rows were removed.
+         *
+         * @param position The position of the first removed row.
+         * @param count    The number of rows removed.
+         */
+        void onRemoved(int position, int count);
+
+        /**
+         * Called when a row moved.
+         *
+         * @param fromPosition The row's position before the move.
+         * @param toPosition   The row's position after the move.
+         */
+        void onMoved(int fromPosition, int toPosition);
+
+        /**
+         * Called when the content of rows changed in place.
+         *
+         * @param position The position of the first changed row.
+         * @param count    The number of rows changed.
+         */
+        void onChanged(int position, int count);
+    }
+
+    /**
+     * Creates a set of recorded changes.
+     *
+     * @param operations The operations of each view, by view ordinal.
+     */
+    private ViewChanges(int[][] operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Checks whether any view changed.
+     *
+     * @return True if no operations were recorded.
+     */
+    public boolean isEmpty() {
+        for (int[] viewOperations : operations) {
+            if (viewOperations.length > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of operations recorded for a view.
+     *
+     * @param view The view.
+     * @return The operation count, with merged ranges counted once.
+     */
+    public int getOperationCount(MyListView view) {
+        return operations[view.ordinal()].length / OP_SIZE;
+    }
+
+    /**
+     * Replays the changes of a view.
+     *
+     * @param view     The view.
+     * @param callback Receives the operations, in the order they must be applied.
+     */
+    public void dispatch(MyListView view, Callback callback) {
+        int[] viewOperations = operations[view.ordinal()];
+        for (int i = 0; i < viewOperations.length; i += OP_SIZE) {
+            int a = viewOperations[i + 1];
+            int b = viewOperations[i + 2];
+            switch (viewOperations[i]) {
+                case INSERTED:
+                    callback.onInserted(a, b);
+                    break;
+                case REMOVED:
+                    callback.onRemoved(a, b);
+                    break;
+                case MOVED:
+                    callback.onMoved(a, b);
+                    break;
+                default:
+                    callback.onChanged(a, b);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Records changes as they are made. Not thread-safe.
+     */
+    public static final class Builder {
+
+        /** The operations recorded for each view, by view ordinal. */
+        private final int[][] operations = new int[MyListView.values().length][];
+
+        /** Number of ints used in each view's array. */
+        private final int[] lengths = new int[operations.length];
+
+        /** Whether the whole list was replaced since the last build. */
+        private boolean replaced;
+
+        /**
+         * Creates an empty builder.
+         */
+        public Builder() {
+            for (int i = 0; i < operations.length; i++) {
+                operations[i] = new int[4 * OP_SIZE];
+            }
+        }
+
+        /**
+         * Records that rows were inserted into a view.
+         *
+         * @param view     The view.
+         * @param position The position of the first inserted row.
+         * @param count    The number of rows inserted.
+         */
+        public void inserted(MyListView view, int position, int count) {
+            int v = view.ordinal();
+            int last = lengths[v] - OP_SIZE;
+            int[] ops = operations[v];
+            if (last >= 0 && ops[last] == INSERTED && position == ops[last + 1] + ops[last + 2]) {
+                ops[last + 2] += count;
+                return;
+            }
+            append(v, INSERTED, position, count);
+        }
+
+        /**
+         * Records that rows were removed from a view.
+         *
+         * @param view     The view.
+         * @param position The position of the first removed row.
+         * @param count    The number of rows removed.
+         */
+        public void removed(MyListView view, int position, int count) {
+            int v = view.ordinal();
+            int last = lengths[v] - OP_SIZE;
+            int[] ops = operations[v];
+            if (last >= 0 && ops[last] == REMOVED && position == ops[last + 1]) {
+                ops[last + 2] += count;
+                return;
+            }
+            append(v, REMOVED, position, count);
+        }
+
+        /**
+         * Records that a row of a view moved.
+         *
+         * @param view         The view.
+         * @param fromPosition The row's position before the move.
+         * @param toPosition   The row's position after the move.
+         */
+        public void moved(MyListView view, int fromPosition, int toPosition) {
+            append(view.ordinal(), MOVED, fromPosition, toPosition);
+        }
+
+        /**
+         * Records that the content of rows of a view changed in place.
+         *
+         * @param view     The view.
+         * @param position The position of the first changed row.
+         * @param count    The number of rows changed.
+         */
+        public void changed(MyListView view, int position, int count) {
+            int v = view.ordinal();
+            int last = lengths[v] - OP_SIZE;
+            int[] ops = operations[v];
+            if (last >= 0 && ops[last] == CHANGED && position == ops[last + 1] + ops[last + 2]) {
+                ops[last + 2] += count;
+                return;
+            }
+            append(v, CHANGED, position, count);
+        }
+
+        /**
+         * Records that the whole list was replaced, e.g. by a reload. Positional changes
+         * recorded before and until the next build are dropped.
+         */
+        public void replaced() {
+            replaced = true;
+            Arrays.fill(lengths, 0);
+        }
+
+        /**
+         * Returns the changes recorded since the last build and starts a new recording.
+         *
+         * @return The changes, or null if the whole list was replaced meanwhile.
+         */
+        public ViewChanges build() {
+            int[][] recorded = new int[operations.length][];
+            for (int i = 0; i < operations.length; i++) {
+                recorded[i] = Arrays.copyOf(operations[i], lengths[i]);
+            }
+            boolean wasReplaced = replaced;
+            replaced = false;
+            Arrays.fill(lengths, 0);
+            return wasReplaced ? null : new ViewChanges(recorded);
+        }
+
+        /**
+         * Appends an operation to a view's recording.
+         *
+         * @param v    The view ordinal.
+         * @param code The operation code.
+         * @param a    The first argument.
+         * @param b    The second argument.
+         */
+        private void append(int v, int code, int a, int b) {
+            if (replaced) {
+                return;
+            }
+            int length = lengths[v];
+            if (length + OP_SIZE > operations[v].length) {
+                operations[v] = Arrays.copyOf(operations[v], operations[v].length * 2);
+            }
+            operations[v][length] = code;
+            operations[v][length + 1] = a;
+            operations[v][length + 2] = b;
+            lengths[v] = length + OP_SIZE;
+        }
+    }
+}
\ No newline at end of file
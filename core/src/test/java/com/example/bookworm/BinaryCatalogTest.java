@@ -0,0 +1,261 @@
+package com.example.bookworm;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the binary catalog format: what {@link CatalogCompiler} writes,
+ * {@link BinaryCatalog} reads back unchanged.
+ */
+public class BinaryCatalogTest {
+
+    /** Resource ids the bundled covers resolve to. */
+    private static final Map<String, Integer> COVER_IDS = new HashMap<>();
+
+    static {
+        COVER_IDS.put("clean_code", 0x7f080001);
+        COVER_IDS.put("design_patterns", 0x7f080002);
+    }
+
+    /** Books with non-ASCII text, shared and missing fields, as the catalog describes them. */
+    private static final String[][] SOURCE = {
+            // id, title, author, cover, cover URL, website URL
+            {"9780132350884", "Clean Code", "Robert C. Martin", "clean_code", null, "https://example.com/cc"},
+            {"9780201633610", "Design Patterns", "Erich Gamma", "design_patterns", null, null},
+            {"9782070409228", "Les Mis\u00e9rables", "Victor Hugo", null, "https://covers.example.com/m.jpg", null},
+            {"9784062748681", "\u30ce\u30eb\u30a6\u30a7\u30a4\u306e\u68ee", "\u6751\u4e0a\u6625\u6a39", null, null,
+                    "https://example.jp/\u68ee"},
+            {"9785170906307", "\u0412\u043e\u0439\u043d\u0430 \u0438 \u043c\u0438\u0440",
+                    "\u041b\u0435\u0432 \u0422\u043e\u043b\u0441\u0442\u043e\u0439", "unknown_cover", null, null},
+            {"B00EMOJI", "Reading \ud83d\udcda in the \u00f1 age", "Robert C. Martin", "clean_code", "", ""},
+    };
+
+    /**
+     * Compiles books given as {@link #SOURCE} rows.
+     *
+     * @param source The books.
+     * @return The compiled catalog, exactly as long as the compiler wrote it.
+     */
+    private static byte[] compile(String[][] source) throws IOException {
+        CatalogCompiler compiler = new CatalogCompiler();
+        for (String[] book : source) {
+            compiler.add(book[0], book[1], book[2], book[3], book[4], book[5]);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiler.writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Opens a compiled catalog, resolving covers from {@link #COVER_IDS}.
+     *
+     * @param bytes The compiled catalog.
+     * @return The catalog.
+     */
+    private static BinaryCatalog open(byte[] bytes) throws IOException {
+        return new BinaryCatalog(ByteBuffer.wrap(bytes), name -> COVER_IDS.getOrDefault(name, 0));
+    }
+
+    /**
+     * Describes a book with every field the format stores.
+     *
+     * @param book The book.
+     * @return The description.
+     */
+    private static String describe(Book book) {
+        return book.getId() + "|" + book.getTitle() + "|" + book.getAuthor() + "|" + book.getCoverImageResId()
+                + "|" + book.getCoverImageUrl() + "|" + book.getWebsiteUrl();
+    }
+
+    /**
+     * Describes the books a source should compile to.
+     *
+     * @param source The books.
+     * @return Their descriptions, in order.
+     */
+    private static List<String> expected(String[][] source) {
+        ArrayList<String> descriptions = new ArrayList<>();
+        for (String[] book : source) {
+            int cover = (book[3] != null) ? COVER_IDS.getOrDefault(book[3], 0) : 0;
+            descriptions.add(describe(new Book(book[0], book[1], book[2], cover, book[4], book[5])));
+        }
+        return descriptions;
+    }
+
+    /**
+     * Describes the books of a catalog.
+     *
+     * @param catalog The catalog.
+     * @return Their descriptions, in catalog order.
+     */
+    private static List<String> contents(BinaryCatalog catalog) {
+        ArrayList<String> descriptions = new ArrayList<>();
+        for (Book book : catalog.loadRange(0, catalog.getCount())) {
+            descriptions.add(describe(book));
+        }
+        return descriptions;
+    }
+
+    /**
+     * Every field comes back unchanged, including multi-byte UTF-8 and characters outside
+     * the Basic Multilingual Plane; covers are resolved by name, and unknown names give 0.
+     */
+    @Test
+    public void roundTripKeepsEveryField() throws IOException {
+        BinaryCatalog catalog = open(compile(SOURCE));
+
+        assertEquals(SOURCE.length, catalog.getCount());
+        assertEquals(expected(SOURCE), contents(catalog));
+        for (int i = 0; i < SOURCE.length; i++) {
+            assertEquals(SOURCE[i][1], catalog.getTitle(i));
+            assertEquals(SOURCE[i][2], catalog.getAuthor(i));
+            assertEquals(SOURCE[i][3], catalog.getCoverName(i));
+        }
+    }
+
+    /**
+     * A JSON source compiles to the same catalog as the same books added directly.
+     */
+    @Test
+    public void jsonSourceCompilesTheSame() throws IOException {
+        String json = "[{\"id\":\"9780132350884\",\"title\":\"Clean Code\",\"author\":\"Robert C. Martin\","
+                + "\"cover\":\"clean_code\",\"websiteUrl\":\"https://example.com/cc\",\"pages\":464},"
+                + "{\"id\":\"9784062748681\",\"title\":\"\\u30ce\\u30eb\\u30a6\\u30a7\\u30a4\\u306e\\u68ee\","
+                + "\"author\":\"\u6751\u4e0a\u6625\u6a39\",\"coverUrl\":null,\"websiteUrl\":\"https://example.jp/\u68ee\"}]";
+        CatalogCompiler compiler = new CatalogCompiler();
+        compiler.readJson(new StringReader(json));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiler.writeTo(out);
+
+        assertEquals(Arrays.asList(expected(SOURCE).get(0), expected(SOURCE).get(3)),
+                contents(open(out.toByteArray())));
+    }
+
+    /**
+     * The last string of the pool ends on the last byte of the file, including a string of
+     * the longest length the format allows.
+     */
+    @Test
+    public void stringsReachTheEndOfTheFile() throws IOException {
+        StringBuilder longest = new StringBuilder();
+        while (longest.length() < 0xFFFF / 3) {
+            longest.append('\u68ee');
+        }
+        String title = longest.toString();
+        byte[] bytes = compile(new String[][] {
+                {"1", "First", "Author", null, null, null},
+                {"2", title, "Author", null, null, "https://example.com/last"},
+        });
+        BinaryCatalog catalog = open(bytes);
+
+        assertEquals(0xFFFF, title.getBytes("UTF-8").length);
+        assertEquals(title, catalog.getTitle(1));
+        assertEquals("https://example.com/last", catalog.get(1).getWebsiteUrl());
+        // The website URL was interned last, so the file ends with its bytes
+        String tail = new String(bytes, bytes.length - "https://example.com/last".length(),
+                "https://example.com/last".length(), "UTF-8");
+        assertEquals("https://example.com/last", tail);
+    }
+
+    /**
+     * A string too long for the format's 16-bit length is rejected when compiling.
+     */
+    @Test
+    public void overlongStringIsRejected() {
+        char[] chars = new char[0x10000];
+        Arrays.fill(chars, 'a');
+        try {
+            new CatalogCompiler().add("1", new String(chars), "Author", null, null, null);
+            fail("Compiled a title longer than 65535 bytes");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * An empty catalog has a header and nothing else.
+     */
+    @Test
+    public void emptyCatalog() throws IOException {
+        byte[] bytes = compile(new String[0][]);
+        BinaryCatalog catalog = open(bytes);
+
+        assertEquals(BinaryCatalog.HEADER_SIZE, bytes.length);
+        assertEquals(0, catalog.getCount());
+        assertTrue(catalog.loadRange(0, 40).isEmpty());
+    }
+
+    /**
+     * Updated and removed books are written in place, and the offsets after them still
+     * match the header.
+     */
+    @Test
+    public void updatesAndRemovalsKeepOffsetsConsistent() throws IOException {
+        CatalogCompiler compiler = new CatalogCompiler();
+        for (String[] book : SOURCE) {
+            compiler.add(book[0], book[1], book[2], book[3], book[4], book[5]);
+        }
+        compiler.remove(SOURCE[1][0]);
+        compiler.upsert(SOURCE[2][0], "Les Mis\u00e9rables (\u00e9dition int\u00e9grale)", "Victor Hugo", null,
+                null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiler.writeTo(out);
+        BinaryCatalog catalog = open(out.toByteArray());
+
+        assertEquals(SOURCE.length - 1, catalog.getCount());
+        assertEquals(SOURCE[0][0], catalog.get(0).getId());
+        assertEquals("Les Mis\u00e9rables (\u00e9dition int\u00e9grale)", catalog.getTitle(1));
+        assertFalse(catalog.get(1).hasCoverImageUrl());
+        assertEquals(expected(SOURCE).get(SOURCE.length - 1), describe(catalog.get(SOURCE.length - 2)));
+    }
+
+    /**
+     * Data that is not a catalog of this version, or whose header points past the end of
+     * the file, is refused when opening.
+     */
+    @Test
+    public void rejectsForeignAndTruncatedData() throws IOException {
+        byte[] bytes = compile(SOURCE);
+        assertRejected(Arrays.copyOf(bytes, BinaryCatalog.HEADER_SIZE - 1));
+        assertRejected("PK\u0003\u0004 not a catalog at all....".getBytes("UTF-8"));
+
+        byte[] newerVersion = bytes.clone();
+        newerVersion[7] = (byte) (BinaryCatalog.VERSION + 1);
+        assertRejected(newerVersion);
+
+        int poolOffset = ByteBuffer.wrap(bytes).getInt(20);
+        assertRejected(Arrays.copyOf(bytes, poolOffset - 1));
+
+        byte[] wrongCount = bytes.clone();
+        wrongCount[11]++;
+        assertRejected(wrongCount);
+    }
+
+    /**
+     * Checks that a buffer cannot be opened as a catalog.
+     *
+     * @param bytes The buffer.
+     */
+    private static void assertRejected(byte[] bytes) {
+        try {
+            open(bytes);
+            fail("Opened " + bytes.length + " bytes that are not a valid catalog");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+}
\ No newline at end of file
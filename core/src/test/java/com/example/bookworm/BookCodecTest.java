@@ -0,0 +1,171 @@
+package com.example.bookworm;
+
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BookCodec}, in particular reading the lists that older versions of the
+ * app stored in SharedPreferences with reflective GSON.
+ */
+public class BookCodecTest {
+
+    /**
+     * A list as GSON wrote it for the old {@code ArrayList<Book>}: fields in declaration
+     * order, no id, nulls left out, HTML characters escaped, and return dates in epoch
+     * milliseconds with 0 for none.
+     */
+    private static final String GSON_LIST = "[{\"title\":\"Clean Code\",\"author\":\"Robert C. Martin\","
+            + "\"coverImageResId\":2131165302,\"websiteUrl\":\"https://example.com/book?id\\u003d1\\u0026s\\u003d2\","
+            + "\"returnDateMillis\":1729123200000},"
+            + "{\"title\":\"Design Patterns\",\"author\":\"Erich Gamma\",\"coverImageResId\":2131165303,"
+            + "\"returnDateMillis\":0},"
+            + "{\"title\":\"Black Hat Python\",\"author\":\"Justin Seitz\",\"coverImageResId\":2131165301,"
+            + "\"websiteUrl\":\"https://example.com/bhp\",\"returnDateMillis\":1729209599999}]";
+
+    /** The Book class of those versions, with its fields in the same order. */
+    @SuppressWarnings("unused")
+    private static final class LegacyBook {
+
+        /** The title. */
+        private final String title;
+
+        /** The author. */
+        private final String author;
+
+        /** The cover drawable resource id. */
+        private final int coverImageResId;
+
+        /** The website URL. */
+        private final String websiteUrl;
+
+        /** The return date in epoch milliseconds, or 0. */
+        private final long returnDateMillis;
+
+        /**
+         * Creates a book.
+         *
+         * @param title            The title.
+         * @param author           The author.
+         * @param coverImageResId  The cover drawable resource id.
+         * @param websiteUrl       The website URL.
+         * @param returnDateMillis The return date in epoch milliseconds, or 0.
+         */
+        LegacyBook(String title, String author, int coverImageResId, String websiteUrl, long returnDateMillis) {
+            this.title = title;
+            this.author = author;
+            this.coverImageResId = coverImageResId;
+            this.websiteUrl = websiteUrl;
+            this.returnDateMillis = returnDateMillis;
+        }
+    }
+
+    /** The default time zone before the test, restored afterwards. */
+    private TimeZone previousZone;
+
+    /**
+     * Runs each test with New York as the device's time zone, which legacy dates are read in.
+     */
+    @Before
+    public void setUp() {
+        previousZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    /**
+     * Restores the default time zone.
+     */
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(previousZone);
+    }
+
+    /**
+     * The captured payload is exactly what GSON writes for the old Book class.
+     */
+    @Test
+    public void capturedPayloadMatchesGson() {
+        String written = new Gson().toJson(Arrays.asList(
+                new LegacyBook("Clean Code", "Robert C. Martin", 2131165302, "https://example.com/book?id=1&s=2",
+                        1729123200000L),
+                new LegacyBook("Design Patterns", "Erich Gamma", 2131165303, null, 0L),
+                new LegacyBook("Black Hat Python", "Justin Seitz", 2131165301, "https://example.com/bhp",
+                        1729209599999L)));
+        assertEquals(GSON_LIST, written);
+    }
+
+    /**
+     * Legacy entries are read without an id, keyed by title, and their millisecond return
+     * dates become the local calendar day they fell on.
+     */
+    @Test
+    public void readsGsonList() throws Exception {
+        ArrayList<Book> books = BookCodec.readList(new StringReader(GSON_LIST));
+        assertEquals(3, books.size());
+
+        Book cleanCode = books.get(0);
+        assertNull(cleanCode.getId());
+        assertEquals(Book.titleKey("Clean Code"), cleanCode.getKey());
+        assertEquals("Clean Code", cleanCode.getTitle());
+        assertEquals("Robert C. Martin", cleanCode.getAuthor());
+        assertEquals(2131165302, cleanCode.getCoverImageResId());
+        assertFalse(cleanCode.hasCoverImageUrl());
+        assertEquals("https://example.com/book?id=1&s=2", cleanCode.getWebsiteUrl());
+        // Midnight UTC on October 17 was still October 16 in New York
+        assertEquals(LoanDates.of(2024, 10, 16), cleanCode.getReturnEpochDay());
+
+        Book designPatterns = books.get(1);
+        assertNull(designPatterns.getWebsiteUrl());
+        assertFalse(designPatterns.hasReturnDate());
+
+        assertEquals(LoanDates.of(2024, 10, 17), books.get(2).getReturnEpochDay());
+    }
+
+    /**
+     * A list GSON stored as null reads as empty; null entries, entries without a title and
+     * unknown fields are skipped.
+     */
+    @Test
+    public void skipsWhatItCannotUse() throws Exception {
+        assertTrue(BookCodec.readList(new StringReader("null")).isEmpty());
+
+        ArrayList<Book> books = BookCodec.readList(new StringReader("[null,{\"author\":\"No title\"},"
+                + "{\"title\":\"Kept\",\"author\":null,\"serialVersionUID\":1,\"extra\":{\"nested\":[1,2]}}]"));
+        assertEquals(1, books.size());
+        assertEquals("Kept", books.get(0).getTitle());
+        assertEquals("", books.get(0).getAuthor());
+    }
+
+    /**
+     * A legacy list written back by the codec reads the same, now with epoch-day return dates.
+     */
+    @Test
+    public void rewrittenLegacyListReadsTheSame() throws Exception {
+        ArrayList<Book> legacy = BookCodec.readList(new StringReader(GSON_LIST));
+        StringWriter rewritten = new StringWriter();
+        BookCodec.writeList(rewritten, legacy);
+
+        assertFalse(rewritten.toString().contains("returnDateMillis"));
+        ArrayList<Book> books = BookCodec.readList(new StringReader(rewritten.toString()));
+        assertEquals(legacy.size(), books.size());
+        for (int i = 0; i < books.size(); i++) {
+            assertEquals(legacy.get(i).getKey(), books.get(i).getKey());
+            assertEquals(legacy.get(i).getWebsiteUrl(), books.get(i).getWebsiteUrl());
+            assertEquals(legacy.get(i).getCoverImageResId(), books.get(i).getCoverImageResId());
+            assertEquals(legacy.get(i).getReturnEpochDay(), books.get(i).getReturnEpochDay());
+        }
+    }
+}
\ No newline at end of file
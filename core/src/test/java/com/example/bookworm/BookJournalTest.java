@@ -0,0 +1,191 @@
+package com.example.bookworm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link BookJournal}: replay, group commits, torn writes and recovery from
+ * failed writes.
+ */
+public class BookJournalTest {
+
+    /** Holds each test's journal directory. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Creates a book with a catalog id.
+     *
+     * @param id The catalog id, also used in the title.
+     * @return The book.
+     */
+    private static Book book(String id) {
+        return new Book(id, "Title " + id, "Author", 0, null);
+    }
+
+    /**
+     * Gets the ids of the books in a list.
+     *
+     * @param books The books.
+     * @return Their ids, in order.
+     */
+    private static List<String> ids(List<Book> books) {
+        ArrayList<String> ids = new ArrayList<>();
+        for (Book book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Reads the lines of a journal segment.
+     *
+     * @param segment The segment.
+     * @return Its lines, without terminators.
+     */
+    private static List<String> readLines(File segment) throws Exception {
+        return Files.readAllLines(segment.toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replaces a journal segment, as a crash in the middle of a write would leave it.
+     *
+     * @param segment The segment.
+     * @param lines   The complete lines to keep.
+     * @param tail    Bytes of a partially written line after them, or an empty string.
+     */
+    private static void writeSegment(File segment, List<String> lines, String tail) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        content.append(tail);
+        Files.write(segment.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes book 1 on its own, then books 2 to 4 as one batch.
+     *
+     * @param directory The journal directory.
+     * @return The segment file.
+     */
+    private static File journalWithBatch(File directory) {
+        BookJournal journal = new BookJournal(directory);
+        journal.add(book("1"));
+        journal.sync();
+        journal.addAll(Arrays.asList(book("2"), book("3"), book("4")));
+        journal.sync();
+        return new File(directory, "my_list.journal");
+    }
+
+    /**
+     * A batch cut short by a crash, whether between records or in the middle of one,
+     * is discarded as a whole, and the repaired journal keeps working.
+     */
+    @Test
+    public void tornBatchIsDiscarded() throws Exception {
+        File directory = folder.newFolder();
+        File segment = journalWithBatch(directory);
+        List<String> lines = readLines(segment);
+        // Format record, book 1, batch header and its three records
+        assertEquals(6, lines.size());
+
+        writeSegment(segment, lines.subList(0, 5), "");
+        assertEquals(Arrays.asList("1"), ids(new BookJournal(directory).loadAll()));
+
+        String lastLine = lines.get(5);
+        writeSegment(segment, lines.subList(0, 5), lastLine.substring(0, lastLine.length() / 2));
+        BookJournal repaired = new BookJournal(directory);
+        assertEquals(Arrays.asList("1"), ids(repaired.loadAll()));
+
+        // New records go after the intact ones, not after the discarded batch
+        repaired.add(book("5"));
+        repaired.sync();
+        assertEquals(Arrays.asList("1", "5"), ids(new BookJournal(directory).loadAll()));
+    }
+
+    /**
+     * A complete batch survives a torn record written after it.
+     */
+    @Test
+    public void completeBatchSurvivesLaterTornRecord() throws Exception {
+        File directory = folder.newFolder();
+        File segment = journalWithBatch(directory);
+        BookJournal journal = new BookJournal(directory);
+        journal.add(book("5"));
+        journal.sync();
+
+        List<String> lines = readLines(segment);
+        String lastLine = lines.get(lines.size() - 1);
+        writeSegment(segment, lines.subList(0, lines.size() - 1), lastLine.substring(0, 12));
+
+        assertEquals(Arrays.asList("1", "2", "3", "4"), ids(new BookJournal(directory).loadAll()));
+    }
+
+    /**
+     * A record whose checksum does not match discards its batch and everything after it,
+     * since nothing written after a corrupted record can be trusted.
+     */
+    @Test
+    public void corruptRecordInBatchStopsReplay() throws Exception {
+        File directory = folder.newFolder();
+        File segment = journalWithBatch(directory);
+        BookJournal journal = new BookJournal(directory);
+        journal.add(book("5"));
+        journal.sync();
+
+        List<String> lines = new ArrayList<>(readLines(segment));
+        lines.set(4, lines.get(4).replace("Title 3", "Title X"));
+        writeSegment(segment, lines, "");
+
+        assertEquals(Arrays.asList("1"), ids(new BookJournal(directory).loadAll()));
+    }
+
+    /**
+     * A commit that cannot be written keeps its records queued and reports the failure
+     * to the next caller that waits on the journal; once the disk recovers, nothing is lost
+     * and the records keep their order.
+     */
+    @Test
+    public void failedCommitKeepsRecordsQueued() throws Exception {
+        File directory = folder.newFolder();
+        // A directory where the segment should be makes every append fail
+        File blocker = new File(directory, "my_list.journal");
+        assertTrue(blocker.mkdir());
+
+        BookJournal journal = new BookJournal(directory);
+        journal.add(book("1"));
+        journal.add(book("2"));
+        try {
+            journal.sync();
+            fail("sync() should report the failed write");
+        } catch (IllegalStateException expected) {
+            // The records are still queued
+        }
+        journal.add(book("3"));
+
+        assertTrue(blocker.delete());
+        journal.sync();
+
+        ArrayList<Book> books = journal.loadAll();
+        assertEquals(3, books.size());
+        assertEquals("1", books.get(0).getId());
+        assertEquals("2", books.get(1).getId());
+        assertEquals("3", books.get(2).getId());
+
+        // A new journal on the same directory replays the same list
+        assertEquals(3, new BookJournal(directory).loadAll().size());
+    }
+}
\ No newline at end of file
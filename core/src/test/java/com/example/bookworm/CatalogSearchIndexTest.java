@@ -0,0 +1,81 @@
+package com.example.bookworm;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link CatalogSearchIndex}.
+ */
+public class CatalogSearchIndexTest {
+
+    /** A catalog held in memory. */
+    private static final class ListSource implements CatalogSource {
+
+        /** The books, in catalog order. */
+        private final List<Book> books;
+
+        /**
+         * Creates the catalog.
+         *
+         * @param books The books, in catalog order.
+         */
+        ListSource(List<Book> books) {
+            this.books = books;
+        }
+
+        @Override
+        public int getCount() {
+            return books.size();
+        }
+
+        @Override
+        public List<Book> loadRange(int offset, int limit) {
+            return new ArrayList<>(books.subList(offset, Math.min(offset + limit, books.size())));
+        }
+    }
+
+    /**
+     * A multi-word query ranks every book that matches all its words, even when the
+     * most selective word has far more postings than earlier versions examined.
+     */
+    @Test
+    public void multiWordQueryRanksMatchesAnywhereInTheCatalog() {
+        int count = 5000;
+        int best = 4995;
+        ArrayList<Book> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String title = i == best
+                    ? "Alpha beta"
+                    : "Alpha beta and the long road through volume " + i;
+            books.add(new Book(String.valueOf(i), title, "Author", 0, null));
+        }
+        CatalogSearchIndex index = new CatalogSearchIndex(new ListSource(books));
+
+        int[] results = index.search("alpha be");
+
+        assertEquals(20, results.length);
+        assertEquals(best, results[0]);
+    }
+
+    /**
+     * Only books containing every word of the query are returned.
+     */
+    @Test
+    public void multiWordQueryRequiresEveryWord() {
+        ArrayList<Book> books = new ArrayList<>();
+        books.add(new Book("0", "Gamma ray", "Author", 0, null));
+        books.add(new Book("1", "Gamma delta", "Author", 0, null));
+        books.add(new Book("2", "Delta ray", "Author", 0, null));
+        books.add(new Book("3", "Ray of gamma light", "Author", 0, null));
+        CatalogSearchIndex index = new CatalogSearchIndex(new ListSource(books));
+
+        int[] results = index.search("ray gam");
+
+        assertArrayEquals(new int[] {0, 3}, results);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.example.bookworm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link CatalogStore}: compaction order, log replay and the stored ETag.
+ */
+public class CatalogStoreTest {
+
+    /** Holds each test's store directory. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Compiles a catalog, as the build does for the bundled one.
+     *
+     * @param ids The ids of the books, in order; each title is "Title " and the id.
+     * @return The compiled catalog.
+     */
+    static ByteBuffer compile(String... ids) throws IOException {
+        CatalogCompiler compiler = new CatalogCompiler();
+        for (String id : ids) {
+            compiler.add(id, "Title " + id, "Author", null, null, null);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiler.writeTo(out);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * Creates an upsert.
+     *
+     * @param version The catalog version.
+     * @param id      The catalog id.
+     * @param title   The title.
+     * @return The change.
+     */
+    static CatalogChange upsert(long version, String id, String title) {
+        return CatalogChange.upsert(version, id, title, "Author", null, null, null);
+    }
+
+    /**
+     * Reads a store's compiled catalog as "id:title" entries.
+     *
+     * @param store The store.
+     * @return The entries, in catalog order.
+     */
+    static List<String> contents(CatalogStore store) throws IOException {
+        BinaryCatalog catalog = new BinaryCatalog(ByteBuffer.wrap(Files.readAllBytes(store.getCatalogFile().toPath())),
+                coverName -> 0);
+        ArrayList<String> entries = new ArrayList<>();
+        for (Book book : catalog.loadRange(0, catalog.getCount())) {
+            entries.add(book.getId() + ":" + book.getTitle());
+        }
+        return entries;
+    }
+
+    /**
+     * Compaction keeps unchanged books in place, updates changed books in place, drops
+     * removed books and appends new books in the order they first appeared. A book
+     * removed and then added again keeps its position.
+     */
+    @Test
+    public void compactionMergesChangesInPlace() throws IOException {
+        try (CatalogStore store = new CatalogStore(folder.newFolder(), compile("1", "2", "3"))) {
+            store.apply(upsert(1, "2", "Two"));
+            store.apply(CatalogChange.delete(2, "1"));
+            store.apply(upsert(3, "4", "Four"));
+            store.apply(upsert(4, "5", "Five"));
+            store.apply(upsert(5, "4", "Four, revised"));
+            store.apply(CatalogChange.delete(6, "5"));
+            store.apply(CatalogChange.delete(7, "3"));
+            store.apply(upsert(8, "3", "Three"));
+            assertEquals(8, store.getPendingCount());
+
+            store.compact();
+            assertEquals(0, store.getPendingCount());
+            assertEquals(8, store.getVersion());
+            assertEquals(Arrays.asList("2:Two", "3:Three", "4:Four, revised"), contents(store));
+        }
+    }
+
+    /**
+     * Reopening a store replays the log of an interrupted sync, cuts off a partly written
+     * last change and continues after the last complete one.
+     */
+    @Test
+    public void reopenReplaysLogAndCutsTornChange() throws IOException {
+        File directory = folder.newFolder();
+        try (CatalogStore store = new CatalogStore(directory, compile("1"))) {
+            store.apply(upsert(1, "2", "Two"));
+            store.apply(upsert(2, "3", "Three"));
+            store.checkpoint();
+        }
+        File log = new File(directory, "changes.log");
+        long complete = log.length();
+        try (FileOutputStream out = new FileOutputStream(log, true)) {
+            out.write("{\"v\":3,\"op\":\"ups".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (CatalogStore store = new CatalogStore(directory, compile("1"))) {
+            assertEquals(2, store.getVersion());
+            assertEquals(2, store.getPendingCount());
+            assertEquals(complete, log.length());
+
+            store.apply(upsert(3, "1", "One"));
+            store.compact();
+            assertEquals(Arrays.asList("1:One", "2:Two", "3:Three"), contents(store));
+        }
+
+        try (CatalogStore store = new CatalogStore(directory, compile("1"))) {
+            assertEquals(3, store.getVersion());
+            assertEquals(0, store.getPendingCount());
+        }
+    }
+
+    /**
+     * Changes that are already in the compiled catalog, left in the log by a compaction
+     * that did not finish, are not applied again.
+     */
+    @Test
+    public void compiledChangesAreNotReplayed() throws IOException {
+        File directory = folder.newFolder();
+        try (CatalogStore store = new CatalogStore(directory, compile("1"))) {
+            store.apply(upsert(1, "2", "Two"));
+            store.checkpoint();
+            byte[] log = Files.readAllBytes(new File(directory, "changes.log").toPath());
+            store.compact();
+            // As if the process died after the new catalog was in place but before the log went
+            Files.write(new File(directory, "changes.log").toPath(), log);
+        }
+
+        try (CatalogStore store = new CatalogStore(directory, compile("1"))) {
+            assertEquals(1, store.getVersion());
+            assertEquals(0, store.getPendingCount());
+            assertEquals(Arrays.asList("1:Title 1", "2:Two"), contents(store));
+        }
+    }
+
+    /**
+     * The ETag is kept across reopening and can be cleared.
+     */
+    @Test
+    public void etagIsPersisted() throws IOException {
+        File directory = folder.newFolder();
+        try (CatalogStore store = new CatalogStore(directory, compile("1"))) {
+            assertNull(store.getEtag());
+            store.setEtag("\"abc\"");
+        }
+        try (CatalogStore store = new CatalogStore(directory, compile("1"))) {
+            assertEquals("\"abc\"", store.getEtag());
+            store.setEtag(null);
+        }
+        try (CatalogStore store = new CatalogStore(directory, compile("1"))) {
+            assertNull(store.getEtag());
+        }
+    }
+}
\ No newline at end of file
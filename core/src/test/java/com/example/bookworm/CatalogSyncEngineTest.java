@@ -0,0 +1,200 @@
+package com.example.bookworm;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CatalogSyncEngine} against {@link LocalCatalogServer}: full syncs,
+ * 304 replies with the server's ETag, and syncs interrupted mid-response and resumed.
+ */
+public class CatalogSyncEngineTest {
+
+    /** Number of books the server adds. */
+    private static final int BOOK_COUNT = 1000;
+
+    /** Holds each test's store directory. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** The stand-in catalog service. */
+    private LocalCatalogServer server;
+
+    /** The store's directory. */
+    private File directory;
+
+    /**
+     * Starts the server with a history of adds, updates and removals.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new LocalCatalogServer(0);
+        directory = folder.newFolder();
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            server.publish(CatalogStoreTest.upsert(0, Integer.toString(i), "Title " + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            server.publish(CatalogStoreTest.upsert(0, Integer.toString(i), "Revised " + i));
+        }
+        for (int i = 100; i < 150; i++) {
+            server.publish(CatalogChange.delete(0, Integer.toString(i)));
+        }
+    }
+
+    /**
+     * Stops the server.
+     */
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Opens the store, as the app does on each start.
+     *
+     * @return The store over the bundled catalog.
+     */
+    private CatalogStore openStore() throws IOException {
+        return new CatalogStore(directory, CatalogStoreTest.compile("bundled"));
+    }
+
+    /**
+     * Gets the catalog the server's history leads to.
+     *
+     * @return The expected "id:title" entries, in catalog order.
+     */
+    private static List<String> expectedContents() {
+        ArrayList<String> entries = new ArrayList<>();
+        entries.add("bundled:Title bundled");
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            if (i < 100) {
+                entries.add(i + ":Revised " + i);
+            } else if (i >= 150) {
+                entries.add(i + ":Title " + i);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * A first sync applies every change, compacts them into the catalog and keeps the
+     * ETag the server sent.
+     */
+    @Test
+    public void syncAppliesChangesAndKeepsEtag() throws IOException {
+        try (CatalogStore store = openStore()) {
+            SyncReport report = new CatalogSyncEngine(server.getUrl(), store).sync();
+
+            assertNull(server.getLastIfNoneMatch());
+            assertEquals(0, report.getFromVersion());
+            assertEquals(server.getVersion(), report.getToVersion());
+            assertEquals(server.getVersion(), report.getChangesApplied());
+            assertTrue(report.isCatalogChanged());
+            assertFalse(report.isResumed());
+            assertTrue(report.getBytesTransferred() < report.getBytesDecoded());
+            assertEquals(LocalCatalogServer.etagOf(server.getVersion()), store.getEtag());
+            assertEquals(expectedContents(), CatalogStoreTest.contents(store));
+        }
+    }
+
+    /**
+     * A sync of an up-to-date catalog sends back the server's ETag and gets a bodiless 304.
+     */
+    @Test
+    public void upToDateSyncSendsEtagAndGets304() throws IOException {
+        try (CatalogStore store = openStore()) {
+            CatalogSyncEngine engine = new CatalogSyncEngine(server.getUrl(), store);
+            engine.sync();
+            String etag = store.getEtag();
+
+            SyncReport report = engine.sync();
+            assertEquals(etag, server.getLastIfNoneMatch());
+            assertEquals(2, server.getRequestCount());
+            assertEquals(0, report.getChangesApplied());
+            assertEquals(0, report.getBytesTransferred());
+            assertFalse(report.isCatalogChanged());
+            assertEquals(etag, store.getEtag());
+        }
+    }
+
+    /**
+     * A sync cut off mid-response keeps the changes that arrived. After a restart, the
+     * next sync asks only for the rest and ends with the same catalog as a full sync.
+     */
+    @Test
+    public void interruptedSyncResumesAfterRestart() throws IOException {
+        server.interruptNextResponseAfter(600);
+        long received;
+        try (CatalogStore store = openStore()) {
+            try {
+                new CatalogSyncEngine(server.getUrl(), store).sync();
+                fail("The sync was cut off");
+            } catch (IOException expected) {
+                // The connection was dropped mid-body
+            }
+            // Whatever the inflater could decode before the cut is kept
+            received = store.getVersion();
+            assertTrue(received > CatalogSyncEngine.CHECKPOINT_INTERVAL && received <= 600);
+            assertFalse(store.getCatalogFile().exists());
+            assertNull(store.getEtag());
+        }
+
+        try (CatalogStore store = openStore()) {
+            assertEquals(received, store.getVersion());
+            assertEquals(received, store.getPendingCount());
+
+            SyncReport report = new CatalogSyncEngine(server.getUrl(), store).sync();
+            assertTrue(report.isResumed());
+            assertEquals(received, report.getFromVersion());
+            assertEquals(server.getVersion() - received, report.getChangesApplied());
+            assertEquals(server.getVersion(), store.getVersion());
+            assertEquals(0, store.getPendingCount());
+            assertEquals(LocalCatalogServer.etagOf(server.getVersion()), store.getEtag());
+            assertEquals(expectedContents(), CatalogStoreTest.contents(store));
+        }
+    }
+
+    /**
+     * When every change had arrived before an interruption, the next sync gets a 304 and
+     * only compacts, taking the ETag from the 304.
+     */
+    @Test
+    public void resumedSyncCompactsOn304() throws IOException {
+        try (CatalogStore store = openStore()) {
+            // The log an interrupted sync leaves when it is cut off right before compacting
+            for (int i = 0; i < BOOK_COUNT; i++) {
+                store.apply(CatalogStoreTest.upsert(i + 1, Integer.toString(i), "Title " + i));
+            }
+            for (int i = 0; i < 100; i++) {
+                store.apply(CatalogStoreTest.upsert(BOOK_COUNT + i + 1, Integer.toString(i), "Revised " + i));
+            }
+            for (int i = 100; i < 150; i++) {
+                store.apply(CatalogChange.delete(BOOK_COUNT + i + 1, Integer.toString(i)));
+            }
+            store.checkpoint();
+        }
+
+        try (CatalogStore store = openStore()) {
+            SyncReport report = new CatalogSyncEngine(server.getUrl(), store).sync();
+            assertTrue(report.isResumed());
+            assertTrue(report.isCatalogChanged());
+            assertEquals(0, report.getChangesApplied());
+            assertEquals(0, store.getPendingCount());
+            assertEquals(LocalCatalogServer.etagOf(server.getVersion()), store.getEtag());
+            assertEquals(expectedContents(), CatalogStoreTest.contents(store));
+        }
+    }
+}
\ No newline at end of file
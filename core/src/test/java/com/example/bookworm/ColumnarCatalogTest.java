@@ -0,0 +1,116 @@
+package com.example.bookworm;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ColumnarCatalog}: the columns give back the books they were built from,
+ * in the same order.
+ */
+public class ColumnarCatalogTest {
+
+    /**
+     * Describes a book with every catalog field.
+     *
+     * @param book The book.
+     * @return The description.
+     */
+    private static String describe(Book book) {
+        return book.getId() + "|" + book.getTitle() + "|" + book.getAuthor() + "|" + book.getCoverImageResId()
+                + "|" + book.getCoverImageUrl() + "|" + book.getWebsiteUrl();
+    }
+
+    /**
+     * Describes the books of a list.
+     *
+     * @param books The books.
+     * @return Their descriptions, in order.
+     */
+    private static List<String> describe(List<Book> books) {
+        ArrayList<String> descriptions = new ArrayList<>();
+        for (Book book : books) {
+            descriptions.add(describe(book));
+        }
+        return descriptions;
+    }
+
+    /**
+     * Generates a catalog mixing every kind of id the columns store differently, shared and
+     * unique authors, and covers that are bundled or remote.
+     *
+     * @param count Number of books.
+     * @return The books, in catalog order.
+     */
+    private static List<Book> sourceCatalog(int count) {
+        Random random = new Random(10);
+        String[] oddIds = {"0", "0123456789012", "978-0132350884", "B00X1234", "9999999999999999999", "", null,
+                "123456789012345678"};
+        ArrayList<Book> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = (i % 7 == 3) ? oddIds[(i / 7) % oddIds.length] : Long.toString(9780000000000L + i);
+            String author = (i % 5 == 0) ? "Author " + i : "Shared author " + random.nextInt(20);
+            String coverUrl = (i % 4 == 1) ? "https://covers.example.com/" + i + ".jpg" : null;
+            String websiteUrl = (i % 9 == 2) ? null : "https://example.com/" + i;
+            books.add(new Book(id, "Title " + i + " \u00e9t\u00e9", author, i % 3, coverUrl, websiteUrl));
+        }
+        return books;
+    }
+
+    /**
+     * Every book comes back with the same fields and at the same position.
+     */
+    @Test
+    public void returnsSourceBooksInOrder() {
+        List<Book> source = sourceCatalog(2_000);
+        ColumnarCatalog.Builder builder = new ColumnarCatalog.Builder(16);
+        for (Book book : source) {
+            builder.add(book);
+        }
+        ColumnarCatalog catalog = builder.build();
+
+        assertEquals(source.size(), catalog.getCount());
+        assertEquals(describe(source), describe(catalog.loadRange(0, catalog.getCount())));
+        for (int i = 0; i < source.size(); i += 97) {
+            assertEquals(describe(source.get(i)), describe(catalog.get(i)));
+        }
+        assertTrue(catalog.getAuthorCount() < source.size() / 4);
+    }
+
+    /**
+     * Ranges are clipped to the catalog and keep the catalog order.
+     */
+    @Test
+    public void rangesAreClipped() {
+        List<Book> source = sourceCatalog(100);
+        ColumnarCatalog.Builder builder = new ColumnarCatalog.Builder(source.size());
+        for (Book book : source) {
+            builder.add(book);
+        }
+        ColumnarCatalog catalog = builder.build();
+
+        assertEquals(describe(source.subList(40, 80)), describe(catalog.loadRange(40, 40)));
+        assertEquals(describe(source.subList(90, 100)), describe(catalog.loadRange(90, 40)));
+        assertEquals(describe(source.subList(0, 10)), describe(catalog.loadRange(-5, 10)));
+        assertTrue(catalog.loadRange(100, 40).isEmpty());
+        assertEquals(describe(source.subList(95, 100)), describe(catalog.loadRange(95, Integer.MAX_VALUE)));
+    }
+
+    /**
+     * A book's return date belongs to the user's list and is not kept by the catalog.
+     */
+    @Test
+    public void returnDateIsNotStored() {
+        Book book = new Book("9780000000001", "Title", "Author", 0, null);
+        book.setReturnEpochDay(20_000);
+        ColumnarCatalog catalog = new ColumnarCatalog.Builder(1).add(book).build();
+
+        assertEquals(describe(book), describe(catalog.get(0)));
+        assertEquals(LoanDates.NO_DATE, catalog.get(0).getReturnEpochDay());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,278 @@
+package com.example.bookworm;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CoverHttpCache} against a local HTTP server, counting the requests
+ * that reach the server.
+ */
+public class CoverHttpCacheTest {
+
+    /** Holds each test's cache directory. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** The local server. */
+    private HttpServer server;
+
+    /** Requests received, by path. */
+    private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    /** If-None-Match header of the last request, or null. */
+    private volatile String lastIfNoneMatch;
+
+    /** Released to let blocked "/slow" requests answer. */
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+
+    /** The time seen by the cache. */
+    private final FakeClock time = new FakeClock(1_700_000_000_000L);
+
+    /**
+     * Starts a server that answers:
+     * "/fresh" with max-age=60, "/etag" with an ETag that must always be revalidated,
+     * "/slow" only once {@link #releaseSlow} is released, and "/big/*" with 1000 fresh bytes.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+            lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+            if (path.equals("/fresh")) {
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+                respond(exchange, image(path, 100));
+            } else if (path.equals("/etag")) {
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                if ("\"v1\"".equals(lastIfNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                } else {
+                    respond(exchange, image(path, 100));
+                }
+            } else if (path.equals("/slow")) {
+                try {
+                    releaseSlow.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, image(path, 100));
+            } else if (path.startsWith("/big/")) {
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=3600");
+                respond(exchange, image(path, 1000));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Sends a 200 reply.
+     *
+     * @param exchange The exchange to answer.
+     * @param body     The response body.
+     */
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Creates distinct image bytes for a path.
+     *
+     * @param path   The request path.
+     * @param length The number of bytes.
+     * @return The image.
+     */
+    private static byte[] image(String path, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (path.hashCode() + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the URL of a path on the local server.
+     *
+     * @param path The path.
+     * @return The URL.
+     */
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * Gets the number of requests the server received for a path.
+     *
+     * @param path The path.
+     * @return The request count.
+     */
+    private int requestCount(String path) {
+        AtomicInteger count = requests.get(path);
+        return (count == null) ? 0 : count.get();
+    }
+
+    /**
+     * A fresh entry is served without any request until its max-age has passed.
+     */
+    @Test
+    public void freshEntryIsServedWithoutRequest() throws IOException {
+        CoverHttpCache cache = new CoverHttpCache(folder.newFolder(), 1 << 20, time);
+
+        File first = cache.get(url("/fresh"));
+        File second = cache.get(url("/fresh"));
+
+        assertArrayEquals(image("/fresh", 100), Files.readAllBytes(second.toPath()));
+        assertEquals(first, second);
+        assertEquals(1, requestCount("/fresh"));
+        assertEquals(1, cache.getDownloadCount());
+        assertEquals(1, cache.getFreshHitCount());
+
+        // Once stale, the entry is fetched again
+        time.advance(61_000L);
+        cache.get(url("/fresh"));
+        assertEquals(2, requestCount("/fresh"));
+        assertEquals(2, cache.getNetworkRequestCount());
+    }
+
+    /**
+     * An entry that must be revalidated is confirmed with its ETag, and a 304 reuses it.
+     */
+    @Test
+    public void notModifiedReusesCachedBytes() throws IOException {
+        CoverHttpCache cache = new CoverHttpCache(folder.newFolder(), 1 << 20, time);
+
+        cache.get(url("/etag"));
+        File revalidated = cache.get(url("/etag"));
+
+        assertEquals("\"v1\"", lastIfNoneMatch);
+        assertArrayEquals(image("/etag", 100), Files.readAllBytes(revalidated.toPath()));
+        assertEquals(2, requestCount("/etag"));
+        assertEquals(1, cache.getDownloadCount());
+        assertEquals(1, cache.getRevalidatedHitCount());
+        assertEquals(0, cache.getFreshHitCount());
+    }
+
+    /**
+     * Concurrent lookups of one URL share a single request.
+     */
+    @Test
+    public void concurrentLookupsShareOneDownload() throws Exception {
+        CoverHttpCache cache = new CoverHttpCache(folder.newFolder(), 1 << 20, time);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<File>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(() -> cache.get(url("/slow"))));
+            }
+
+            // Wait until every other caller is waiting on the first download
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (cache.getCoalescedCount() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            releaseSlow.countDown();
+
+            for (Future<File> result : results) {
+                assertArrayEquals(image("/slow", 100), Files.readAllBytes(result.get().toPath()));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1, requestCount("/slow"));
+        assertEquals(3, cache.getCoalescedCount());
+        assertEquals(1, cache.getDownloadCount());
+    }
+
+    /**
+     * Past its budget the cache deletes the least recently used image, which then
+     * has to be downloaded again.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        File directory = folder.newFolder();
+        CoverHttpCache cache = new CoverHttpCache(directory, 2500, time);
+        List<String> paths = Arrays.asList("/big/a", "/big/b", "/big/c");
+        for (String path : paths) {
+            cache.get(url(path));
+            time.advance(1000L);
+        }
+
+        // "a" was evicted when "c" arrived; reading "b" makes "c" the oldest
+        cache.get(url("/big/b"));
+        time.advance(1000L);
+        cache.get(url("/big/a"));
+        time.advance(1000L);
+        cache.get(url("/big/b"));
+        cache.get(url("/big/c"));
+
+        assertEquals(2, requestCount("/big/a"));
+        assertEquals(1, requestCount("/big/b"));
+        assertEquals(2, requestCount("/big/c"));
+        assertEquals(5, cache.getDownloadCount());
+        assertEquals(2, cache.getFreshHitCount());
+    }
+
+    /**
+     * When the server cannot be reached, a stale cached copy is still returned.
+     */
+    @Test
+    public void staleCopyIsServedOffline() throws IOException {
+        CoverHttpCache cache = new CoverHttpCache(folder.newFolder(), 1 << 20, time);
+        String url = url("/fresh");
+        cache.get(url);
+        server.stop(0);
+        time.advance(61_000L);
+
+        File offline = cache.get(url);
+
+        assertTrue(offline.isFile());
+        assertArrayEquals(image("/fresh", 100), Files.readAllBytes(offline.toPath()));
+        assertEquals(2, cache.getNetworkRequestCount());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.example.bookworm;
+
+/**
+ * FakeClock is a {@link BookwormClock} whose time only moves when a test says so.
+ */
+class FakeClock implements BookwormClock {
+
+    /** The current time in epoch milliseconds. */
+    private long nowMillis;
+
+    /**
+     * Creates a clock stopped at a given time.
+     *
+     * @param nowMillis The starting time in epoch milliseconds.
+     */
+    FakeClock(long nowMillis) {
+        this.nowMillis = nowMillis;
+    }
+
+    /**
+     * Moves the clock forward, or backward for a negative amount.
+     *
+     * @param millis The time to add, in milliseconds.
+     */
+    void advance(long millis) {
+        nowMillis += millis;
+    }
+
+    /**
+     * Sets the current time.
+     *
+     * @param nowMillis The new time in epoch milliseconds.
+     */
+    void set(long nowMillis) {
+        this.nowMillis = nowMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return nowMillis;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.example.bookworm;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link FineEngine}: the incremental total must always match the
+ * reference calculation.
+ */
+public class FineEngineTest {
+
+    /** An arbitrary starting day, well after the epoch. */
+    private static final int START_DAY = 19_000;
+
+    /**
+     * Creates a book with a return date.
+     *
+     * @param id             The catalog id.
+     * @param returnEpochDay The return date, or {@link LoanDates#NO_DATE}.
+     * @return The book.
+     */
+    private static Book book(String id, int returnEpochDay) {
+        return new Book(id, "Title " + id, "Author", 0, null).withReturnEpochDay(returnEpochDay);
+    }
+
+    /**
+     * Random adds, returns, re-dates and day changes in both directions keep the
+     * incremental total equal to a full rescan of the list.
+     */
+    @Test
+    public void randomOperationsMatchReference() {
+        Random random = new Random(7);
+        FineEngine engine = new FineEngine();
+        LinkedHashMap<String, Book> books = new LinkedHashMap<>();
+        int today = START_DAY;
+
+        for (int step = 0; step < 5000; step++) {
+            String id = String.valueOf(random.nextInt(200));
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                // Add a book or change its return date, sometimes to none
+                int returnDay = random.nextInt(8) == 0
+                        ? LoanDates.NO_DATE
+                        : today + random.nextInt(60) - 30;
+                Book book = book(id, returnDay);
+                books.put(book.getKey(), book);
+                engine.put(book);
+            } else if (operation < 6) {
+                String key = book(id, LoanDates.NO_DATE).getKey();
+                books.remove(key);
+                engine.remove(key);
+            } else if (operation < 9) {
+                today += random.nextInt(5);
+            } else {
+                today -= random.nextInt(15);
+            }
+
+            ArrayList<Book> list = new ArrayList<>(books.values());
+            assertEquals("step " + step, FineEngine.calculateTotalFine(list, today), engine.getTotalFine(today));
+
+            // The total does not change on its own before the next change day
+            int next = engine.getNextChangeDay();
+            if (next != Integer.MAX_VALUE && next > today) {
+                assertEquals(FineEngine.calculateTotalFine(list, next - 1),
+                        FineEngine.calculateTotalFine(list, today));
+            }
+        }
+    }
+
+    /**
+     * Replacing the whole list drops loans that are no longer on it.
+     */
+    @Test
+    public void setAllReplacesTrackedLoans() {
+        FineEngine engine = new FineEngine();
+        ArrayList<Book> first = new ArrayList<>();
+        first.add(book("1", START_DAY));
+        first.add(book("2", START_DAY));
+        engine.setAll(first);
+        assertEquals(20, engine.getTotalFine(START_DAY + FineEngine.FINE_THRESHOLD_DAYS));
+
+        ArrayList<Book> second = new ArrayList<>();
+        second.add(book("3", START_DAY + 5));
+        engine.setAll(second);
+        assertEquals(0, engine.getTotalFine(START_DAY + FineEngine.FINE_THRESHOLD_DAYS));
+        assertEquals(START_DAY + 5 + FineEngine.FINE_THRESHOLD_DAYS, engine.getNextChangeDay());
+        assertEquals(FineEngine.calculateTotalFine(second, START_DAY + 15), engine.getTotalFine(START_DAY + 15));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package com.example.bookworm;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LatencyHistogram}: the bucket arithmetic at every bucket edge, the
+ * extreme values, and percentiles of a known distribution.
+ */
+public class LatencyHistogramTest {
+
+    /** Index of the bucket holding Long.MAX_VALUE, the last one in use. */
+    private static final int LAST_BUCKET = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+
+    /**
+     * Values below four have a bucket each.
+     */
+    @Test
+    public void smallValuesAreExact() {
+        for (int value = 0; value < 4; value++) {
+            assertEquals(value, LatencyHistogram.bucketOf(value));
+            assertEquals(value, LatencyHistogram.upperBoundOf(value));
+        }
+        assertEquals(4, LatencyHistogram.bucketOf(4));
+    }
+
+    /**
+     * Each bucket's upper bound falls into that bucket and the next value into the next
+     * one, so the buckets cover every long without gaps or overlaps.
+     */
+    @Test
+    public void bucketEdgesAreContiguous() {
+        for (int bucket = 0; bucket < LAST_BUCKET; bucket++) {
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertEquals("upper bound of " + bucket, bucket, LatencyHistogram.bucketOf(upper));
+            assertEquals("after bucket " + bucket, bucket + 1, LatencyHistogram.bucketOf(upper + 1));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(LAST_BUCKET));
+        assertTrue(LAST_BUCKET < 256);
+    }
+
+    /**
+     * Above the exact range, a bucket is never wider than a quarter of its lower bound.
+     */
+    @Test
+    public void bucketsAreWithinAQuarter() {
+        for (int bucket = 4; bucket < LAST_BUCKET; bucket++) {
+            long lower = LatencyHistogram.upperBoundOf(bucket - 1) + 1;
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue("bucket " + bucket, upper - lower + 1 <= lower / 4);
+        }
+    }
+
+    /**
+     * Zero, negative values and Long.MAX_VALUE are recorded without overflowing a bucket.
+     */
+    @Test
+    public void extremeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getPercentileNanos(50));
+        assertEquals(0L, histogram.getMeanNanos());
+
+        histogram.record(0L);
+        histogram.record(-5L);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0L, histogram.getPercentileNanos(100));
+        assertEquals(0L, histogram.getMaxNanos());
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getMaxNanos());
+        assertEquals(0L, histogram.getPercentileNanos(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(100));
+    }
+
+    /**
+     * With a thousand evenly spread latencies, p50 and p99 are at most a quarter above the
+     * exact values and never below them, and p100 is the maximum.
+     */
+    @Test
+    public void percentilesOfKnownDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 microsecond to 1 millisecond in steps of 1 microsecond, recorded out of order
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(((i * 379L) % 1000 + 1) * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500L, histogram.getMeanNanos());
+        assertEquals(1_000_000L, histogram.getMaxNanos());
+        assertWithinAQuarterAbove(500_000L, histogram.getPercentileNanos(50));
+        assertWithinAQuarterAbove(990_000L, histogram.getPercentileNanos(99));
+        assertEquals(1_000_000L, histogram.getPercentileNanos(100));
+        assertWithinAQuarterAbove(1_000L, histogram.getPercentileNanos(0));
+    }
+
+    /**
+     * A skewed distribution puts p50 in the fast mode and p99 in the slow tail.
+     */
+    @Test
+    public void percentilesOfSkewedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 980; i++) {
+            histogram.record(2_000L);
+        }
+        for (int i = 0; i < 20; i++) {
+            histogram.record(50_000_000L);
+        }
+
+        assertWithinAQuarterAbove(2_000L, histogram.getPercentileNanos(50));
+        assertWithinAQuarterAbove(2_000L, histogram.getPercentileNanos(98));
+        assertEquals(50_000_000L, histogram.getPercentileNanos(99));
+    }
+
+    /**
+     * Concurrent recording loses nothing, and a reset clears every value.
+     */
+    @Test
+    public void concurrentRecordingAndReset() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(1_000L + offset * 1_000_000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(3_001_000L, histogram.getMaxNanos());
+        assertEquals((1_000L + 1_001_000L + 2_001_000L + 3_001_000L) / 4, histogram.getMeanNanos());
+        assertWithinAQuarterAbove(1_001_000L, histogram.getPercentileNanos(50));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0L, histogram.getMaxNanos());
+        assertEquals(0L, histogram.getPercentileNanos(99));
+    }
+
+    /**
+     * Checks a percentile estimate against the exact value.
+     *
+     * @param exact    The exact percentile.
+     * @param estimate The histogram's estimate.
+     */
+    private static void assertWithinAQuarterAbove(long exact, long estimate) {
+        assertTrue(estimate + " below " + exact, estimate >= exact);
+        assertTrue(estimate + " too far above " + exact, estimate <= exact + exact / 4);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.example.bookworm;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LoanDates} and the day arithmetic built on it, around the DST changes
+ * of America/New_York, where a day lasts 23 or 25 hours.
+ */
+public class LoanDatesTest {
+
+    /** A zone with DST; in 2024 it springs forward on March 10 and falls back on November 3. */
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    /** One hour in milliseconds. */
+    private static final long HOUR = 1000L * 60L * 60L;
+
+    /** Holds the journal directory of the migration test. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** The default time zone before the test, restored afterwards. */
+    private TimeZone previousZone;
+
+    /**
+     * Runs each test with New York as the device's time zone, which legacy dates are read in.
+     */
+    @Before
+    public void setUp() {
+        previousZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(NEW_YORK));
+    }
+
+    /**
+     * Restores the default time zone.
+     */
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(previousZone);
+    }
+
+    /**
+     * Gets an instant from a New York wall-clock time.
+     *
+     * @param localTime The local date and time, e.g. "2024-03-10T01:30".
+     * @return The instant in epoch milliseconds.
+     */
+    private static long newYork(String localTime) {
+        return LocalDateTime.parse(localTime).atZone(NEW_YORK).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Creates a book with a return date.
+     *
+     * @param returnEpochDay The return date.
+     * @return The book.
+     */
+    private static Book due(int returnEpochDay) {
+        return new Book("1", "Title", "Author", 0, null).withReturnEpochDay(returnEpochDay);
+    }
+
+    /**
+     * A book is overdue from its return date itself, as when the date was stored as local
+     * midnight and compared with the current time.
+     */
+    @Test
+    public void overdueFromTheReturnDate() {
+        int returnDay = LoanDates.of(2024, 5, 10);
+        assertFalse(LoanDates.isOverdue(returnDay, returnDay - 1));
+        assertTrue(LoanDates.isOverdue(returnDay, returnDay));
+        assertTrue(LoanDates.isOverdue(returnDay, returnDay + 1));
+        assertFalse(LoanDates.isOverdue(LoanDates.NO_DATE, returnDay));
+    }
+
+    /**
+     * On the 23-hour spring-forward day the date changes at local midnight, and a book due
+     * ten days earlier is fined at midnight although less than 240 hours have passed.
+     */
+    @Test
+    public void springForward() {
+        FakeClock time = new FakeClock(newYork("2024-03-09T23:30"));
+        DayClock clock = new DayClock(time, () -> NEW_YORK);
+        int march10 = LoanDates.of(2024, 3, 10);
+        assertEquals(march10 - 1, clock.today());
+        assertFalse(LoanDates.isOverdue(march10, clock.today()));
+
+        time.set(newYork("2024-03-10T00:00"));
+        assertEquals(march10, clock.today());
+        assertTrue(LoanDates.isOverdue(march10, clock.today()));
+
+        // Skips 02:00-03:00 local time, but still ends at local midnight
+        time.set(newYork("2024-03-10T23:59"));
+        assertEquals(march10, clock.today());
+        assertEquals(23 * HOUR, clock.startOfDayMillis(march10 + 1) - clock.startOfDayMillis(march10));
+
+        int march1 = LoanDates.of(2024, 3, 1);
+        time.set(newYork("2024-03-11T00:00"));
+        assertEquals(10 * 24 * HOUR - HOUR, time.currentTimeMillis() - newYork("2024-03-01T00:00"));
+        assertFineParity(march1, clock.today(), FineEngine.FINE_PER_BOOK_DOLLARS);
+        assertFineParity(march1, clock.today() - 1, 0);
+    }
+
+    /**
+     * On the 25-hour fall-back day the date only changes at local midnight, and a book due
+     * nine days earlier is not fined during the extra hour.
+     */
+    @Test
+    public void fallBack() {
+        int november3 = LoanDates.of(2024, 11, 3);
+        FakeClock time = new FakeClock(newYork("2024-11-03T23:30"));
+        DayClock clock = new DayClock(time, () -> NEW_YORK);
+        assertEquals(november3, clock.today());
+        assertEquals(25 * HOUR, clock.startOfDayMillis(november3 + 1) - clock.startOfDayMillis(november3));
+
+        // More than 240 hours after October 25, but only nine days later
+        int october25 = LoanDates.of(2024, 10, 25);
+        assertTrue(time.currentTimeMillis() - newYork("2024-10-25T00:00") > 10 * 24 * HOUR);
+        assertFineParity(october25, clock.today(), 0);
+
+        time.set(newYork("2024-11-04T00:00"));
+        assertEquals(november3 + 1, clock.today());
+        assertFineParity(october25, clock.today(), FineEngine.FINE_PER_BOOK_DOLLARS);
+    }
+
+    /**
+     * Checks that the incremental and reference fines agree on a book and have an expected value.
+     *
+     * @param returnEpochDay The book's return date.
+     * @param today          The day to compute the fine for.
+     * @param expected       The expected fine in dollars.
+     */
+    private static void assertFineParity(int returnEpochDay, int today, int expected) {
+        FineEngine engine = new FineEngine();
+        engine.put(due(returnEpochDay));
+        assertEquals(expected, engine.getTotalFine(today));
+        assertEquals(expected, FineEngine.calculateTotalFine(Collections.singletonList(due(returnEpochDay)), today));
+    }
+
+    /**
+     * Frames a journal record the way BookJournal writes it: a CRC-32 in hex, a space and the JSON.
+     *
+     * @param json The record.
+     * @return The journal line, with its terminator.
+     */
+    private static String journalLine(String json) {
+        CRC32 crc = new CRC32();
+        crc.update(json.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x %s\n", crc.getValue(), json);
+    }
+
+    /**
+     * Return dates saved by older versions as the local midnight of the day, in epoch
+     * milliseconds, convert to the same calendar day, including on DST change days.
+     */
+    @Test
+    public void legacyMillisMigration() throws Exception {
+        long springMidnight = newYork("2024-03-10T00:00");
+        long fallMidnight = newYork("2024-11-03T00:00");
+        assertEquals(LoanDates.of(2024, 3, 10), LoanDates.fromLegacyMillis(springMidnight));
+        assertEquals(LoanDates.of(2024, 11, 3), LoanDates.fromLegacyMillis(fallMidnight));
+        assertEquals(LoanDates.NO_DATE, LoanDates.fromLegacyMillis(0L));
+
+        // A list saved in SharedPreferences by GSON
+        String legacyList = "[{\"id\":\"1\",\"title\":\"Spring\",\"author\":\"A\",\"coverImageResId\":0,"
+                + "\"returnDateMillis\":" + springMidnight + "},"
+                + "{\"id\":\"2\",\"title\":\"Undated\",\"author\":\"B\",\"coverImageResId\":0,"
+                + "\"returnDateMillis\":0}]";
+        ArrayList<Book> books = BookCodec.readList(new StringReader(legacyList));
+        assertEquals(LoanDates.of(2024, 3, 10), books.get(0).getReturnEpochDay());
+        assertFalse(books.get(1).hasReturnDate());
+
+        // A journal written before the epoch-day format
+        File directory = folder.newFolder();
+        String legacyJournal = journalLine("{\"op\":\"add\",\"key\":\"1\",\"book\":{\"id\":\"1\","
+                + "\"title\":\"Spring\",\"author\":\"A\",\"returnDateMillis\":" + springMidnight + "}}")
+                + journalLine("{\"op\":\"add\",\"key\":\"2\",\"book\":{\"id\":\"2\",\"title\":\"Fall\","
+                + "\"author\":\"B\"}}")
+                + journalLine("{\"op\":\"set_return_date\",\"key\":\"2\",\"returnDateMillis\":" + fallMidnight + "}");
+        Files.write(new File(directory, "my_list.journal").toPath(), legacyJournal.getBytes(StandardCharsets.UTF_8));
+
+        ArrayList<Book> replayed = new BookJournal(directory).loadAll();
+        assertEquals(2, replayed.size());
+        assertEquals(LoanDates.of(2024, 3, 10), replayed.get(0).getReturnEpochDay());
+        assertEquals(LoanDates.of(2024, 11, 3), replayed.get(1).getReturnEpochDay());
+
+        // The journal was rewritten in the current format, so the zone no longer matters
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        ArrayList<Book> reopened = new BookJournal(directory).loadAll();
+        assertEquals(LoanDates.of(2024, 11, 3), reopened.get(1).getReturnEpochDay());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,459 @@
+package com.example.bookworm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LoanTransfer}: round trips through both formats, covers carried by name,
+ * skipped records, the journal's streamed export, and memory that stays flat as the
+ * transfer grows.
+ */
+public class LoanTransferTest {
+
+    /** Drawable names of this build's cover resource ids: only 7 is a bundled cover. */
+    private static final IntFunction<String> COVER_NAMES = resId -> (resId == 7) ? "clean_code" : null;
+
+    /** Looks drawable names up in this build. */
+    private static final ToIntFunction<String> COVERS = name -> name.equals("clean_code") ? 7 : 0;
+
+    /** Looks drawable names up in a later build, which gave the same drawable another id. */
+    private static final ToIntFunction<String> NEXT_BUILD_COVERS = name -> name.equals("clean_code") ? 9 : 0;
+
+    /** Holds each test's journal directories. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Describes a book with every field a transfer carries.
+     *
+     * @param book The book.
+     * @return The description.
+     */
+    private static String describe(Book book) {
+        return book.getKey() + "|" + book.getTitle() + "|" + book.getAuthor() + "|" + book.getCoverImageResId()
+                + "|" + book.getCoverImageUrl() + "|" + book.getWebsiteUrl() + "|" + book.getReturnEpochDay();
+    }
+
+    /**
+     * Describes the books of a list.
+     *
+     * @param books The books.
+     * @return Their descriptions, in order.
+     */
+    private static List<String> describe(List<Book> books) {
+        ArrayList<String> descriptions = new ArrayList<>();
+        for (Book book : books) {
+            descriptions.add(describe(book));
+        }
+        return descriptions;
+    }
+
+    /**
+     * Builds a list whose fields need quoting or escaping in both formats.
+     *
+     * @return The books.
+     */
+    private static List<Book> awkwardBooks() {
+        Book quoted = new Book("9780000000001", "Say \"Hello\", World", "Doe, Jane", 7, "https://example.com/a.jpg",
+                "https://example.com/a");
+        quoted.setReturnEpochDay(20000);
+        Book multiline = new Book("9780000000002", "Line one\nLine two", "\u00dcn\u00efc\u00f8d\u00e9 Author", 0, null);
+        Book untitledId = new Book(null, "No id", "Someone", 0, null);
+        untitledId.setReturnEpochDay(19990);
+        return Arrays.asList(quoted, multiline, untitledId);
+    }
+
+    /**
+     * Exports a journal and imports the file into an empty one, in both formats.
+     */
+    @Test
+    public void roundTripKeepsEveryField() throws IOException {
+        for (LoanTransfer.Format format : LoanTransfer.Format.values()) {
+            BookJournal source = new BookJournal(folder.newFolder());
+            source.addAll(awkwardBooks());
+            StringWriter file = new StringWriter();
+            assertEquals(3, LoanTransfer.exportTo(source, file, format, COVER_NAMES));
+
+            BookJournal target = new BookJournal(folder.newFolder());
+            ImportReport report = LoanTransfer.importFrom(target, new StringReader(file.toString()), format, COVERS);
+            assertEquals(format.toString(), 3, report.getBooksAdded());
+            assertEquals(format.toString(), describe(awkwardBooks()), describe(target.loadAll()));
+        }
+    }
+
+    /**
+     * A bundled cover travels as its drawable name, so a later build with other resource
+     * ids shows the same cover. An id that is not a drawable of this build is left out.
+     */
+    @Test
+    public void coverIsCarriedByName() throws IOException {
+        for (LoanTransfer.Format format : LoanTransfer.Format.values()) {
+            BookJournal source = new BookJournal(folder.newFolder());
+            source.add(new Book("1", "Clean Code", "Robert C. Martin", 7, null));
+            source.add(new Book("2", "Stale", "Author", 2131165302, null));
+            StringWriter file = new StringWriter();
+            LoanTransfer.exportTo(source, file, format, COVER_NAMES);
+            assertTrue(format.toString(), file.toString().contains("clean_code"));
+            assertFalse(format.toString(), file.toString().contains("2131165302"));
+
+            BookJournal target = new BookJournal(folder.newFolder());
+            LoanTransfer.importFrom(target, new StringReader(file.toString()), format, NEXT_BUILD_COVERS);
+            List<Book> books = target.loadAll();
+            assertEquals(format.toString(), 9, books.get(0).getCoverImageResId());
+            assertEquals(format.toString(), 0, books.get(1).getCoverImageResId());
+        }
+    }
+
+    /**
+     * Files from older versions hold resource ids of the build that wrote them; the ids
+     * are ignored rather than trusted. Each cover name is looked up once per import.
+     */
+    @Test
+    public void importIgnoresResourceIdsAndLooksEachNameUpOnce() throws IOException {
+        String csv = "id,title,cover_res_id\r\n1,Old,2131165302\r\n";
+        BookJournal fromCsv = new BookJournal(folder.newFolder());
+        assertEquals(1, LoanTransfer.importFrom(fromCsv, new StringReader(csv), LoanTransfer.Format.CSV, COVERS)
+                .getBooksAdded());
+        assertEquals(0, fromCsv.loadAll().get(0).getCoverImageResId());
+
+        String ndjson = "{\"id\":\"1\",\"title\":\"Old\",\"coverImageResId\":7}\n";
+        BookJournal fromNdjson = new BookJournal(folder.newFolder());
+        LoanTransfer.importFrom(fromNdjson, new StringReader(ndjson), LoanTransfer.Format.NDJSON, COVERS);
+        assertEquals(0, fromNdjson.loadAll().get(0).getCoverImageResId());
+
+        AtomicInteger lookups = new AtomicInteger();
+        StringBuilder named = new StringBuilder("id,title,cover\r\n");
+        for (int i = 0; i < 10; i++) {
+            named.append(i).append(",Title ").append(i).append(",clean_code\r\n");
+        }
+        BookJournal counted = new BookJournal(folder.newFolder());
+        LoanTransfer.importFrom(counted, new StringReader(named.toString()), LoanTransfer.Format.CSV, name -> {
+            lookups.incrementAndGet();
+            return COVERS.applyAsInt(name);
+        });
+        assertEquals(1, lookups.get());
+        assertEquals(7, counted.loadAll().get(9).getCoverImageResId());
+    }
+
+    /**
+     * Books already in the list are skipped and keep their return dates, as do repeats
+     * within the file; unreadable records are counted and skipped.
+     */
+    @Test
+    public void importSkipsDuplicatesAndMalformedRecords() throws IOException {
+        BookJournal journal = new BookJournal(folder.newFolder());
+        Book held = new Book("1", "Held", "Author", 0, null);
+        held.setReturnEpochDay(20010);
+        journal.add(held);
+
+        String csv = "title,id,return_date,extra\r\n"
+                + "Held,1,2030-01-01,x\r\n"
+                + "New,2,,x\r\n"
+                + "New again,2,,x\r\n"
+                + ",3,,x\r\n"
+                + "Bad date,4,yesterday,x\r\n"
+                + "\r\n"
+                + "Last,5,2024-10-01,x\r\n";
+        ImportReport report = LoanTransfer.importFrom(journal, new StringReader(csv), LoanTransfer.Format.CSV, COVERS);
+
+        assertEquals(6, report.getRecordsRead());
+        assertEquals(2, report.getBooksAdded());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(2, report.getMalformed());
+        List<Book> books = journal.loadAll();
+        assertEquals(Arrays.asList("1", "2", "5"), Arrays.asList(books.get(0).getKey(), books.get(1).getKey(),
+                books.get(2).getKey()));
+        assertEquals(20010, books.get(0).getReturnEpochDay());
+        assertEquals("New", books.get(1).getTitle());
+    }
+
+    /**
+     * The journal's streamed export gives the same list as replaying it: returned books
+     * are left out, re-dated books carry their new date, a book added again while in the
+     * list keeps its place with the new copy, and one added again after its return moves
+     * to the end.
+     */
+    @Test
+    public void journalExportStreamsTheReplayedList() throws IOException {
+        BookJournal journal = new BookJournal(folder.newFolder());
+        ArrayList<Book> books = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            books.add(new Book(Integer.toString(i), "Title " + i, "Author", 0, null));
+        }
+        journal.addAll(books);
+        journal.setReturnDate(books.get(5), 20005);
+        journal.remove(books.get(7));
+        journal.add(new Book("9", "Title 9, second copy", "Author", 0, null));
+        journal.remove(books.get(11));
+        journal.add(books.get(11));
+        journal.removeAll(books.subList(100, 150));
+        journal.setReturnDate(books.get(200), 20200);
+        journal.setReturnDate(books.get(200), 20201);
+
+        List<Book> replayed = journal.loadAll();
+        ArrayList<Book> streamed = new ArrayList<>();
+        journal.forEach(streamed::add);
+
+        assertEquals(describe(replayed), describe(streamed));
+        assertEquals(249, streamed.size());
+        assertEquals("11", streamed.get(streamed.size() - 1).getKey());
+        assertEquals("Title 9, second copy", streamed.get(8).getTitle());
+        assertEquals(20201, streamed.get(148).getReturnEpochDay());
+
+        // The same after reopening, from the records on disk alone
+        ArrayList<Book> reopened = new ArrayList<>();
+        new BookJournal(folder.getRoot().listFiles()[0]).forEach(reopened::add);
+        assertEquals(describe(replayed), describe(reopened));
+    }
+
+    /**
+     * Importing a million records holds no more memory than importing ten thousand.
+     */
+    @Test
+    public void importHeapStaysFlat() throws IOException {
+        long small = retainedDuringImport(10_000);
+        long large = retainedDuringImport(1_000_000);
+        assertTrue("Retained " + small + " bytes for 10k records and " + large + " for 1M",
+                large - small < FLAT_MARGIN_BYTES);
+    }
+
+    /**
+     * Exporting a million books holds no more memory than exporting ten thousand.
+     */
+    @Test
+    public void exportHeapStaysFlat() throws IOException {
+        long small = retainedDuringExport(10_000);
+        long large = retainedDuringExport(1_000_000);
+        assertTrue("Retained " + small + " bytes for 10k books and " + large + " for 1M",
+                large - small < FLAT_MARGIN_BYTES);
+    }
+
+    /**
+     * Allowed growth of retained memory between a small and a large transfer. Holding the
+     * large transfer's books would take hundreds of megabytes.
+     */
+    private static final long FLAT_MARGIN_BYTES = 4L * 1024 * 1024;
+
+    /**
+     * Imports generated records into a store that keeps nothing, measuring the memory
+     * retained while the last batch is stored.
+     *
+     * @param count The number of records.
+     * @return The retained heap, in bytes.
+     */
+    private static long retainedDuringImport(int count) throws IOException {
+        CountingStore store = new CountingStore(count);
+        ImportReport report = LoanTransfer.importFrom(store, new GeneratedCsv(count), LoanTransfer.Format.CSV,
+                COVERS);
+        assertEquals(count, report.getBooksAdded());
+        return store.retainedAtEnd;
+    }
+
+    /**
+     * Exports generated books to a writer that keeps nothing, measuring the memory retained
+     * while the last book is written.
+     *
+     * @param count The number of books.
+     * @return The retained heap, in bytes.
+     */
+    private static long retainedDuringExport(int count) throws IOException {
+        CountingStore store = new CountingStore(count);
+        Writer discard = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertEquals(count, LoanTransfer.exportTo(store, discard, LoanTransfer.Format.NDJSON, COVER_NAMES));
+        return store.retainedAtEnd;
+    }
+
+    /**
+     * Measures the heap still in use after garbage collection.
+     *
+     * @return The smallest used heap seen over a few collections, in bytes.
+     */
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * A store that generates the books it exports and counts the books it imports without
+     * keeping them. It measures the retained heap when the last book passes through.
+     */
+    private static final class CountingStore implements LoanStore {
+
+        /** Number of books the transfer handles. */
+        final int count;
+
+        /** Number of books imported so far. */
+        long imported;
+
+        /** Heap retained when the last book passed through. */
+        long retainedAtEnd;
+
+        /**
+         * Creates a store.
+         *
+         * @param count Number of books the transfer handles.
+         */
+        CountingStore(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public ArrayList<Book> loadAll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void forEach(Consumer<? super Book> action) {
+            for (int i = 0; i < count; i++) {
+                Book book = new Book(Integer.toString(i), "Title " + i, "Author " + (i % 100), 0, null);
+                book.setReturnEpochDay(20000 + i % 30);
+                if (i == count - 1) {
+                    retainedAtEnd = retainedHeap();
+                }
+                action.accept(book);
+            }
+        }
+
+        @Override
+        public int addAllAbsent(List<Book> books) {
+            imported += books.size();
+            if (imported == count) {
+                retainedAtEnd = retainedHeap();
+            }
+            return books.size();
+        }
+
+        @Override
+        public void add(Book book) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove(Book book) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addAll(List<Book> books) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeAll(List<Book> books) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setReturnDate(Book book, int returnEpochDay) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void replaceAll(List<Book> books) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ArrayList<Book> findOverdue(int today) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getTotalFine(int today) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sync() {
+        }
+    }
+
+    /**
+     * A CSV file generated one row at a time as it is read, so the test itself holds none of it.
+     */
+    private static final class GeneratedCsv extends Reader {
+
+        /** Number of rows to generate after the header. */
+        private final int count;
+
+        /** The row being read. */
+        private final StringBuilder row = new StringBuilder("id,title,author,return_date\n");
+
+        /** Position in {@link #row}. */
+        private int position;
+
+        /** Number of rows generated so far. */
+        private int generated;
+
+        /**
+         * Creates a file.
+         *
+         * @param count Number of rows after the header.
+         */
+        GeneratedCsv(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == row.length()) {
+                if (generated == count) {
+                    return -1;
+                }
+                row.setLength(0);
+                row.append(generated).append(",Title ").append(generated).append(",\"Author, ")
+                        .append(generated % 100).append("\",2024-10-").append(10 + generated % 20).append('\n');
+                generated++;
+                position = 0;
+            }
+            int n = Math.min(length, row.length() - position);
+            row.getChars(position, position + n, buffer, offset);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
\ No newline at end of file
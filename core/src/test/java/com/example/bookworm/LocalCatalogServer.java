@@ -0,0 +1,353 @@
+package com.example.bookworm;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * LocalCatalogServer is a stand-in for the catalog service, for tests and development.
+ * It lives with the tests, so it never ships in the app.
+ * It keeps a change history in memory and serves the protocol {@link CatalogSyncEngine}
+ * speaks: {@code GET /catalog/changes?since=<version>}, answered with 304 when the client is
+ * up to date and otherwise with the later changes, gzipped if the client accepts it.
+ *
+ * It is a deliberately small HTTP/1.1 server on a plain ServerSocket, handling one request
+ * per connection on a single thread, so it runs on the JVM and on a device alike. A
+ * response can be cut off after a number of changes to exercise resumable syncs.
+ *
+ * Run {@code ./gradlew :core:serveCatalog --args="<catalog.json> [port]"} to serve a
+ * catalog source file, each book becoming one change; an emulator reaches the host's port
+ * 8080 at http://10.0.2.2:8080/.
+ */
+public final class LocalCatalogServer implements Closeable {
+
+    /** Path of the change feed. */
+    private static final String CHANGES_PATH = "/catalog/changes";
+
+    /** Port used by {@link #main(String[])} when none is given. */
+    private static final int DEFAULT_PORT = 8080;
+
+    /** The listening socket. */
+    private final ServerSocket serverSocket;
+
+    /** Thread accepting and answering connections. */
+    private final Thread acceptThread;
+
+    /** The change history; the change at index i has version i + 1. */
+    private final ArrayList<CatalogChange> history = new ArrayList<>();
+
+    /** Number of changes after which the next response is cut off, or -1. */
+    private int interruptAfter = -1;
+
+    /** Number of requests answered. */
+    private int requestCount;
+
+    /** If-None-Match header of the last request, or null. */
+    private String lastIfNoneMatch;
+
+    /**
+     * Starts a server on the loopback interface.
+     *
+     * @param port The port, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public LocalCatalogServer(int port) throws IOException {
+        this(port, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param port    The port, or 0 for any free port.
+     * @param address The address to listen on.
+     * @throws IOException If the port cannot be bound.
+     */
+    public LocalCatalogServer(int port, InetAddress address) throws IOException {
+        serverSocket = new ServerSocket(port, 50, address);
+        acceptThread = new Thread(this::acceptLoop, "catalog-server");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Serves a catalog source file until the process is stopped.
+     *
+     * @param args The catalog source path and optionally the port.
+     * @throws IOException If the file cannot be read or the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: LocalCatalogServer <catalog.json> [port]");
+            System.exit(2);
+        }
+        int port = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+
+        // Listen on every interface so that an emulator or a device can connect
+        LocalCatalogServer server = new LocalCatalogServer(port, InetAddress.getByName("0.0.0.0"));
+        try (Reader reader = new InputStreamReader(Files.newInputStream(Paths.get(args[0])), StandardCharsets.UTF_8)) {
+            server.publishJson(reader);
+        }
+        System.out.println("Serving " + server.getVersion() + " changes on port " + server.serverSocket.getLocalPort());
+    }
+
+    /**
+     * Gets the base URL of the service, to pass to {@link CatalogSyncEngine}.
+     *
+     * @return The URL, ending with a slash.
+     */
+    public URL getUrl() {
+        try {
+            return new URL("http", serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort(), "/");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds every book of a JSON catalog source (see {@link CatalogCompiler}) as an upsert.
+     *
+     * @param reader The JSON source.
+     * @throws IOException If the source cannot be read.
+     */
+    public void publishJson(Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        json.beginArray();
+        while (json.hasNext()) {
+            publish(CatalogChange.read(json));
+        }
+        json.endArray();
+    }
+
+    /**
+     * Adds a change to the history. Its version is replaced by the next version.
+     *
+     * @param change The change.
+     * @return The change's version.
+     */
+    public synchronized long publish(CatalogChange change) {
+        history.add(change.withVersion(history.size() + 1));
+        return history.size();
+    }
+
+    /**
+     * Gets the latest version.
+     *
+     * @return The number of changes published.
+     */
+    public synchronized long getVersion() {
+        return history.size();
+    }
+
+    /**
+     * Cuts off the next response that sends changes after a number of them, by closing the
+     * connection without finishing the body.
+     *
+     * @param changes The number of changes to send completely.
+     */
+    public synchronized void interruptNextResponseAfter(int changes) {
+        interruptAfter = changes;
+    }
+
+    /**
+     * Gets the number of requests answered.
+     *
+     * @return The request count.
+     */
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Gets the If-None-Match header of the last request.
+     *
+     * @return The header's value, or null if the last request had none.
+     */
+    public synchronized String getLastIfNoneMatch() {
+        return lastIfNoneMatch;
+    }
+
+    /**
+     * Gets the ETag of a version. It is not derived the way a client could guess, so a
+     * client can only send it back after receiving it.
+     *
+     * @param version The version.
+     * @return The quoted entity tag.
+     */
+    public static String etagOf(long version) {
+        return "\"catalog-" + Long.toHexString(version * 0x9E3779B97F4A7C15L) + "\"";
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException If the socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    /**
+     * Answers connections until the server is closed.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                handle(socket);
+            } catch (IOException e) {
+                // A client that went away must not stop the server
+            }
+        }
+    }
+
+    /**
+     * Reads one request and writes its response.
+     *
+     * @param socket The connection.
+     * @throws IOException If the connection fails.
+     */
+    private void handle(Socket socket) throws IOException {
+        BufferedReader request = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+        String requestLine = request.readLine();
+        if (requestLine == null) {
+            return;
+        }
+        boolean acceptsGzip = false;
+        String ifNoneMatch = null;
+        String header;
+        while ((header = request.readLine()) != null && !header.isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon < 0) continue;
+            String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = header.substring(colon + 1).trim();
+            if (name.equals("accept-encoding")) {
+                acceptsGzip = value.toLowerCase(Locale.ROOT).contains("gzip");
+            } else if (name.equals("if-none-match")) {
+                ifNoneMatch = value;
+            }
+        }
+
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+        String[] parts = requestLine.split(" ");
+        String target = (parts.length >= 2) ? parts[1] : "";
+        int query = target.indexOf('?');
+        String path = (query >= 0) ? target.substring(0, query) : target;
+        long since = parseSince((query >= 0) ? target.substring(query + 1) : "");
+        if (!parts[0].equals("GET") || !path.equals(CHANGES_PATH) || since < 0) {
+            writeHead(out, "404 Not Found", null, false);
+            out.flush();
+            return;
+        }
+
+        List<CatalogChange> changes;
+        int cutOff;
+        String etag;
+        synchronized (this) {
+            requestCount++;
+            lastIfNoneMatch = ifNoneMatch;
+            etag = etagOf(history.size());
+            if (since >= history.size() || etag.equals(ifNoneMatch)) {
+                changes = null;
+                cutOff = -1;
+            } else {
+                changes = new ArrayList<>(history.subList((int) since, history.size()));
+                cutOff = interruptAfter;
+                interruptAfter = -1;
+            }
+        }
+        if (changes == null) {
+            writeHead(out, "304 Not Modified", etag, false);
+            out.flush();
+            return;
+        }
+
+        writeHead(out, "200 OK", etag, acceptsGzip);
+        OutputStream body = acceptsGzip ? new GZIPOutputStream(out, true) : out;
+        Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("version").value(since + changes.size());
+        json.name("changes").beginArray();
+        for (int i = 0; i < changes.size(); i++) {
+            if (i == cutOff) {
+                // Drop the connection mid-body, as a lost network would
+                json.flush();
+                if (body instanceof GZIPOutputStream) {
+                    ((GZIPOutputStream) body).flush();
+                }
+                out.flush();
+                return;
+            }
+            changes.get(i).write(json);
+        }
+        json.endArray();
+        json.endObject();
+        json.close();
+    }
+
+    /**
+     * Writes the status line and headers of a response whose body ends with the connection.
+     *
+     * @param out    The connection's output.
+     * @param status The status code and reason.
+     * @param etag   The ETag, or null.
+     * @param gzip   Whether the body is gzipped.
+     * @throws IOException If writing fails.
+     */
+    private static void writeHead(OutputStream out, String status, String etag, boolean gzip) throws IOException {
+        StringBuilder head = new StringBuilder("HTTP/1.1 ").append(status).append("\r\n");
+        if (etag != null) {
+            head.append("ETag: ").append(etag).append("\r\n");
+        }
+        if (status.startsWith("200")) {
+            head.append("Content-Type: application/json; charset=utf-8\r\n");
+        } else {
+            head.append("Content-Length: 0\r\n");
+        }
+        if (gzip) {
+            head.append("Content-Encoding: gzip\r\n");
+        }
+        head.append("Connection: close\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Finds the "since" parameter of a query string.
+     *
+     * @param query The query string, without the question mark.
+     * @return The version, 0 if the parameter is absent, or -1 if it is malformed.
+     */
+    private static long parseSince(String query) {
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("since=")) {
+                try {
+                    long since = Long.parseLong(parameter.substring("since=".length()));
+                    return (since >= 0) ? since : -1;
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return 0;
+    }
+}
\ No newline at end of file
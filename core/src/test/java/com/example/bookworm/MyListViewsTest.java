@@ -0,0 +1,194 @@
+package com.example.bookworm;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link MyListViews}: the incrementally maintained views, and the
+ * {@link ViewChanges} recorded while they are changed, against views rebuilt from scratch.
+ */
+public class MyListViewsTest {
+
+    /** Epoch day the random run starts on. */
+    private static final int START_DAY = 20000;
+
+    /** Stands in for a row whose content a replay has been told changed. */
+    private static final Book CHANGED_ROW = new Book("changed", "", "", 0, null);
+
+    /**
+     * A view's rows as an adapter following its changes would hold them.
+     */
+    private static final class ReplayedView implements ViewChanges.Callback {
+
+        /** The rows; inserted and changed rows are CHANGED_ROW until refreshed. */
+        final ArrayList<Book> rows = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                rows.add(position, CHANGED_ROW);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            rows.subList(position, position + count).clear();
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            rows.add(toPosition, rows.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            for (int i = position; i < position + count; i++) {
+                rows.set(i, CHANGED_ROW);
+            }
+        }
+
+        /**
+         * Checks the replayed rows against a view: every row the changes did not touch must
+         * be the very same book at the same position, and the touched rows are refreshed.
+         *
+         * @param expected The view's books after the change.
+         * @param message  Describes the step, for failures.
+         */
+        void refresh(List<Book> expected, String message) {
+            assertEquals(message, expected.size(), rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i) == CHANGED_ROW) {
+                    rows.set(i, expected.get(i));
+                } else {
+                    assertSame(message + " at " + i, expected.get(i), rows.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Twenty thousand random adds, returns, re-datings and day changes. After each one the
+     * recorded changes, replayed onto each view's previous rows, must give the new rows, and
+     * every view must match views built from scratch over the same books.
+     */
+    @Test
+    public void randomChangesReplayOntoEveryView() {
+        Random random = new Random(23);
+        HashMap<String, Long> addedOrder = new HashMap<>();
+        HashMap<String, Book> books = new HashMap<>();
+        ArrayList<String> keys = new ArrayList<>();
+        int today = START_DAY;
+        long nextAdded = 0;
+
+        MyListViews views = MyListViews.of(new ArrayList<>(), book -> addedOrder.get(book.getKey()), today);
+        ReplayedView[] replayed = new ReplayedView[MyListView.values().length];
+        for (MyListView view : MyListView.values()) {
+            replayed[view.ordinal()] = new ReplayedView();
+        }
+
+        for (int step = 0; step < 20000; step++) {
+            ViewChanges.Builder changes = new ViewChanges.Builder();
+            int operation = random.nextInt(10);
+            if (keys.isEmpty() || (operation < 4 && keys.size() < 300)) {
+                String id = "b" + step;
+                Book book = new Book(id, "Title " + random.nextInt(50), "Author " + random.nextInt(10), 0, null);
+                book.setReturnEpochDay(randomReturnDay(random, today));
+                addedOrder.put(book.getKey(), nextAdded++);
+                books.put(book.getKey(), book);
+                keys.add(book.getKey());
+                views = views.plus(book, changes);
+            } else if (operation < 7) {
+                String key = keys.remove(random.nextInt(keys.size()));
+                views = views.minus(books.remove(key), changes);
+                addedOrder.remove(key);
+            } else if (operation < 9) {
+                String key = keys.get(random.nextInt(keys.size()));
+                Book updated = books.get(key).withReturnEpochDay(randomReturnDay(random, today));
+                views = views.replace(books.put(key, updated), updated, changes);
+            } else {
+                today += random.nextInt(7) - 3;
+                views = views.withToday(today, changes);
+            }
+
+            ViewChanges recorded = changes.build();
+            assertNotNull(recorded);
+            for (MyListView view : MyListView.values()) {
+                ReplayedView rows = replayed[view.ordinal()];
+                recorded.dispatch(view, rows);
+                rows.refresh(views.getBooks(view), "Step " + step + ", " + view);
+            }
+
+            if (step % 100 == 0) {
+                MyListViews rebuilt = MyListViews.of(books.values(), book -> addedOrder.get(book.getKey()), today);
+                for (MyListView view : MyListView.values()) {
+                    assertEquals("Step " + step + ", " + view, rebuilt.getBooks(view), views.getBooks(view));
+                }
+                assertEquals(rebuilt.getOverdueCount(), views.getOverdueCount());
+                assertEquals("Step " + step, nextOverdueDay(books.values(), today), views.getNextOverdueDay());
+            }
+        }
+    }
+
+    /**
+     * A book falls due days before it is fined; the index must name the day it falls due
+     * as the next change, so that the overdue view can be refreshed on that day.
+     */
+    @Test
+    public void nextOverdueDayComesBeforeTheFine() {
+        MyListIndex index = new MyListIndex();
+        index.setToday(START_DAY);
+        Book dueTomorrow = new Book("tomorrow", "Title", "Author", 0, null);
+        dueTomorrow.setReturnEpochDay(START_DAY + 1);
+        Book undated = new Book("undated", "Title", "Author", 0, null);
+        index.add(dueTomorrow);
+        index.add(undated);
+        index.takeViewChanges();
+
+        assertEquals(START_DAY + 1, index.getNextOverdueDay());
+        assertEquals(START_DAY + 1 + FineEngine.FINE_THRESHOLD_DAYS, index.getNextFineChangeDay(START_DAY));
+
+        index.setToday(START_DAY + 1);
+        ViewChanges changes = index.takeViewChanges();
+        assertNotNull(changes);
+        assertEquals(1, changes.getOperationCount(MyListView.OVERDUE));
+        assertEquals(1, index.getViews().getOverdueCount());
+        assertEquals(Integer.MAX_VALUE, index.getNextOverdueDay());
+    }
+
+    /**
+     * Finds the next day a book becomes overdue by looking at every book.
+     *
+     * @param books The books.
+     * @param today The day the views are computed for.
+     * @return The smallest return date after today, or Integer.MAX_VALUE if there is none.
+     */
+    private static int nextOverdueDay(Iterable<Book> books, int today) {
+        int next = Integer.MAX_VALUE;
+        for (Book book : books) {
+            int returnDay = book.getReturnEpochDay();
+            if (book.hasReturnDate() && returnDay > today) {
+                next = Math.min(next, returnDay);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Picks a return date near a day, or none.
+     *
+     * @param random The random source.
+     * @param today  The day.
+     * @return An epoch day within two weeks of today, or no date.
+     */
+    private static int randomReturnDay(Random random, int today) {
+        return (random.nextInt(5) == 0) ? LoanDates.NO_DATE : today + random.nextInt(29) - 14;
+    }
+}
\ No newline at end of file
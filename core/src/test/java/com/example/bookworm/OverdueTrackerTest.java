@@ -0,0 +1,175 @@
+package com.example.bookworm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link OverdueTracker} and {@link DayClock}, driven by a {@link FakeClock}.
+ */
+public class OverdueTrackerTest {
+
+    /** One hour in milliseconds. */
+    private static final long HOUR = 1000L * 60L * 60L;
+
+    /** Noon UTC on the day the tests start. */
+    private static final long START_MILLIS =
+            LocalDate.of(2024, 5, 10).atTime(12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    /** The time seen by the tracker. */
+    private FakeClock time;
+
+    /** The day clock over {@link #time}, in UTC. */
+    private DayClock clock;
+
+    /**
+     * Starts each test at noon UTC.
+     */
+    @Before
+    public void setUp() {
+        time = new FakeClock(START_MILLIS);
+        clock = new DayClock(time, () -> ZoneOffset.UTC);
+    }
+
+    /**
+     * Creates a book due some days before or after today.
+     *
+     * @param id          The catalog id.
+     * @param daysFromNow The return date relative to today.
+     * @return The book.
+     */
+    private Book due(String id, int daysFromNow) {
+        return new Book(id, "Title " + id, "Author", 0, null)
+                .withReturnEpochDay(clock.today() + daysFromNow);
+    }
+
+    /**
+     * Gets the ids of some books.
+     *
+     * @param books The books.
+     * @return Their ids, in order.
+     */
+    private static List<String> ids(List<Book> books) {
+        ArrayList<String> ids = new ArrayList<>();
+        for (Book book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Overdue books are announced once, oldest first, and books that are not due yet
+     * or have no date are left out.
+     */
+    @Test
+    public void announcesEachOverdueBookOnce() {
+        OverdueTracker tracker = new OverdueTracker(clock, Collections.emptyMap(), 0L);
+        tracker.setBooks(Arrays.asList(due("late", -2), due("later", -5), due("future", 3),
+                new Book("undated", "Undated", "Author", 0, null)));
+
+        assertEquals(Arrays.asList("later", "late"), ids(tracker.pollSummary()));
+
+        time.advance(OverdueTracker.NOTIFICATION_WINDOW_MILLIS);
+        tracker.setBooks(Arrays.asList(due("late", -2), due("later", -5), due("future", 3)));
+        assertTrue(tracker.pollSummary().isEmpty());
+    }
+
+    /**
+     * Books that become overdue inside the notification window wait for the next summary.
+     */
+    @Test
+    public void coalescesWithinTheWindow() {
+        OverdueTracker tracker = new OverdueTracker(clock, Collections.emptyMap(), 0L);
+        Book first = due("first", -1);
+        Book second = due("second", 1);
+        tracker.setBooks(Arrays.asList(first, second));
+        assertEquals(Collections.singletonList("first"), ids(tracker.pollSummary()));
+        assertEquals(START_MILLIS, tracker.getLastNotificationMillis());
+
+        // Two days later the second book is late, but the window only just opened again
+        time.advance(OverdueTracker.NOTIFICATION_WINDOW_MILLIS - HOUR);
+        tracker.setBooks(Arrays.asList(first, second));
+        assertTrue(tracker.pollSummary().isEmpty());
+
+        time.advance(2 * 24 * HOUR);
+        tracker.setBooks(Arrays.asList(first, second));
+        assertEquals(Collections.singletonList("second"), ids(tracker.pollSummary()));
+    }
+
+    /**
+     * Choosing a new return date makes a book eligible again, and returned books are
+     * dropped from the persisted state.
+     */
+    @Test
+    public void prunesReturnedAndRedatedBooks() {
+        OverdueTracker tracker = new OverdueTracker(clock, Collections.emptyMap(), 0L);
+        tracker.setBooks(Arrays.asList(due("kept", -3), due("redated", -3), due("returned", -3)));
+        assertEquals(3, tracker.pollSummary().size());
+
+        tracker = new OverdueTracker(clock, tracker.getAnnounced(), tracker.getLastNotificationMillis());
+        time.advance(OverdueTracker.NOTIFICATION_WINDOW_MILLIS);
+        tracker.setBooks(Arrays.asList(due("kept", -3), due("redated", -2)));
+
+        assertEquals(Collections.singletonList("redated"), ids(tracker.pollSummary()));
+        assertEquals(2, tracker.getAnnounced().size());
+        assertTrue(tracker.getAnnounced().containsKey(due("kept", 0).getKey()));
+    }
+
+    /**
+     * A summary that could not be shown is taken back: its books are announced by the
+     * next poll and the notification window is not consumed.
+     */
+    @Test
+    public void retractedSummaryIsNotLost() {
+        long earlier = START_MILLIS - 2 * OverdueTracker.NOTIFICATION_WINDOW_MILLIS;
+        OverdueTracker tracker = new OverdueTracker(clock, Collections.emptyMap(), earlier);
+        tracker.setBooks(Arrays.asList(due("late", -1)));
+
+        List<Book> summary = tracker.pollSummary();
+        assertEquals(1, summary.size());
+        tracker.retractSummary(summary);
+
+        assertTrue(tracker.getAnnounced().isEmpty());
+        assertEquals(earlier, tracker.getLastNotificationMillis());
+
+        // Persisted and reloaded, as the notifier does between runs
+        tracker = new OverdueTracker(clock, tracker.getAnnounced(), tracker.getLastNotificationMillis());
+        tracker.setBooks(Arrays.asList(due("late", -1)));
+        assertEquals(Collections.singletonList("late"), ids(tracker.pollSummary()));
+    }
+
+    /**
+     * The day changes at local midnight, and a new time zone is picked up within an hour.
+     */
+    @Test
+    public void dayClockFollowsMidnightAndZone() {
+        AtomicReference<ZoneId> zone = new AtomicReference<>(ZoneOffset.UTC);
+        DayClock days = new DayClock(time, zone::get);
+        int start = (int) LocalDate.of(2024, 5, 10).toEpochDay();
+
+        assertEquals(start, days.today());
+        time.advance(12 * HOUR - 1);
+        assertEquals(start, days.today());
+        time.advance(1);
+        assertEquals(start + 1, days.today());
+
+        // 00:00 UTC is still the previous evening in New York
+        zone.set(ZoneId.of("America/New_York"));
+        time.advance(HOUR);
+        assertEquals(start, days.today());
+
+        time.set(START_MILLIS);
+        assertEquals(LoanDates.startOfDayMillis(start, zone.get()), days.startOfDayMillis(start));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.example.bookworm;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link PagedCatalog}, with page loads and deliveries run on the calling thread.
+ */
+public class PagedCatalogTest {
+
+    /** Page size, for readability. */
+    private static final int PAGE = PagedCatalog.PAGE_SIZE;
+
+    /** A generated catalog that records the pages it is asked for. */
+    private static final class CountingSource implements CatalogSource {
+
+        /** Number of books in the catalog. */
+        private final int count;
+
+        /** Offsets of the ranges loaded, in order. */
+        final ArrayList<Integer> loadedOffsets = new ArrayList<>();
+
+        /** Offsets whose next load fails. */
+        final Set<Integer> failingOffsets = new HashSet<>();
+
+        /**
+         * Creates the catalog.
+         *
+         * @param count Number of books.
+         */
+        CountingSource(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public List<Book> loadRange(int offset, int limit) {
+            if (failingOffsets.remove(offset)) {
+                throw new UncheckedIOException(new IOException("Catalog closed"));
+            }
+            loadedOffsets.add(offset);
+            ArrayList<Book> books = new ArrayList<>();
+            for (int i = offset; i < Math.min(offset + limit, count); i++) {
+                books.add(new Book(Integer.toString(i), "Title " + i, "Author", 0, null));
+            }
+            return books;
+        }
+    }
+
+    /**
+     * Creates a paged catalog that loads and delivers pages on the calling thread.
+     *
+     * @param source The catalog.
+     * @return The paged catalog.
+     */
+    private static PagedCatalog paged(CatalogSource source) {
+        return new PagedCatalog(source, Runnable::run, Runnable::run);
+    }
+
+    /**
+     * Counts the resident pages without touching their recency.
+     *
+     * @param catalog The paged catalog.
+     * @param pages   The number of pages in the catalog.
+     * @return The indexes of the resident pages.
+     */
+    private static List<Integer> residentPages(PagedCatalog catalog, int pages) {
+        ArrayList<Integer> resident = new ArrayList<>();
+        for (int i = 0; i < pages; i++) {
+            if (catalog.peekItem(i * PAGE) != null) {
+                resident.add(i);
+            }
+        }
+        return resident;
+    }
+
+    /**
+     * Reading a position loads its page, prefetches the two pages after it and reports each
+     * loaded range; reading positions in resident pages loads nothing.
+     */
+    @Test
+    public void loadsPageAndPrefetchesTwoAhead() {
+        CountingSource source = new CountingSource(20 * PAGE);
+        PagedCatalog catalog = paged(source);
+        ArrayList<Integer> loadedRanges = new ArrayList<>();
+        catalog.setListener((positionStart, itemCount) -> {
+            assertEquals(PAGE, itemCount);
+            loadedRanges.add(positionStart);
+        });
+
+        assertNull(catalog.getItem(5));
+        assertEquals(Arrays.asList(PAGE, 2 * PAGE, 0), source.loadedOffsets);
+        assertEquals(source.loadedOffsets, loadedRanges);
+        assertEquals("Title 5", catalog.getItem(5).getTitle());
+        assertEquals("Title 119", catalog.peekItem(119).getTitle());
+        assertNull(catalog.peekItem(120));
+
+        // Moving into the next page only prefetches the one new page ahead
+        assertNotNull(catalog.getItem(PAGE));
+        assertEquals(Arrays.asList(PAGE, 2 * PAGE, 0, 3 * PAGE), source.loadedOffsets);
+    }
+
+    /**
+     * Prefetching stops at the end of the catalog, and the last page may be short.
+     */
+    @Test
+    public void lastPageIsShort() {
+        CountingSource source = new CountingSource(2 * PAGE + 5);
+        PagedCatalog catalog = paged(source);
+
+        assertNull(catalog.getItem(2 * PAGE + 4));
+        assertEquals(Arrays.asList(2 * PAGE), source.loadedOffsets);
+        assertEquals("Title " + (2 * PAGE + 4), catalog.getItem(2 * PAGE + 4).getTitle());
+        assertNull(catalog.getItem(2 * PAGE + 5));
+    }
+
+    /**
+     * Once the window is full, the least recently read page is evicted, and an evicted page
+     * is loaded again when it is read.
+     */
+    @Test
+    public void evictsLeastRecentlyUsedPage() {
+        CountingSource source = new CountingSource(20 * PAGE);
+        PagedCatalog catalog = paged(source);
+
+        catalog.getItem(0);        // Loads 1, 2, 0
+        catalog.getItem(3 * PAGE); // Loads 4, 5, 3
+        catalog.getItem(0);        // Reads 0 again, making it the most recent
+        catalog.getItem(6 * PAGE); // Loads 7, 8, 6, which overflows the window by one
+
+        assertEquals(PagedCatalog.MAX_RESIDENT_PAGES, residentPages(catalog, 20).size());
+        assertEquals(Arrays.asList(0, 2, 3, 4, 5, 6, 7, 8), residentPages(catalog, 20));
+
+        int loads = source.loadedOffsets.size();
+        assertNull(catalog.getItem(PAGE));
+        assertEquals(loads + 1, source.loadedOffsets.size());
+        assertNotNull(catalog.peekItem(PAGE));
+    }
+
+    /**
+     * A page whose load fails is not left in flight: its rows are placeholders until it is
+     * read again, which loads it.
+     */
+    @Test
+    public void failedPageIsLoadedAgain() {
+        CountingSource source = new CountingSource(20 * PAGE);
+        PagedCatalog catalog = paged(source);
+        ArrayList<Integer> loadedRanges = new ArrayList<>();
+        catalog.setListener((positionStart, itemCount) -> loadedRanges.add(positionStart));
+        source.failingOffsets.add(0);
+
+        assertNull(catalog.getItem(0));
+        assertEquals(Arrays.asList(PAGE, 2 * PAGE), loadedRanges);
+        assertNull(catalog.peekItem(0));
+
+        assertNull(catalog.getItem(0));
+        assertEquals(Arrays.asList(PAGE, 2 * PAGE, 0), loadedRanges);
+        assertEquals("Title 0", catalog.getItem(0).getTitle());
+    }
+
+    /**
+     * Pages delivered after the catalog is closed are dropped.
+     */
+    @Test
+    public void closedCatalogLoadsNothing() {
+        CountingSource source = new CountingSource(20 * PAGE);
+        PagedCatalog catalog = paged(source);
+        catalog.close();
+
+        assertNull(catalog.getItem(0));
+        assertEquals(0, source.loadedOffsets.size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.example.bookworm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests for {@link ShardedLists}: list ids and the manifest that records them.
+ */
+public class ShardedListsTest {
+
+    /** Holds each test's manifest and shards. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** Ids of the shards deleted so far. */
+    private final ArrayList<String> deletedShards = new ArrayList<>();
+
+    /**
+     * Opens a registry over the test folder, with one journal directory per shard.
+     * Deleting a shard only records its id, as if the app died before removing its files.
+     *
+     * @return The registry.
+     */
+    private ShardedLists openLists() {
+        File root = folder.getRoot();
+        return new ShardedLists(new File(root, "lists.json"), new ShardedLists.ShardStorage() {
+            @Override
+            public LoanStore open(String listId) {
+                File directory = new File(root, listId);
+                directory.mkdirs();
+                return new BookJournal(directory);
+            }
+
+            @Override
+            public void delete(String listId) {
+                deletedShards.add(listId);
+            }
+        }, "My List");
+    }
+
+    /**
+     * A list created after the newest list was deleted gets a new id, even after the
+     * manifest is read back, so it cannot inherit the deleted list's leftover shard.
+     */
+    @Test
+    public void deletedIdsAreNotReused() throws IOException {
+        ShardedLists lists = openLists();
+        lists.create("Summer");
+        ListInfo autumn = lists.create("Autumn");
+        lists.getStore(autumn.getId()).add(new Book("1", "Title 1", "Author", 0, null));
+        lists.getStore(autumn.getId()).sync();
+        lists.delete(autumn.getId());
+        assertEquals(autumn.getId(), deletedShards.get(0));
+
+        ListInfo winter = openLists().create("Winter");
+        assertNotEquals(autumn.getId(), winter.getId());
+        assertEquals("list-3", winter.getId());
+    }
+
+    /**
+     * The id counter survives being written and read back with the rest of the manifest.
+     */
+    @Test
+    public void counterIsPersisted() throws IOException {
+        ShardedLists lists = openLists();
+        lists.create("One");
+        lists.create("Two");
+        lists.writeManifestIfDirty();
+
+        ShardedLists reopened = openLists();
+        assertEquals(3, reopened.getLists().size());
+        assertEquals("list-3", reopened.create("Three").getId());
+    }
+
+    /**
+     * A manifest written before the counter was recorded continues after the highest id
+     * still in use.
+     */
+    @Test
+    public void formatOneManifestContinuesAfterHighestId() throws IOException {
+        Files.write(new File(folder.getRoot(), "lists.json").toPath(), ("{\"format\":1,\"lists\":["
+                + "{\"id\":\"default\",\"name\":\"My List\",\"version\":0,\"bookCount\":0},"
+                + "{\"id\":\"list-4\",\"name\":\"Old\",\"version\":2,\"bookCount\":1}]}")
+                .getBytes(StandardCharsets.UTF_8));
+
+        ShardedLists lists = openLists();
+        assertEquals("list-5", lists.create("New").getId());
+        lists.writeManifestIfDirty();
+        lists.delete("list-5");
+
+        assertEquals("list-6", openLists().create("Newer").getId());
+    }
+}
\ No newline at end of file